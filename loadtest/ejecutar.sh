@@ -0,0 +1,89 @@
+#!/usr/bin/env bash
+# Corre la prueba de carga de punta a punta sin interfaz grafica:
+#   1. levanta PostgreSQL con docker compose (salvo que DB_URL apunte a otra base)
+#   2. inicia la aplicacion con reCAPTCHA en modo stub, sin rate limiting y con SMTP local
+#   3. carga los datos de prueba si la base esta vacia y reinicia la aplicacion
+#   4. ejecuta el generador de carga y deja el reporte en loadtest/build/resultados
+#
+# Uso: loadtest/ejecutar.sh [--usuarios=100 --duracion=120s ...]
+# Variables: DB_URL, DB_USER, DB_PASSWORD, APP_PORT (8080), SMTP_PUERTO (2525), VIRTUAL_THREADS (false)
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+DB_USER="${DB_USER:-cabalgatas_user}"
+DB_PASSWORD="${DB_PASSWORD:-cabalgatas_pass}"
+APP_PORT="${APP_PORT:-8080}"
+SMTP_PUERTO="${SMTP_PUERTO:-2525}"
+LOG=loadtest/build/aplicacion.log
+
+if [[ -z "${DB_URL:-}" ]]; then
+  DB_URL=jdbc:postgresql://localhost:5432/cabalgatas_db
+  docker compose -f docker/docker-compose.yml up -d postgres
+  until docker exec cabalgatas-db pg_isready -U "$DB_USER" -d cabalgatas_db >/dev/null 2>&1; do sleep 1; done
+  PSQL=(docker exec -i cabalgatas-db psql -U "$DB_USER" -d cabalgatas_db -v ON_ERROR_STOP=1 -qtA)
+else
+  # psql necesita la URL sin el prefijo jdbc: y con las credenciales
+  PSQL=(env PGPASSWORD="$DB_PASSWORD" psql "${DB_URL#jdbc:}" -U "$DB_USER" -v ON_ERROR_STOP=1 -qtA)
+fi
+
+./gradlew -q bootJar :loadtest:installDist
+mkdir -p loadtest/build
+JAR=$(ls build/libs/horse_reserved-*.jar | grep -v plain | head -n 1)
+
+iniciar_aplicacion() {
+  java -jar "$JAR" \
+    --server.port="$APP_PORT" \
+    --spring.datasource.url="$DB_URL" \
+    --spring.datasource.username="$DB_USER" \
+    --spring.datasource.password="$DB_PASSWORD" \
+    --spring.threads.virtual.enabled="${VIRTUAL_THREADS:-false}" \
+    --spring.jpa.show-sql=false \
+    --recaptcha.modo=stub \
+    --app.rate-limit.habilitado=false \
+    --spring.mail.host=localhost \
+    --spring.mail.port="$SMTP_PUERTO" \
+    --spring.mail.username= \
+    --spring.mail.password= \
+    --spring.mail.properties.mail.smtp.auth=false \
+    --spring.mail.properties.mail.smtp.starttls.enable=false \
+    --spring.mail.properties.mail.smtp.starttls.required=false \
+    --app.mail.from=noreply@carga.test \
+    >>"$LOG" 2>&1 &
+  APP_PID=$!
+
+  echo "Esperando a la aplicacion en el puerto $APP_PORT (log: $LOG)"
+  for _ in $(seq 1 120); do
+    if curl -fs "http://localhost:$APP_PORT/readyz" >/dev/null; then return; fi
+    if ! kill -0 "$APP_PID" 2>/dev/null; then echo "La aplicacion no inicio, ver $LOG" >&2; exit 1; fi
+    sleep 1
+  done
+  echo "La aplicacion no respondio a tiempo, ver $LOG" >&2
+  exit 1
+}
+
+detener_aplicacion() {
+  kill "$APP_PID" 2>/dev/null || true
+  wait "$APP_PID" 2>/dev/null || true
+}
+
+: >"$LOG"
+APP_PID=
+trap 'detener_aplicacion' EXIT
+iniciar_aplicacion
+
+# Las migraciones de Flyway corren al iniciar la aplicacion; los datos de prueba solo se cargan sobre una
+# base vacia. Tras cargarlos se reinicia la aplicacion para que la medicion empiece con sus caches en
+# memoria (agenda de recursos, calendarios, tokens revocados) construidas sobre los datos cargados.
+if [[ "$("${PSQL[@]}" -c 'SELECT count(*) FROM rutas')" == "0" ]]; then
+  echo "Cargando src/main/resources/db/test_data.sql"
+  "${PSQL[@]}" < src/main/resources/db/test_data.sql
+  echo "Reiniciando la aplicacion con los datos cargados"
+  detener_aplicacion
+  iniciar_aplicacion
+fi
+
+loadtest/build/install/loadtest/bin/loadtest \
+  --base-url="http://localhost:$APP_PORT" \
+  --smtp-puerto="$SMTP_PUERTO" \
+  "$@"
@@ -0,0 +1,112 @@
+package horse_reserved.carga;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Solicitudes de horse_reserved.postman_collection.json indexadas por nombre.
+ *
+ * Se conservan como plantillas con las variables {@code {{nombre}}} de Postman; cada usuario
+ * virtual las resuelve con sus propias variables (token, reservaId...). Los scripts de prueba
+ * de la coleccion no se ejecutan: los escenarios capturan los mismos valores en Java.
+ */
+final class ColeccionPostman {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\{([^}]+)}}");
+
+    /**
+     * Solicitud sin resolver. {@code endpoint} agrupa los resultados: metodo y URL sin {@code {{baseUrl}}}.
+     */
+    record Peticion(String nombre, String metodo, String url, Map<String, String> cabeceras, String cuerpo) {
+
+        String endpoint() {
+            return metodo + " " + url.replace("{{baseUrl}}", "");
+        }
+    }
+
+    private final Map<String, Peticion> peticiones;
+    private final Map<String, String> variables;
+
+    private ColeccionPostman(Map<String, Peticion> peticiones, Map<String, String> variables) {
+        this.peticiones = peticiones;
+        this.variables = variables;
+    }
+
+    static ColeccionPostman leer(Path archivo, JsonMapper json) {
+        JsonNode raiz = json.readTree(archivo.toFile());
+        Map<String, String> variables = new HashMap<>();
+        for (JsonNode variable : raiz.path("variable")) {
+            variables.put(variable.path("key").asString(), variable.path("value").asString());
+        }
+        Map<String, Peticion> peticiones = new LinkedHashMap<>();
+        recorrer(raiz.path("item"), peticiones);
+        return new ColeccionPostman(peticiones, variables);
+    }
+
+    /**
+     * Solicitud de la coleccion por su nombre exacto en Postman
+     * @throws IllegalArgumentException si la coleccion no la contiene
+     */
+    Peticion buscar(String nombre) {
+        Peticion peticion = peticiones.get(nombre);
+        if (peticion == null) {
+            throw new IllegalArgumentException("La coleccion no tiene la solicitud '" + nombre + "'");
+        }
+        return peticion;
+    }
+
+    /**
+     * Valores por defecto de las variables de la coleccion
+     */
+    Map<String, String> variables() {
+        return variables;
+    }
+
+    /**
+     * Reemplaza las variables {@code {{nombre}}} del texto
+     * @throws IllegalArgumentException si alguna variable no tiene valor
+     */
+    static String resolver(String texto, Map<String, String> valores) {
+        if (texto == null || texto.indexOf("{{") < 0) {
+            return texto;
+        }
+        Matcher matcher = VARIABLE.matcher(texto);
+        StringBuilder resultado = new StringBuilder(texto.length() + 64);
+        while (matcher.find()) {
+            String valor = valores.get(matcher.group(1));
+            if (valor == null) {
+                throw new IllegalArgumentException("Variable sin valor: " + matcher.group(1));
+            }
+            matcher.appendReplacement(resultado, Matcher.quoteReplacement(valor));
+        }
+        matcher.appendTail(resultado);
+        return resultado.toString();
+    }
+
+    private static void recorrer(JsonNode items, Map<String, Peticion> peticiones) {
+        for (JsonNode item : items) {
+            if (item.has("item")) {
+                recorrer(item.get("item"), peticiones);
+                continue;
+            }
+            JsonNode request = item.path("request");
+            JsonNode url = request.path("url");
+            Map<String, String> cabeceras = new LinkedHashMap<>();
+            for (JsonNode cabecera : request.path("header")) {
+                cabeceras.put(cabecera.path("key").asString(), cabecera.path("value").asString());
+            }
+            String cuerpo = request.path("body").path("raw").asString(null);
+            String nombre = item.path("name").asString();
+            // Los nombres repetidos (p. ej. "Ver Reserva por ID" en dos carpetas) conservan el primero
+            peticiones.putIfAbsent(nombre, new Peticion(nombre, request.path("method").asString(),
+                    url.isString() ? url.asString() : url.path("raw").asString(), cabeceras, cuerpo));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package horse_reserved.carga;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parametros de una corrida, leidos de argumentos {@code --clave=valor}.
+ * Las duraciones aceptan {@code 90s}, {@code 5m} o el formato ISO-8601 ({@code PT90S}).
+ */
+record ConfiguracionCarga(
+        String baseUrl,
+        Path coleccion,
+        int usuarios,
+        Duration calentamiento,
+        Duration duracion,
+        Duration pausa,
+        Duration timeout,
+        Map<String, Integer> pesos,
+        List<Long> rutas,
+        List<LocalTime> horas,
+        int dias,
+        long semilla,
+        int puertoSmtp,
+        Path salida) {
+
+    static final String AYUDA = """
+            Uso: ./gradlew :loadtest:run --args="--clave=valor ..."
+              --base-url=http://localhost:8080      URL de la aplicacion
+              --coleccion=horse_reserved.postman_collection.json
+              --usuarios=50                         usuarios virtuales concurrentes
+              --calentamiento=15s                   carga previa que no se mide
+              --duracion=60s                        duracion de la medicion
+              --pausa=0s                            espera entre escenarios de un usuario
+              --timeout=10s                         timeout de cada solicitud
+              --escenarios=reservar=4,explorar=4,consultar=2,recuperar=1
+              --rutas=1,2,3                         rutas sobre las que se reserva
+              --horas=08:00,10:00,14:00             horas de inicio (app.salidas.horas-inicio)
+              --dias=60                             reservas entre pasado manana y este horizonte
+              --semilla=42                          semilla de las decisiones aleatorias
+              --smtp-puerto=0                       >0 levanta un SMTP que acepta y descarta correos
+              --salida=loadtest/build/resultados/carga-<fecha>.json
+            """;
+
+    static ConfiguracionCarga desdeArgumentos(String[] args) {
+        Map<String, String> valores = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento invalido: " + arg);
+            }
+            int igual = arg.indexOf('=');
+            valores.put(arg.substring(2, igual), arg.substring(igual + 1));
+        }
+        String marca = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+
+        ConfiguracionCarga configuracion = new ConfiguracionCarga(
+                quitarBarraFinal(valores.getOrDefault("base-url", "http://localhost:8080")),
+                Path.of(valores.getOrDefault("coleccion", "horse_reserved.postman_collection.json")),
+                Integer.parseInt(valores.getOrDefault("usuarios", "50")),
+                duracion(valores.getOrDefault("calentamiento", "15s")),
+                duracion(valores.getOrDefault("duracion", "60s")),
+                duracion(valores.getOrDefault("pausa", "0s")),
+                duracion(valores.getOrDefault("timeout", "10s")),
+                pesos(valores.getOrDefault("escenarios", "reservar=4,explorar=4,consultar=2,recuperar=1")),
+                lista(valores.getOrDefault("rutas", "1,2,3")).stream().map(Long::valueOf).toList(),
+                lista(valores.getOrDefault("horas", "08:00,10:00,14:00")).stream().map(LocalTime::parse).toList(),
+                Integer.parseInt(valores.getOrDefault("dias", "60")),
+                Long.parseLong(valores.getOrDefault("semilla", "42")),
+                Integer.parseInt(valores.getOrDefault("smtp-puerto", "0")),
+                Path.of(valores.getOrDefault("salida", "loadtest/build/resultados/carga-" + marca + ".json")));
+
+        if (configuracion.usuarios() < 1 || configuracion.dias() < 2 || configuracion.rutas().isEmpty()
+                || configuracion.horas().isEmpty()) {
+            throw new IllegalArgumentException("usuarios >= 1, dias >= 2 y al menos una ruta y una hora");
+        }
+        return configuracion;
+    }
+
+    private static Duration duracion(String valor) {
+        String v = valor.trim().toLowerCase();
+        if (v.startsWith("pt")) {
+            return Duration.parse(v.toUpperCase());
+        }
+        long cantidad = Long.parseLong(v.substring(0, v.length() - 1));
+        return switch (v.charAt(v.length() - 1)) {
+            case 's' -> Duration.ofSeconds(cantidad);
+            case 'm' -> Duration.ofMinutes(cantidad);
+            case 'h' -> Duration.ofHours(cantidad);
+            default -> throw new IllegalArgumentException("Duracion invalida: " + valor);
+        };
+    }
+
+    private static Map<String, Integer> pesos(String valor) {
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        for (String par : lista(valor)) {
+            String[] partes = par.split("=");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Escenario invalido: " + par);
+            }
+            pesos.put(partes[0].trim(), Integer.parseInt(partes[1].trim()));
+        }
+        return pesos;
+    }
+
+    private static List<String> lista(String valor) {
+        return Arrays.stream(valor.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    private static String quitarBarraFinal(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,137 @@
+package horse_reserved.carga;
+
+import horse_reserved.carga.ColeccionPostman.Peticion;
+import horse_reserved.carga.UsuarioVirtual.Respuesta;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Recorridos de un usuario armados con las solicitudes de la coleccion de Postman.
+ * Un escenario termina en el primer paso que falla y se cuenta como incompleto; un rechazo de
+ * negocio (cupo lleno, sin caballos) es parte de la carga esperada y no corta la corrida.
+ */
+enum Escenario {
+
+    /**
+     * Catalogo de rutas y disponibilidad de la semana, sin autenticacion
+     */
+    EXPLORAR {
+        @Override
+        boolean ejecutar(UsuarioVirtual usuario) {
+            if (!usuario.enviar(RUTAS).exitosa()) {
+                return false;
+            }
+            usuario.elegirRuta();
+            if (!usuario.enviar(RUTA).exitosa()) {
+                return false;
+            }
+            LocalDate desde = usuario.elegirFecha();
+            usuario.fijarVariable("desde", desde.toString());
+            usuario.fijarVariable("hasta", desde.plusDays(6).toString());
+            return usuario.enviar(DISPONIBILIDAD).exitosa();
+        }
+    },
+
+    /**
+     * Login, crear una reserva de dos personas, cambiar sus participantes y cancelarla
+     */
+    RESERVAR {
+        @Override
+        boolean ejecutar(UsuarioVirtual usuario) {
+            if (!iniciarSesion(usuario)) {
+                return false;
+            }
+            ColeccionPostman coleccion = usuario.coleccion();
+            usuario.elegirRuta();
+            String fecha = usuario.elegirFecha().toString();
+            String hora = usuario.elegirHora();
+
+            Respuesta creada = usuario.enviar(coleccion.buscar("Crear Reserva — caso base (2 personas)"), cuerpo -> {
+                cuerpo.put("fecha", fecha);
+                cuerpo.put("horaInicio", hora);
+            });
+            if (!usuario.capturar(creada, "id", "reservaId")) {
+                return false;
+            }
+            Respuesta actualizada = usuario.enviar(
+                    coleccion.buscar("Actualizar Reserva — misma salida (cambia participantes)"), cuerpo -> {
+                        cuerpo.put("fecha", fecha);
+                        cuerpo.put("horaInicio", hora);
+                    });
+            if (!actualizada.exitosa()) {
+                return false;
+            }
+            return usuario.enviar(coleccion.buscar("Cancelar Reserva")).exitosa();
+        }
+    },
+
+    /**
+     * Listado de reservas propias y detalle de la ultima
+     */
+    CONSULTAR {
+        @Override
+        boolean ejecutar(UsuarioVirtual usuario) {
+            if (usuario.variable("token") == null && !iniciarSesion(usuario)) {
+                return false;
+            }
+            ColeccionPostman coleccion = usuario.coleccion();
+            if (!usuario.enviar(coleccion.buscar("Mis Reservas (CLIENTE)")).exitosa()) {
+                return false;
+            }
+            return usuario.variable("reservaId") == null
+                    || usuario.enviar(coleccion.buscar("Ver Reserva por ID (propia)")).exitosa();
+        }
+    },
+
+    /**
+     * Solicitud de restablecimiento de contraseña; el correo queda en la bandeja de salida
+     */
+    RECUPERAR {
+        @Override
+        boolean ejecutar(UsuarioVirtual usuario) {
+            return usuario.enviar(usuario.coleccion().buscar("Forgot Password"), cuerpo -> {
+                cuerpo.put("email", usuario.variable("email"));
+                cuerpo.put("recaptchaToken", UsuarioVirtual.TOKEN_RECAPTCHA);
+            }).exitosa();
+        }
+    };
+
+    // La coleccion no incluye el catalogo publico de rutas
+    private static final Peticion RUTAS = new Peticion("Rutas", "GET",
+            "{{baseUrl}}/api/rutas/public", Map.of(), null);
+    private static final Peticion RUTA = new Peticion("Ruta", "GET",
+            "{{baseUrl}}/api/rutas/public/{{rutaId}}", Map.of(), null);
+    private static final Peticion DISPONIBILIDAD = new Peticion("Disponibilidad", "GET",
+            "{{baseUrl}}/api/rutas/public/{{rutaId}}/disponibilidad?desde={{desde}}&hasta={{hasta}}", Map.of(), null);
+
+    /**
+     * Ejecuta el recorrido completo; false si algun paso no respondio 2xx
+     */
+    abstract boolean ejecutar(UsuarioVirtual usuario);
+
+    /**
+     * Nombre usado en {@code --escenarios} y en el reporte
+     */
+    String clave() {
+        return name().toLowerCase();
+    }
+
+    static Escenario desdeClave(String clave) {
+        for (Escenario escenario : values()) {
+            if (escenario.clave().equals(clave)) {
+                return escenario;
+            }
+        }
+        throw new IllegalArgumentException("Escenario desconocido: " + clave);
+    }
+
+    private static boolean iniciarSesion(UsuarioVirtual usuario) {
+        Respuesta login = usuario.enviar(usuario.coleccion().buscar("Login"), cuerpo -> {
+            cuerpo.put("email", usuario.variable("email"));
+            cuerpo.put("password", usuario.variable("password"));
+            cuerpo.put("recaptchaToken", UsuarioVirtual.TOKEN_RECAPTCHA);
+        });
+        return usuario.capturar(login, "token", "token");
+    }
+}
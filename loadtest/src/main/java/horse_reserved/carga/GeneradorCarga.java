@@ -0,0 +1,166 @@
+package horse_reserved.carga;
+
+import horse_reserved.carga.RegistroLatencias.ResumenEndpoint;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera carga sobre la API reproduciendo la coleccion de Postman con usuarios virtuales.
+ *
+ * Cada usuario corre en su propio hilo virtual (modelo cerrado: la siguiente solicitud sale
+ * cuando llega la respuesta anterior). Tras el calentamiento se mide durante la duracion
+ * configurada y se escribe un reporte JSON con rendimiento y percentiles por endpoint.
+ * La aplicacion debe correr con {@code recaptcha.modo=stub} y sin rate limiting; ver loadtest/ejecutar.sh.
+ */
+public final class GeneradorCarga {
+
+    record Reporte(String inicio, String baseUrl, int usuarios, double segundos, long solicitudes,
+                   double porSegundo, long correosRecibidos, Map<String, Map<String, Long>> escenarios,
+                   List<ResumenEndpoint> endpoints) {}
+
+    private GeneradorCarga() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfiguracionCarga configuracion;
+        try {
+            configuracion = ConfiguracionCarga.desdeArgumentos(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(ConfiguracionCarga.AYUDA);
+            System.exit(2);
+            return;
+        }
+
+        SumideroSmtp smtp = configuracion.puertoSmtp() > 0 ? new SumideroSmtp(configuracion.puertoSmtp()) : null;
+        try {
+            Reporte reporte = ejecutar(configuracion, smtp);
+            imprimir(reporte);
+            Files.createDirectories(configuracion.salida().toAbsolutePath().getParent());
+            JsonMapper.builder().build().writerWithDefaultPrettyPrinter()
+                    .writeValue(configuracion.salida().toFile(), reporte);
+            System.out.println("Reporte: " + configuracion.salida().toAbsolutePath());
+        } finally {
+            if (smtp != null) {
+                smtp.close();
+            }
+        }
+    }
+
+    static Reporte ejecutar(ConfiguracionCarga configuracion, SumideroSmtp smtp) throws InterruptedException, IOException {
+        JsonMapper json = JsonMapper.builder().build();
+        ColeccionPostman coleccion = ColeccionPostman.leer(configuracion.coleccion(), json);
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(configuracion.timeout())
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        RegistroLatencias registro = new RegistroLatencias();
+        Escenario[] ruleta = ruleta(configuracion.pesos());
+        String corrida = Long.toString(System.currentTimeMillis(), 36);
+
+        List<UsuarioVirtual> usuarios = new ArrayList<>();
+        for (int i = 0; i < configuracion.usuarios(); i++) {
+            usuarios.add(new UsuarioVirtual(i, corrida, configuracion, coleccion, http, json, registro));
+        }
+        AtomicInteger registrados = new AtomicInteger();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            usuarios.forEach(u -> hilos.submit(() -> {
+                if (u.registrar()) {
+                    registrados.incrementAndGet();
+                }
+            }));
+        }
+        if (registrados.get() < usuarios.size()) {
+            throw new IllegalStateException("Solo se registraron " + registrados.get() + " de " + usuarios.size()
+                    + " usuarios; revisa que la aplicacion use recaptcha.modo=stub y que el registro no este limitado");
+        }
+        System.out.printf("%d usuarios registrados, calentamiento de %ds%n",
+                usuarios.size(), configuracion.calentamiento().toSeconds());
+
+        Map<Escenario, long[]> resultados = new EnumMap<>(Escenario.class);
+        for (Escenario escenario : Escenario.values()) {
+            resultados.put(escenario, new long[2]);
+        }
+        long inicioNanos = System.nanoTime();
+        long medicionNanos = inicioNanos + configuracion.calentamiento().toNanos();
+        long finNanos = medicionNanos + configuracion.duracion().toNanos();
+        Instant inicio = Instant.now().plus(configuracion.calentamiento());
+        long correosIniciales = 0;
+
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (UsuarioVirtual usuario : usuarios) {
+                hilos.submit(() -> {
+                    usuario.ejecutar(ruleta, finNanos, resultados);
+                    return null;
+                });
+            }
+            Thread.sleep(configuracion.calentamiento());
+            registro.iniciarMedicion();
+            resultados.values().forEach(r -> {
+                synchronized (r) {
+                    r[0] = 0;
+                    r[1] = 0;
+                }
+            });
+            correosIniciales = smtp != null ? smtp.recibidos() : 0;
+            System.out.printf("Midiendo durante %ds con %d usuarios%n",
+                    configuracion.duracion().toSeconds(), usuarios.size());
+        }
+        double segundos = (System.nanoTime() - medicionNanos) / 1e9;
+
+        List<ResumenEndpoint> endpoints = registro.resumir(segundos);
+        long solicitudes = endpoints.stream().mapToLong(ResumenEndpoint::solicitudes).sum();
+        Map<String, Map<String, Long>> escenarios = new LinkedHashMap<>();
+        resultados.forEach((escenario, r) -> {
+            if (configuracion.pesos().containsKey(escenario.clave())) {
+                escenarios.put(escenario.clave(), Map.of("completos", r[0], "incompletos", r[1]));
+            }
+        });
+        return new Reporte(inicio.toString(), configuracion.baseUrl(), usuarios.size(), segundos, solicitudes,
+                solicitudes / segundos, smtp != null ? smtp.recibidos() - correosIniciales : 0,
+                escenarios, endpoints);
+    }
+
+    /**
+     * Arreglo con cada escenario repetido segun su peso, para elegir con un solo indice aleatorio
+     */
+    private static Escenario[] ruleta(Map<String, Integer> pesos) {
+        List<Escenario> ruleta = new ArrayList<>();
+        pesos.forEach((clave, peso) -> {
+            Escenario escenario = Escenario.desdeClave(clave);
+            for (int i = 0; i < peso; i++) {
+                ruleta.add(escenario);
+            }
+        });
+        if (ruleta.isEmpty()) {
+            throw new IllegalArgumentException("Todos los escenarios tienen peso 0");
+        }
+        return ruleta.toArray(Escenario[]::new);
+    }
+
+    private static void imprimir(Reporte reporte) {
+        System.out.printf("%n%.0f s, %d solicitudes, %.1f sol/s%n", reporte.segundos(), reporte.solicitudes(),
+                reporte.porSegundo());
+        reporte.escenarios().forEach((escenario, r) ->
+                System.out.printf("  %-10s %6d completos %6d incompletos%n", escenario, r.get("completos"), r.get("incompletos")));
+        System.out.printf("%n%-70s %8s %8s %8s %8s %8s %8s  %s%n",
+                "endpoint", "sol", "sol/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "estados");
+        for (ResumenEndpoint e : reporte.endpoints()) {
+            System.out.printf("%-70s %8d %8.1f %8.1f %8.1f %8.1f %8.1f  %s%n", e.endpoint(), e.solicitudes(),
+                    e.porSegundo(), e.p50Ms(), e.p95Ms(), e.p99Ms(), e.maxMs(), e.estados());
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package horse_reserved.carga;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Carga un conjunto de datos sintetico de tamaño de produccion con {@code COPY}.
+ *
+ * Genera usuarios, rutas, caballos y guias, y recorre dia por dia el historial: cada
+ * (ruta, fecha, hora) tiene una salida con cierta probabilidad, calculada para llegar al numero
+ * de reservas pedido. Un caballo o guia no se asigna a dos salidas del mismo dia que se solapen:
+ * cada uno queda ocupado hasta el fin de su salida. Las salidas pasadas quedan completadas y las futuras programadas, con cupo_ocupado y
+ * cupo_maximo consistentes con sus reservas y caballos. Todo sale de una misma semilla, asi que
+ * dos cargas con los mismos parametros (incluida {@code --hoy}) producen exactamente los mismos datos.
+ *
+ * Las filas se envian por lotes de {@code dias-por-lote} dias, cada lote en su propia transaccion,
+ * y al final se ajustan las secuencias y se ejecuta ANALYZE para que los planes reflejen los datos.
+ */
+public final class GeneradorDatos {
+
+    static final String AYUDA = """
+            Uso: ./gradlew :loadtest:generarDatos --args="--clave=valor ..."
+              --url=jdbc:postgresql://localhost:5432/cabalgatas_db
+              --usuario=cabalgatas_user
+              --password=cabalgatas_pass
+              --reservas=2000000      reservas aproximadas a generar
+              --anios=3               años de historial hacia atras
+              --dias-futuros=90       dias de salidas programadas hacia adelante
+              --rutas=60
+              --horas=06:00,07:00,08:00,09:00,10:00,11:00,12:00,13:00,14:00,15:00,16:00
+              --caballos=500
+              --guias=200
+              --clientes=200000
+              --operadores=40
+              --semilla=42
+              --hoy=2026-10-17        fecha de referencia; fijarla hace la carga identica entre dias
+              --dias-por-lote=30
+              --limpiar=false         true vacia las tablas antes de cargar (si no, deben estar vacias)
+            """;
+
+    // Hash BCrypt de "Test1234!", el mismo de db/test_data.sql
+    private static final String PASSWORD_HASH = "$2b$10$em2Tf30PMD/kQFOoMEmkb.6SbcrWd5/dQH9QbVGcWw4KPMPy.8hDa";
+
+    private static final String[] NOMBRES = {"Ana", "Carlos", "María", "Juan", "Sofía", "Andrés", "Laura", "Diego",
+            "Valentina", "Camilo", "Isabella", "Santiago", "Mariana", "Felipe", "Daniela", "Mateo"};
+    private static final String[] APELLIDOS = {"García", "Rodríguez", "Martínez", "López", "Gómez", "Pérez",
+            "Ramírez", "Torres", "Díaz", "Vargas", "Moreno", "Rojas", "Castro", "Ortiz", "Ríos", "Montoya"};
+    private static final String[] DIFICULTADES = {"FACIL", "MEDIA", "DIFICIL"};
+    private static final String[] TIPOS_DOCUMENTO = {"CEDULA", "CEDULA", "CEDULA", "PASAPORTE", "TARJETA_IDENTIDAD"};
+
+    private static final int MIN_CABALLOS_SALIDA = 2;
+    private static final int MAX_CABALLOS_SALIDA = 12;
+    private static final int MAX_PERSONAS_RESERVA = 4;
+    private static final double PROBABILIDAD_CANCELADA = 0.1;
+    private static final double PROBABILIDAD_OPERADOR = 0.25;
+
+    private final Map<String, String> parametros;
+    private final Random random;
+    private final int clientes;
+    private final int operadores;
+    private final Recursos caballos;
+    private final Recursos guias;
+    private final long[] preciosRuta;
+    private final int[] duracionRuta;
+    private final List<LocalTime> horas;
+
+    private final TablaCopy usuariosCopy = new TablaCopy("usuarios", "id", "primer_nombre", "primer_apellido",
+            "tipo_documento", "documento", "email", "password_hash", "telefono", "role", "is_active",
+            "habeas_data_consented", "habeas_data_consented_at");
+    private final TablaCopy rutasCopy = new TablaCopy("rutas", "id", "nombre", "descripcion", "dificultad",
+            "duracion_minutos", "image_url", "is_active", "precio");
+    private final TablaCopy caballosCopy = new TablaCopy("caballos", "id", "nombre", "raza", "is_active");
+    private final TablaCopy guiasCopy = new TablaCopy("guias", "id", "nombre", "telefono", "email", "is_active");
+    private final TablaCopy salidasCopy = new TablaCopy("salidas", "id", "ruta_id", "fecha_programada",
+            "tiempo_inicio", "tiempo_fin", "estado", "cupo_ocupado", "cupo_maximo");
+    private final TablaCopy salidaCaballosCopy = new TablaCopy("salida_caballos", "salida_id", "horse_id");
+    private final TablaCopy salidaGuiasCopy = new TablaCopy("salida_guias", "salida_id", "guia_id");
+    private final TablaCopy reservasCopy = new TablaCopy("reservaciones", "id", "salida_id", "client_id",
+            "operator_id", "num_people", "estado", "precio_unitario", "total");
+    private final TablaCopy participantesCopy = new TablaCopy("participantes", "id", "reservacion_id",
+            "primer_nombre", "primer_apellido", "tipo_documento", "documento", "edad", "altura_cm", "peso_kg");
+
+    private long siguienteSalida = 1;
+    private long siguienteReserva = 1;
+    private long siguienteParticipante = 1;
+    private long salidasOmitidas;
+
+    private GeneradorDatos(Map<String, String> parametros) {
+        this.parametros = parametros;
+        this.random = new Random(Long.parseLong(parametro("semilla", "42")));
+        this.clientes = Math.max(1, Integer.parseInt(parametro("clientes", "200000")));
+        this.operadores = Integer.parseInt(parametro("operadores", "40"));
+        this.caballos = new Recursos(Integer.parseInt(parametro("caballos", "500")));
+        this.guias = new Recursos(Integer.parseInt(parametro("guias", "200")));
+        int rutas = Integer.parseInt(parametro("rutas", "60"));
+        this.preciosRuta = new long[rutas];
+        this.duracionRuta = new int[rutas];
+        this.horas = Arrays.stream(parametro("horas",
+                        "06:00,07:00,08:00,09:00,10:00,11:00,12:00,13:00,14:00,15:00,16:00").split(","))
+                .map(String::trim)
+                .map(LocalTime::parse)
+                .sorted()
+                .toList();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> parametros = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (!arg.startsWith("--") || igual < 0) {
+                System.err.println("Argumento invalido: " + arg);
+                System.err.print(AYUDA);
+                System.exit(2);
+            }
+            parametros.put(arg.substring(2, igual), arg.substring(igual + 1));
+        }
+        new GeneradorDatos(parametros).generar();
+    }
+
+    private void generar() throws SQLException, IOException {
+        long inicio = System.nanoTime();
+        try (Connection conexion = DriverManager.getConnection(
+                parametro("url", "jdbc:postgresql://localhost:5432/cabalgatas_db"),
+                parametro("usuario", "cabalgatas_user"),
+                parametro("password", "cabalgatas_pass"))) {
+            conexion.setAutoCommit(false);
+            CopyManager copy = conexion.unwrap(PGConnection.class).getCopyAPI();
+            try (Statement st = conexion.createStatement()) {
+                // Los datos se pueden regenerar: no hace falta esperar el fsync de cada lote
+                st.execute("SET synchronous_commit = off");
+                prepararTablas(st);
+            }
+
+            generarCatalogos();
+            volcar(copy, usuariosCopy, rutasCopy, caballosCopy, guiasCopy);
+            conexion.commit();
+
+            generarHistorial(copy, conexion);
+
+            try (Statement st = conexion.createStatement()) {
+                ajustarSecuencias(st);
+                conexion.commit();
+                conexion.setAutoCommit(true);
+                st.execute("ANALYZE usuarios, rutas, caballos, guias, salidas, salida_caballos, salida_guias, "
+                        + "reservaciones, participantes");
+            }
+        }
+        System.out.printf("%nListo en %.0f s:%n", (System.nanoTime() - inicio) / 1e9);
+        for (TablaCopy tabla : List.of(usuariosCopy, rutasCopy, caballosCopy, guiasCopy, salidasCopy,
+                salidaCaballosCopy, salidaGuiasCopy, reservasCopy, participantesCopy)) {
+            System.out.printf("  %-16s %,12d%n", tabla.tabla(), tabla.total());
+        }
+        if (salidasOmitidas > 0) {
+            System.out.printf("  %,d salidas omitidas por falta de caballos o guias libres%n", salidasOmitidas);
+        }
+    }
+
+    private void prepararTablas(Statement st) throws SQLException {
+        if (Boolean.parseBoolean(parametro("limpiar", "false"))) {
+            st.execute("TRUNCATE TABLE participantes, reservaciones, salida_caballos, salida_guias, salidas, "
+                    + "caballos, guias, rutas, usuarios RESTART IDENTITY CASCADE");
+            return;
+        }
+        try (ResultSet rs = st.executeQuery("SELECT (SELECT count(*) FROM usuarios) + (SELECT count(*) FROM rutas)")) {
+            rs.next();
+            if (rs.getLong(1) > 0) {
+                throw new IllegalStateException("La base ya tiene datos; usa --limpiar=true para reemplazarlos");
+            }
+        }
+    }
+
+    private void generarCatalogos() {
+        // id 1: administrador; 2..operadores+1: operadores; despues los clientes
+        usuariosCopy.fila(1, "Admin", "Datos", "CEDULA", "10000000", "admin@datos.test", PASSWORD_HASH, null,
+                "ADMINISTRADOR", true, true, "2026-01-01 00:00:00+00");
+        for (int i = 0; i < operadores; i++) {
+            usuariosCopy.fila(2 + i, elegir(NOMBRES), elegir(APELLIDOS), "CEDULA", String.valueOf(20_000_000 + i),
+                    "operador" + i + "@datos.test", PASSWORD_HASH, telefono(), "OPERADOR", true, true,
+                    "2026-01-01 00:00:00+00");
+        }
+        for (int i = 0; i < clientes; i++) {
+            usuariosCopy.fila(primerCliente() + i, elegir(NOMBRES), elegir(APELLIDOS), elegir(TIPOS_DOCUMENTO),
+                    String.valueOf(1_000_000_000L + i), "cliente" + i + "@datos.test", PASSWORD_HASH, telefono(),
+                    "CLIENTE", random.nextInt(50) != 0, true, "2026-01-01 00:00:00+00");
+        }
+        for (int i = 0; i < preciosRuta.length; i++) {
+            duracionRuta[i] = 60 + 30 * random.nextInt(7);
+            preciosRuta[i] = 30_000 + 5_000L * random.nextInt(25);
+            rutasCopy.fila(i + 1, "Ruta " + (i + 1), "Ruta sintetica de " + duracionRuta[i] + " minutos",
+                    DIFICULTADES[i % DIFICULTADES.length], duracionRuta[i], null, true,
+                    preciosRuta[i] + ".00");
+        }
+        for (int id : caballos.ids) {
+            caballosCopy.fila(id, "Caballo " + id, random.nextBoolean() ? "Criollo" : "Cuarto de Milla", true);
+        }
+        for (int id : guias.ids) {
+            guiasCopy.fila(id, elegir(NOMBRES) + " " + elegir(APELLIDOS), telefono(), "guia" + id + "@datos.test", true);
+        }
+    }
+
+    private void generarHistorial(CopyManager copy, Connection conexion) throws SQLException, IOException {
+        LocalDate hoy = parametros.containsKey("hoy") ? LocalDate.parse(parametros.get("hoy")) : LocalDate.now();
+        LocalDate desde = hoy.minusYears(Integer.parseInt(parametro("anios", "3")));
+        LocalDate hasta = hoy.plusDays(Integer.parseInt(parametro("dias-futuros", "90")));
+        int diasPorLote = Integer.parseInt(parametro("dias-por-lote", "30"));
+        long franjas = (hasta.toEpochDay() - desde.toEpochDay() + 1) * horas.size() * preciosRuta.length;
+        double probabilidadSalida = Math.min(1.0,
+                Long.parseLong(parametro("reservas", "2000000")) / (franjas * reservasPorSalidaEsperadas()));
+        System.out.printf("%,d franjas ruta/fecha/hora, probabilidad de salida %.3f%n", franjas, probabilidadSalida);
+
+        int dia = 0;
+        for (LocalDate fecha = desde; !fecha.isAfter(hasta); fecha = fecha.plusDays(1)) {
+            boolean pasada = fecha.isBefore(hoy);
+            caballos.nuevoDia();
+            guias.nuevoDia();
+            // Las horas estan ordenadas: un recurso ocupado hasta cierto minuto no vuelve a pedirse antes
+            for (LocalTime hora : horas) {
+                for (int ruta = 0; ruta < preciosRuta.length; ruta++) {
+                    if (random.nextDouble() >= probabilidadSalida) {
+                        continue;
+                    }
+                    int cupo = MIN_CABALLOS_SALIDA + random.nextInt(MAX_CABALLOS_SALIDA - MIN_CABALLOS_SALIDA + 1);
+                    int guiasSalida = cupo > 8 ? 2 : 1;
+                    LocalTime fin = hora.plusMinutes(duracionRuta[ruta]);
+                    int inicioMinutos = hora.toSecondOfDay() / 60;
+                    int finMinutos = fin.toSecondOfDay() / 60;
+                    if (!fin.isAfter(hora) || caballos.libres(inicioMinutos) < cupo
+                            || guias.libres(inicioMinutos) < guiasSalida) {
+                        salidasOmitidas++;
+                        continue;
+                    }
+                    long salidaId = siguienteSalida++;
+                    for (int id : caballos.tomar(cupo, finMinutos)) {
+                        salidaCaballosCopy.fila(salidaId, id);
+                    }
+                    for (int id : guias.tomar(guiasSalida, finMinutos)) {
+                        salidaGuiasCopy.fila(salidaId, id);
+                    }
+                    int ocupado = generarReservas(salidaId, ruta, cupo, pasada);
+                    salidasCopy.fila(salidaId, ruta + 1, fecha, hora, fin, pasada ? "completado" : "programado",
+                            ocupado, cupo);
+                }
+            }
+            if (++dia % diasPorLote == 0 || fecha.equals(hasta)) {
+                // Orden de las llaves foraneas: salidas antes que sus caballos, guias y reservas
+                volcar(copy, salidasCopy, salidaCaballosCopy, salidaGuiasCopy, reservasCopy, participantesCopy);
+                conexion.commit();
+                System.out.printf("%s: %,d salidas, %,d reservas%n", fecha, salidasCopy.total(), reservasCopy.total());
+            }
+        }
+    }
+
+    /**
+     * Reservas de una salida hasta un porcentaje aleatorio de su cupo; las canceladas no ocupan cupo.
+     * @return Personas en reservas no canceladas
+     */
+    private int generarReservas(long salidaId, int ruta, int cupo, boolean pasada) {
+        int objetivo = (int) Math.round(cupo * (0.4 + 0.6 * random.nextDouble()));
+        int ocupado = 0;
+        while (ocupado < objetivo) {
+            int personas = 1 + random.nextInt(Math.min(MAX_PERSONAS_RESERVA, cupo - ocupado));
+            boolean cancelada = random.nextDouble() < PROBABILIDAD_CANCELADA;
+            long reservaId = siguienteReserva++;
+            // Pocos clientes concentran muchas reservas, como en el listado de "mis reservas"
+            int cliente = primerCliente() + (int) (clientes * Math.pow(random.nextDouble(), 3));
+            Integer operador = operadores > 0 && random.nextDouble() < PROBABILIDAD_OPERADOR
+                    ? 2 + random.nextInt(operadores)
+                    : null;
+            reservasCopy.fila(reservaId, salidaId, cliente, operador, personas,
+                    cancelada ? "cancelado" : pasada ? "completado" : "reservado",
+                    preciosRuta[ruta] + ".00", preciosRuta[ruta] * personas + ".00");
+            for (int p = 0; p < personas; p++) {
+                participantesCopy.fila(siguienteParticipante++, reservaId, elegir(NOMBRES), elegir(APELLIDOS),
+                        elegir(TIPOS_DOCUMENTO), String.valueOf(reservaId * 10 + p), 8 + random.nextInt(60),
+                        140 + random.nextInt(55), (45 + random.nextInt(60)) + "." + random.nextInt(10) + "0");
+            }
+            if (!cancelada) {
+                ocupado += personas;
+            }
+        }
+        return ocupado;
+    }
+
+    /**
+     * Reservas promedio por salida con las mismas reglas de {@link #generarReservas}, simuladas
+     * con un generador aparte para no alterar la secuencia de la semilla
+     */
+    private static double reservasPorSalidaEsperadas() {
+        Random simulacion = new Random(0);
+        int salidas = 20_000;
+        long reservas = 0;
+        for (int s = 0; s < salidas; s++) {
+            int cupo = MIN_CABALLOS_SALIDA + simulacion.nextInt(MAX_CABALLOS_SALIDA - MIN_CABALLOS_SALIDA + 1);
+            int objetivo = (int) Math.round(cupo * (0.4 + 0.6 * simulacion.nextDouble()));
+            int ocupado = 0;
+            while (ocupado < objetivo) {
+                int personas = 1 + simulacion.nextInt(Math.min(MAX_PERSONAS_RESERVA, cupo - ocupado));
+                if (simulacion.nextDouble() >= PROBABILIDAD_CANCELADA) {
+                    ocupado += personas;
+                }
+                reservas++;
+            }
+        }
+        return (double) reservas / salidas;
+    }
+
+    private void ajustarSecuencias(Statement st) throws SQLException {
+        for (String tabla : List.of("usuarios", "rutas", "caballos", "guias", "salida_caballos", "salida_guias")) {
+            st.execute("SELECT setval(pg_get_serial_sequence('" + tabla + "', 'id'), "
+                    + "(SELECT coalesce(max(id), 0) + 1 FROM " + tabla + "), false)");
+        }
+        // Secuencias con incremento 50 (V13): se deja un bloque completo por encima del maximo
+        for (String tabla : List.of("salidas", "reservaciones", "participantes")) {
+            st.execute("SELECT setval('" + tabla + "_seq', (SELECT coalesce(max(id), 0) FROM " + tabla + ") + 50, false)");
+        }
+    }
+
+    private static void volcar(CopyManager copy, TablaCopy... tablas) throws SQLException, IOException {
+        for (TablaCopy tabla : tablas) {
+            tabla.volcar(copy);
+        }
+    }
+
+    /**
+     * Caballos o guias con el minuto del dia hasta el que cada uno esta ocupado
+     */
+    private final class Recursos {
+        private final int[] ids;
+        private final int[] ocupadoHasta;
+        // Posiciones libres encontradas por la ultima llamada a libres()
+        private final int[] disponibles;
+        private int totalDisponibles;
+
+        Recursos(int cantidad) {
+            this.ids = secuencia(cantidad);
+            this.ocupadoHasta = new int[cantidad];
+            this.disponibles = new int[cantidad];
+        }
+
+        void nuevoDia() {
+            Arrays.fill(ocupadoHasta, 0);
+        }
+
+        /**
+         * Cuenta los recursos libres desde el minuto indicado y los deja listos para {@link #tomar}
+         */
+        int libres(int desdeMinuto) {
+            totalDisponibles = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (ocupadoHasta[i] <= desdeMinuto) {
+                    disponibles[totalDisponibles++] = i;
+                }
+            }
+            return totalDisponibles;
+        }
+
+        /**
+         * Elige al azar y sin repetir entre los libres contados por {@link #libres} y los ocupa hasta el minuto indicado
+         */
+        int[] tomar(int cantidad, int hastaMinuto) {
+            int[] elegidos = new int[cantidad];
+            for (int k = 0; k < cantidad; k++) {
+                int j = k + random.nextInt(totalDisponibles - k);
+                int posicion = disponibles[j];
+                disponibles[j] = disponibles[k];
+                disponibles[k] = posicion;
+                ocupadoHasta[posicion] = hastaMinuto;
+                elegidos[k] = ids[posicion];
+            }
+            return elegidos;
+        }
+    }
+
+    private int primerCliente() {
+        return 2 + operadores;
+    }
+
+    private String elegir(String[] valores) {
+        return valores[random.nextInt(valores.length)];
+    }
+
+    private String telefono() {
+        return "+57300" + (1_000_000 + random.nextInt(9_000_000));
+    }
+
+    private String parametro(String nombre, String defecto) {
+        return parametros.getOrDefault(nombre, defecto);
+    }
+
+    private static int[] secuencia(int cantidad) {
+        int[] ids = new int[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            ids[i] = i + 1;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,83 @@
+package horse_reserved.carga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latencias y codigos de estado por endpoint.
+ *
+ * Guarda cada muestra (en microsegundos) para calcular percentiles exactos al final; una corrida
+ * de varios minutos son unos pocos millones de valores. Lo registrado antes de
+ * {@link #iniciarMedicion()} corresponde al calentamiento y se descarta.
+ */
+final class RegistroLatencias {
+
+    /**
+     * Resumen de un endpoint. {@code estados} usa "error" para fallos de conexion o timeouts.
+     */
+    record ResumenEndpoint(String endpoint, long solicitudes, double porSegundo, Map<String, Long> estados,
+                           long errores, double p50Ms, double p90Ms, double p95Ms, double p99Ms, double maxMs) {}
+
+    private final Map<String, Muestras> porEndpoint = new ConcurrentHashMap<>();
+
+    /**
+     * Registra una solicitud; {@code status} negativo indica que no hubo respuesta
+     */
+    void registrar(String endpoint, int status, long nanos) {
+        porEndpoint.computeIfAbsent(endpoint, e -> new Muestras()).agregar(status, nanos / 1_000);
+    }
+
+    /**
+     * Descarta lo registrado hasta ahora (calentamiento)
+     */
+    void iniciarMedicion() {
+        porEndpoint.clear();
+    }
+
+    List<ResumenEndpoint> resumir(double segundos) {
+        List<ResumenEndpoint> resumen = new ArrayList<>();
+        porEndpoint.forEach((endpoint, muestras) -> resumen.add(muestras.resumir(endpoint, segundos)));
+        resumen.sort(Comparator.comparing(ResumenEndpoint::endpoint));
+        return resumen;
+    }
+
+    private static final class Muestras {
+
+        private long[] micros = new long[1024];
+        private int cantidad;
+        private final Map<String, Long> estados = new TreeMap<>();
+        private long errores;
+
+        synchronized void agregar(int status, long latenciaMicros) {
+            if (cantidad == micros.length) {
+                micros = Arrays.copyOf(micros, cantidad * 2);
+            }
+            micros[cantidad++] = latenciaMicros;
+            estados.merge(status < 0 ? "error" : String.valueOf(status), 1L, Long::sum);
+            if (status < 0 || status >= 500) {
+                errores++;
+            }
+        }
+
+        synchronized ResumenEndpoint resumir(String endpoint, double segundos) {
+            long[] ordenadas = Arrays.copyOf(micros, cantidad);
+            Arrays.sort(ordenadas);
+            return new ResumenEndpoint(endpoint, cantidad, cantidad / segundos, new TreeMap<>(estados), errores,
+                    percentil(ordenadas, 0.50), percentil(ordenadas, 0.90), percentil(ordenadas, 0.95),
+                    percentil(ordenadas, 0.99), ordenadas.length == 0 ? 0 : ordenadas[ordenadas.length - 1] / 1000.0);
+        }
+
+        private static double percentil(long[] ordenadas, double p) {
+            if (ordenadas.length == 0) {
+                return 0;
+            }
+            int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+            return ordenadas[Math.max(0, indice)] / 1000.0;
+        }
+    }
+}
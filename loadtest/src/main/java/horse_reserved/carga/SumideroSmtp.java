@@ -0,0 +1,82 @@
+package horse_reserved.carga;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor SMTP minimo que acepta todos los correos y los descarta.
+ * Permite cargar /forgot-password sin enviar correos reales: la aplicacion se inicia con
+ * {@code spring.mail.host=localhost}, el puerto de este servidor y sin autenticacion ni STARTTLS.
+ */
+final class SumideroSmtp implements AutoCloseable {
+
+    private final ServerSocket servidor;
+    private final AtomicLong recibidos = new AtomicLong();
+
+    SumideroSmtp(int puerto) throws IOException {
+        this.servidor = new ServerSocket(puerto);
+        Thread.ofVirtual().name("sumidero-smtp").start(this::aceptar);
+    }
+
+    long recibidos() {
+        return recibidos.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        servidor.close();
+    }
+
+    private void aceptar() {
+        while (!servidor.isClosed()) {
+            try {
+                Socket conexion = servidor.accept();
+                Thread.ofVirtual().start(() -> atender(conexion));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void atender(Socket conexion) {
+        try (conexion;
+             BufferedReader entrada = new BufferedReader(
+                     new InputStreamReader(conexion.getInputStream(), StandardCharsets.US_ASCII))) {
+            OutputStream salida = conexion.getOutputStream();
+            responder(salida, "220 sumidero ESMTP");
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                String comando = linea.length() < 4 ? linea : linea.substring(0, 4).toUpperCase(Locale.ROOT);
+                switch (comando) {
+                    case "DATA" -> {
+                        responder(salida, "354 Termine con <CRLF>.<CRLF>");
+                        while ((linea = entrada.readLine()) != null && !linea.equals(".")) {
+                            // el contenido se descarta
+                        }
+                        recibidos.incrementAndGet();
+                        responder(salida, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        responder(salida, "221 Adios");
+                        return;
+                    }
+                    default -> responder(salida, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // El cliente cerro la conexion
+        }
+    }
+
+    private static void responder(OutputStream salida, String linea) throws IOException {
+        salida.write((linea + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        salida.flush();
+    }
+}
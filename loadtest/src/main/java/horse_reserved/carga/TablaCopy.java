@@ -0,0 +1,81 @@
+package horse_reserved.carga;
+
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+
+/**
+ * Filas pendientes de una tabla en el formato de texto de {@code COPY ... FROM STDIN}:
+ * columnas separadas por tabulador y {@code \N} para null. Se vuelca por lotes para que la
+ * memoria no crezca con el tamaño del conjunto de datos.
+ */
+final class TablaCopy {
+
+    private final String tabla;
+    private final String sql;
+    private final StringBuilder buffer = new StringBuilder(1 << 20);
+    private long pendientes;
+    private long total;
+
+    TablaCopy(String tabla, String... columnas) {
+        this.tabla = tabla;
+        this.sql = "COPY " + tabla + " (" + String.join(", ", columnas) + ") FROM STDIN";
+    }
+
+    /**
+     * Agrega una fila; los valores se escriben con {@code toString} y las cadenas se escapan
+     */
+    void fila(Object... valores) {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                buffer.append('\t');
+            }
+            Object valor = valores[i];
+            if (valor == null) {
+                buffer.append("\\N");
+            } else if (valor instanceof String texto) {
+                escapar(texto);
+            } else {
+                buffer.append(valor);
+            }
+        }
+        buffer.append('\n');
+        pendientes++;
+    }
+
+    /**
+     * Envia las filas pendientes con COPY en la transaccion de la conexion
+     */
+    void volcar(CopyManager copy) throws SQLException, IOException {
+        if (pendientes == 0) {
+            return;
+        }
+        copy.copyIn(sql, new StringReader(buffer.toString()));
+        total += pendientes;
+        pendientes = 0;
+        buffer.setLength(0);
+    }
+
+    String tabla() {
+        return tabla;
+    }
+
+    long total() {
+        return total;
+    }
+
+    private void escapar(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '\t' -> buffer.append("\\t");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                default -> buffer.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package horse_reserved.carga;
+
+import horse_reserved.carga.ColeccionPostman.Peticion;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Un cliente de la aplicacion: se registra una vez y luego ejecuta escenarios hasta que termina la corrida.
+ * Cada usuario tiene sus propias variables de la coleccion (token, reservaId...) y su propio
+ * generador aleatorio derivado de la semilla, asi que dos corridas con la misma semilla
+ * eligen la misma secuencia de escenarios, rutas y fechas.
+ */
+final class UsuarioVirtual {
+
+    static final String TOKEN_RECAPTCHA = "carga";
+    private static final String PASSWORD = "Password123";
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /**
+     * Respuesta recibida; {@code status} es -1 si no hubo respuesta
+     */
+    record Respuesta(int status, byte[] cuerpo) {
+
+        boolean exitosa() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    private final ConfiguracionCarga configuracion;
+    private final ColeccionPostman coleccion;
+    private final HttpClient http;
+    private final JsonMapper json;
+    private final RegistroLatencias registro;
+    private final Random random;
+    private final Map<String, String> variables;
+
+    UsuarioVirtual(int numero, String corrida, ConfiguracionCarga configuracion, ColeccionPostman coleccion,
+                   HttpClient http, JsonMapper json, RegistroLatencias registro) {
+        this.configuracion = configuracion;
+        this.coleccion = coleccion;
+        this.http = http;
+        this.json = json;
+        this.registro = registro;
+        this.random = new Random(configuracion.semilla() * 31 + numero);
+        this.variables = new HashMap<>(coleccion.variables());
+        // Se obtienen al iniciar sesion y al reservar; los valores de ejemplo de la coleccion no aplican
+        variables.remove("token");
+        variables.remove("reservaId");
+        variables.put("baseUrl", configuracion.baseUrl());
+        variables.put("email", "carga-" + corrida + "-" + numero + "@carga.test");
+        variables.put("documento", corrida + String.format("%05d", numero));
+        variables.put("password", PASSWORD);
+    }
+
+    /**
+     * Crea la cuenta del usuario con la solicitud "Register" de la coleccion
+     */
+    boolean registrar() {
+        return enviar(coleccion.buscar("Register"), cuerpo -> {
+            cuerpo.put("email", variables.get("email"));
+            cuerpo.put("documento", variables.get("documento"));
+            cuerpo.put("password", PASSWORD);
+            cuerpo.put("recaptchaToken", TOKEN_RECAPTCHA);
+            cuerpo.put("habeasDataConsent", true);
+        }).exitosa();
+    }
+
+    /**
+     * Ejecuta escenarios elegidos por peso hasta {@code finNanos}
+     */
+    void ejecutar(Escenario[] ruleta, long finNanos, Map<Escenario, long[]> resultados) throws InterruptedException {
+        while (System.nanoTime() < finNanos) {
+            Escenario escenario = ruleta[random.nextInt(ruleta.length)];
+            boolean completo = escenario.ejecutar(this);
+            long[] contador = resultados.get(escenario);
+            synchronized (contador) {
+                contador[completo ? 0 : 1]++;
+            }
+            if (!configuracion.pausa().isZero()) {
+                Thread.sleep(configuracion.pausa());
+            }
+        }
+    }
+
+    Respuesta enviar(Peticion peticion) {
+        return enviar(peticion, null);
+    }
+
+    /**
+     * Resuelve la solicitud con las variables del usuario, aplica los ajustes al cuerpo JSON y la envia.
+     * La latencia se registra bajo el endpoint de la plantilla, p. ej. {@code PATCH /api/reservaciones/{{reservaId}}}.
+     */
+    Respuesta enviar(Peticion peticion, Consumer<ObjectNode> ajustes) {
+        String cuerpo = ColeccionPostman.resolver(peticion.cuerpo(), variables);
+        if (ajustes != null && cuerpo != null) {
+            ObjectNode nodo = (ObjectNode) json.readTree(cuerpo);
+            ajustes.accept(nodo);
+            cuerpo = json.writeValueAsString(nodo);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(ColeccionPostman.resolver(peticion.url(), variables)))
+                .timeout(configuracion.timeout())
+                .method(peticion.metodo(), cuerpo == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(cuerpo));
+        peticion.cabeceras().forEach((nombre, valor) -> request.header(nombre, ColeccionPostman.resolver(valor, variables)));
+
+        long inicio = System.nanoTime();
+        int status;
+        byte[] respuesta;
+        try {
+            HttpResponse<byte[]> response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            status = response.statusCode();
+            respuesta = response.body();
+        } catch (IOException e) {
+            status = -1;
+            respuesta = new byte[0];
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = -1;
+            respuesta = new byte[0];
+        }
+        registro.registrar(peticion.endpoint(), status, System.nanoTime() - inicio);
+        return new Respuesta(status, respuesta);
+    }
+
+    /**
+     * Lee un campo de una respuesta JSON exitosa y lo guarda como variable; false si no se pudo
+     */
+    boolean capturar(Respuesta respuesta, String campo, String variable) {
+        if (!respuesta.exitosa()) {
+            return false;
+        }
+        JsonNode valor = json.readTree(respuesta.cuerpo()).path(campo);
+        if (valor.isMissingNode() || valor.isNull()) {
+            return false;
+        }
+        variables.put(variable, valor.asString());
+        return true;
+    }
+
+    String variable(String nombre) {
+        return variables.get(nombre);
+    }
+
+    void fijarVariable(String nombre, String valor) {
+        variables.put(nombre, valor);
+    }
+
+    /**
+     * Elige una ruta al azar y la deja en la variable {@code rutaId}
+     */
+    long elegirRuta() {
+        long rutaId = configuracion.rutas().get(random.nextInt(configuracion.rutas().size()));
+        variables.put("rutaId", String.valueOf(rutaId));
+        return rutaId;
+    }
+
+    /**
+     * Fecha de reserva entre pasado manana y el horizonte configurado; manana se evita porque
+     * las salidas inminentes no admiten cambios
+     */
+    LocalDate elegirFecha() {
+        return LocalDate.now().plusDays(2 + random.nextInt(configuracion.dias() - 1));
+    }
+
+    String elegirHora() {
+        return configuracion.horas().get(random.nextInt(configuracion.horas().size())).format(HORA);
+    }
+
+    ColeccionPostman coleccion() {
+        return coleccion;
+    }
+}
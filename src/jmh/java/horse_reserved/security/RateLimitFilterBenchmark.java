@@ -0,0 +1,84 @@
+package horse_reserved.security;
+
+import horse_reserved.config.RateLimitProperties;
+import horse_reserved.config.RateLimitProperties.Limite;
+import horse_reserved.config.RateLimitProperties.Regla;
+import horse_reserved.config.RateLimitProperties.TipoClave;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de RateLimitFilter por solicitud.
+ * "sinRegla" es una ruta que no esta limitada (se descarta por prefijo), "permitida" consume un token
+ * de un bucket con capacidad de sobra y "rechazada" encuentra el bucket agotado y escribe el 429.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RateLimitFilterBenchmark {
+
+    private static final FilterChain CADENA_VACIA = (request, response) -> { };
+
+    private RateLimitFilter filter;
+    private MockHttpServletRequest sinRegla;
+    private MockHttpServletRequest permitida;
+    private MockHttpServletRequest rechazada;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setReglas(new ArrayList<>(List.of(
+                regla("login", "/api/auth/login", new Limite(5, 5, Duration.ofMinutes(1))),
+                // Mil millones de tokens por segundo: el benchmark no alcanza a agotarlo
+                regla("crear-reserva", "/api/reservaciones/**",
+                        new Limite(1_000_000_000L, 1_000_000_000L, Duration.ofSeconds(1))),
+                regla("agotada", "/api/salidas/**", new Limite(1, 1, Duration.ofDays(1))))));
+        filter = new RateLimitFilter(new RateLimitLocal(), properties);
+
+        sinRegla = solicitud("GET", "/api/rutas/public");
+        permitida = solicitud("POST", "/api/reservaciones/15");
+        rechazada = solicitud("GET", "/api/salidas/3");
+        response = new MockHttpServletResponse();
+
+        // Agota el unico token de la regla "agotada"
+        filter.doFilter(rechazada, new MockHttpServletResponse(), CADENA_VACIA);
+    }
+
+    @Benchmark
+    public int sinRegla() throws Exception {
+        filter.doFilter(sinRegla, response, CADENA_VACIA);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int permitida() throws Exception {
+        filter.doFilter(permitida, response, CADENA_VACIA);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int rechazada() throws Exception {
+        // Respuesta nueva en cada invocacion: el cuerpo del 429 se acumularia en una compartida
+        MockHttpServletResponse rechazo = new MockHttpServletResponse();
+        filter.doFilter(rechazada, rechazo, CADENA_VACIA);
+        return rechazo.getStatus();
+    }
+
+    private static MockHttpServletRequest solicitud(String metodo, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, uri);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+
+    private static Regla regla(String nombre, String patron, Limite limite) {
+        return new Regla(nombre, patron, new ArrayList<>(), TipoClave.IP, new ArrayList<>(List.of(limite)));
+    }
+}
@@ -0,0 +1,73 @@
+package horse_reserved.service;
+
+import horse_reserved.model.Rol;
+import horse_reserved.model.Usuario;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Costo de emitir un JWT (login, registro y refresco) y de validarlo en cada peticion en
+ * JwtAuthenticationFilter. "anterior" reproduce el flujo previo: reconstruir la clave y el parser y parsear el token
+ * tres veces (subject, expiracion, emision); "verificado" es un unico parseo con clave y parser en cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtServiceBenchmark {
+
+    private static final String SECRETO = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtService jwtService;
+    private Usuario usuario;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRETO, 1_800_000L);
+        usuario = Usuario.builder()
+                .id(1L)
+                .email("cliente@test.com")
+                .role(Rol.CLIENTE)
+                .passwordChangedAt(Instant.EPOCH)
+                .build();
+        token = jwtService.generateToken(usuario);
+    }
+
+    @Benchmark
+    public String generar() {
+        return jwtService.generateToken(usuario);
+    }
+
+    @Benchmark
+    public boolean anterior() {
+        String username = extraerAnterior(token, Claims::getSubject);
+        if (!username.equals(usuario.getUsername()) || extraerAnterior(token, Claims::getExpiration).before(new Date())) {
+            return false;
+        }
+        Date issuedAt = extraerAnterior(token, Claims::getIssuedAt);
+        return issuedAt == null || !issuedAt.toInstant().isBefore(usuario.getPasswordChangedAt());
+    }
+
+    @Benchmark
+    public boolean verificado() {
+        JwtService.TokenVerificado verificado = jwtService.verificar(token);
+        return jwtService.isTokenValid(verificado, usuario);
+    }
+
+    private static <T> T extraerAnterior(String token, Function<Claims, T> resolver) {
+        Claims claims = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRETO.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+        return resolver.apply(claims);
+    }
+}
@@ -0,0 +1,83 @@
+package horse_reserved.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de generar el correo de restablecimiento.
+ * "formatted" reproduce el enfoque previo (bloque de texto con String.formatted en cada envio,
+ * sin escapar los valores); "plantilla" usa la plantilla precompilada con escape HTML.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlantillasCorreoBenchmark {
+
+    private static final String NOMBRE = "María José";
+    private static final String ENLACE = "http://localhost:4200/auth/reset-password?token=3f2b8c1e-6a4d-4f0e-9b7a-2c5d8e1f4a6b";
+
+    private PlantillasCorreoService plantillas;
+    private Map<String, String> variables;
+
+    @Setup
+    public void setUp() {
+        plantillas = new PlantillasCorreoService("es");
+        variables = Map.of("nombre", NOMBRE, "enlace", ENLACE);
+    }
+
+    @Benchmark
+    public String formatted() {
+        return """
+                <!DOCTYPE html>
+                <html lang="es">
+                <head>
+                    <meta charset="UTF-8">
+                    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                    <title>Restablecer contraseña</title>
+                </head>
+                <body style="font-family: Arial, sans-serif; background-color: #f4f4f4; margin: 0; padding: 20px;">
+                    <div style="max-width: 600px; margin: auto; background-color: #ffffff;
+                                border-radius: 8px; padding: 40px; box-shadow: 0 2px 8px rgba(0,0,0,0.1);">
+                        <h2 style="color: #2c3e50;">Hola, %s</h2>
+                        <p style="color: #555; font-size: 16px;">
+                            Recibimos una solicitud para restablecer la contraseña de tu cuenta en
+                            <strong>Horse Reserved</strong>.
+                        </p>
+                        <p style="color: #555; font-size: 16px;">
+                            Haz clic en el siguiente botón para crear una nueva contraseña.
+                            Este enlace es válido por <strong>5 minutos</strong>.
+                        </p>
+                        <div style="text-align: center; margin: 32px 0;">
+                            <a href="%s"
+                               style="background-color: #2980b9; color: #ffffff; padding: 14px 28px;
+                                      text-decoration: none; border-radius: 6px; font-size: 16px;
+                                      display: inline-block;">
+                                Restablecer contraseña
+                            </a>
+                        </div>
+                        <p style="color: #888; font-size: 13px;">
+                            Si no solicitaste este cambio, puedes ignorar este correo.
+                            Tu contraseña permanecerá sin cambios.
+                        </p>
+                        <p style="color: #888; font-size: 13px;">
+                            O copia y pega este enlace en tu navegador:<br>
+                            <a href="%s" style="color: #2980b9;">%s</a>
+                        </p>
+                        <hr style="border: none; border-top: 1px solid #eee; margin: 32px 0;">
+                        <p style="color: #aaa; font-size: 12px; text-align: center;">
+                            © 2026 Horse Reserved. Todos los derechos reservados.
+                        </p>
+                    </div>
+                </body>
+                </html>
+                """.formatted(NOMBRE, ENLACE, ENLACE, ENLACE);
+    }
+
+    @Benchmark
+    public PlantillasCorreoService.CorreoRenderizado plantilla() {
+        return plantillas.renderizar("restablecer-password", Locale.ROOT, variables);
+    }
+}
@@ -0,0 +1,89 @@
+package horse_reserved.service;
+
+import horse_reserved.dto.response.ReservaResponse;
+import horse_reserved.model.*;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de armar y serializar la respuesta de una reserva segun la cantidad de participantes.
+ * "mapear" es ReservaMapper.toResponse sobre la entidad ya cargada y "serializar" es la escritura
+ * con Jackson del ReservaResponse resultante, que es lo que hace el controlador al responder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReservaMapperBenchmark {
+
+    @Param({"1", "4", "12"})
+    private int participantes;
+
+    private ReservaMapper mapper;
+    private JsonMapper jsonMapper;
+    private Reserva reserva;
+    private ReservaResponse respuesta;
+
+    @Setup
+    public void setUp() {
+        mapper = new ReservaMapper();
+        jsonMapper = JsonMapper.builder().build();
+
+        Ruta ruta = Ruta.builder()
+                .id(3L)
+                .nombre("Valle de Cocora")
+                .precio(new BigDecimal("85000.00"))
+                .duracionMinutos(180)
+                .activa(true)
+                .build();
+        Salida salida = Salida.builder()
+                .id(42L)
+                .ruta(ruta)
+                .fechaProgramada(LocalDate.of(2026, 12, 19))
+                .tiempoInicio(LocalTime.of(8, 0))
+                .tiempoFin(LocalTime.of(11, 0))
+                .estado("programado")
+                .build();
+        Usuario cliente = Usuario.builder()
+                .id(7L)
+                .email("cliente@test.com")
+                .role(Rol.CLIENTE)
+                .build();
+        reserva = Reserva.builder()
+                .id(100L)
+                .salida(salida)
+                .cliente(cliente)
+                .cantPersonas(participantes)
+                .precioUnitario(ruta.getPrecio())
+                .precioTotal(ruta.getPrecio().multiply(BigDecimal.valueOf(participantes)))
+                .estado("reservado")
+                .build();
+        for (int i = 0; i < participantes; i++) {
+            reserva.agregarParticipante(Participante.builder()
+                    .id(1000L + i)
+                    .primerNombre("Participante" + i)
+                    .primerApellido("Apellido" + i)
+                    .tipoDocumento(TipoDocumento.CEDULA)
+                    .documento(String.valueOf(1_000_000_000L + i))
+                    .edad((short) (20 + i))
+                    .cmAltura((short) 170)
+                    .kgPeso(new BigDecimal("70.5"))
+                    .build());
+        }
+        respuesta = mapper.toResponse(reserva);
+    }
+
+    @Benchmark
+    public ReservaResponse mapear() {
+        return mapper.toResponse(reserva);
+    }
+
+    @Benchmark
+    public byte[] serializar() {
+        return jsonMapper.writeValueAsBytes(respuesta);
+    }
+}
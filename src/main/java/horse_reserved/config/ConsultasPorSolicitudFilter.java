@@ -0,0 +1,57 @@
+package horse_reserved.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Publica {@code http.server.requests.consultas}: sentencias SQL por solicitud, con las mismas
+ * etiquetas method/uri/status que {@code http.server.requests}. Un endpoint que pasa de 3 a 30
+ * consultas (un N+1 nuevo) se ve en Prometheus sin necesidad de activar el log de SQL.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConsultasPorSolicitudFilter extends OncePerRequestFilter {
+
+    private static final double[] LIMITES = {1, 2, 5, 10, 20, 50, 100};
+
+    private final MeterRegistry registry;
+
+    public ConsultasPorSolicitudFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        ContadorConsultas.reiniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("http.server.requests.consultas")
+                    .description("Sentencias SQL ejecutadas por Hibernate en cada solicitud")
+                    .baseUnit("consultas")
+                    .serviceLevelObjectives(LIMITES)
+                    .tag("method", request.getMethod())
+                    .tag("uri", patron != null ? patron.toString() : "UNKNOWN")
+                    .tag("status", String.valueOf(response.getStatus()))
+                    .register(registry)
+                    .record(ContadorConsultas.consultas());
+        }
+    }
+}
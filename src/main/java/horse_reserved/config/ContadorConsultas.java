@@ -0,0 +1,33 @@
+package horse_reserved.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Cuenta las sentencias SQL que Hibernate prepara en el hilo actual.
+ *
+ * Hibernate instancia esta clase a partir de {@code hibernate.session_factory.statement_inspector},
+ * fuera de Spring, por eso el contador es estatico por hilo. {@link ConsultasPorSolicitudFilter}
+ * lo reinicia al comenzar cada solicitud y publica el total al terminar. Las consultas hechas con
+ * JdbcTemplate (rate limiting, exportaciones) no pasan por Hibernate y no se cuentan.
+ */
+public class ContadorConsultas implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CONTADOR = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        CONTADOR.get()[0]++;
+        return sql;
+    }
+
+    public static void reiniciar() {
+        CONTADOR.get()[0] = 0;
+    }
+
+    /**
+     * Sentencias preparadas en este hilo desde el ultimo reinicio
+     */
+    public static int consultas() {
+        return CONTADOR.get()[0];
+    }
+}
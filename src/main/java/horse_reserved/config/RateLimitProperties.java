@@ -0,0 +1,71 @@
+package horse_reserved.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reglas de rate limiting ({@code app.rate-limit.*}).
+ * Las reglas se evaluan en orden y se aplica la primera cuyo patron y metodo coincidan.
+ * Si {@code archivo} apunta a un archivo .properties, sus reglas reemplazan a estas y se
+ * recargan cuando el archivo cambia, sin reiniciar la aplicacion.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean habilitado = true;
+
+    /**
+     * Archivo externo con reglas que se recargan en caliente (opcional)
+     */
+    private String archivo;
+
+    private List<Regla> reglas = new ArrayList<>(List.of(
+            Regla.of("login", "/api/auth/login", 5, 5, Duration.ofMinutes(1)),                   // 5 intentos / minuto
+            Regla.of("registro", "/api/auth/register", 3, 3, Duration.ofMinutes(10)),            // 3 intentos / 10 minutos
+            Regla.of("olvido-password", "/api/auth/forgot-password", 3, 3, Duration.ofMinutes(10)), // 3 intentos / 10 minutos
+            Regla.of("reset-password", "/api/auth/reset-password", 5, 5, Duration.ofMinutes(10))  // 5 intentos / 10 minutos
+    ));
+
+    public enum TipoClave {
+        /** IP del cliente (primer valor de X-Forwarded-For) */
+        IP,
+        /** Usuario autenticado (subject del JWT); sin autenticacion se usa la IP */
+        USUARIO
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Regla {
+        private String nombre;
+        /** Patron de ruta de Spring MVC, p. ej. {@code /api/reservaciones/{id}} */
+        private String patron;
+        /** Metodos HTTP limitados; vacio limita todos */
+        private List<String> metodos = new ArrayList<>();
+        private TipoClave clave = TipoClave.IP;
+        /** Todos los limites deben tener un token disponible para aceptar la solicitud */
+        private List<Limite> limites = new ArrayList<>();
+
+        static Regla of(String nombre, String patron, long capacidad, long recarga, Duration ventana) {
+            return new Regla(nombre, patron, new ArrayList<>(), TipoClave.IP,
+                    new ArrayList<>(List.of(new Limite(capacidad, recarga, ventana))));
+        }
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limite {
+        private long capacidad;
+        private long recarga;
+        private Duration ventana;
+    }
+}
@@ -4,6 +4,7 @@ import horse_reserved.dto.request.ChangePasswordRequest;
 import horse_reserved.dto.request.ForgotPasswordRequest;
 import horse_reserved.dto.request.LoginRequest;
 import horse_reserved.dto.request.OAuth2TokenRequest;
+import horse_reserved.dto.request.RefreshTokenRequest;
 import horse_reserved.dto.request.RegisterRequest;
 import horse_reserved.dto.request.ResetPasswordRequest;
 import horse_reserved.dto.response.AuthResponse;
@@ -51,6 +52,26 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Renueva el token de acceso sin volver a enviar la contraseña.
+     * Devuelve también un token de refresco nuevo; el enviado deja de ser válido.
+     * POST /api/auth/refresh
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    /**
+     * Cierra la sesión revocando el token de refresco
+     * POST /api/auth/logout
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenRequest request) {
+        authService.logout(request);
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Retorna el perfil del usuario autenticado
      * GET /api/auth/me
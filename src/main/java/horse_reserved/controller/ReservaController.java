@@ -1,16 +1,27 @@
 package horse_reserved.controller;
 
 import horse_reserved.dto.request.CreateReservaRequest;
+import horse_reserved.dto.request.FiltroReservasRequest;
 import horse_reserved.dto.request.UpdateReservaRequest;
+import horse_reserved.dto.response.PaginaResponse;
 import horse_reserved.dto.response.ReservaResponse;
+import horse_reserved.service.ExportacionReservasService;
 import horse_reserved.service.ReservaService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDate;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/reservaciones")
@@ -22,23 +33,60 @@ import java.util.List;
 public class ReservaController {
 
     private final ReservaService reservaService;
+    private final ExportacionReservasService exportacionReservasService;
 
     /**
-     * Solo ADMINISTRADOR puede listar todas las reservas del sistema
+     * Solo ADMINISTRADOR puede listar todas las reservas del sistema.
+     * Paginado por cursor: ?cursor=&limite=&estado=&rutaId=&desde=&hasta=
      */
     @GetMapping
     @PreAuthorize("hasAuthority('ADMINISTRADOR')")
-    public ResponseEntity<List<ReservaResponse>> listarTodas() {
-        return ResponseEntity.ok(reservaService.listarTodas());
+    public ResponseEntity<PaginaResponse<ReservaResponse>> listarTodas(@ModelAttribute FiltroReservasRequest filtro) {
+        return ResponseEntity.ok(reservaService.listarTodas(filtro));
     }
 
     /**
-     * CLIENTE ve sus propias reservas; OPERADOR ve las reservas que gestionó
+     * CLIENTE ve sus propias reservas; OPERADOR ve las reservas que gestionó.
+     * Acepta los mismos filtros y cursor que el listado general.
      */
     @GetMapping("/mias")
     @PreAuthorize("hasAnyAuthority('CLIENTE', 'OPERADOR')")
-    public ResponseEntity<List<ReservaResponse>> misReservas() {
-        return ResponseEntity.ok(reservaService.listarMisReservas());
+    public ResponseEntity<PaginaResponse<ReservaResponse>> misReservas(@ModelAttribute FiltroReservasRequest filtro) {
+        return ResponseEntity.ok(reservaService.listarMisReservas(filtro));
+    }
+
+    /**
+     * Solo ADMINISTRADOR exporta reservas para contabilidad, en NDJSON o CSV.
+     * Las filas se escriben a medida que se leen de la base de datos: ?formato=ndjson|csv&estado=&desde=&hasta=
+     */
+    @GetMapping("/exportar")
+    @PreAuthorize("hasAuthority('ADMINISTRADOR')")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(defaultValue = "ndjson") String formato,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            HttpServletRequest request) {
+        ExportacionReservasService.Formato f = ExportacionReservasService.Formato.fromString(formato);
+        String archivo = "reservas-" + LocalDate.now() + "." + f.getExtension();
+
+        // Una exportacion grande supera el timeout asincrono global; se amplia solo para esta solicitud
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ExportacionReservasService.class,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        if (webRequest instanceof AsyncWebRequest asincrona) {
+                            asincrona.setTimeout(exportacionReservasService.getTimeoutMs());
+                        }
+                    }
+                });
+
+        StreamingResponseBody cuerpo = salida -> exportacionReservasService.exportar(f, estado, desde, hasta, salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(f.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(archivo).build().toString())
+                .body(cuerpo);
     }
 
     /**
@@ -1,15 +1,21 @@
 package horse_reserved.controller;
 
+import horse_reserved.dto.response.DisponibilidadRutaResponse;
 import horse_reserved.dto.response.RutaResponse;
 import horse_reserved.model.Ruta;
 import horse_reserved.repository.RutaRepository;
+import horse_reserved.service.DisponibilidadRutaService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,6 +24,7 @@ import java.util.List;
 public class RutaController {
 
     private final RutaRepository rutaRepository;
+    private final DisponibilidadRutaService disponibilidadRutaService;
 
     @GetMapping("/public")
     public ResponseEntity<List<RutaResponse>> listarActivas() {
@@ -36,6 +43,22 @@ public class RutaController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Cupos libres por hora de inicio de la ruta entre dos fechas (por defecto, los proximos 7 dias).
+     * Permite al cliente elegir una franja con cupo sin intentar reservas a ciegas.
+     */
+    @GetMapping("/public/{id}/disponibilidad")
+    public ResponseEntity<DisponibilidadRutaResponse> disponibilidad(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        LocalDate inicio = desde != null ? desde : LocalDate.now();
+        LocalDate fin = hasta != null ? hasta : inicio.plusDays(6);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(disponibilidadRutaService.getTtl()).cachePublic())
+                .body(disponibilidadRutaService.consultar(id, inicio, fin));
+    }
+
     private RutaResponse toResponse(Ruta ruta) {
         return RutaResponse.builder()
                 .id(ruta.getId())
@@ -0,0 +1,33 @@
+package horse_reserved.dto.request;
+
+import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+/**
+ * Filtros y posicion de pagina para los listados de reservas.
+ * cursor es el id de la ultima reserva recibida (siguienteCursor de la pagina anterior);
+ * sin cursor se devuelve la primera pagina.
+ */
+public class FiltroReservasRequest {
+
+    private Long cursor;
+
+    private Integer limite;
+
+    private String estado; // reservado, en_curso, cancelado, completado
+
+    private Long rutaId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate desde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate hasta;
+}
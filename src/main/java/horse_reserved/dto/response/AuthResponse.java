@@ -17,6 +17,7 @@ public class AuthResponse {
     private String token;
     private String type; // "Bearer"
     private Long expiresIn; // Tiempo de expiración en segundos
+    private String refreshToken; // Se cambia por un token nuevo en /api/auth/refresh
 
     // Información del usuario
     private Long userId;
@@ -0,0 +1,21 @@
+package horse_reserved.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+/**
+ * Calendario de cupos libres de una ruta en un rango de fechas
+ */
+public class DisponibilidadRutaResponse {
+    private Long rutaId;
+    private LocalDate desde;
+    private LocalDate hasta;
+    private List<FranjaDisponibleResponse> franjas;
+}
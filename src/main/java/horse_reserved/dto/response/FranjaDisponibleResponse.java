@@ -0,0 +1,23 @@
+package horse_reserved.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+/**
+ * Cupos libres de una hora de inicio candidata. salidaId es null si aun no existe
+ * una salida programada para esa franja; en ese caso los cupos son los caballos libres.
+ */
+public class FranjaDisponibleResponse {
+    private LocalDate fecha;
+    private LocalTime horaInicio;
+    private LocalTime horaFin;
+    private int cuposDisponibles;
+    private Long salidaId;
+}
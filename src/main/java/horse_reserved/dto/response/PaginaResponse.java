@@ -0,0 +1,19 @@
+package horse_reserved.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+/**
+ * Pagina de resultados paginados por cursor. siguienteCursor es null en la ultima pagina.
+ */
+public class PaginaResponse<T> {
+    private List<T> elementos;
+    private Long siguienteCursor;
+    private int limite;
+}
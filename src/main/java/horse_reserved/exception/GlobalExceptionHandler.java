@@ -1,9 +1,13 @@
 package horse_reserved.exception;
 
 import horse_reserved.dto.response.ErrorResponse;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -21,6 +25,8 @@ import java.util.Map;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final String RESTRICCION_SALIDA_PROGRAMADA = "uq_salida_programada";
+
     /**
      * Maneja la excepción cuando un email ya existe
      */
@@ -177,6 +183,31 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    /**
+     * Maneja la violacion del indice unico de salidas programadas: dos reservas concurrentes
+     * que intentan crear la misma salida. Cualquier otra violacion (NOT NULL, llaves foraneas,
+     * otros unicos) es un error del servidor y se trata como tal.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponse> handleDataIntegrity(
+            DataIntegrityViolationException ex,
+            WebRequest request) {
+
+        if (!violaRestriccion(ex, RESTRICCION_SALIDA_PROGRAMADA)) {
+            return handleGenericException(ex, request);
+        }
+
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.CONFLICT.value())
+                .error("Conflict")
+                .message("La operación entró en conflicto con otra solicitud simultánea. Intenta de nuevo")
+                .path(request.getDescription(false).replace("uri=", ""))
+                .build();
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(BusinessRuleException.class)
     public ResponseEntity<ErrorResponse> handleBusiness(
             BusinessRuleException ex,
@@ -193,4 +224,62 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
-}
\ No newline at end of file
+    /**
+     * Una salida congestionada es transitoria: 503 con Retry-After para que el cliente reintente.
+     * Los demas rechazos de reserva son reglas de negocio (400)
+     */
+    @ExceptionHandler(ReservaRechazadaException.class)
+    public ResponseEntity<ErrorResponse> handleReservaRechazada(
+            ReservaRechazadaException ex,
+            WebRequest request) {
+
+        if (ex.getMotivo() == ReservaRechazadaException.Motivo.SALIDA_CONGESTIONADA) {
+            return handleServicioSaturado(new ServicioSaturadoException(ex.getMessage(), 1), request);
+        }
+        return handleBusiness(ex, request);
+    }
+
+    /**
+     * Maneja la saturacion de recursos acotados: respuesta rapida con Retry-After
+     * en lugar de encolar la solicitud indefinidamente
+     */
+    @ExceptionHandler(ServicioSaturadoException.class)
+    public ResponseEntity<ErrorResponse> handleServicioSaturado(
+            ServicioSaturadoException ex,
+            WebRequest request) {
+
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message(ex.getMessage())
+                .path(request.getDescription(false).replace("uri=", ""))
+                .build();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getReintentarEnSegundos()))
+                .body(error);
+    }
+
+    /**
+     * Pool de conexiones agotado: Hikari no entrego una conexion dentro de su connection-timeout.
+     * Se responde 503 en lugar de 500 para que el cliente reintente
+     */
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<ErrorResponse> handleSinConexion(
+            CannotCreateTransactionException ex,
+            WebRequest request) {
+
+        return handleServicioSaturado(new ServicioSaturadoException(
+                "El servicio está ocupado, intenta nuevamente en unos segundos", 1), request);
+    }
+
+    private static boolean violaRestriccion(Throwable ex, String restriccion) {
+        for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacion) {
+                return restriccion.equalsIgnoreCase(violacion.getConstraintName());
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+package horse_reserved.exception;
+
+import lombok.Getter;
+
+/**
+ * Regla de negocio que impide completar una reserva por falta de recursos.
+ * Se responde igual que cualquier BusinessRuleException (400), salvo la salida congestionada,
+ * que es transitoria y se responde 503 con Retry-After; el motivo permite contar los
+ * rechazos por causa en las metricas.
+ */
+@Getter
+public class ReservaRechazadaException extends BusinessRuleException {
+
+    public enum Motivo {
+        CUPO_INSUFICIENTE("cupo_insuficiente"),
+        SIN_CABALLOS("sin_caballos"),
+        SIN_GUIAS("sin_guias"),
+        SALIDA_CONGESTIONADA("salida_congestionada");
+
+        private final String etiqueta;
+
+        Motivo(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        public String etiqueta() {
+            return etiqueta;
+        }
+    }
+
+    private final Motivo motivo;
+
+    public ReservaRechazadaException(Motivo motivo, String message) {
+        super(message);
+        this.motivo = motivo;
+    }
+}
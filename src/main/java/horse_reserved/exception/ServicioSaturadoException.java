@@ -0,0 +1,18 @@
+package horse_reserved.exception;
+
+import lombok.Getter;
+
+/**
+ * Excepcion lanzada cuando un recurso acotado (por ejemplo el ejecutor de hashing de
+ * contraseñas) no admite mas trabajo. Se responde 503 con Retry-After.
+ */
+@Getter
+public class ServicioSaturadoException extends RuntimeException {
+
+    private final long reintentarEnSegundos;
+
+    public ServicioSaturadoException(String message, long reintentarEnSegundos) {
+        super(message);
+        this.reintentarEnSegundos = reintentarEnSegundos;
+    }
+}
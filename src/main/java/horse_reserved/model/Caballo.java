@@ -3,9 +3,6 @@ package horse_reserved.model;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @Entity
 @Table(name = "caballos")
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -32,11 +29,4 @@ public class Caballo {
     @Column(name="is_active", nullable = false)
     private boolean activo;
 
-    /**
-     * Definicion de relacion de muchos a muchos entre salidas y caballos
-     */
-    @Builder.Default
-    @ManyToMany(mappedBy = "caballos")
-    private List<Salida> salidas =  new ArrayList<>();
-
 }
@@ -0,0 +1,63 @@
+package horse_reserved.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Correo en la bandeja de salida. Estados: pendiente, enviado, fallido.
+ */
+@Entity
+@Table(name = "email_outbox")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutbox {
+
+    public static final String PENDIENTE = "pendiente";
+    public static final String ENVIADO = "enviado";
+    public static final String FALLIDO = "fallido";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    @Column(nullable = false)
+    private String asunto;
+
+    @Column(name = "cuerpo_html", nullable = false, columnDefinition = "TEXT")
+    private String cuerpoHtml;
+
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String estado = PENDIENTE;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer intentos = 0;
+
+    @Builder.Default
+    @Column(name = "proximo_intento", nullable = false)
+    private Instant proximoIntento = Instant.now();
+
+    @Column(name = "bloqueado_hasta")
+    private Instant bloqueadoHasta;
+
+    @Column(name = "ultimo_error", columnDefinition = "TEXT")
+    private String ultimoError;
+
+    @Builder.Default
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "enviado_at")
+    private Instant enviadoAt;
+}
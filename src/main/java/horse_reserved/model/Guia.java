@@ -3,9 +3,6 @@ package horse_reserved.model;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @Entity
 @Table(name = "guias")
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -34,11 +31,4 @@ public class Guia {
 
     @Column(name="is_active", nullable = false)
     private boolean activo;
-
-    /**
-     * Definicion de relacion de muchos a muchos entre salidas y guias
-     */
-    @Builder.Default
-    @ManyToMany(mappedBy = "guias")
-    private List<Salida> salidas =  new ArrayList<>();
 }
@@ -22,7 +22,8 @@ import java.math.BigDecimal;
 public class Participante {
     @EqualsAndHashCode.Include
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "participantes_seq")
+    @SequenceGenerator(name = "participantes_seq", sequenceName = "participantes_seq", allocationSize = 50)
     private Long id;
 
     /**
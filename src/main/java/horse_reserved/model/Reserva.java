@@ -21,7 +21,8 @@ import java.util.List;
 public class Reserva {
     @EqualsAndHashCode.Include
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservaciones_seq")
+    @SequenceGenerator(name = "reservaciones_seq", sequenceName = "reservaciones_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -6,7 +6,9 @@ import lombok.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
 @Table(name = "salidas")
@@ -21,7 +23,8 @@ import java.util.List;
 public class Salida {
     @EqualsAndHashCode.Include
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "salidas_seq")
+    @SequenceGenerator(name = "salidas_seq", sequenceName = "salidas_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -43,6 +46,20 @@ public class Salida {
     @Column(name="estado", nullable = false, length = 50)
     private String estado;
 
+    /**
+     * Personas en reservas no canceladas. Solo se modifica con actualizaciones atomicas
+     * en la base de datos (ver CupoSalidasService), por eso Hibernate nunca la escribe en un UPDATE.
+     */
+    @Builder.Default
+    @Column(name="cupo_ocupado", nullable = false, updatable = false)
+    private int cupoOcupado = 0;
+
+    /**
+     * Cupo maximo de la salida: numero de caballos asignados
+     */
+    @Column(name="cupo_maximo", nullable = false, updatable = false)
+    private int cupoMaximo;
+
     /**
      * Define la relacion de 1 a muchos entre Salida y reservas
      */
@@ -51,7 +68,10 @@ public class Salida {
     private List<Reserva> reservaciones = new ArrayList<>();
 
     /**
-     * Define la relacion de muchos a muchos entre salidas y caballos
+     * Define la relacion de muchos a muchos entre salidas y caballos.
+     * Solo la salida mapea la asociacion: Caballo no tiene coleccion de salidas, asi que asignar
+     * un caballo nunca carga su historial. Al ser un Set, agregar o quitar un caballo escribe
+     * solo esa fila de salida_caballos.
      */
     @Builder.Default
     @ManyToMany
@@ -60,10 +80,10 @@ public class Salida {
             joinColumns = @JoinColumn(name = "salida_id"),
             inverseJoinColumns = @JoinColumn(name = "horse_id")
     )
-    private List<Caballo> caballos = new ArrayList<>();
+    private Set<Caballo> caballos = new LinkedHashSet<>();
 
     /**
-     * Define la relacion de muchos a muchos entre salidas y guias
+     * Define la relacion de muchos a muchos entre salidas y guias, con el mismo criterio que caballos
      */
     @Builder.Default
     @ManyToMany
@@ -72,7 +92,7 @@ public class Salida {
             joinColumns = @JoinColumn(name = "salida_id"),
             inverseJoinColumns = @JoinColumn(name = "guia_id")
     )
-    private List<Guia> guias = new ArrayList<>();
+    private Set<Guia> guias = new LinkedHashSet<>();
 
     /**
      * Metodo para agregar una reserva en una salida
@@ -103,12 +123,7 @@ public class Salida {
      * @return
      */
     public boolean agregarCaballo(Caballo caballo) {
-        if (!caballos.contains(caballo)) {
-            caballos.add(caballo);
-            caballo.getSalidas().add(this);
-            return true;
-        }
-        return false;
+        return caballos.add(caballo);
     }
 
     /**
@@ -117,11 +132,7 @@ public class Salida {
      * @return
      */
     public boolean eliminarCaballo(Caballo caballo) {
-        if (caballos.remove(caballo)) {
-            caballo.getSalidas().remove(this);
-            return true;
-        }
-        return false;
+        return caballos.remove(caballo);
     }
 
     /**
@@ -130,12 +141,7 @@ public class Salida {
      * @return
      */
     public boolean agregarGuia(Guia guia) {
-        if (!guias.contains(guia)) {
-            guias.add(guia);
-            guia.getSalidas().add(this);
-            return true;
-        }
-        return false;
+        return guias.add(guia);
     }
 
     /**
@@ -144,10 +150,6 @@ public class Salida {
      * @return
      */
     public boolean eliminarGuia(Guia guia) {
-        if (guias.remove(guia)) {
-            guia.getSalidas().remove(this);
-            return true;
-        }
-        return false;
+        return guias.remove(guia);
     }
 }
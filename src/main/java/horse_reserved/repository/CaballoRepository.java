@@ -27,4 +27,7 @@ public interface CaballoRepository extends JpaRepository<Caballo, Long> {
     List<Caballo> findDisponibles(@Param("fecha") LocalDate fecha,
                                   @Param("horaInicio") LocalTime horaInicio,
                                   @Param("horaFin") LocalTime horaFin);
+
+    @Query("SELECT c.id FROM Caballo c WHERE c.activo = true ORDER BY c.id")
+    List<Long> findIdsActivos();
 }
@@ -0,0 +1,60 @@
+package horse_reserved.repository;
+
+import horse_reserved.model.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    /**
+     * Bloquea hasta {@code lote} correos listos para enviar. SKIP LOCKED salta las filas que
+     * otro despachador ya esta reclamando, asi varias instancias se reparten la bandeja sin esperar.
+     * Debe ejecutarse en una transaccion que fije el arriendo antes de confirmar.
+     */
+    @Query(value = """
+            SELECT * FROM email_outbox
+            WHERE estado = 'pendiente'
+              AND proximo_intento <= :ahora
+              AND (bloqueado_hasta IS NULL OR bloqueado_hasta < :ahora)
+            ORDER BY proximo_intento
+            LIMIT :lote
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<EmailOutbox> reclamarPendientes(@Param("ahora") Instant ahora, @Param("lote") int lote);
+
+    /**
+     * Marca como enviados los correos indicados y libera su arriendo
+     */
+    @Modifying
+    @Query("update EmailOutbox c set c.estado = 'enviado', c.enviadoAt = :ahora, c.bloqueadoHasta = null, "
+            + "c.ultimoError = null where c.id in :ids")
+    int marcarEnviados(@Param("ids") Collection<Long> ids, @Param("ahora") Instant ahora);
+
+    /**
+     * Registra un envio fallido: programa el siguiente intento o descarta el correo
+     */
+    @Modifying
+    @Query("update EmailOutbox c set c.estado = :estado, c.proximoIntento = :proximoIntento, "
+            + "c.bloqueadoHasta = null, c.ultimoError = :error where c.id = :id")
+    int registrarFallo(@Param("id") Long id,
+                       @Param("estado") String estado,
+                       @Param("proximoIntento") Instant proximoIntento,
+                       @Param("error") String error);
+
+    long countByEstado(String estado);
+
+    /**
+     * Elimina los correos enviados antes de la fecha indicada
+     */
+    @Modifying
+    @Query("delete from EmailOutbox c where c.estado = 'enviado' and c.enviadoAt < :antes")
+    int eliminarEnviados(@Param("antes") Instant antes);
+}
@@ -27,4 +27,7 @@ public interface GuiaRepository extends JpaRepository<Guia, Long> {
     List<Guia> findDisponibles(@Param("fecha") LocalDate fecha,
                                @Param("horaInicio") LocalTime horaInicio,
                                @Param("horaFin") LocalTime horaFin);
+
+    @Query("SELECT g.id FROM Guia g WHERE g.activo = true ORDER BY g.id")
+    List<Long> findIdsActivos();
 }
@@ -0,0 +1,20 @@
+package horse_reserved.repository;
+
+import horse_reserved.model.TipoDocumento;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyeccion de un participante con el id de su reserva, para armar respuestas sin cargar entidades
+ */
+public record ParticipanteFila(
+        Long reservaId,
+        Long id,
+        String primerNombre,
+        String primerApellido,
+        TipoDocumento tipoDocumento,
+        String documento,
+        short edad,
+        short cmAltura,
+        BigDecimal kgPeso
+) {}
@@ -0,0 +1,27 @@
+package horse_reserved.repository;
+
+import horse_reserved.model.Participante;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ParticipanteRepository extends JpaRepository<Participante, Long> {
+
+    /**
+     * Participantes de un lote de reservas en una sola consulta, ordenados por reserva e id
+     */
+    @Query("""
+        select new horse_reserved.repository.ParticipanteFila(
+            p.reserva.id, p.id, p.primerNombre, p.primerApellido, p.tipoDocumento,
+            p.documento, p.edad, p.cmAltura, p.kgPeso)
+        from Participante p
+        where p.reserva.id in :reservaIds
+        order by p.reserva.id, p.id
+    """)
+    List<ParticipanteFila> findFilasByReservaIds(@Param("reservaIds") Collection<Long> reservaIds);
+}
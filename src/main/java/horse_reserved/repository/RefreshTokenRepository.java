@@ -0,0 +1,50 @@
+package horse_reserved.repository;
+
+import horse_reserved.model.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Busca un token por su hash y bloquea la fila, para que dos refrescos simultaneos
+     * del mismo token no puedan rotarlo ambos
+     *
+     * @param tokenHash SHA-256 del token
+     * @return Optional con el token si existe
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from RefreshToken t join fetch t.usuario where t.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHashForUpdate(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Revoca todos los tokens de una familia (reutilizacion detectada o cierre de sesion)
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.familia = :familia and t.revoked = false")
+    int revocarFamilia(@Param("familia") UUID familia);
+
+    /**
+     * Revoca todos los tokens de un usuario (cambio de contraseña)
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.usuario.id = :usuarioId and t.revoked = false")
+    int revocarPorUsuario(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Elimina los tokens expirados antes de la fecha indicada
+     */
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :antes")
+    int eliminarExpirados(@Param("antes") Instant antes);
+}
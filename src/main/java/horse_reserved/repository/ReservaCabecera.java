@@ -0,0 +1,29 @@
+package horse_reserved.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Proyeccion plana de una reserva con los datos de su salida, ruta, cliente y operador.
+ * Se construye directamente en la consulta, sin entidades administradas, para recorrer
+ * grandes volumenes de reservas sin llenar el contexto de persistencia.
+ */
+public record ReservaCabecera(
+        Long id,
+        String estado,
+        int cantPersonas,
+        BigDecimal precioUnitario,
+        BigDecimal precioTotal,
+        Long salidaId,
+        LocalDate fechaProgramada,
+        LocalTime tiempoInicio,
+        LocalTime tiempoFin,
+        String salidaEstado,
+        Long rutaId,
+        String rutaNombre,
+        BigDecimal rutaPrecio,
+        Long clienteId,
+        String clienteEmail,
+        Long operadorId
+) {}
@@ -1,36 +1,45 @@
 package horse_reserved.repository;
 
 import horse_reserved.model.Reserva;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.time.LocalDate;
+import java.util.stream.Stream;
 
 @Repository
-public interface ReservaRepository extends JpaRepository<Reserva, Long> {
-
-    @EntityGraph(attributePaths = {"salida", "salida.ruta", "cliente", "operador", "participantes"})
-    List<Reserva> findByClienteIdOrderByIdDesc(Long clienteId);
-
-    @EntityGraph(attributePaths = {"salida", "salida.ruta", "cliente", "operador", "participantes"})
-    List<Reserva> findByOperadorIdOrderByIdDesc(Long operadorId);
-
-    @EntityGraph(attributePaths = {"salida", "salida.ruta", "cliente", "operador", "participantes"})
-    List<Reserva> findBySalidaIdOrderByIdDesc(Long salidaId);
-
-    @EntityGraph(attributePaths = {"salida", "salida.ruta", "cliente", "operador", "participantes"})
-    @Query("select r from Reserva r order by r.id desc")
-    List<Reserva> findAllOrderByIdDesc();
+public interface ReservaRepository extends JpaRepository<Reserva, Long>, ReservaRepositoryCustom {
 
     @EntityGraph(attributePaths = {"salida", "salida.ruta", "cliente", "operador", "participantes"})
     java.util.Optional<Reserva> findDetailedById(Long id);
 
+    /**
+     * Recorre las reservas en orden de id como proyecciones planas, leyendo del cursor
+     * de la base de datos por bloques. Debe consumirse dentro de una transaccion y cerrarse.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
     @Query("""
-        select coalesce(sum(r.cantPersonas), 0)
+        select new horse_reserved.repository.ReservaCabecera(
+            r.id, r.estado, r.cantPersonas, r.precioUnitario, r.precioTotal,
+            s.id, s.fechaProgramada, s.tiempoInicio, s.tiempoFin, s.estado,
+            ru.id, ru.nombre, ru.precio, c.id, c.email, o.id)
         from Reserva r
-        where r.salida.id = :salidaId
-          and r.estado <> 'cancelado'
+        join r.salida s
+        join s.ruta ru
+        left join r.cliente c
+        left join r.operador o
+        where (:estado is null or r.estado = :estado)
+          and (:desde is null or s.fechaProgramada >= :desde)
+          and (:hasta is null or s.fechaProgramada <= :hasta)
+        order by r.id
     """)
-    long sumPersonasReservadasActivasBySalida(@Param("salidaId") Long salidaId);
+    Stream<ReservaCabecera> streamCabeceras(@Param("estado") String estado,
+                                            @Param("desde") LocalDate desde,
+                                            @Param("hasta") LocalDate hasta);
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package horse_reserved.repository;
+
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Consultas de reservas que se construyen segun los filtros presentes
+ */
+public interface ReservaRepositoryCustom {
+
+    /**
+     * Pagina de reservas por cursor (id descendente) con filtros opcionales, como proyecciones
+     * planas: una fila por reserva y ninguna entidad en el contexto de persistencia.
+     * Los participantes se consultan aparte con ParticipanteRepository.findFilasByReservaIds.
+     * Cada filtro nulo se omite de la sentencia, de modo que cada combinacion de filtros es una
+     * sentencia distinta que PostgreSQL puede resolver con el indice que le corresponde.
+     */
+    List<ReservaCabecera> buscarPagina(Long cursor, Long clienteId, Long operadorId, String estado,
+                                       Long rutaId, LocalDate desde, LocalDate hasta, Pageable pagina);
+}
@@ -0,0 +1,72 @@
+package horse_reserved.repository;
+
+import horse_reserved.model.Reserva;
+import horse_reserved.model.Ruta;
+import horse_reserved.model.Salida;
+import horse_reserved.model.Usuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementacion con Criteria de {@link ReservaRepositoryCustom}. Un predicado
+ * {@code (:x is null or col = :x)} impide a PostgreSQL usar los indices de V12 cuando cachea un
+ * plan generico para la sentencia preparada; aqui solo se agregan los filtros que vienen.
+ */
+class ReservaRepositoryCustomImpl implements ReservaRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ReservaCabecera> buscarPagina(Long cursor, Long clienteId, Long operadorId, String estado,
+                                              Long rutaId, LocalDate desde, LocalDate hasta, Pageable pagina) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ReservaCabecera> query = cb.createQuery(ReservaCabecera.class);
+
+        Root<Reserva> r = query.from(Reserva.class);
+        Join<Reserva, Salida> s = r.join("salida");
+        Join<Salida, Ruta> ru = s.join("ruta");
+        Join<Reserva, Usuario> c = r.join("cliente", JoinType.LEFT);
+        Join<Reserva, Usuario> o = r.join("operador", JoinType.LEFT);
+
+        query.select(cb.construct(ReservaCabecera.class,
+                r.get("id"), r.get("estado"), r.get("cantPersonas"), r.get("precioUnitario"), r.get("precioTotal"),
+                s.get("id"), s.get("fechaProgramada"), s.get("tiempoInicio"), s.get("tiempoFin"), s.get("estado"),
+                ru.get("id"), ru.get("nombre"), ru.get("precio"), c.get("id"), c.get("email"), o.get("id")));
+
+        // Las llaves foraneas se comparan en la propia fila (client_id, operator_id, ruta_id), que es lo que indexa V12
+        List<Predicate> filtros = new ArrayList<>();
+        filtros.add(cb.lt(r.<Long>get("id"), cursor));
+        if (clienteId != null) {
+            filtros.add(cb.equal(r.get("cliente").get("id"), clienteId));
+        }
+        if (operadorId != null) {
+            filtros.add(cb.equal(r.get("operador").get("id"), operadorId));
+        }
+        if (estado != null) {
+            filtros.add(cb.equal(r.get("estado"), estado));
+        }
+        if (rutaId != null) {
+            filtros.add(cb.equal(s.get("ruta").get("id"), rutaId));
+        }
+        if (desde != null) {
+            filtros.add(cb.greaterThanOrEqualTo(s.<LocalDate>get("fechaProgramada"), desde));
+        }
+        if (hasta != null) {
+            filtros.add(cb.lessThanOrEqualTo(s.<LocalDate>get("fechaProgramada"), hasta));
+        }
+        query.where(filtros.toArray(Predicate[]::new));
+        query.orderBy(cb.desc(r.get("id")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pagina.getOffset())
+                .setMaxResults(pagina.getPageSize())
+                .getResultList();
+    }
+}
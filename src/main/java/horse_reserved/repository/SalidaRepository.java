@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -26,4 +27,151 @@ public interface SalidaRepository extends JpaRepository<Salida, Long> {
     Optional<Salida> findProgramadaByRutaAndFechaAndHora(@Param("rutaId") Long rutaId,
                                                           @Param("fecha") LocalDate fecha,
                                                           @Param("horaInicio") LocalTime horaInicio);
-}
\ No newline at end of file
+
+    /**
+     * Proyeccion de una asignacion de recurso (caballo o guia) a una salida activa
+     */
+    interface AsignacionRecurso {
+        Long getSalidaId();
+        LocalDate getFecha();
+        LocalTime getInicio();
+        LocalTime getFin();
+        Long getRecursoId();
+    }
+
+    @Query("""
+            SELECT s.id AS salidaId, s.fechaProgramada AS fecha, s.tiempoInicio AS inicio,
+                   s.tiempoFin AS fin, c.id AS recursoId
+            FROM Salida s JOIN s.caballos c
+            WHERE s.fechaProgramada BETWEEN :desde AND :hasta
+              AND s.estado NOT IN ('cancelado', 'completado')
+            """)
+    List<AsignacionRecurso> findAsignacionesCaballosEntre(@Param("desde") LocalDate desde,
+                                                          @Param("hasta") LocalDate hasta);
+
+    @Query("""
+            SELECT s.id AS salidaId, s.fechaProgramada AS fecha, s.tiempoInicio AS inicio,
+                   s.tiempoFin AS fin, g.id AS recursoId
+            FROM Salida s JOIN s.guias g
+            WHERE s.fechaProgramada BETWEEN :desde AND :hasta
+              AND s.estado NOT IN ('cancelado', 'completado')
+            """)
+    List<AsignacionRecurso> findAsignacionesGuiasEntre(@Param("desde") LocalDate desde,
+                                                       @Param("hasta") LocalDate hasta);
+
+    /**
+     * Proyeccion de los contadores de cupo de una salida
+     */
+    interface CupoSalida {
+        Long getSalidaId();
+        LocalDate getFecha();
+        LocalTime getInicio();
+        LocalTime getFin();
+        Integer getCupoOcupado();
+        Integer getCupoMaximo();
+    }
+
+    @Query("""
+            SELECT s.id AS salidaId, s.fechaProgramada AS fecha, s.tiempoInicio AS inicio,
+                   s.tiempoFin AS fin, s.cupoOcupado AS cupoOcupado, s.cupoMaximo AS cupoMaximo
+            FROM Salida s
+            WHERE s.ruta.id = :rutaId
+              AND s.fechaProgramada BETWEEN :desde AND :hasta
+              AND s.estado = 'programado'
+            """)
+    List<CupoSalida> findCuposProgramadosByRutaEntre(@Param("rutaId") Long rutaId,
+                                                     @Param("desde") LocalDate desde,
+                                                     @Param("hasta") LocalDate hasta);
+
+    /**
+     * Ocupa cupo en una salida solo si alcanza. La validacion y la reserva del cupo son una
+     * unica sentencia, por lo que dos reservas concurrentes nunca pueden sobrevender la salida.
+     * @return 1 si se ocupo el cupo, 0 si no hay cupo suficiente
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE salidas
+            SET cupo_ocupado = cupo_ocupado + :personas
+            WHERE id = :salidaId
+              AND cupo_ocupado + :personas <= cupo_maximo
+            """, nativeQuery = true)
+    int ocuparCupo(@Param("salidaId") Long salidaId, @Param("personas") int personas);
+
+    /**
+     * Libera cupo de una salida sin dejar el contador por debajo de cero
+     * @return el cupo ocupado que queda, o null si la salida no existe
+     */
+    @Query(value = """
+            UPDATE salidas
+            SET cupo_ocupado = GREATEST(cupo_ocupado - :personas, 0)
+            WHERE id = :salidaId
+            RETURNING cupo_ocupado
+            """, nativeQuery = true)
+    Integer liberarCupo(@Param("salidaId") Long salidaId, @Param("personas") int personas);
+
+    /**
+     * Salidas desde una fecha cuyos contadores de cupo no coinciden con sus reservas y caballos
+     */
+    @Query(value = """
+            SELECT s.id
+            FROM salidas s
+            WHERE s.fecha_programada >= :desde
+              AND (s.cupo_ocupado <> (SELECT coalesce(sum(r.num_people), 0) FROM reservaciones r
+                                      WHERE r.salida_id = s.id AND r.estado <> 'cancelado')
+                OR s.cupo_maximo  <> (SELECT count(*) FROM salida_caballos sc WHERE sc.salida_id = s.id))
+            ORDER BY s.id
+            """, nativeQuery = true)
+    List<Long> findIdsConCupoDesalineado(@Param("desde") LocalDate desde);
+
+    /**
+     * Bloquea la fila de la salida hasta el fin de la transaccion. Las reservas en curso
+     * mantienen este mismo bloqueo desde que modifican el cupo hasta que confirman.
+     */
+    @Query(value = "SELECT id FROM salidas WHERE id = :salidaId FOR UPDATE", nativeQuery = true)
+    Long bloquearFila(@Param("salidaId") Long salidaId);
+
+    /**
+     * Recalcula los contadores de cupo de una salida a partir de reservaciones y salida_caballos
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE salidas s
+            SET cupo_ocupado = (SELECT coalesce(sum(r.num_people), 0) FROM reservaciones r
+                                WHERE r.salida_id = s.id AND r.estado <> 'cancelado'),
+                cupo_maximo  = (SELECT count(*) FROM salida_caballos sc WHERE sc.salida_id = s.id)
+            WHERE s.id = :salidaId
+            """, nativeQuery = true)
+    int recalcularCupo(@Param("salidaId") Long salidaId);
+
+    /**
+     * Versiones de la agenda de un dia y de los recursos activos, leidas al tomar el bloqueo de agenda
+     */
+    interface VersionAgenda {
+        Long getAgenda();
+        Long getRecursos();
+    }
+
+    /**
+     * Bloquea la fila de agenda_versiones de la fecha hasta el fin de la transaccion e incrementa su version.
+     * Antes fija lock_timeout para la transaccion: si otra transaccion retiene la fila mas de
+     * {@code espera} (por ejemplo "5000ms") la sentencia falla en lugar de esperar indefinidamente.
+     * @return la version nueva de la agenda del dia y la version actual de los caballos y guias activos
+     */
+    @Query(value = """
+            INSERT INTO agenda_versiones AS a (fecha, version)
+            SELECT :fecha, 1 FROM (SELECT set_config('lock_timeout', :espera, true) AS valor) limite
+            ON CONFLICT (fecha) DO UPDATE SET version = a.version + 1
+            RETURNING a.version AS agenda, (SELECT r.version FROM recursos_version r) AS recursos
+            """, nativeQuery = true)
+    VersionAgenda bloquearAgenda(@Param("fecha") LocalDate fecha, @Param("espera") String espera);
+
+    /**
+     * Toma un bloqueo asesor de PostgreSQL que se libera al terminar la transaccion.
+     * Fija antes lock_timeout para la transaccion, de modo que la espera por el bloqueo esta acotada.
+     */
+    @Query(value = """
+            SELECT 1 FROM (SELECT set_config('lock_timeout', :espera, true) AS valor) limite,
+            LATERAL (SELECT pg_advisory_xact_lock(:espacio, :clave) WHERE limite.valor IS NOT NULL) bloqueo
+            """, nativeQuery = true)
+    Integer bloquearAsesor(@Param("espacio") int espacio, @Param("clave") int clave, @Param("espera") String espera);
+}
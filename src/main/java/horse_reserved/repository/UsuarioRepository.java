@@ -2,8 +2,11 @@ package horse_reserved.repository;
 
 import horse_reserved.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.Optional;
 
 @Repository
@@ -36,4 +39,25 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      * @return Lista de usuarios con ese estado
      */
     java.util.List<Usuario> findByIsActive(Boolean isActive);
-}
\ No newline at end of file
+
+    /**
+     * Estado de las credenciales de un usuario, usado para invalidar tokens emitidos
+     */
+    interface EstadoCredencial {
+        Long getId();
+        Instant getPasswordChangedAt();
+        Boolean getActivo();
+    }
+
+    /**
+     * Usuarios inactivos o que cambiaron su contraseña despues de la fecha indicada.
+     * Solo ellos pueden tener tokens vigentes que deban rechazarse.
+     * @param desde Inicio de la ventana de vigencia de los tokens
+     */
+    @Query("""
+            select u.id as id, u.passwordChangedAt as passwordChangedAt, u.isActive as activo
+            from Usuario u
+            where u.isActive = false or u.passwordChangedAt > :desde
+            """)
+    java.util.List<EstadoCredencial> findCredencialesRevocables(@Param("desde") Instant desde);
+}
@@ -0,0 +1,180 @@
+package horse_reserved.security;
+
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Almacen acotado de buckets por clave (IP o usuario) para una regla de rate limiting.
+ *
+ * Las claves se reparten en segmentos LRU independientes, cada uno con su propio lock y una
+ * capacidad fija, asi que el total nunca supera {@code capacidadMaxima} aunque lleguen millones
+ * de claves distintas. Un bucket sin uso durante {@code inactividadMaxima} se descarta: para
+ * reglas cuya ventana es menor o igual a ese tiempo el bucket ya estaria lleno otra vez, por lo
+ * que descartarlo no cambia el limite. Consultar una clave existente no reserva memoria.
+ */
+public final class AlmacenBuckets {
+
+    private static final class Entrada {
+        final Bucket bucket;
+        long ultimoAcceso;
+
+        Entrada(Bucket bucket, long ultimoAcceso) {
+            this.bucket = bucket;
+            this.ultimoAcceso = ultimoAcceso;
+        }
+    }
+
+    private final class Segmento {
+        final ReentrantLock lock = new ReentrantLock();
+        // Orden de acceso: las entradas mas antiguas (candidatas a desalojo) quedan al inicio
+        final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+
+        Bucket obtener(String clave, long ahora) {
+            lock.lock();
+            try {
+                Entrada entrada = entradas.get(clave);
+                if (entrada != null && ahora - entrada.ultimoAcceso < inactividadNanos) {
+                    entrada.ultimoAcceso = ahora;
+                    return entrada.bucket;
+                }
+                purgarInactivas(ahora);
+                Bucket bucket = fabrica.get();
+                entradas.put(clave, new Entrada(bucket, ahora));
+                if (entradas.size() > capacidadSegmento) {
+                    Iterator<Entrada> masAntigua = entradas.values().iterator();
+                    masAntigua.next();
+                    masAntigua.remove();
+                    desalojosCapacidad.increment();
+                }
+                return bucket;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void purgarInactivas(long ahora) {
+            Iterator<Entrada> it = entradas.values().iterator();
+            while (it.hasNext()) {
+                if (ahora - it.next().ultimoAcceso < inactividadNanos) {
+                    return;
+                }
+                it.remove();
+                desalojosInactividad.increment();
+            }
+        }
+
+        int tamano() {
+            lock.lock();
+            try {
+                return entradas.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final Supplier<Bucket> fabrica;
+    private final long inactividadNanos;
+    private final int capacidadSegmento;
+    private final LongSupplier reloj;
+    private final Segmento[] segmentos;
+    private final int mascara;
+
+    private final LongAdder desalojosCapacidad = new LongAdder();
+    private final LongAdder desalojosInactividad = new LongAdder();
+
+    public AlmacenBuckets(Supplier<Bucket> fabrica, int capacidadMaxima, Duration inactividadMaxima) {
+        this(fabrica, capacidadMaxima, inactividadMaxima, System::nanoTime);
+    }
+
+    AlmacenBuckets(Supplier<Bucket> fabrica, int capacidadMaxima, Duration inactividadMaxima, LongSupplier reloj) {
+        if (capacidadMaxima < 1) {
+            throw new IllegalArgumentException("La capacidad maxima debe ser positiva");
+        }
+        this.fabrica = fabrica;
+        this.inactividadNanos = inactividadMaxima.toNanos();
+        this.reloj = reloj;
+
+        // Potencia de dos para elegir segmento con una mascara; nunca mas segmentos que capacidad
+        int cantidad = Integer.highestOneBit(Math.min(64, Math.max(1, capacidadMaxima / 16)));
+        this.segmentos = new Segmento[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            segmentos[i] = new Segmento();
+        }
+        this.mascara = cantidad - 1;
+        this.capacidadSegmento = capacidadMaxima / cantidad;
+    }
+
+    /**
+     * Devuelve el bucket de la clave, creandolo si no existe o si expiro por inactividad
+     */
+    public Bucket obtener(String clave) {
+        int h = clave.hashCode();
+        return segmentos[(h ^ (h >>> 16)) & mascara].obtener(clave, reloj.getAsLong());
+    }
+
+    /**
+     * Descarta los buckets inactivos de todos los segmentos, aunque no reciban trafico
+     */
+    public void purgarInactivos() {
+        long ahora = reloj.getAsLong();
+        for (Segmento segmento : segmentos) {
+            segmento.lock.lock();
+            try {
+                segmento.purgarInactivas(ahora);
+            } finally {
+                segmento.lock.unlock();
+            }
+        }
+    }
+
+    public int tamano() {
+        int total = 0;
+        for (Segmento segmento : segmentos) {
+            total += segmento.tamano();
+        }
+        return total;
+    }
+
+    public int capacidadMaxima() {
+        return capacidadSegmento * segmentos.length;
+    }
+
+    public long desalojosPorCapacidad() {
+        return desalojosCapacidad.sum();
+    }
+
+    public long desalojosPorInactividad() {
+        return desalojosInactividad.sum();
+    }
+
+    /**
+     * Registra tamaño y desalojos del almacen con las etiquetas indicadas
+     */
+    public void registrarMetricas(MeterRegistry registry, Tags tags) {
+        Gauge.builder("rate_limit.buckets", this, AlmacenBuckets::tamano)
+                .description("Buckets de rate limiting en memoria")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("rate_limit.buckets.desalojos", desalojosCapacidad, LongAdder::sum)
+                .description("Buckets descartados del almacen")
+                .tags(tags.and("causa", "capacidad"))
+                .register(registry);
+        FunctionCounter.builder("rate_limit.buckets.desalojos", desalojosInactividad, LongAdder::sum)
+                .description("Buckets descartados del almacen")
+                .tags(tags.and("causa", "inactividad"))
+                .register(registry);
+    }
+}
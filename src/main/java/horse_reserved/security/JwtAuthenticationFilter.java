@@ -1,6 +1,8 @@
 package horse_reserved.security;
 
+import horse_reserved.model.Rol;
 import horse_reserved.service.JwtService;
+import horse_reserved.service.RevocacionTokensService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,6 +25,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final RevocacionTokensService revocacionTokens;
 
     @Override
     protected void doFilterInternal(
@@ -34,7 +37,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Obtener el header Authorization
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
 
         // Si no hay header o no empieza con "Bearer ", continuar con la cadena de filtros
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -46,17 +48,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            // Extraer el email del token
-            userEmail = jwtService.extractUsername(jwt);
+            // Verificar firma y expiración una sola vez y extraer el email del token
+            JwtService.TokenVerificado token = jwtService.verificar(jwt);
+            final String userEmail = token.subject();
 
             // Si el email no es nulo y no hay autenticación en el contexto
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                // Cargar los detalles del usuario
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                // Principal desde los claims; solo se consulta la base de datos para tokens sin ellos
+                UserDetails userDetails = principalDesdeClaims(token);
+                boolean valido = userDetails != null;
+                if (userDetails == null && !tieneClaimsDePrincipal(token)) {
+                    userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                    // Validar el token contra el usuario (sin volver a parsearlo)
+                    valido = jwtService.isTokenValid(token, userDetails);
+                }
 
-                // Validar el token
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (valido) {
 
                     // Crear el token de autenticación
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -82,4 +90,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Continuar con la cadena de filtros
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Construye el principal con los claims del token si la tabla de revocacion ya esta cargada.
+     * Devuelve null si el token no trae los claims o si fue revocado.
+     */
+    private UsuarioAutenticado principalDesdeClaims(JwtService.TokenVerificado token) {
+        if (!tieneClaimsDePrincipal(token)) {
+            return null;
+        }
+        Long usuarioId = token.claim(JwtService.CLAIM_USUARIO, Number.class).longValue();
+        long passwordCambiada = token.claim(JwtService.CLAIM_PASSWORD_CAMBIADA, Number.class).longValue();
+        if (!revocacionTokens.esVigente(usuarioId, passwordCambiada)) {
+            return null;
+        }
+        Rol rol = Rol.valueOf(token.claim(JwtService.CLAIM_ROL, String.class));
+        return new UsuarioAutenticado(usuarioId, token.subject(), rol);
+    }
+
+    /**
+     * Tokens emitidos antes de incluir id, rol y cambio de contraseña, o emitidos mientras la
+     * tabla de revocacion aun no se carga, se validan contra la base de datos.
+     */
+    private boolean tieneClaimsDePrincipal(JwtService.TokenVerificado token) {
+        return revocacionTokens.estaCargada()
+                && token.claim(JwtService.CLAIM_USUARIO, Number.class) != null
+                && token.claim(JwtService.CLAIM_ROL, String.class) != null
+                && token.claim(JwtService.CLAIM_PASSWORD_CAMBIADA, Number.class) != null;
+    }
+}
@@ -0,0 +1,137 @@
+package horse_reserved.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limita las solicitudes en curso cuando Tomcat usa hilos virtuales.
+ *
+ * Con hilos de plataforma el pool de Tomcat (200 hilos) acota la concurrencia; con hilos virtuales
+ * cada conexion recibe su propio hilo y miles de solicitudes pueden quedar esperando una conexion
+ * de Hikari. Este filtro admite a la vez {@code app.concurrencia.solicitudes-por-conexion} veces el
+ * tamaño del pool de Hikari, para que la cola quede aqui y no en el pool; las demas esperan hasta
+ * {@code app.concurrencia.espera-ms} y luego reciben 503 con Retry-After.
+ *
+ * Una solicitud asincrona (por ejemplo una exportacion con StreamingResponseBody) conserva su permiso
+ * hasta que termina la respuesta, no hasta que vuelve el hilo del contenedor.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private final Semaphore permisos;
+    private final int maxSolicitudes;
+    private final long esperaMs;
+    private final LongAdder rechazos = new LongAdder();
+
+    public LimiteConcurrenciaFilter(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int conexiones,
+                                    @Value("${app.concurrencia.solicitudes-por-conexion:2}") int solicitudesPorConexion,
+                                    @Value("${app.concurrencia.espera-ms:1000}") long esperaMs) {
+        this.maxSolicitudes = conexiones * solicitudesPorConexion;
+        this.permisos = new Semaphore(maxSolicitudes, true);
+        this.esperaMs = esperaMs;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        boolean admitida;
+        try {
+            admitida = permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitida = false;
+        }
+
+        if (!admitida) {
+            rechazos.increment();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader("Retry-After", "1");
+            response.getWriter().write(buildErrorJson(request.getRequestURI()));
+            return;
+        }
+        boolean asincrona = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new LiberarAlCompletar());
+                asincrona = true;
+            }
+        } finally {
+            if (!asincrona) {
+                permisos.release();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("http.concurrencia.en_curso", permisos, p -> maxSolicitudes - p.availablePermits())
+                .description("Solicitudes admitidas en curso")
+                .register(registry);
+        Gauge.builder("http.concurrencia.en_espera", permisos, Semaphore::getQueueLength)
+                .description("Solicitudes esperando un permiso")
+                .register(registry);
+        FunctionCounter.builder("http.concurrencia.rechazos", rechazos, LongAdder::sum)
+                .description("Solicitudes rechazadas con 503 por exceso de concurrencia")
+                .register(registry);
+    }
+
+    /**
+     * Devuelve el permiso cuando la respuesta asincrona termina, tambien tras un timeout o un error
+     */
+    private final class LiberarAlCompletar implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permisos.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Un nuevo startAsync descarta los listeners registrados
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private String buildErrorJson(String path) {
+        return String.format(
+                "{\"timestamp\":\"%s\",\"status\":503,\"error\":\"Service Unavailable\"," +
+                "\"message\":\"El servicio está ocupado, intenta nuevamente en unos segundos\",\"path\":\"%s\"}",
+                LocalDateTime.now(), path
+        );
+    }
+}
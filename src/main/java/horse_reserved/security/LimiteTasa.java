@@ -0,0 +1,17 @@
+package horse_reserved.security;
+
+import java.time.Duration;
+
+/**
+ * Limite de una regla de rate limiting: {@code capacidad} solicitudes en rafaga y
+ * {@code recarga} solicitudes nuevas por cada {@code ventana}
+ */
+public record LimiteTasa(long capacidad, long recarga, Duration ventana) {
+
+    /**
+     * Tokens recuperados por segundo, usado por los backends con recarga continua
+     */
+    public double tokensPorSegundo() {
+        return recarga / (ventana.toNanos() / 1e9);
+    }
+}
@@ -4,6 +4,7 @@ import horse_reserved.dto.response.AuthResponse;
 import horse_reserved.model.Usuario;
 import horse_reserved.repository.UsuarioRepository;
 import horse_reserved.service.JwtService;
+import horse_reserved.service.RefreshTokenService;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -16,8 +17,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 @Component
 @RequiredArgsConstructor
@@ -26,6 +25,7 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
     private final JwtService jwtService;
     private final UsuarioRepository usuarioRepository;
     private final OAuth2TokenStore tokenStore;
+    private final RefreshTokenService refreshTokenService;
 
     @Value("${app.oauth2.authorized-redirect-uris:http://localhost:4200/auth/oauth2-redirect}")
     private String redirectUri;
@@ -59,16 +59,13 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
         Usuario usuario = usuarioRepository.findByEmail(email)
                 .orElseThrow(() -> new IllegalStateException("Usuario no encontrado"));
 
-        Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("userId", usuario.getId());
-        extraClaims.put("role", usuario.getRole());
-
-        String token = jwtService.generateToken(usuario, extraClaims);
+        String token = jwtService.generateToken(usuario);
 
         AuthResponse authResponse = AuthResponse.builder()
                 .token(token)
                 .type("Bearer")
                 .expiresIn(jwtExpiration / 1000)
+                .refreshToken(refreshTokenService.emitir(usuario))
                 .userId(usuario.getId())
                 .email(usuario.getEmail())
                 .primerNombre(usuario.getPrimerNombre())
@@ -0,0 +1,161 @@
+package horse_reserved.security;
+
+import horse_reserved.exception.ServicioSaturadoException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PasswordEncoder BCrypt que ejecuta el hashing en un pool propio y acotado.
+ *
+ * Un hash de costo 12 ocupa un nucleo durante cientos de milisegundos; hecho en los hilos de Tomcat,
+ * una rafaga de logins consume toda la CPU y deja sin servicio al resto de la API. Aqui el hashing
+ * usa como maximo {@code app.hashing.hilos} nucleos y una cola de {@code app.hashing.cola} tareas.
+ * Con la cola llena, o si el resultado no llega en {@code app.hashing.espera-maxima-ms}, se lanza
+ * {@link ServicioSaturadoException} (503 con Retry-After) en lugar de acumular solicitudes.
+ *
+ * {@link #upgradeEncoding(String)} indica que un hash tiene menor costo que el configurado; el
+ * DaoAuthenticationProvider lo vuelve a calcular tras un login correcto y lo guarda por medio de
+ * UserDetailsPasswordService, asi que cambiar el costo no requiere migrar las contraseñas.
+ */
+@Slf4j
+@Component
+public class PasswordEncoderAcotado implements PasswordEncoder, MeterBinder, DisposableBean {
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final ThreadPoolExecutor executor;
+    private final long esperaMaximaMs;
+    private final long reintentarEnSegundos;
+    private final LongAdder rechazos = new LongAdder();
+
+    private volatile Timer tiempoEncode;
+    private volatile Timer tiempoMatches;
+
+    public PasswordEncoderAcotado(@Value("${app.hashing.bcrypt-costo:12}") int costo,
+                                  @Value("${app.hashing.hilos:0}") int hilos,
+                                  @Value("${app.hashing.cola:64}") int cola,
+                                  @Value("${app.hashing.espera-maxima-ms:5000}") long esperaMaximaMs,
+                                  @Value("${app.hashing.reintentar-en-segundos:2}") long reintentarEnSegundos) {
+        int tamano = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        this.bcrypt = new BCryptPasswordEncoder(costo);
+        this.executor = new ThreadPoolExecutor(tamano, tamano, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "hashing-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.reintentarEnSegundos = reintentarEnSegundos;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(() -> medir(tiempoEncode, () -> bcrypt.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            // Cuentas solo OAuth2: no hay hash que verificar ni trabajo que encolar
+            return false;
+        }
+        return ejecutar(() -> medir(tiempoMatches, () -> bcrypt.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Solicita recalcular hashes de menor costo, salvo si ya hay trabajo en cola:
+     * bajo carga la migracion se aplaza al siguiente login en lugar de duplicar el costo de este
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return executor.getQueue().isEmpty() && bcrypt.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Tareas esperando un hilo de hashing
+     */
+    public int enCola() {
+        return executor.getQueue().size();
+    }
+
+    public long rechazos() {
+        return rechazos.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("hashing.cola", executor, e -> e.getQueue().size())
+                .description("Tareas de hashing esperando un hilo")
+                .register(registry);
+        Gauge.builder("hashing.activos", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hilos de hashing ocupados")
+                .register(registry);
+        FunctionCounter.builder("hashing.rechazos", rechazos, LongAdder::sum)
+                .description("Solicitudes rechazadas por saturacion del hashing")
+                .register(registry);
+        tiempoEncode = Timer.builder("hashing.duracion").tag("operacion", "encode").register(registry);
+        tiempoMatches = Timer.builder("hashing.duracion").tag("operacion", "matches").register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(tarea);
+        } catch (RejectedExecutionException e) {
+            throw saturado("Cola de hashing llena");
+        }
+        try {
+            return futuro.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            throw saturado("Hashing sin respuesta en " + esperaMaximaMs + " ms");
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hashing interrumpido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private ServicioSaturadoException saturado(String motivo) {
+        rechazos.increment();
+        log.warn("{}; se rechaza la solicitud", motivo);
+        return new ServicioSaturadoException(
+                "El servicio está ocupado, intenta nuevamente en unos segundos", reintentarEnSegundos);
+    }
+
+    private static <T> T medir(Timer timer, Callable<T> hash) throws Exception {
+        return timer != null ? timer.recordCallable(hash) : hash.call();
+    }
+}
@@ -0,0 +1,28 @@
+package horse_reserved.security;
+
+import java.util.List;
+
+/**
+ * Estado de los buckets de rate limiting. La implementacion local solo limita la instancia
+ * actual; la de PostgreSQL comparte el limite entre todas las instancias de la aplicacion.
+ * Se elige con {@code app.rate-limit.backend} ({@code local} o {@code postgres}).
+ */
+public interface RateLimitBackend {
+
+    /**
+     * Resultado de consumir un token: si se permite la solicitud y, si no, cuantos
+     * segundos esperar antes de reintentar
+     */
+    record Resultado(boolean permitido, long esperaSegundos) {
+
+        public static final Resultado PERMITIDO = new Resultado(true, 0);
+    }
+
+    /**
+     * Consume un token de cada limite del bucket de la clave dentro de la regla
+     * @param regla   Nombre de la regla
+     * @param clave   Clave del cliente dentro de la regla (IP o usuario)
+     * @param limites Capacidad y recarga de cada limite de la regla; todos deben tener un token
+     */
+    Resultado consumir(String regla, String clave, List<LimiteTasa> limites);
+}
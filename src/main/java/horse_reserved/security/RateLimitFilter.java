@@ -1,33 +1,50 @@
 package horse_reserved.security;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
+import horse_reserved.config.RateLimitProperties;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
 
 import java.io.IOException;
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Aplica las reglas de rate limiting de {@code app.rate-limit.reglas}. Se ejecuta despues de la
+ * cadena de Spring Security, asi que las reglas por usuario ya ven la autenticacion del JWT.
+ */
 @Component
 public class RateLimitFilter extends OncePerRequestFilter {
 
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final RateLimitBackend backend;
 
-    // Configuración por endpoint: [capacity, refillTokens, windowSeconds]
-    private static final Map<String, long[]> RATE_LIMITS = Map.of(
-            "/api/auth/login",           new long[]{5, 5, 60},    // 5 intentos / minuto
-            "/api/auth/register",        new long[]{3, 3, 600},   // 3 intentos / 10 minutos
-            "/api/auth/forgot-password", new long[]{3, 3, 600},   // 3 intentos / 10 minutos
-            "/api/auth/reset-password",  new long[]{5, 5, 600}    // 5 intentos / 10 minutos
-    );
+    // Se reemplaza completa al recargar las reglas; las solicitudes en curso terminan con la anterior
+    private volatile ReglasRateLimit reglas;
+
+    public RateLimitFilter() {
+        this(new RateLimitLocal(), new RateLimitProperties());
+    }
+
+    @Autowired
+    public RateLimitFilter(RateLimitBackend backend, RateLimitProperties properties) {
+        this.backend = backend;
+        this.reglas = ReglasRateLimit.compilar(properties);
+    }
+
+    /**
+     * Reemplaza las reglas vigentes por otras ya compiladas
+     */
+    public void actualizarReglas(ReglasRateLimit nuevas) {
+        this.reglas = nuevas;
+    }
 
     @Override
     protected void doFilterInternal(
@@ -36,45 +53,48 @@ public class RateLimitFilter extends OncePerRequestFilter {
             FilterChain filterChain
     ) throws ServletException, IOException {
 
-        String path = request.getRequestURI();
-        long[] config = RATE_LIMITS.get(path);
+        // Las reglas se comparan con la ruta decodificada y sin ';...', igual que la resuelve el
+        // DispatcherServlet: /api/auth/%6Cogin o /api/auth/login;x no deben saltarse el limite
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        ReglasRateLimit.Regla regla = reglas.buscar(request.getMethod(), path);
 
-        if (config == null) {
+        if (regla == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String ip = extractClientIp(request);
-        String bucketKey = ip + ":" + path;
-        Bucket bucket = buckets.computeIfAbsent(bucketKey, k -> buildBucket(config));
+        RateLimitBackend.Resultado resultado = backend.consumir(regla.nombre(), clave(regla, request), regla.limites());
 
-        if (bucket.tryConsume(1)) {
+        if (resultado.permitido()) {
             filterChain.doFilter(request, response);
         } else {
             response.setStatus(429);
             response.setContentType(MediaType.APPLICATION_JSON_VALUE);
             response.setCharacterEncoding("UTF-8");
-            response.setHeader("Retry-After", String.valueOf(config[2]));
-            response.getWriter().write(buildErrorJson(path));
+            response.setHeader("Retry-After", String.valueOf(resultado.esperaSegundos()));
+            response.getWriter().write(buildErrorJson(request.getRequestURI()));
         }
     }
 
+    private String clave(ReglasRateLimit.Regla regla, HttpServletRequest request) {
+        if (regla.tipoClave() == RateLimitProperties.TipoClave.USUARIO) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+                return auth.getName();
+            }
+        }
+        return extractClientIp(request);
+    }
+
     private String extractClientIp(HttpServletRequest request) {
         String forwarded = request.getHeader("X-Forwarded-For");
         if (forwarded != null && !forwarded.isBlank()) {
-            return forwarded.split(",")[0].trim();
+            int coma = forwarded.indexOf(',');
+            return (coma < 0 ? forwarded : forwarded.substring(0, coma)).trim();
         }
         return request.getRemoteAddr();
     }
 
-    private Bucket buildBucket(long[] config) {
-        Bandwidth limit = Bandwidth.builder()
-                .capacity(config[0])
-                .refillIntervally(config[1], Duration.ofSeconds(config[2]))
-                .build();
-        return Bucket.builder().addLimit(limit).build();
-    }
-
     private String buildErrorJson(String path) {
         return String.format(
                 "{\"timestamp\":\"%s\",\"status\":429,\"error\":\"Too Many Requests\"," +
@@ -0,0 +1,101 @@
+package horse_reserved.security;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buckets en memoria de esta instancia. Con varias instancias detras de un balanceador el
+ * limite efectivo se multiplica por el numero de instancias.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "local", matchIfMissing = true)
+public class RateLimitLocal implements RateLimitBackend, MeterBinder {
+
+    private static final int MAX_CLAVES_DEFECTO = 100_000;
+
+    private final int maxClaves;
+
+    // Un almacen acotado por regla; un bucket inactivo durante su ventana mas larga ya esta lleno
+    private record AlmacenRegla(List<LimiteTasa> limites, AlmacenBuckets almacen) {}
+
+    private final Map<String, AlmacenRegla> almacenes = new ConcurrentHashMap<>();
+    private MeterRegistry registry;
+
+    public RateLimitLocal() {
+        this(MAX_CLAVES_DEFECTO);
+    }
+
+    @Autowired
+    public RateLimitLocal(@Value("${app.rate-limit.max-claves:100000}") int maxClaves) {
+        this.maxClaves = maxClaves;
+    }
+
+    @Override
+    public Resultado consumir(String regla, String clave, List<LimiteTasa> limites) {
+        AlmacenRegla almacen = almacenes.get(regla);
+        if (almacen == null || (almacen.limites() != limites && !almacen.limites().equals(limites))) {
+            // Regla nueva o recargada con otros limites: sus buckets empiezan llenos
+            almacen = almacenes.compute(regla, (r, actual) -> actual != null && actual.limites().equals(limites)
+                    ? new AlmacenRegla(limites, actual.almacen())
+                    : crearAlmacen(r, limites));
+        }
+        Bucket bucket = almacen.almacen().obtener(clave);
+        if (bucket.tryConsume(1)) {
+            return Resultado.PERMITIDO;
+        }
+        long esperaNanos = bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill();
+        return new Resultado(false, Math.max(1, (long) Math.ceil(esperaNanos / 1e9)));
+    }
+
+    /**
+     * Descarta periodicamente los buckets inactivos de reglas que no reciben trafico
+     */
+    @Scheduled(fixedRate = 60_000)
+    public void purgarBucketsInactivos() {
+        almacenes.values().forEach(a -> a.almacen().purgarInactivos());
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        almacenes.forEach((regla, a) -> a.almacen().registrarMetricas(registry, Tags.of("regla", regla)));
+    }
+
+    private synchronized AlmacenRegla crearAlmacen(String regla, List<LimiteTasa> limites) {
+        List<Bandwidth> bandwidths = new ArrayList<>();
+        Duration inactividad = Duration.ZERO;
+        for (LimiteTasa limite : limites) {
+            bandwidths.add(Bandwidth.builder()
+                    .capacity(limite.capacidad())
+                    .refillIntervally(limite.recarga(), limite.ventana())
+                    .build());
+            if (limite.ventana().compareTo(inactividad) > 0) {
+                inactividad = limite.ventana();
+            }
+        }
+        AlmacenBuckets almacen = new AlmacenBuckets(() -> {
+            LocalBucketBuilder builder = Bucket.builder();
+            bandwidths.forEach(builder::addLimit);
+            return builder.build();
+        }, maxClaves, inactividad);
+        if (registry != null) {
+            almacen.registrarMetricas(registry, Tags.of("regla", regla));
+        }
+        return new AlmacenRegla(limites, almacen);
+    }
+}
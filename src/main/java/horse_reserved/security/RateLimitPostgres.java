@@ -0,0 +1,270 @@
+package horse_reserved.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buckets compartidos por todas las instancias en la tabla {@code rate_limit_buckets},
+ * una fila por regla, limite y clave.
+ *
+ * Cada consulta es una sola sentencia que recarga el bucket segun el tiempo transcurrido (reloj de
+ * la base de datos) y concede a esta instancia un lote de tokens si alcanzan
+ * ({@code app.rate-limit.tokens-por-consulta}, nunca mas de una decima parte de la capacidad).
+ * Los tokens concedidos se gastan en memoria sin volver a la base de datos hasta agotarse o hasta
+ * que pasa la ventana del limite; el limite compartido nunca se supera, a lo sumo una instancia
+ * rechaza antes de tiempo por tokens que tiene concedidos otra. Las claves rechazadas se recuerdan
+ * localmente hasta que el bucket vuelve a tener un token, asi que una rafaga bloqueada tampoco
+ * llega a la base de datos. Si la base de datos falla se aplica {@code app.rate-limit.fallo-abierto}.
+ *
+ * Las claves vienen de la solicitud (p. ej. X-Forwarded-For), asi que las que no caben en la columna
+ * {@code clave} se guardan como su SHA-256: una clave larga no puede hacer fallar la sentencia.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "postgres")
+public class RateLimitPostgres implements RateLimitBackend, MeterBinder {
+
+    private static final String RECARGADO =
+            "LEAST(:capacidad, b.tokens + EXTRACT(EPOCH FROM now() - b.actualizado)::float8 * :tasa)";
+
+    private static final String CONCEDER = """
+            INSERT INTO rate_limit_buckets AS b (regla, limite, clave, tokens, permitido, concedidos, actualizado)
+            VALUES (:regla, :limite, :clave, :capacidad - :lote, TRUE, :lote, now())
+            ON CONFLICT (regla, limite, clave) DO UPDATE SET
+                concedidos  = LEAST(:lote, floor(%1$s))::int,
+                permitido   = %1$s >= 1,
+                tokens      = %1$s - LEAST(:lote, floor(%1$s)),
+                actualizado = now()
+            RETURNING concedidos, tokens
+            """.formatted(RECARGADO);
+
+    private static final int MAX_BLOQUEOS_POR_REGLA = 100_000;
+    private static final int MAX_CONCESIONES = 100_000;
+    private static final int LONGITUD_MAXIMA_CLAVE = 100;
+
+    private record Consumo(int concedidos, double tokens) {}
+
+    private record ClaveConcesion(String regla, int limite, String clave) {}
+
+    /**
+     * Tokens concedidos a esta instancia para un limite y una clave, validos hasta {@code vence}
+     */
+    private static final class Concesion {
+        private final AtomicLong tokens;
+        private final long vence;
+
+        Concesion(long tokens, long vence) {
+            this.tokens = new AtomicLong(tokens);
+            this.vence = vence;
+        }
+
+        boolean tomar(long ahora) {
+            if (ahora - vence >= 0) {
+                return false;
+            }
+            return tokens.getAndUpdate(t -> t > 0 ? t - 1 : t) > 0;
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final boolean falloAbierto;
+    private final int tokensPorConsulta;
+
+    // Regla -> clave -> instante (System.nanoTime) hasta el que la clave sigue bloqueada
+    private final Map<String, Map<String, Long>> bloqueos = new ConcurrentHashMap<>();
+    private final Map<ClaveConcesion, Concesion> concesiones = new ConcurrentHashMap<>();
+    private final AtomicLong ventanaMaximaSegundos = new AtomicLong();
+    private final AtomicBoolean enFallo = new AtomicBoolean();
+
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder consumosLocales = new LongAdder();
+    private final LongAdder bloqueosLocales = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+
+    public RateLimitPostgres(DataSource dataSource,
+                             @Value("${app.rate-limit.fallo-abierto:true}") boolean falloAbierto,
+                             @Value("${app.rate-limit.timeout-segundos:1}") int timeoutSegundos,
+                             @Value("${app.rate-limit.tokens-por-consulta:10}") int tokensPorConsulta) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout(timeoutSegundos);
+        this.jdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.falloAbierto = falloAbierto;
+        this.tokensPorConsulta = Math.max(1, tokensPorConsulta);
+    }
+
+    @Override
+    public Resultado consumir(String regla, String claveSolicitud, List<LimiteTasa> limites) {
+        String clave = claveAlmacenada(claveSolicitud);
+        long ahora = System.nanoTime();
+        Map<String, Long> bloqueadas = bloqueos.computeIfAbsent(regla, r -> new ConcurrentHashMap<>());
+        Long hasta = bloqueadas.get(clave);
+        if (hasta != null) {
+            if (ahora - hasta < 0) {
+                bloqueosLocales.increment();
+                return new Resultado(false, segundosHasta(hasta, ahora));
+            }
+            bloqueadas.remove(clave, hasta);
+        }
+
+        // Cada limite es una fila; si uno rechaza, los anteriores ya descontaron su token
+        for (int i = 0; i < limites.size(); i++) {
+            LimiteTasa limite = limites.get(i);
+            ClaveConcesion claveConcesion = new ClaveConcesion(regla, i, clave);
+            Concesion concesion = concesiones.get(claveConcesion);
+            if (concesion != null) {
+                if (concesion.tomar(ahora)) {
+                    consumosLocales.increment();
+                    continue;
+                }
+                concesiones.remove(claveConcesion, concesion);
+            }
+            ventanaMaximaSegundos.accumulateAndGet(limite.ventana().toSeconds(), Math::max);
+
+            int lote = lote(limite);
+            Consumo consumo;
+            try {
+                consultas.increment();
+                consumo = jdbc.queryForObject(CONCEDER, new MapSqlParameterSource()
+                                .addValue("regla", regla)
+                                .addValue("limite", i)
+                                .addValue("clave", clave)
+                                .addValue("capacidad", (double) limite.capacidad())
+                                .addValue("tasa", limite.tokensPorSegundo())
+                                .addValue("lote", lote),
+                        (rs, n) -> new Consumo(rs.getInt("concedidos"), rs.getDouble("tokens")));
+                if (enFallo.compareAndSet(true, false)) {
+                    log.info("Rate limiting en PostgreSQL restablecido");
+                }
+            } catch (DataAccessException e) {
+                errores.increment();
+                if (enFallo.compareAndSet(false, true)) {
+                    log.error("Rate limiting en PostgreSQL no disponible, se aplica fallo-{}: {}",
+                            falloAbierto ? "abierto" : "cerrado", e.getMessage());
+                }
+                return falloAbierto ? Resultado.PERMITIDO : new Resultado(false, limite.ventana().toSeconds());
+            }
+
+            if (consumo.concedidos() == 0) {
+                // Hasta que se recupere el token que falta ninguna instancia lo aceptaria
+                long espera = (long) Math.ceil((1 - consumo.tokens()) / limite.tokensPorSegundo() * 1e9);
+                bloquear(bloqueadas, clave, ahora + espera);
+                return new Resultado(false, segundosHasta(ahora + espera, ahora));
+            }
+            if (consumo.concedidos() > 1) {
+                // Pasada la ventana el bucket ya se habria recargado: los tokens sin usar se descartan
+                conceder(claveConcesion, new Concesion(consumo.concedidos() - 1, ahora + limite.ventana().toNanos()));
+            }
+        }
+        return Resultado.PERMITIDO;
+    }
+
+    /**
+     * Tokens que se piden por consulta para un limite: a lo sumo una decima parte de su capacidad,
+     * de modo que lo que una instancia retiene sin usar es una fraccion pequeña del limite
+     */
+    private int lote(LimiteTasa limite) {
+        return Math.clamp(limite.capacidad() / 10, 1, tokensPorConsulta);
+    }
+
+    private void conceder(ClaveConcesion clave, Concesion concesion) {
+        if (concesiones.size() >= MAX_CONCESIONES) {
+            long ahora = System.nanoTime();
+            concesiones.values().removeIf(c -> ahora - c.vence >= 0);
+            if (concesiones.size() >= MAX_CONCESIONES) {
+                // Descartar concesiones solo hace que esos tokens se pierdan hasta la recarga del bucket
+                concesiones.clear();
+            }
+        }
+        concesiones.put(clave, concesion);
+    }
+
+    /**
+     * Elimina las filas inactivas por mas de la ventana mas larga vista: esos buckets ya estan llenos
+     */
+    @Scheduled(fixedRate = 600_000)
+    public void purgarBucketsInactivos() {
+        long ventana = ventanaMaximaSegundos.get();
+        long ahora = System.nanoTime();
+        bloqueos.values().forEach(b -> b.values().removeIf(hasta -> ahora - hasta >= 0));
+        concesiones.values().removeIf(c -> ahora - c.vence >= 0);
+        if (ventana == 0) {
+            return;
+        }
+        try {
+            int eliminadas = jdbc.getJdbcTemplate().update(
+                    "DELETE FROM rate_limit_buckets WHERE actualizado < now() - make_interval(secs => ?)", ventana);
+            log.debug("Buckets de rate limiting inactivos eliminados: {}", eliminadas);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron purgar los buckets de rate limiting: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("rate_limit.postgres.consultas", consultas, LongAdder::sum)
+                .description("Consultas a la base de datos; cada una puede conceder varios tokens")
+                .register(registry);
+        FunctionCounter.builder("rate_limit.postgres.consumos_locales", consumosLocales, LongAdder::sum)
+                .description("Consumos resueltos con tokens ya concedidos a esta instancia")
+                .register(registry);
+        FunctionCounter.builder("rate_limit.postgres.bloqueos_locales", bloqueosLocales, LongAdder::sum)
+                .description("Rechazos resueltos con la cache local sin consultar la base de datos")
+                .register(registry);
+        FunctionCounter.builder("rate_limit.postgres.errores", errores, LongAdder::sum)
+                .description("Consumos en los que la base de datos fallo")
+                .register(registry);
+    }
+
+    /**
+     * Devuelve la clave tal cual si cabe en la columna; si no, su SHA-256 en hexadecimal (64 caracteres)
+     */
+    static String claveAlmacenada(String clave) {
+        if (clave.length() <= LONGITUD_MAXIMA_CLAVE) {
+            return clave;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(clave.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static void bloquear(Map<String, Long> bloqueadas, String clave, long hasta) {
+        if (bloqueadas.size() >= MAX_BLOQUEOS_POR_REGLA) {
+            long ahora = System.nanoTime();
+            bloqueadas.values().removeIf(h -> ahora - h >= 0);
+            if (bloqueadas.size() >= MAX_BLOQUEOS_POR_REGLA) {
+                // Es solo una cache: vaciarla solo hace que los rechazos vuelvan a consultar la base de datos
+                bloqueadas.clear();
+            }
+        }
+        bloqueadas.put(clave, hasta);
+    }
+
+    private static long segundosHasta(long hasta, long ahora) {
+        return Math.max(1, (long) Math.ceil((hasta - ahora) / 1e9));
+    }
+}
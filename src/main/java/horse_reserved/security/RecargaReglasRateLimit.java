@@ -0,0 +1,80 @@
+package horse_reserved.security;
+
+import horse_reserved.config.RateLimitProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+
+/**
+ * Recarga en caliente las reglas de rate limiting desde {@code app.rate-limit.archivo}.
+ *
+ * El archivo usa las mismas claves que application.properties ({@code app.rate-limit.reglas[0].nombre=...})
+ * y se revisa por fecha de modificacion cada {@code app.rate-limit.recarga-ms}. Un archivo invalido
+ * se registra en el log y se conservan las reglas anteriores; si el archivo se elimina se vuelve
+ * a la configuracion con la que arranco la aplicacion.
+ */
+@Slf4j
+@Component
+public class RecargaReglasRateLimit {
+
+    private final RateLimitFilter filter;
+    private final RateLimitProperties configuracionInicial;
+    private final Path archivo;
+
+    private FileTime ultimaModificacion;
+
+    public RecargaReglasRateLimit(RateLimitFilter filter, RateLimitProperties properties) {
+        this.filter = filter;
+        this.configuracionInicial = properties;
+        this.archivo = properties.getArchivo() == null || properties.getArchivo().isBlank()
+                ? null
+                : Path.of(properties.getArchivo());
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.recarga-ms:5000}")
+    public synchronized void revisarArchivo() {
+        if (archivo == null) {
+            return;
+        }
+        if (!Files.exists(archivo)) {
+            if (ultimaModificacion != null) {
+                ultimaModificacion = null;
+                filter.actualizarReglas(ReglasRateLimit.compilar(configuracionInicial));
+                log.info("Archivo de reglas de rate limiting eliminado, se restaura la configuracion inicial");
+            }
+            return;
+        }
+        try {
+            FileTime modificacion = Files.getLastModifiedTime(archivo);
+            if (modificacion.equals(ultimaModificacion)) {
+                return;
+            }
+            ultimaModificacion = modificacion;
+            ReglasRateLimit reglas = ReglasRateLimit.compilar(leer(archivo));
+            filter.actualizarReglas(reglas);
+            log.info("Reglas de rate limiting recargadas desde {}: {}", archivo, reglas.reglas().size());
+        } catch (IOException | RuntimeException e) {
+            log.error("No se pudieron recargar las reglas de rate limiting desde {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    static RateLimitProperties leer(Path archivo) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return new Binder(new MapConfigurationPropertySource(properties))
+                .bind("app.rate-limit", RateLimitProperties.class)
+                .orElseGet(RateLimitProperties::new);
+    }
+}
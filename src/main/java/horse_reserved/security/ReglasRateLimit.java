@@ -0,0 +1,127 @@
+package horse_reserved.security;
+
+import horse_reserved.config.RateLimitProperties;
+import horse_reserved.config.RateLimitProperties.TipoClave;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Reglas de rate limiting compiladas una sola vez a partir de {@link RateLimitProperties}.
+ *
+ * Cada patron se compila a un {@link PathPattern} y se extrae su prefijo literal (todo lo anterior
+ * al primer comodin o variable). Una ruta que no empieza por ninguno de esos prefijos no esta
+ * limitada y se descarta con unas pocas comparaciones de cadenas, sin parsear la ruta.
+ * Las instancias son inmutables: una recarga construye otras y las reemplaza.
+ */
+public final class ReglasRateLimit {
+
+    /**
+     * Regla compilada. {@code exacto} indica que el patron no tiene comodines y basta comparar cadenas.
+     */
+    public record Regla(String nombre, Set<String> metodos, PathPattern patron, String prefijo, boolean exacto,
+                        TipoClave tipoClave, List<LimiteTasa> limites) {
+
+        boolean aplica(String metodo, String path) {
+            if (!metodos.isEmpty() && !metodos.contains(metodo)) {
+                return false;
+            }
+            return exacto ? path.equals(prefijo) : patron.matches(PathContainer.parsePath(path));
+        }
+    }
+
+    private final boolean habilitado;
+    private final Regla[] reglas;
+    private final String[] prefijos;
+
+    private ReglasRateLimit(boolean habilitado, Regla[] reglas, String[] prefijos) {
+        this.habilitado = habilitado;
+        this.reglas = reglas;
+        this.prefijos = prefijos;
+    }
+
+    /**
+     * Compila las reglas configuradas.
+     * @throws IllegalArgumentException si una regla no tiene nombre, patron o limites validos
+     */
+    public static ReglasRateLimit compilar(RateLimitProperties properties) {
+        PathPatternParser parser = new PathPatternParser();
+        List<Regla> compiladas = new ArrayList<>();
+        Set<String> prefijos = new LinkedHashSet<>();
+        Set<String> nombres = new LinkedHashSet<>();
+
+        for (RateLimitProperties.Regla regla : properties.getReglas()) {
+            if (regla.getNombre() == null || regla.getPatron() == null || regla.getLimites().isEmpty()) {
+                throw new IllegalArgumentException("Regla de rate limiting incompleta: " + regla.getNombre());
+            }
+            if (!nombres.add(regla.getNombre())) {
+                throw new IllegalArgumentException("Regla de rate limiting duplicada: " + regla.getNombre());
+            }
+            List<LimiteTasa> limites = regla.getLimites().stream()
+                    .map(l -> {
+                        if (l.getCapacidad() < 1 || l.getRecarga() < 1 || l.getVentana() == null
+                                || l.getVentana().isZero() || l.getVentana().isNegative()) {
+                            throw new IllegalArgumentException("Limite invalido en la regla " + regla.getNombre());
+                        }
+                        return new LimiteTasa(l.getCapacidad(), l.getRecarga(), l.getVentana());
+                    })
+                    .toList();
+            Set<String> metodos = new LinkedHashSet<>();
+            regla.getMetodos().forEach(m -> metodos.add(m.trim().toUpperCase(Locale.ROOT)));
+
+            PathPattern patron = parser.parse(regla.getPatron());
+            String prefijo = prefijoLiteral(patron.getPatternString());
+            compiladas.add(new Regla(regla.getNombre(), Set.copyOf(metodos), patron, prefijo,
+                    prefijo.equals(patron.getPatternString()), regla.getClave(), limites));
+            prefijos.add(prefijo);
+        }
+        return new ReglasRateLimit(properties.isHabilitado(),
+                compiladas.toArray(Regla[]::new), prefijos.toArray(String[]::new));
+    }
+
+    /**
+     * Primera regla que aplica a la solicitud, o null si la ruta no esta limitada
+     */
+    public Regla buscar(String metodo, String path) {
+        if (!habilitado || !tienePrefijo(path)) {
+            return null;
+        }
+        for (Regla regla : reglas) {
+            if (path.startsWith(regla.prefijo()) && regla.aplica(metodo, path)) {
+                return regla;
+            }
+        }
+        return null;
+    }
+
+    public List<Regla> reglas() {
+        return List.of(reglas);
+    }
+
+    private boolean tienePrefijo(String path) {
+        for (String prefijo : prefijos) {
+            if (path.startsWith(prefijo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String prefijoLiteral(String patron) {
+        int fin = patron.length();
+        for (int i = 0; i < patron.length(); i++) {
+            char c = patron.charAt(i);
+            if (c == '*' || c == '?' || c == '{') {
+                fin = i;
+                break;
+            }
+        }
+        return patron.substring(0, fin);
+    }
+}
@@ -0,0 +1,36 @@
+package horse_reserved.security;
+
+import horse_reserved.model.Rol;
+import horse_reserved.model.Usuario;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal liviano construido a partir de los claims del JWT, sin consultar la base de datos.
+ * El username sigue siendo el email para que {@code Authentication.getName()} no cambie.
+ */
+public record UsuarioAutenticado(Long id, String email, Rol rol) implements UserDetails {
+
+    public static UsuarioAutenticado desde(Usuario usuario) {
+        return new UsuarioAutenticado(usuario.getId(), usuario.getEmail(), usuario.getRole());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(rol.name()));
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
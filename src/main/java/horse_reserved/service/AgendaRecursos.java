@@ -0,0 +1,240 @@
+package horse_reserved.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
+
+/**
+ * Indice en memoria de las salidas activas agrupadas por fecha.
+ * Cada salida ocupa un intervalo [inicio, fin) y un conjunto de caballos y guias;
+ * las consultas de recursos ocupados solo recorren las salidas del dia cuyo inicio
+ * cae en la ventana que puede solaparse con el intervalo consultado.
+ */
+public class AgendaRecursos {
+
+    private final Map<LocalDate, Dia> dias = new ConcurrentHashMap<>();
+
+    /**
+     * Ocupacion de recursos de una salida. Los arreglos de ids estan ordenados.
+     */
+    public record Ocupacion(long salidaId, int inicio, int fin, long[] caballos, long[] guias) {
+
+        boolean mismosRecursos(Ocupacion otra) {
+            return inicio == otra.inicio && fin == otra.fin
+                    && Arrays.equals(caballos, otra.caballos)
+                    && Arrays.equals(guias, otra.guias);
+        }
+    }
+
+    /**
+     * Resultado de comparar la agenda contra una referencia
+     * @param faltantes salidas que estaban en la referencia y no en la agenda
+     * @param sobrantes salidas que estaban en la agenda y no en la referencia
+     * @param distintas salidas presentes en ambas con recursos diferentes
+     */
+    public record Diferencias(int faltantes, int sobrantes, int distintas) {
+
+        public int total() {
+            return faltantes + sobrantes + distintas;
+        }
+    }
+
+    /**
+     * Registra (o reemplaza) la ocupacion de una salida
+     */
+    public void registrar(long salidaId, LocalDate fecha, LocalTime inicio, LocalTime fin,
+                          Collection<Long> caballos, Collection<Long> guias) {
+        Ocupacion ocupacion = new Ocupacion(salidaId, minutos(inicio), minutos(fin),
+                ordenados(caballos), ordenados(guias));
+        dias.computeIfAbsent(fecha, f -> new Dia()).poner(ocupacion);
+    }
+
+    /**
+     * Agrega guias a una salida ya registrada. Si la salida no esta en la agenda no hace nada.
+     */
+    public void agregarGuias(long salidaId, LocalDate fecha, Collection<Long> guias) {
+        Dia dia = dias.get(fecha);
+        if (dia != null) {
+            dia.agregarGuias(salidaId, ordenados(guias));
+        }
+    }
+
+    /**
+     * Quita guias de una salida registrada (por ejemplo, al revertir una asignacion)
+     */
+    public void quitarGuias(long salidaId, LocalDate fecha, Collection<Long> guias) {
+        Dia dia = dias.get(fecha);
+        if (dia != null) {
+            dia.quitarGuias(salidaId, ordenados(guias));
+        }
+    }
+
+    /**
+     * Elimina la salida de la agenda, liberando sus recursos
+     * @return true si la salida estaba registrada
+     */
+    public boolean liberar(long salidaId, LocalDate fecha) {
+        Dia dia = dias.get(fecha);
+        return dia != null && dia.quitar(salidaId);
+    }
+
+    public Set<Long> caballosOcupados(LocalDate fecha, LocalTime inicio, LocalTime fin) {
+        return ocupados(fecha, inicio, fin, true);
+    }
+
+    public Set<Long> guiasOcupados(LocalDate fecha, LocalTime inicio, LocalTime fin) {
+        return ocupados(fecha, inicio, fin, false);
+    }
+
+    /**
+     * Descarta los dias anteriores a la fecha indicada; ya no se reservan salidas en el pasado
+     */
+    public void descartarAnteriores(LocalDate fecha) {
+        dias.keySet().removeIf(f -> f.isBefore(fecha));
+    }
+
+    public int totalSalidas() {
+        return dias.values().stream().mapToInt(Dia::tamanio).sum();
+    }
+
+    /**
+     * Compara las salidas de una fecha con una referencia (normalmente recien cargada de la base de datos)
+     * y corrige las diferencias tomando la referencia como verdad. Las salidas para las que
+     * {@code conservarLocal} es verdadero no se tocan, porque tienen cambios en curso que la
+     * referencia aun no puede ver.
+     */
+    public Diferencias reconciliarDia(AgendaRecursos referencia, LocalDate fecha, LongPredicate conservarLocal) {
+        int faltantes = 0;
+        int sobrantes = 0;
+        int distintas = 0;
+
+        Map<Long, Ocupacion> esperadas = referencia.dias.containsKey(fecha)
+                ? referencia.dias.get(fecha).copia()
+                : Map.of();
+        Dia dia = dias.computeIfAbsent(fecha, f -> new Dia());
+        Map<Long, Ocupacion> actuales = dia.copia();
+
+        for (Ocupacion esperada : esperadas.values()) {
+            if (conservarLocal.test(esperada.salidaId())) continue;
+            Ocupacion actual = actuales.get(esperada.salidaId());
+            if (actual == null) {
+                faltantes++;
+                dia.poner(esperada);
+            } else if (!actual.mismosRecursos(esperada)) {
+                distintas++;
+                dia.poner(esperada);
+            }
+        }
+        for (Ocupacion actual : actuales.values()) {
+            if (conservarLocal.test(actual.salidaId())) continue;
+            if (!esperadas.containsKey(actual.salidaId())) {
+                sobrantes++;
+                dia.quitar(actual.salidaId());
+            }
+        }
+        return new Diferencias(faltantes, sobrantes, distintas);
+    }
+
+    private Set<Long> ocupados(LocalDate fecha, LocalTime inicio, LocalTime fin, boolean caballos) {
+        Dia dia = dias.get(fecha);
+        if (dia == null) {
+            return Set.of();
+        }
+        return dia.ocupados(minutos(inicio), minutos(fin), caballos);
+    }
+
+    private static int minutos(LocalTime hora) {
+        return hora.getHour() * 60 + hora.getMinute();
+    }
+
+    private static long[] ordenados(Collection<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).distinct().sorted().toArray();
+    }
+
+    /**
+     * Salidas de un dia ordenadas por hora de inicio. El acceso se sincroniza por dia,
+     * de modo que dias distintos no compiten entre si.
+     */
+    private static final class Dia {
+
+        private static final Comparator<Ocupacion> POR_INICIO =
+                Comparator.comparingInt(Ocupacion::inicio).thenComparingLong(Ocupacion::salidaId);
+
+        private final Map<Long, Ocupacion> porSalida = new HashMap<>();
+        private final NavigableSet<Ocupacion> porInicio = new TreeSet<>(POR_INICIO);
+
+        // Duracion maxima vista en el dia. No se reduce al quitar salidas: es una cota segura.
+        private int duracionMaxima;
+
+        synchronized void poner(Ocupacion ocupacion) {
+            Ocupacion anterior = porSalida.put(ocupacion.salidaId(), ocupacion);
+            if (anterior != null) {
+                porInicio.remove(anterior);
+            }
+            porInicio.add(ocupacion);
+            duracionMaxima = Math.max(duracionMaxima, ocupacion.fin() - ocupacion.inicio());
+        }
+
+        synchronized void agregarGuias(long salidaId, long[] guias) {
+            Ocupacion actual = porSalida.get(salidaId);
+            if (actual == null) {
+                return;
+            }
+            long[] unidos = LongStream
+                    .concat(Arrays.stream(actual.guias()), Arrays.stream(guias))
+                    .distinct().sorted().toArray();
+            poner(new Ocupacion(salidaId, actual.inicio(), actual.fin(), actual.caballos(), unidos));
+        }
+
+        synchronized void quitarGuias(long salidaId, long[] guias) {
+            Ocupacion actual = porSalida.get(salidaId);
+            if (actual == null) {
+                return;
+            }
+            long[] restantes = Arrays.stream(actual.guias())
+                    .filter(id -> Arrays.binarySearch(guias, id) < 0)
+                    .toArray();
+            poner(new Ocupacion(salidaId, actual.inicio(), actual.fin(), actual.caballos(), restantes));
+        }
+
+        synchronized boolean quitar(long salidaId) {
+            Ocupacion anterior = porSalida.remove(salidaId);
+            if (anterior == null) {
+                return false;
+            }
+            porInicio.remove(anterior);
+            return true;
+        }
+
+        /**
+         * Una salida se solapa con [inicio, fin) si empieza antes de {@code fin} y termina
+         * despues de {@code inicio}; como ninguna dura mas que {@code duracionMaxima}, basta
+         * con recorrer las que empiezan despues de {@code inicio - duracionMaxima}.
+         */
+        synchronized Set<Long> ocupados(int inicio, int fin, boolean caballos) {
+            Ocupacion desde = new Ocupacion(Long.MIN_VALUE, inicio - duracionMaxima, 0, null, null);
+            Ocupacion hasta = new Ocupacion(Long.MIN_VALUE, fin, 0, null, null);
+
+            Set<Long> resultado = new HashSet<>();
+            for (Ocupacion o : porInicio.subSet(desde, false, hasta, false)) {
+                if (o.fin() > inicio) {
+                    for (long id : caballos ? o.caballos() : o.guias()) {
+                        resultado.add(id);
+                    }
+                }
+            }
+            return resultado;
+        }
+
+        synchronized Map<Long, Ocupacion> copia() {
+            return new HashMap<>(porSalida);
+        }
+
+        synchronized int tamanio() {
+            return porSalida.size();
+        }
+    }
+}
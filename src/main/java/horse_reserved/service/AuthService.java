@@ -1,10 +1,12 @@
 package horse_reserved.service;
 
 import horse_reserved.dto.request.LoginRequest;
+import horse_reserved.dto.request.RefreshTokenRequest;
 import horse_reserved.dto.request.RegisterRequest;
 import horse_reserved.dto.response.AuthResponse;
 import horse_reserved.exception.EmailAlreadyExistsException;
 import horse_reserved.exception.InvalidCredentialsException;
+import horse_reserved.exception.ServicioSaturadoException;
 import horse_reserved.exception.UserInactiveException;
 import horse_reserved.model.Rol;
 import horse_reserved.model.TipoDocumento;
@@ -15,15 +17,15 @@ import horse_reserved.dto.request.ChangePasswordRequest;
 import org.springframework.security.core.context.SecurityContextHolder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -33,59 +35,52 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final RevocacionTokensService revocacionTokens;
+    private final RefreshTokenService refreshTokenService;
+    private final TransactionTemplate transactionTemplate;
 
     /**
-     * Registra un nuevo cliente en el sistema
+     * Registra un nuevo cliente en el sistema.
+     * La contraseña se cifra antes de abrir la transaccion, igual que en el login.
      */
-    @Transactional
     public AuthResponse register(RegisterRequest request) {
-        // Verificar si el email ya existe
-        if (usuarioRepository.existsByEmail(request.getEmail())) {
-            throw new EmailAlreadyExistsException("El email " + request.getEmail() + " ya está registrado");
-        }
-
-        // Crear nuevo usuario
-        Usuario usuario = Usuario.builder()
-                .primerNombre(request.getPrimerNombre())
-                .primerApellido(request.getPrimerApellido())
-                .tipoDocumento(TipoDocumento.fromString(request.getTipoDocumento()))
-                .documento(request.getDocumento())
-                .email(request.getEmail())
-                .passwordHash(passwordEncoder.encode(request.getPassword()))
-                .telefono(request.getTelefono())
-                .role(Rol.CLIENTE) // Por defecto todos los registros son clientes
-                .isActive(true)
-                .habeasDataConsented(request.getHabeasDataConsent())
-                .habeasDataConsentedAt(Instant.now())
-                .build();
-
-        // Guardar usuario
-        usuario = usuarioRepository.save(usuario);
-
-        // Generar token JWT
-        Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("userId", usuario.getId());
-        extraClaims.put("role", usuario.getRole());
-
-        String jwtToken = jwtService.generateToken(usuario, extraClaims);
-
-        // Retornar respuesta
-        return AuthResponse.builder()
-                .token(jwtToken)
-                .type("Bearer")
-                .expiresIn(1800L) // 30 minutos
-                .userId(usuario.getId())
-                .email(usuario.getEmail())
-                .primerNombre(usuario.getPrimerNombre())
-                .primerApellido(usuario.getPrimerApellido())
-                .role(usuario.getRole().name())
-                .build();
+        // Verificar si el email ya existe antes de gastar el hashing
+        verificarEmailLibre(request.getEmail());
+
+        String passwordHash = passwordEncoder.encode(request.getPassword());
+
+        return transactionTemplate.execute(estado -> {
+            // Otra solicitud pudo registrar el email mientras se cifraba la contraseña
+            verificarEmailLibre(request.getEmail());
+
+            // Crear nuevo usuario
+            Usuario usuario = Usuario.builder()
+                    .primerNombre(request.getPrimerNombre())
+                    .primerApellido(request.getPrimerApellido())
+                    .tipoDocumento(TipoDocumento.fromString(request.getTipoDocumento()))
+                    .documento(request.getDocumento())
+                    .email(request.getEmail())
+                    .passwordHash(passwordHash)
+                    .telefono(request.getTelefono())
+                    .role(Rol.CLIENTE) // Por defecto todos los registros son clientes
+                    .isActive(true)
+                    .habeasDataConsented(request.getHabeasDataConsent())
+                    .habeasDataConsentedAt(Instant.now())
+                    .build();
+
+            // Guardar usuario
+            usuario = usuarioRepository.save(usuario);
+
+            // Generar token JWT y token de refresco
+            return respuestaAutenticacion(usuario, refreshTokenService.emitir(usuario));
+        });
     }
 
     /**
-     * Autentica un usuario y genera un token JWT
+     * Autentica un usuario y genera un token JWT.
+     * La contraseña se verifica antes de abrir la transaccion: el hashing puede esperar turno en su
+     * ejecutor y mientras tanto no debe retener una conexion del pool.
      */
-    @Transactional(readOnly = true)
     public AuthResponse login(LoginRequest request) {
         // Intentar autenticar
         try {
@@ -95,37 +90,47 @@ public class AuthService {
                             request.getPassword()
                     )
             );
+        } catch (InternalAuthenticationServiceException e) {
+            // Con un email inexistente el proveedor envuelve la saturacion del hashing: sigue siendo 503
+            if (e.getCause() instanceof ServicioSaturadoException saturado) {
+                throw saturado;
+            }
+            throw new InvalidCredentialsException("Email o contraseña incorrectos");
         } catch (AuthenticationException e) {
             throw new InvalidCredentialsException("Email o contraseña incorrectos");
         }
 
-        // Buscar usuario
-        Usuario usuario = usuarioRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new InvalidCredentialsException("Usuario no encontrado"));
+        return transactionTemplate.execute(estado -> {
+            // Buscar usuario
+            Usuario usuario = usuarioRepository.findByEmail(request.getEmail())
+                    .orElseThrow(() -> new InvalidCredentialsException("Usuario no encontrado"));
 
-        // Verificar si el usuario está activo
-        if (!usuario.getIsActive()) {
-            throw new UserInactiveException("El usuario está inactivo. Contacte al administrador.");
-        }
+            // Verificar si el usuario está activo
+            if (!usuario.getIsActive()) {
+                throw new UserInactiveException("El usuario está inactivo. Contacte al administrador.");
+            }
 
-        // Generar token JWT con claims adicionales
-        Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("userId", usuario.getId());
-        extraClaims.put("role", usuario.getRole());
+            // Generar token JWT y una familia nueva de tokens de refresco
+            return respuestaAutenticacion(usuario, refreshTokenService.emitir(usuario));
+        });
+    }
 
-        String jwtToken = jwtService.generateToken(usuario, extraClaims);
+    /**
+     * Renueva el token de acceso con un token de refresco, sin verificar la contraseña.
+     * El token de refresco se rota: el recibido deja de ser valido.
+     */
+    @Transactional(noRollbackFor = {InvalidCredentialsException.class, UserInactiveException.class})
+    public AuthResponse refresh(RefreshTokenRequest request) {
+        RefreshTokenService.Rotacion rotacion = refreshTokenService.rotar(request.getRefreshToken());
+        return respuestaAutenticacion(rotacion.usuario(), rotacion.token());
+    }
 
-        // Retornar respuesta
-        return AuthResponse.builder()
-                .token(jwtToken)
-                .type("Bearer")
-                .expiresIn(1800L)
-                .userId(usuario.getId())
-                .email(usuario.getEmail())
-                .primerNombre(usuario.getPrimerNombre())
-                .primerApellido(usuario.getPrimerApellido())
-                .role(usuario.getRole().name())
-                .build();
+    /**
+     * Cierra la sesion asociada al token de refresco
+     */
+    @Transactional
+    public void logout(RefreshTokenRequest request) {
+        refreshTokenService.revocar(request.getRefreshToken());
     }
 
     /**
@@ -155,9 +160,9 @@ public class AuthService {
     }
 
     /**
-     * Cambia la contraseña del usuario autenticado
+     * Cambia la contraseña del usuario autenticado.
+     * Las verificaciones y el cifrado de la nueva contraseña ocurren fuera de la transaccion.
      */
-    @Transactional
     public void changePassword(ChangePasswordRequest request) {
         String email = SecurityContextHolder.getContext()
                 .getAuthentication()
@@ -165,15 +170,16 @@ public class AuthService {
 
         Usuario usuario = usuarioRepository.findByEmail(email)
                 .orElseThrow(() -> new InvalidCredentialsException("Usuario no encontrado"));
+        String hashVerificado = usuario.getPasswordHash();
 
         // Validación para usuarios registrados con Google OAuth2
-        if (usuario.getPasswordHash() == null || usuario.getPasswordHash().isEmpty()) {
+        if (hashVerificado == null || hashVerificado.isEmpty()) {
             throw new InvalidCredentialsException(
                     "Los usuarios registrados con Google no pueden cambiar la contraseña desde aquí"
             );
         }
 
-        if (!passwordEncoder.matches(request.getPasswordActual(), usuario.getPasswordHash())) {
+        if (!passwordEncoder.matches(request.getPasswordActual(), hashVerificado)) {
             throw new InvalidCredentialsException("La contraseña actual es incorrecta");
         }
 
@@ -181,12 +187,51 @@ public class AuthService {
             throw new InvalidCredentialsException("La nueva contraseña y la confirmación no coinciden");
         }
 
-        if (passwordEncoder.matches(request.getPasswordNueva(), usuario.getPasswordHash())) {
+        if (passwordEncoder.matches(request.getPasswordNueva(), hashVerificado)) {
             throw new InvalidCredentialsException("La nueva contraseña debe ser diferente a la actual");
         }
 
-        usuario.setPasswordHash(passwordEncoder.encode(request.getPasswordNueva()));
-        usuario.setPasswordChangedAt(Instant.now());
-        usuarioRepository.save(usuario);
+        String passwordHash = passwordEncoder.encode(request.getPasswordNueva());
+
+        transactionTemplate.executeWithoutResult(estado -> {
+            Usuario actual = usuarioRepository.findByEmail(email)
+                    .orElseThrow(() -> new InvalidCredentialsException("Usuario no encontrado"));
+
+            // Si la contraseña cambio mientras se verificaba, la actual ya no es la que se comprobo
+            if (!hashVerificado.equals(actual.getPasswordHash())) {
+                throw new InvalidCredentialsException("La contraseña actual es incorrecta");
+            }
+
+            actual.setPasswordHash(passwordHash);
+            actual.setPasswordChangedAt(Instant.now());
+            usuarioRepository.save(actual);
+
+            // Los tokens emitidos antes del cambio dejan de aceptarse de inmediato en esta instancia
+            revocacionTokens.registrarCambioPassword(actual.getId(), actual.getPasswordChangedAt());
+            refreshTokenService.revocarTodos(actual.getId());
+        });
+    }
+
+    private void verificarEmailLibre(String email) {
+        if (usuarioRepository.existsByEmail(email)) {
+            throw new EmailAlreadyExistsException("El email " + email + " ya está registrado");
+        }
+    }
+
+    private AuthResponse respuestaAutenticacion(Usuario usuario, String refreshToken) {
+        // JwtService agrega el id, el rol y el ultimo cambio de contraseña del usuario
+        String jwtToken = jwtService.generateToken(usuario);
+
+        return AuthResponse.builder()
+                .token(jwtToken)
+                .type("Bearer")
+                .expiresIn(jwtService.getJwtExpiration() / 1000)
+                .refreshToken(refreshToken)
+                .userId(usuario.getId())
+                .email(usuario.getEmail())
+                .primerNombre(usuario.getPrimerNombre())
+                .primerApellido(usuario.getPrimerApellido())
+                .role(usuario.getRole().name())
+                .build();
     }
-}
\ No newline at end of file
+}
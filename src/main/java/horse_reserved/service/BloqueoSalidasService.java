@@ -0,0 +1,168 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.BusinessRuleException;
+import horse_reserved.exception.ReservaRechazadaException;
+import horse_reserved.repository.SalidaRepository;
+import horse_reserved.repository.SalidaRepository.VersionAgenda;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializa las reservas que compiten por la misma salida.
+ * Cada bloqueo combina un candado en proceso (por franjas, para no crear uno por salida)
+ * con un bloqueo de PostgreSQL, de modo que la exclusion se cumple tambien entre
+ * varias instancias de la aplicacion. Ambos se liberan al terminar la transaccion actual.
+ *
+ * Hay dos familias de bloqueos y siempre se toman en el mismo orden para evitar interbloqueos:
+ * primero la salida (ruta + fecha + hora), con un bloqueo asesor, y despues la agenda del dia
+ * (asignacion de caballos y guias), con el bloqueo de su fila en agenda_versiones. Este ultimo
+ * incrementa la version del dia, que DisponibilidadRecursosService usa para saber si su agenda
+ * en memoria sigue al dia.
+ *
+ * La espera por cada bloqueo esta acotada por {@code app.reservas.bloqueo-timeout-ms}, tanto en el
+ * candado en proceso como en PostgreSQL (lock_timeout de la transaccion); al agotarse la reserva se
+ * rechaza como salida congestionada y el cliente recibe 503 con Retry-After.
+ */
+@Service
+public class BloqueoSalidasService {
+
+    private static final int FRANJAS = 256;
+
+    // Espacio de nombres de los bloqueos asesores de PostgreSQL
+    private static final int ESPACIO_SALIDA = 0x5341_4C01;
+
+    private final SalidaRepository salidaRepository;
+    private final long timeoutMs;
+    private final String esperaBaseDatos;
+
+    private final ReentrantLock[] franjasSalida = crearFranjas();
+    private final ReentrantLock[] franjasAgenda = crearFranjas();
+
+    // Clave del recurso de transaccion con las agendas ya bloqueadas: fecha -> version
+    private final Object agendasBloqueadas = new Object();
+
+    public BloqueoSalidasService(SalidaRepository salidaRepository,
+                                 @Value("${app.reservas.bloqueo-timeout-ms:5000}") long timeoutMs) {
+        this.salidaRepository = salidaRepository;
+        this.timeoutMs = timeoutMs;
+        this.esperaBaseDatos = timeoutMs + "ms";
+    }
+
+    /**
+     * Bloquea la salida programada de una ruta en una fecha y hora hasta el fin de la transaccion.
+     * Cubre tanto la validacion de cupo como la creacion de la salida si aun no existe.
+     */
+    public void bloquearSalida(Long rutaId, LocalDate fecha, LocalTime horaInicio) {
+        int clave = Objects.hash(rutaId, fecha, horaInicio);
+        bloquearLocal(franjasSalida, clave);
+
+        // El bloqueo asesor se libera solo al terminar la transaccion de base de datos
+        try {
+            salidaRepository.bloquearAsesor(ESPACIO_SALIDA, clave, esperaBaseDatos);
+        } catch (PessimisticLockingFailureException e) {
+            throw congestionada();
+        }
+    }
+
+    /**
+     * Bloquea la asignacion de caballos y guias de un dia hasta el fin de la transaccion.
+     * Volver a pedirlo en la misma transaccion no toma otro bloqueo ni cambia la version.
+     * @return la version de la agenda del dia incrementada por esta transaccion
+     */
+    public VersionAgenda bloquearAgenda(LocalDate fecha) {
+        Map<LocalDate, VersionAgenda> bloqueadas = agendasBloqueadas();
+        VersionAgenda version = bloqueadas.get(fecha);
+        if (version == null) {
+            bloquearLocal(franjasAgenda, fecha.hashCode());
+            try {
+                version = salidaRepository.bloquearAgenda(fecha, esperaBaseDatos);
+            } catch (PessimisticLockingFailureException e) {
+                throw congestionada();
+            }
+            bloqueadas.put(fecha, version);
+        }
+        return version;
+    }
+
+    /**
+     * Version de la agenda del dia si la transaccion actual tiene su bloqueo, o null si no
+     */
+    public VersionAgenda versionAgenda(LocalDate fecha) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        Map<LocalDate, VersionAgenda> bloqueadas =
+                (Map<LocalDate, VersionAgenda>) TransactionSynchronizationManager.getResource(agendasBloqueadas);
+        return bloqueadas != null ? bloqueadas.get(fecha) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<LocalDate, VersionAgenda> agendasBloqueadas() {
+        exigirTransaccion();
+        Map<LocalDate, VersionAgenda> bloqueadas =
+                (Map<LocalDate, VersionAgenda>) TransactionSynchronizationManager.getResource(agendasBloqueadas);
+        if (bloqueadas == null) {
+            bloqueadas = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(agendasBloqueadas, bloqueadas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(agendasBloqueadas);
+                }
+            });
+        }
+        return bloqueadas;
+    }
+
+    private void bloquearLocal(ReentrantLock[] franjas, int clave) {
+        exigirTransaccion();
+
+        ReentrantLock candado = franjas[Math.floorMod(clave, FRANJAS)];
+        try {
+            if (!candado.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw congestionada();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessRuleException("La reserva fue interrumpida. Intenta de nuevo");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                candado.unlock();
+            }
+        });
+    }
+
+    private static ReservaRechazadaException congestionada() {
+        return new ReservaRechazadaException(ReservaRechazadaException.Motivo.SALIDA_CONGESTIONADA,
+                "Hay demasiadas reservas simultáneas para esta salida. Intenta de nuevo en unos segundos");
+    }
+
+    private static void exigirTransaccion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("El bloqueo de salidas requiere una transaccion activa");
+        }
+    }
+
+    private static ReentrantLock[] crearFranjas() {
+        ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        return franjas;
+    }
+}
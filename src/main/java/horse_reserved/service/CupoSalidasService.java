@@ -0,0 +1,78 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.ReservaRechazadaException;
+import horse_reserved.model.Salida;
+import horse_reserved.repository.SalidaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Mantiene los contadores de cupo de las salidas (cupo_ocupado / cupo_maximo).
+ * Las reservas ocupan y liberan cupo con una sola sentencia condicional en la base de datos,
+ * de modo que la validacion y la reserva son atomicas y no hace falta sumar las reservaciones
+ * de la salida en cada peticion. Un proceso periodico corrige cualquier contador desalineado.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CupoSalidasService {
+
+    private final SalidaRepository salidaRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Ocupa cupo en la salida o lanza excepcion si no alcanza.
+     * Debe ejecutarse dentro de la transaccion de la reserva: el bloqueo de la fila
+     * se mantiene hasta que la reserva confirma o se revierte.
+     */
+    public void ocupar(Salida salida, int personas) {
+        if (salida.getCupoMaximo() == 0) {
+            throw new ReservaRechazadaException(ReservaRechazadaException.Motivo.SIN_CABALLOS,
+                    "La salida no tiene caballos asignados");
+        }
+        if (salidaRepository.ocuparCupo(salida.getId(), personas) == 0) {
+            int disponibles = Math.max(salida.getCupoMaximo() - salida.getCupoOcupado(), 0);
+            throw new ReservaRechazadaException(ReservaRechazadaException.Motivo.CUPO_INSUFICIENTE,
+                    "Cupo insuficiente. Disponibles: " + disponibles + ", solicitados: " + personas);
+        }
+        salida.setCupoOcupado(salida.getCupoOcupado() + personas);
+    }
+
+    /**
+     * Libera cupo de la salida (reserva cancelada, movida a otra salida o con menos personas)
+     * @return el cupo que sigue ocupado en la salida
+     */
+    public int liberar(Salida salida, int personas) {
+        Integer restante = salidaRepository.liberarCupo(salida.getId(), personas);
+        salida.setCupoOcupado(restante != null ? restante : Math.max(salida.getCupoOcupado() - personas, 0));
+        return salida.getCupoOcupado();
+    }
+
+    /**
+     * Recalcula los contadores de las salidas desde hoy que no coinciden con sus reservas.
+     * Cada salida se corrige en su propia transaccion tras bloquear su fila, para no pisar
+     * el cambio de una reserva que aun no confirma.
+     * @return numero de salidas corregidas
+     */
+    @Scheduled(fixedDelayString = "${app.reservas.reparacion-cupo-ms:3600000}",
+            initialDelayString = "${app.reservas.reparacion-cupo-ms:3600000}")
+    public int repararContadores() {
+        List<Long> desalineadas = salidaRepository.findIdsConCupoDesalineado(LocalDate.now());
+        for (Long salidaId : desalineadas) {
+            transactionTemplate.executeWithoutResult(status -> {
+                salidaRepository.bloquearFila(salidaId);
+                salidaRepository.recalcularCupo(salidaId);
+            });
+        }
+        if (!desalineadas.isEmpty()) {
+            log.warn("Contadores de cupo corregidos en {} salidas: {}", desalineadas.size(), desalineadas);
+        }
+        return desalineadas.size();
+    }
+}
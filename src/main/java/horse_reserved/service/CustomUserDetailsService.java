@@ -4,17 +4,20 @@ import horse_reserved.model.Usuario;
 import horse_reserved.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Servicio personalizado para cargar detalles de usuario
- * Implementa UserDetailsService de Spring Security
+ * Implementa UserDetailsService de Spring Security y UserDetailsPasswordService
+ * para guardar los hashes recalculados con un costo mayor tras un login
  */
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UsuarioRepository usuarioRepository;
 
@@ -31,4 +34,19 @@ public class CustomUserDetailsService implements UserDetailsService {
                         "Usuario no encontrado con email: " + email
                 ));
     }
-}
\ No newline at end of file
+
+    /**
+     * Guarda el hash recalculado con el costo BCrypt actual.
+     * La contraseña es la misma, asi que no se modifica passwordChangedAt y los tokens siguen vigentes.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        Usuario usuario = usuarioRepository.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(
+                        "Usuario no encontrado con email: " + user.getUsername()
+                ));
+        usuario.setPasswordHash(newPassword);
+        return usuarioRepository.save(usuario);
+    }
+}
@@ -0,0 +1,259 @@
+package horse_reserved.service;
+
+import horse_reserved.model.EmailOutbox;
+import horse_reserved.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Envia los correos de la bandeja de salida (email_outbox).
+ *
+ * Cada ciclo reclama un lote con FOR UPDATE SKIP LOCKED y le fija un arriendo en una transaccion
+ * corta; el envio ocurre fuera de la transaccion y en una sola llamada a
+ * {@link JavaMailSender#send(MimeMessage...)}, que reutiliza la misma conexion SMTP para todo el lote.
+ * Los fallos se reintentan con espera exponencial hasta {@code app.mail.outbox.max-intentos}.
+ * Si la instancia cae a mitad de un envio, el arriendo vence y otro ciclo lo reintenta:
+ * la entrega es al menos una vez.
+ */
+@Slf4j
+@Service
+public class DespachadorCorreos implements MeterBinder {
+
+    private static final int MAX_LARGO_ERROR = 1000;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final String fromAddress;
+    private final int tamanoLote;
+    private final Duration arriendo;
+    private final int maxIntentos;
+    private final Duration esperaBase;
+    private final Duration esperaMaxima;
+
+    private final LongAdder enviados = new LongAdder();
+    private final LongAdder reintentos = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    // Correos pendientes contados al terminar el ultimo ciclo; -1 hasta el primero
+    private final AtomicLong pendientes = new AtomicLong(-1);
+    private volatile Timer retraso;
+    private volatile Timer duracionLote;
+
+    public DespachadorCorreos(EmailOutboxRepository outboxRepository,
+                              JavaMailSender mailSender,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${app.mail.from}") String fromAddress,
+                              @Value("${app.mail.outbox.lote:50}") int tamanoLote,
+                              @Value("${app.mail.outbox.arriendo:5m}") Duration arriendo,
+                              @Value("${app.mail.outbox.max-intentos:8}") int maxIntentos,
+                              @Value("${app.mail.outbox.espera-base:30s}") Duration esperaBase,
+                              @Value("${app.mail.outbox.espera-maxima:1h}") Duration esperaMaxima) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.fromAddress = fromAddress;
+        this.tamanoLote = tamanoLote;
+        this.arriendo = arriendo;
+        this.maxIntentos = maxIntentos;
+        this.esperaBase = esperaBase;
+        this.esperaMaxima = esperaMaxima;
+    }
+
+    /**
+     * Vacia la bandeja: procesa lotes completos hasta que quede menos de un lote pendiente.
+     * Al terminar cuenta los pendientes para la metrica; con la bandeja vacia y sin correos
+     * reclamados en el ciclo el conteo no puede haber cambiado y no se repite.
+     */
+    @Scheduled(fixedDelayString = "${app.mail.outbox.intervalo-ms:2000}")
+    public void despachar() {
+        int procesados;
+        int reclamados = 0;
+        do {
+            procesados = despacharLote();
+            reclamados += procesados;
+        } while (procesados == tamanoLote);
+
+        if (reclamados > 0 || pendientes.get() != 0) {
+            pendientes.set(outboxRepository.countByEstado(EmailOutbox.PENDIENTE));
+        }
+    }
+
+    /**
+     * Reclama, envia y registra un lote
+     * @return numero de correos reclamados
+     */
+    public int despacharLote() {
+        Instant ahora = Instant.now();
+        List<EmailOutbox> lote = transactionTemplate.execute(status -> {
+            List<EmailOutbox> reclamados = outboxRepository.reclamarPendientes(ahora, tamanoLote);
+            reclamados.forEach(c -> {
+                c.setBloqueadoHasta(ahora.plus(arriendo));
+                c.setIntentos(c.getIntentos() + 1);
+            });
+            return reclamados;
+        });
+        if (lote == null || lote.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, String> errores = enviar(lote);
+
+        Instant fin = Instant.now();
+        List<Long> exitosos = new ArrayList<>(lote.size());
+        for (EmailOutbox correo : lote) {
+            if (!errores.containsKey(correo.getId())) {
+                exitosos.add(correo.getId());
+                if (retraso != null) {
+                    retraso.record(Duration.between(correo.getCreatedAt(), fin));
+                }
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!exitosos.isEmpty()) {
+                outboxRepository.marcarEnviados(exitosos, fin);
+            }
+            for (EmailOutbox correo : lote) {
+                String error = errores.get(correo.getId());
+                if (error != null) {
+                    registrarFallo(correo, error, fin);
+                }
+            }
+        });
+        enviados.add(exitosos.size());
+        if (!errores.isEmpty()) {
+            log.warn("Lote de correos: {} enviados, {} con error", exitosos.size(), errores.size());
+        }
+        return lote.size();
+    }
+
+    /**
+     * Elimina del historial los correos enviados hace mas de una semana
+     */
+    @Scheduled(cron = "0 45 3 * * *")
+    public void eliminarEnviados() {
+        Integer eliminados = transactionTemplate.execute(status ->
+                outboxRepository.eliminarEnviados(Instant.now().minus(Duration.ofDays(7))));
+        log.info("Correos enviados eliminados de la bandeja: {}", eliminados);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("correo.outbox.pendientes", pendientes, p -> p.get() < 0 ? Double.NaN : p.get())
+                .description("Correos pendientes en la bandeja de salida al terminar el ultimo ciclo")
+                .register(registry);
+        FunctionCounter.builder("correo.outbox.procesados", enviados, LongAdder::sum)
+                .tag("resultado", "enviado").register(registry);
+        FunctionCounter.builder("correo.outbox.procesados", reintentos, LongAdder::sum)
+                .tag("resultado", "reintento").register(registry);
+        FunctionCounter.builder("correo.outbox.procesados", descartados, LongAdder::sum)
+                .tag("resultado", "descartado").register(registry);
+        retraso = Timer.builder("correo.outbox.retraso")
+                .description("Tiempo entre encolar un correo y enviarlo")
+                .register(registry);
+        duracionLote = Timer.builder("correo.outbox.lote")
+                .description("Duracion del envio SMTP de un lote")
+                .register(registry);
+    }
+
+    /**
+     * Envia el lote por una sola conexion
+     * @return errores por id de correo; vacio si todos se entregaron al servidor SMTP
+     */
+    private Map<Long, String> enviar(List<EmailOutbox> lote) {
+        Map<Long, String> errores = new HashMap<>();
+        // MimeMessage no redefine equals: el mapa compara por identidad y conserva el orden
+        Map<MimeMessage, EmailOutbox> mensajes = new LinkedHashMap<>();
+        for (EmailOutbox correo : lote) {
+            try {
+                mensajes.put(construir(correo), correo);
+            } catch (MessagingException e) {
+                errores.put(correo.getId(), e.getMessage());
+            }
+        }
+        if (mensajes.isEmpty()) {
+            return errores;
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            mailSender.send(mensajes.keySet().toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                mensajes.values().forEach(c -> errores.put(c.getId(), e.getMessage()));
+            }
+            e.getFailedMessages().forEach((mensaje, causa) -> {
+                EmailOutbox correo = mensajes.get(mensaje);
+                if (correo != null) {
+                    errores.put(correo.getId(), causa.getMessage());
+                }
+            });
+        } catch (MailException e) {
+            // Autenticacion u otro fallo antes de enviar: todo el lote se reintenta
+            log.error("Error SMTP al enviar un lote de {} correos: {}", mensajes.size(), e.getMessage());
+            mensajes.values().forEach(c -> errores.put(c.getId(), e.getMessage()));
+        } finally {
+            if (duracionLote != null) {
+                duracionLote.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        }
+        return errores;
+    }
+
+    private MimeMessage construir(EmailOutbox correo) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(fromAddress);
+        helper.setTo(correo.getDestinatario());
+        helper.setSubject(correo.getAsunto());
+        helper.setText(correo.getCuerpoHtml(), true);
+        return message;
+    }
+
+    private void registrarFallo(EmailOutbox correo, String error, Instant ahora) {
+        String detalle = error == null ? "Error desconocido"
+                : error.length() > MAX_LARGO_ERROR ? error.substring(0, MAX_LARGO_ERROR) : error;
+        if (correo.getIntentos() >= maxIntentos) {
+            outboxRepository.registrarFallo(correo.getId(), EmailOutbox.FALLIDO, ahora, detalle);
+            descartados.increment();
+            log.error("Correo id={} descartado tras {} intentos: {}", correo.getId(), correo.getIntentos(), detalle);
+        } else {
+            outboxRepository.registrarFallo(correo.getId(), EmailOutbox.PENDIENTE,
+                    ahora.plus(espera(correo.getIntentos())), detalle);
+            reintentos.increment();
+        }
+    }
+
+    /**
+     * Espera exponencial: base, 2x base, 4x base... hasta la espera maxima
+     */
+    Duration espera(int intentos) {
+        int exponente = Math.min(Math.max(intentos - 1, 0), 20);
+        Duration espera = esperaBase.multipliedBy(1L << exponente);
+        return espera.compareTo(esperaMaxima) > 0 ? esperaMaxima : espera;
+    }
+}
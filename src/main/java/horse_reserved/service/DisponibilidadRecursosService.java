@@ -0,0 +1,274 @@
+package horse_reserved.service;
+
+import horse_reserved.model.Caballo;
+import horse_reserved.model.Guia;
+import horse_reserved.model.Salida;
+import horse_reserved.repository.CaballoRepository;
+import horse_reserved.repository.GuiaRepository;
+import horse_reserved.repository.SalidaRepository;
+import horse_reserved.repository.SalidaRepository.AsignacionRecurso;
+import horse_reserved.repository.SalidaRepository.VersionAgenda;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Motor de disponibilidad de caballos y guias.
+ * Mantiene en memoria una agenda por fecha de las salidas activas para que la busqueda de
+ * recursos libres sea una consulta por rango en memoria en lugar de un anti-join en la base de datos.
+ *
+ * La agenda es la fuente de verdad mientras se tiene el bloqueo de agenda del dia
+ * (BloqueoSalidasService.bloquearAgenda): cada transaccion que asigna o libera recursos toma ese
+ * bloqueo, que incrementa la version del dia. Si la version que se recuerda para el dia es la
+ * inmediatamente anterior, ninguna otra instancia cambio ese dia y la agenda se usa sin consultar
+ * la base de datos; si no, se recarga solo ese dia. Los caballos y guias activos se recargan
+ * igual cuando cambia su version, que mantienen los triggers de sus tablas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DisponibilidadRecursosService {
+
+    private final SalidaRepository salidaRepository;
+    private final CaballoRepository caballoRepository;
+    private final GuiaRepository guiaRepository;
+    private final BloqueoSalidasService bloqueoSalidas;
+
+    private final AgendaRecursos agenda = new AgendaRecursos();
+
+    // fecha -> version de agenda_versiones con la que coincide la agenda en memoria
+    private final Map<LocalDate, Long> versionesAgenda = new ConcurrentHashMap<>();
+
+    // Clave del recurso de transaccion con las fechas ya sincronizadas en la transaccion actual
+    private final Object fechasSincronizadas = new Object();
+
+    private volatile Activos activos = new Activos(-1, List.of(), List.of());
+
+    /**
+     * Ids de los caballos y guias activos, ordenados, y la version de recursos_version con que se leyeron
+     */
+    private record Activos(long version, List<Long> caballos, List<Long> guias) {}
+
+    /**
+     * Caballos activos sin salidas que se solapen con el intervalo, ordenados por id.
+     * Sin el bloqueo de agenda de la fecha en la transaccion actual se consulta directamente la base de datos.
+     */
+    public List<Long> caballosLibres(LocalDate fecha, LocalTime inicio, LocalTime fin) {
+        Activos vigentes = sincronizar(fecha);
+        if (vigentes == null) {
+            return caballoRepository.findDisponibles(fecha, inicio, fin).stream().map(Caballo::getId).toList();
+        }
+        return libres(vigentes.caballos(), agenda.caballosOcupados(fecha, inicio, fin));
+    }
+
+    /**
+     * Guias activos sin salidas que se solapen con el intervalo, ordenados por id
+     */
+    public List<Long> guiasLibres(LocalDate fecha, LocalTime inicio, LocalTime fin) {
+        Activos vigentes = sincronizar(fecha);
+        if (vigentes == null) {
+            return guiaRepository.findDisponibles(fecha, inicio, fin).stream().map(Guia::getId).toList();
+        }
+        return libres(vigentes.guias(), agenda.guiasOcupados(fecha, inicio, fin));
+    }
+
+    /**
+     * Registra los recursos de una salida recien creada. Si la transaccion se revierte
+     * la salida se retira de la agenda.
+     */
+    public void registrarSalida(Salida salida) {
+        Long id = salida.getId();
+        LocalDate fecha = salida.getFechaProgramada();
+        if (sincronizar(fecha) == null) {
+            olvidarDia(fecha);
+            return;
+        }
+        agenda.registrar(id, fecha, salida.getTiempoInicio(), salida.getTiempoFin(),
+                salida.getCaballos().stream().map(Caballo::getId).toList(),
+                salida.getGuias().stream().map(Guia::getId).toList());
+        alTerminar(status -> {
+            if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                agenda.liberar(id, fecha);
+            }
+        });
+    }
+
+    /**
+     * Registra guias agregados a una salida existente
+     */
+    public void registrarGuias(Salida salida, List<Guia> guias) {
+        Long id = salida.getId();
+        LocalDate fecha = salida.getFechaProgramada();
+        if (sincronizar(fecha) == null) {
+            olvidarDia(fecha);
+            return;
+        }
+        List<Long> ids = guias.stream().map(Guia::getId).toList();
+        agenda.agregarGuias(id, fecha, ids);
+        alTerminar(status -> {
+            if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                agenda.quitarGuias(id, fecha, ids);
+            }
+        });
+    }
+
+    /**
+     * Libera los recursos de una salida cancelada o completada. La liberacion se aplica
+     * cuando la transaccion confirma, para no ofrecer recursos que aun podrian seguir ocupados.
+     */
+    public void liberarSalida(Salida salida) {
+        Long id = salida.getId();
+        LocalDate fecha = salida.getFechaProgramada();
+        if (sincronizar(fecha) == null) {
+            olvidarDia(fecha);
+            return;
+        }
+        alTerminar(status -> {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                agenda.liberar(id, fecha);
+            }
+        });
+    }
+
+    /**
+     * Descarta los dias pasados y olvida las versiones conocidas, de modo que cada dia se vuelve
+     * a leer de la base de datos la proxima vez que se bloquee. Es una red de seguridad para
+     * cambios de salidas hechos fuera de la aplicacion sin tocar agenda_versiones.
+     */
+    @Scheduled(fixedDelayString = "${app.disponibilidad.reconciliacion-ms:300000}",
+            initialDelayString = "${app.disponibilidad.reconciliacion-ms:300000}")
+    public void invalidar() {
+        agenda.descartarAnteriores(LocalDate.now());
+        versionesAgenda.clear();
+        activos = new Activos(-1, List.of(), List.of());
+    }
+
+    /**
+     * Pone al dia la agenda de la fecha y los recursos activos con las versiones leidas al tomar
+     * el bloqueo de agenda. La primera llamada de cada transaccion registra la version nueva del dia
+     * para cuando la transaccion confirme.
+     * @return los recursos activos vigentes, o null si la transaccion no tiene el bloqueo de agenda de la fecha
+     */
+    private Activos sincronizar(LocalDate fecha) {
+        VersionAgenda version = bloqueoSalidas.versionAgenda(fecha);
+        if (version == null) {
+            return null;
+        }
+
+        Activos vigentes = activos;
+        if (vigentes.version() != version.getRecursos()) {
+            vigentes = new Activos(version.getRecursos(),
+                    caballoRepository.findIdsActivos(), guiaRepository.findIdsActivos());
+            activos = vigentes;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<LocalDate> sincronizadas = (Set<LocalDate>) TransactionSynchronizationManager.getResource(fechasSincronizadas);
+        if (sincronizadas == null) {
+            sincronizadas = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(fechasSincronizadas, sincronizadas);
+            alTerminar(status -> TransactionSynchronizationManager.unbindResourceIfPossible(fechasSincronizadas));
+        }
+        if (sincronizadas.add(fecha)) {
+            long anterior = version.getAgenda() - 1;
+            if (!Objects.equals(versionesAgenda.get(fecha), anterior)) {
+                recargarDia(fecha);
+                versionesAgenda.put(fecha, anterior);
+            }
+            alTerminar(status -> {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    versionesAgenda.put(fecha, version.getAgenda());
+                } else {
+                    versionesAgenda.remove(fecha);
+                }
+            });
+        }
+        return vigentes;
+    }
+
+    /**
+     * Un cambio de salidas sin el bloqueo de agenda no incrementa la version del dia:
+     * se olvida la version conocida para recargar el dia en el proximo bloqueo
+     */
+    private void olvidarDia(LocalDate fecha) {
+        versionesAgenda.remove(fecha);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            alTerminar(status -> versionesAgenda.remove(fecha));
+        }
+    }
+
+    private void recargarDia(LocalDate fecha) {
+        Map<Long, SalidaCargada> salidas = new HashMap<>();
+        for (AsignacionRecurso a : salidaRepository.findAsignacionesCaballosEntre(fecha, fecha)) {
+            salidas.computeIfAbsent(a.getSalidaId(), k -> new SalidaCargada(a)).caballos.add(a.getRecursoId());
+        }
+        for (AsignacionRecurso a : salidaRepository.findAsignacionesGuiasEntre(fecha, fecha)) {
+            salidas.computeIfAbsent(a.getSalidaId(), k -> new SalidaCargada(a)).guias.add(a.getRecursoId());
+        }
+
+        AgendaRecursos referencia = new AgendaRecursos();
+        salidas.forEach((id, s) -> referencia.registrar(id, s.fecha, s.inicio, s.fin, s.caballos, s.guias));
+
+        // Con el bloqueo del dia tomado no hay cambios locales en curso para esta fecha
+        AgendaRecursos.Diferencias diferencias = agenda.reconciliarDia(referencia, fecha, id -> false);
+        if (diferencias.total() > 0) {
+            log.debug("Agenda del {} recargada: {} faltantes, {} sobrantes, {} distintas",
+                    fecha, diferencias.faltantes(), diferencias.sobrantes(), diferencias.distintas());
+        }
+    }
+
+    /**
+     * Ejecuta la accion al terminar la transaccion, antes de soltar los bloqueos de BloqueoSalidasService,
+     * para que la siguiente transaccion que bloquee el dia en esta instancia ya vea la agenda actualizada
+     */
+    private static void alTerminar(IntConsumer accion) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                accion.accept(status);
+            }
+        });
+    }
+
+    private static List<Long> libres(List<Long> activos, Set<Long> ocupados) {
+        if (ocupados.isEmpty()) {
+            return activos;
+        }
+        List<Long> resultado = new ArrayList<>(activos.size());
+        for (Long id : activos) {
+            if (!ocupados.contains(id)) {
+                resultado.add(id);
+            }
+        }
+        return resultado;
+    }
+
+    private static final class SalidaCargada {
+        final LocalDate fecha;
+        final LocalTime inicio;
+        final LocalTime fin;
+        final List<Long> caballos = new ArrayList<>();
+        final List<Long> guias = new ArrayList<>();
+
+        SalidaCargada(AsignacionRecurso a) {
+            this.fecha = a.getFecha();
+            this.inicio = a.getInicio();
+            this.fin = a.getFin();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package horse_reserved.service;
+
+import horse_reserved.dto.response.DisponibilidadRutaResponse;
+import horse_reserved.dto.response.FranjaDisponibleResponse;
+import horse_reserved.exception.BusinessRuleException;
+import horse_reserved.exception.ResourceNotFoundException;
+import horse_reserved.model.Ruta;
+import horse_reserved.repository.CaballoRepository;
+import horse_reserved.repository.RutaRepository;
+import horse_reserved.repository.SalidaRepository;
+import horse_reserved.repository.SalidaRepository.AsignacionRecurso;
+import horse_reserved.repository.SalidaRepository.CupoSalida;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Calcula el calendario de cupos libres de una ruta para un rango de fechas.
+ * Usa un numero fijo de consultas por conjunto sin importar cuantas franjas tenga el rango:
+ * la ruta, los contadores de cupo de sus salidas programadas, las asignaciones de caballos
+ * del rango y los caballos activos. El resultado se guarda unos segundos en memoria, en una
+ * cache acotada por segmentos LRU: al llenarse solo se descarta la entrada menos usada del
+ * segmento, nunca toda la cache, asi que variar rutas y rangos no anula los aciertos del resto.
+ */
+@Service
+public class DisponibilidadRutaService {
+
+    public static final int MAX_DIAS = 31;
+    private static final int SEGMENTOS_CACHE = 16;
+
+    private record Clave(Long rutaId, LocalDate desde, LocalDate hasta) {}
+
+    private record Entrada(DisponibilidadRutaResponse respuesta, long expiraEn) {}
+
+    /**
+     * Segmento de la cache con su propio lock, en orden de acceso y con capacidad fija
+     */
+    private static final class SegmentoCache {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<Clave, Entrada> entradas;
+
+        SegmentoCache(int capacidad) {
+            this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Clave, Entrada> masAntigua) {
+                    return size() > capacidad;
+                }
+            };
+        }
+
+        Entrada obtener(Clave clave) {
+            lock.lock();
+            try {
+                return entradas.get(clave);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void guardar(Clave clave, Entrada entrada) {
+            lock.lock();
+            try {
+                entradas.put(clave, entrada);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void purgarExpiradas(long ahora) {
+            lock.lock();
+            try {
+                entradas.values().removeIf(e -> e.expiraEn() <= ahora);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final RutaRepository rutaRepository;
+    private final SalidaRepository salidaRepository;
+    private final CaballoRepository caballoRepository;
+    private final List<LocalTime> horasInicio;
+    private final Duration ttl;
+
+    private final SegmentoCache[] cache = new SegmentoCache[SEGMENTOS_CACHE];
+
+    public DisponibilidadRutaService(RutaRepository rutaRepository,
+                                     SalidaRepository salidaRepository,
+                                     CaballoRepository caballoRepository,
+                                     @Value("${app.salidas.horas-inicio:08:00,10:00,14:00}") List<String> horasInicio,
+                                     @Value("${app.disponibilidad.cache-ttl-ms:30000}") long ttlMs,
+                                     @Value("${app.disponibilidad.cache-max-entradas:10000}") int maxEntradas) {
+        this.rutaRepository = rutaRepository;
+        this.salidaRepository = salidaRepository;
+        this.caballoRepository = caballoRepository;
+        this.horasInicio = horasInicio.stream().map(String::trim).map(LocalTime::parse).sorted().toList();
+        this.ttl = Duration.ofMillis(ttlMs);
+        int capacidadSegmento = Math.max(1, maxEntradas / SEGMENTOS_CACHE);
+        for (int i = 0; i < SEGMENTOS_CACHE; i++) {
+            cache[i] = new SegmentoCache(capacidadSegmento);
+        }
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Cupos libres por hora de inicio candidata en el rango [desde, hasta].
+     * Las horas candidatas son las configuradas mas las de salidas ya programadas.
+     * No abre transaccion: las respuestas en cache no ocupan una conexion a la base de datos.
+     */
+    public DisponibilidadRutaResponse consultar(Long rutaId, LocalDate desde, LocalDate hasta) {
+        LocalDate hoy = LocalDate.now();
+        if (desde.isBefore(hoy)) {
+            desde = hoy;
+        }
+        if (hasta.isBefore(desde)) {
+            throw new BusinessRuleException("La fecha 'hasta' debe ser posterior o igual a 'desde'");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= MAX_DIAS) {
+            throw new BusinessRuleException("El rango de fechas no puede superar " + MAX_DIAS + " días");
+        }
+
+        Clave clave = new Clave(rutaId, desde, hasta);
+        long ahora = System.currentTimeMillis();
+        SegmentoCache segmento = segmento(clave);
+        Entrada entrada = segmento.obtener(clave);
+        if (entrada != null && entrada.expiraEn() > ahora) {
+            return entrada.respuesta();
+        }
+
+        DisponibilidadRutaResponse respuesta = calcular(rutaId, desde, hasta);
+        segmento.guardar(clave, new Entrada(respuesta, ahora + ttl.toMillis()));
+        return respuesta;
+    }
+
+    /**
+     * Limpieza periodica de entradas expiradas (cada 60 segundos)
+     */
+    @Scheduled(fixedRate = 60_000)
+    public void evictExpired() {
+        long ahora = System.currentTimeMillis();
+        for (SegmentoCache segmento : cache) {
+            segmento.purgarExpiradas(ahora);
+        }
+    }
+
+    private SegmentoCache segmento(Clave clave) {
+        int h = clave.hashCode();
+        return cache[(h ^ (h >>> 16)) & (SEGMENTOS_CACHE - 1)];
+    }
+
+    private DisponibilidadRutaResponse calcular(Long rutaId, LocalDate desde, LocalDate hasta) {
+        Ruta ruta = rutaRepository.findById(rutaId)
+                .filter(Ruta::isActiva)
+                .orElseThrow(() -> new ResourceNotFoundException("Ruta no encontrada: " + rutaId));
+
+        Map<LocalDate, Map<LocalTime, CupoSalida>> salidasPorDia = new HashMap<>();
+        for (CupoSalida s : salidaRepository.findCuposProgramadosByRutaEntre(rutaId, desde, hasta)) {
+            salidasPorDia.computeIfAbsent(s.getFecha(), k -> new HashMap<>()).put(s.getInicio(), s);
+        }
+
+        Map<LocalDate, List<AsignacionRecurso>> asignacionesPorDia = new HashMap<>();
+        for (AsignacionRecurso a : salidaRepository.findAsignacionesCaballosEntre(desde, hasta)) {
+            asignacionesPorDia.computeIfAbsent(a.getFecha(), k -> new ArrayList<>()).add(a);
+        }
+
+        Set<Long> caballosActivos = new HashSet<>(caballoRepository.findIdsActivos());
+        LocalDateTime ahora = LocalDateTime.now();
+
+        List<FranjaDisponibleResponse> franjas = new ArrayList<>();
+        for (LocalDate fecha = desde; !fecha.isAfter(hasta); fecha = fecha.plusDays(1)) {
+            Map<LocalTime, CupoSalida> salidas = salidasPorDia.getOrDefault(fecha, Map.of());
+            List<AsignacionRecurso> asignaciones = asignacionesPorDia.getOrDefault(fecha, List.of());
+
+            TreeSet<LocalTime> candidatas = new TreeSet<>(horasInicio);
+            candidatas.addAll(salidas.keySet());
+
+            for (LocalTime inicio : candidatas) {
+                if (!fecha.atTime(inicio).isAfter(ahora)) {
+                    continue;
+                }
+                CupoSalida salida = salidas.get(inicio);
+                if (salida != null) {
+                    franjas.add(FranjaDisponibleResponse.builder()
+                            .fecha(fecha)
+                            .horaInicio(inicio)
+                            .horaFin(salida.getFin())
+                            .cuposDisponibles(Math.max(salida.getCupoMaximo() - salida.getCupoOcupado(), 0))
+                            .salidaId(salida.getSalidaId())
+                            .build());
+                    continue;
+                }
+
+                LocalTime fin = inicio.plusMinutes(ruta.getDuracionMinutos());
+                if (!fin.isAfter(inicio)) {
+                    continue; // la salida terminaria al dia siguiente
+                }
+                franjas.add(FranjaDisponibleResponse.builder()
+                        .fecha(fecha)
+                        .horaInicio(inicio)
+                        .horaFin(fin)
+                        .cuposDisponibles(caballosLibres(caballosActivos, asignaciones, inicio, fin))
+                        .build());
+            }
+        }
+
+        return DisponibilidadRutaResponse.builder()
+                .rutaId(rutaId)
+                .desde(desde)
+                .hasta(hasta)
+                .franjas(franjas)
+                .build();
+    }
+
+    private static int caballosLibres(Set<Long> activos, List<AsignacionRecurso> asignaciones,
+                                      LocalTime inicio, LocalTime fin) {
+        Set<Long> ocupados = new HashSet<>();
+        for (AsignacionRecurso a : asignaciones) {
+            if (a.getInicio().isBefore(fin) && a.getFin().isAfter(inicio) && activos.contains(a.getRecursoId())) {
+                ocupados.add(a.getRecursoId());
+            }
+        }
+        return activos.size() - ocupados.size();
+    }
+}
@@ -0,0 +1,186 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.BusinessRuleException;
+import horse_reserved.repository.ReservaCabecera;
+import horse_reserved.repository.ReservaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exporta reservas en NDJSON o CSV escribiendo fila por fila en el flujo de salida.
+ * Las filas se leen del cursor de la base de datos como proyecciones planas, asi que la
+ * memoria usada no depende del numero de reservas exportadas.
+ */
+@Service
+public class ExportacionReservasService {
+
+    private static final String[] COLUMNAS = {
+            "id", "estado", "cantPersonas", "precioUnitario", "precioTotal",
+            "salidaId", "fechaProgramada", "tiempoInicio", "tiempoFin", "salidaEstado",
+            "rutaId", "rutaNombre", "clienteId", "clienteEmail", "operadorId"
+    };
+
+    public enum Formato {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv;charset=UTF-8", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Formato(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Formato fromString(String valor) {
+            for (Formato f : values()) {
+                if (f.extension.equalsIgnoreCase(valor)) {
+                    return f;
+                }
+            }
+            throw new BusinessRuleException("Formato de exportación no soportado: " + valor + " (use ndjson o csv)");
+        }
+    }
+
+    private final ReservaRepository reservaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long timeoutMs;
+
+    public ExportacionReservasService(ReservaRepository reservaRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.exportacion.timeout-ms:3600000}") long timeoutMs) {
+        this.reservaRepository = reservaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Tiempo maximo de una exportacion; reemplaza el timeout asincrono global solo para esta solicitud
+     */
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Escribe las reservas que cumplen los filtros en el flujo indicado.
+     * La lectura ocurre en una transaccion de solo lectura para que el driver use un cursor.
+     */
+    public void exportar(Formato formato, String estado, LocalDate desde, LocalDate hasta, OutputStream salida)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+        String estadoNormalizado = estado == null || estado.isBlank() ? null : estado.trim().toLowerCase();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<ReservaCabecera> filas = reservaRepository.streamCabeceras(estadoNormalizado, desde, hasta)) {
+                    if (formato == Formato.CSV) {
+                        escribirFilaCsv(writer, COLUMNAS);
+                    }
+                    Iterator<ReservaCabecera> it = filas.iterator();
+                    while (it.hasNext()) {
+                        ReservaCabecera fila = it.next();
+                        if (formato == Formato.CSV) {
+                            escribirFilaCsv(writer, valores(fila));
+                        } else {
+                            escribirLineaJson(writer, valores(fila));
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static Object[] valores(ReservaCabecera r) {
+        return new Object[]{
+                r.id(), r.estado(), r.cantPersonas(), r.precioUnitario(), r.precioTotal(),
+                r.salidaId(), r.fechaProgramada(), r.tiempoInicio(), r.tiempoFin(), r.salidaEstado(),
+                r.rutaId(), r.rutaNombre(), r.clienteId(), r.clienteEmail(), r.operadorId()
+        };
+    }
+
+    static void escribirLineaJson(Writer w, Object[] valores) throws IOException {
+        w.write('{');
+        for (int i = 0; i < COLUMNAS.length; i++) {
+            if (i > 0) {
+                w.write(',');
+            }
+            w.write('"');
+            w.write(COLUMNAS[i]);
+            w.write("\":");
+            Object v = valores[i];
+            if (v == null) {
+                w.write("null");
+            } else if (v instanceof Number) {
+                w.write(v.toString());
+            } else {
+                escribirCadenaJson(w, v.toString());
+            }
+        }
+        w.write("}\n");
+    }
+
+    private static void escribirCadenaJson(Writer w, String s) throws IOException {
+        w.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> w.write("\\\"");
+                case '\\' -> w.write("\\\\");
+                case '\n' -> w.write("\\n");
+                case '\r' -> w.write("\\r");
+                case '\t' -> w.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        w.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        w.write(c);
+                    }
+                }
+            }
+        }
+        w.write('"');
+    }
+
+    static void escribirFilaCsv(Writer w, Object[] valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                w.write(',');
+            }
+            Object v = valores[i];
+            if (v == null) {
+                continue;
+            }
+            String s = v.toString();
+            if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+                w.write('"');
+                w.write(s.replace("\"", "\"\""));
+                w.write('"');
+            } else {
+                w.write(s);
+            }
+        }
+        w.write("\r\n");
+    }
+}
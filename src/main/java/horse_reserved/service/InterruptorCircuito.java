@@ -0,0 +1,76 @@
+package horse_reserved.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Interruptor de circuito para una dependencia externa.
+ *
+ * Tras {@code umbralFallos} fallos consecutivos se abre y las llamadas se rechazan sin intentarlas
+ * durante {@code esperaApertura}. Pasado ese tiempo deja pasar una sola llamada de prueba
+ * (semiabierto): si funciona se cierra, si falla vuelve a abrirse.
+ */
+public class InterruptorCircuito {
+
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private final int umbralFallos;
+    private final long esperaAperturaNanos;
+    private final LongSupplier reloj;
+
+    private final AtomicReference<Estado> estado = new AtomicReference<>(Estado.CERRADO);
+    private final AtomicInteger fallosConsecutivos = new AtomicInteger();
+    private final AtomicLong abiertoDesde = new AtomicLong();
+
+    public InterruptorCircuito(int umbralFallos, Duration esperaApertura) {
+        this(umbralFallos, esperaApertura, System::nanoTime);
+    }
+
+    InterruptorCircuito(int umbralFallos, Duration esperaApertura, LongSupplier reloj) {
+        this.umbralFallos = Math.max(1, umbralFallos);
+        this.esperaAperturaNanos = esperaApertura.toNanos();
+        this.reloj = reloj;
+    }
+
+    /**
+     * Indica si la llamada puede intentarse. Con el circuito abierto y la espera cumplida,
+     * solo el primer llamador obtiene true (llamada de prueba).
+     */
+    public boolean permite() {
+        Estado actual = estado.get();
+        if (actual == Estado.CERRADO) {
+            return true;
+        }
+        if (actual == Estado.ABIERTO && reloj.getAsLong() - abiertoDesde.get() >= esperaAperturaNanos) {
+            return estado.compareAndSet(Estado.ABIERTO, Estado.SEMIABIERTO);
+        }
+        return false;
+    }
+
+    public void registrarExito() {
+        fallosConsecutivos.set(0);
+        estado.set(Estado.CERRADO);
+    }
+
+    public void registrarFallo() {
+        if (estado.get() == Estado.SEMIABIERTO || fallosConsecutivos.incrementAndGet() >= umbralFallos) {
+            abiertoDesde.set(reloj.getAsLong());
+            estado.set(Estado.ABIERTO);
+        }
+    }
+
+    public Estado estado() {
+        return estado.get();
+    }
+
+    /**
+     * Segundos que faltan para la siguiente llamada de prueba (minimo 1)
+     */
+    public long segundosParaReintentar() {
+        long restante = esperaAperturaNanos - (reloj.getAsLong() - abiertoDesde.get());
+        return Math.max(1, (long) Math.ceil(restante / 1e9));
+    }
+}
@@ -2,6 +2,8 @@ package horse_reserved.service;
 
 import horse_reserved.model.Usuario;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,10 +12,11 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
 /**
  * Servicio para manejar operaciones JWT (JSON Web Tokens)
@@ -21,32 +24,78 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String secretKey;
+    /** Claims con los que se construye el principal sin consultar la base de datos */
+    public static final String CLAIM_USUARIO = "userId";
+    public static final String CLAIM_ROL = "role";
+    public static final String CLAIM_PASSWORD_CAMBIADA = "pwd";
 
-    @Value("${jwt.expiration}")
-    private Long jwtExpiration;
+    private final long jwtExpiration;
+
+    // La clave y el parser son inmutables y seguros entre hilos: se construyen una sola vez
+    private final SecretKey signInKey;
+    private final JwtParser parser;
+
+    /**
+     * Datos de un token cuya firma y expiracion ya fueron verificadas
+     */
+    public record TokenVerificado(String subject, Instant emitidoEn, Instant expiraEn, Map<String, Object> claims) {
+
+        public TokenVerificado {
+            claims = Collections.unmodifiableMap(new HashMap<>(claims));
+        }
+
+        public <T> T claim(String nombre, Class<T> tipo) {
+            Object valor = claims.get(nombre);
+            return tipo.isInstance(valor) ? tipo.cast(valor) : null;
+        }
+    }
+
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.expiration}") long jwtExpiration) {
+        this.jwtExpiration = jwtExpiration;
+        this.signInKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(signInKey).build();
+    }
+
+    /**
+     * Verifica firma y expiracion del token con un unico parseo.
+     * @throws JwtException si el token es invalido, esta mal formado o expiro
+     */
+    public TokenVerificado verificar(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        return new TokenVerificado(
+                claims.getSubject(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                claims);
+    }
 
     /**
      * Extrae el email (username) del token JWT
      */
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verificar(token).subject();
     }
 
     /**
-     * Extrae un claim específico del token
+     * Duracion de los tokens de acceso en milisegundos
      */
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public long getJwtExpiration() {
+        return jwtExpiration;
     }
 
     /**
-     * Genera un token JWT para un usuario con claims adicionales
+     * Genera un token JWT para un usuario con claims adicionales.
+     * Si es un {@link Usuario} se agregan su id, rol e instante del ultimo cambio de contraseña.
      */
     public String generateToken(UserDetails userDetails, Map<String, Object> extraClaims) {
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        if (userDetails instanceof Usuario usuario && usuario.getId() != null && usuario.getRole() != null) {
+            claims.put(CLAIM_USUARIO, usuario.getId());
+            claims.put(CLAIM_ROL, usuario.getRole().name());
+            claims.put(CLAIM_PASSWORD_CAMBIADA, usuario.getPasswordChangedAt().toEpochMilli());
+        }
+        return buildToken(claims, userDetails, jwtExpiration);
     }
 
     /**
@@ -57,37 +106,22 @@ public class JwtService {
     }
 
     /**
-     * Valida si un token es válido para un usuario.
+     * Valida si un token ya verificado pertenece al usuario.
      * Rechaza tokens emitidos antes del último cambio de contraseña.
      */
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        if (!username.equals(userDetails.getUsername()) || isTokenExpired(token)) {
+    public boolean isTokenValid(TokenVerificado token, UserDetails userDetails) {
+        if (token.subject() == null || !token.subject().equals(userDetails.getUsername())) {
             return false;
         }
         if (userDetails instanceof Usuario usuario) {
-            Date issuedAt = extractClaim(token, Claims::getIssuedAt);
-            if (issuedAt != null && issuedAt.toInstant().isBefore(usuario.getPasswordChangedAt())) {
+            Instant issuedAt = token.emitidoEn();
+            if (issuedAt != null && issuedAt.isBefore(usuario.getPasswordChangedAt())) {
                 return false;
             }
         }
         return true;
     }
 
-    /**
-     * Verifica si un token ha expirado
-     */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    /**
-     * Extrae la fecha de expiración del token
-     */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
     /**
      * Construye el token JWT con los claims, usuario y tiempo de expiración
      */
@@ -102,29 +136,7 @@ public class JwtService {
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey())
+                .signWith(signInKey)
                 .compact();
     }
-
-    /**
-     * Extrae todos los claims del token
-     * Compatible con jjwt 0.12.x
-     */
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    /**
-     * Obtiene la clave de firma a partir del secreto
-     * Convierte el secreto String a SecretKey
-     */
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
 }
\ No newline at end of file
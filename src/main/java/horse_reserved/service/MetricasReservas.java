@@ -0,0 +1,104 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.ReservaRechazadaException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Metricas de la creacion de reservas.
+ *
+ * {@code reservas.crear} mide la operacion completa (histograma, resultado y motivo del rechazo),
+ * {@code reservas.crear.etapa} cada paso y {@code reservas.rechazos} cuenta los rechazos por falta
+ * de cupo, caballos o guias. Los medidores se crean una sola vez y se reutilizan.
+ */
+@Component
+public class MetricasReservas {
+
+    public static final String ETAPA_AUTENTICACION = "autenticacion";
+    public static final String ETAPA_BLOQUEO = "bloqueo";
+    public static final String ETAPA_BUSQUEDA_SALIDA = "busqueda_salida";
+    public static final String ETAPA_CREACION_SALIDA = "creacion_salida";
+    public static final String ETAPA_DISPONIBILIDAD = "disponibilidad";
+    public static final String ETAPA_CUPO = "cupo";
+    public static final String ETAPA_GUIAS = "asignacion_guias";
+    public static final String ETAPA_GUARDADO = "guardado";
+
+    private static final String SIN_MOTIVO = "ninguno";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> etapas = new ConcurrentHashMap<>();
+    private final Map<String, Timer> resultados = new ConcurrentHashMap<>();
+    private final Map<ReservaRechazadaException.Motivo, Counter> rechazos = new ConcurrentHashMap<>();
+
+    public MetricasReservas(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Mide la creacion completa y clasifica el resultado: exito, rechazo (con motivo) o error
+     */
+    public <T> T medirCreacion(Supplier<T> creacion) {
+        long inicio = System.nanoTime();
+        String resultado = "error";
+        String motivo = SIN_MOTIVO;
+        try {
+            T valor = creacion.get();
+            resultado = "exito";
+            return valor;
+        } catch (ReservaRechazadaException e) {
+            resultado = "rechazo";
+            motivo = e.getMotivo().etiqueta();
+            rechazos.computeIfAbsent(e.getMotivo(), m -> Counter.builder("reservas.rechazos")
+                    .description("Reservas rechazadas por falta de recursos")
+                    .tag("motivo", m.etiqueta())
+                    .register(registry)).increment();
+            throw e;
+        } finally {
+            timerResultado(resultado, motivo).record(Duration.ofNanos(System.nanoTime() - inicio));
+        }
+    }
+
+    /**
+     * Mide un paso de la creacion, falle o no
+     */
+    public <T> T medir(String etapa, Supplier<T> paso) {
+        long inicio = System.nanoTime();
+        try {
+            return paso.get();
+        } finally {
+            timerEtapa(etapa).record(Duration.ofNanos(System.nanoTime() - inicio));
+        }
+    }
+
+    public void medir(String etapa, Runnable paso) {
+        long inicio = System.nanoTime();
+        try {
+            paso.run();
+        } finally {
+            timerEtapa(etapa).record(Duration.ofNanos(System.nanoTime() - inicio));
+        }
+    }
+
+    private Timer timerEtapa(String etapa) {
+        return etapas.computeIfAbsent(etapa, e -> Timer.builder("reservas.crear.etapa")
+                .description("Duracion de cada etapa de la creacion de una reserva")
+                .tag("etapa", e)
+                .register(registry));
+    }
+
+    private Timer timerResultado(String resultado, String motivo) {
+        return resultados.computeIfAbsent(resultado + ':' + motivo, k -> Timer.builder("reservas.crear")
+                .description("Duracion de la creacion de una reserva, sin incluir el commit")
+                .tag("resultado", resultado)
+                .tag("motivo", motivo)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+}
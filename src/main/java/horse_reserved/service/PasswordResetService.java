@@ -10,6 +10,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -31,6 +32,9 @@ public class PasswordResetService {
     private final PasswordResetTokenRepository tokenRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final RevocacionTokensService revocacionTokens;
+    private final RefreshTokenService refreshTokenService;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Procesa la solicitud de restablecimiento de contraseña.
@@ -69,8 +73,8 @@ public class PasswordResetService {
 
         tokenRepository.save(resetToken);
 
-        // Enviar correo (asíncrono — no bloquea ni lanza excepción al llamador)
-        emailService.sendPasswordResetEmail(
+        // Encolar el correo en esta misma transacción; el despachador lo envía después
+        emailService.encolarCorreoRestablecimiento(
                 usuario.getEmail(),
                 usuario.getPrimerNombre(),
                 tokenValue
@@ -81,13 +85,36 @@ public class PasswordResetService {
 
     /**
      * Valida el token y actualiza la contraseña del usuario.
+     * La nueva contraseña se cifra fuera de la transaccion y el token se vuelve a validar dentro.
      *
      * @param token         UUID del token recibido desde el frontend
      * @param nuevaPassword Nueva contraseña en texto plano
      * @throws InvalidTokenException si el token no existe, ha expirado o ya fue usado
      */
-    @Transactional
     public void resetPassword(String token, String nuevaPassword) {
+        // Un enlace invalido se rechaza sin gastar el hashing
+        tokenValido(token);
+
+        String passwordHash = passwordEncoder.encode(nuevaPassword);
+
+        transactionTemplate.executeWithoutResult(estado -> {
+            PasswordResetToken resetToken = tokenValido(token);
+
+            Usuario usuario = resetToken.getUsuario();
+            usuario.setPasswordHash(passwordHash);
+            usuario.setPasswordChangedAt(Instant.now());
+            usuarioRepository.save(usuario);
+            revocacionTokens.registrarCambioPassword(usuario.getId(), usuario.getPasswordChangedAt());
+            refreshTokenService.revocarTodos(usuario.getId());
+
+            resetToken.setUsed(true);
+            tokenRepository.save(resetToken);
+
+            log.info("Contraseña restablecida exitosamente para usuario id={}", usuario.getId());
+        });
+    }
+
+    private PasswordResetToken tokenValido(String token) {
         PasswordResetToken resetToken = tokenRepository.findByToken(token)
                 .orElseThrow(() -> new InvalidTokenException(
                         "El enlace de restablecimiento no es válido o ha expirado"));
@@ -96,15 +123,6 @@ public class PasswordResetService {
             throw new InvalidTokenException(
                     "El enlace de restablecimiento no es válido o ha expirado");
         }
-
-        Usuario usuario = resetToken.getUsuario();
-        usuario.setPasswordHash(passwordEncoder.encode(nuevaPassword));
-        usuario.setPasswordChangedAt(Instant.now());
-        usuarioRepository.save(usuario);
-
-        resetToken.setUsed(true);
-        tokenRepository.save(resetToken);
-
-        log.info("Contraseña restablecida exitosamente para usuario id={}", usuario.getId());
+        return resetToken;
     }
 }
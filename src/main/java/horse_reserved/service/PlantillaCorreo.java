@@ -0,0 +1,134 @@
+package horse_reserved.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plantilla compilada: el texto se divide una sola vez en literales y variables {@code {{nombre}}},
+ * de modo que renderizar solo concatena segmentos en un StringBuilder, sin volver a buscar
+ * marcadores ni interpretar formatos. Los valores se escapan para HTML salvo en plantillas
+ * de texto plano (asuntos). Las instancias son inmutables y se comparten entre hilos.
+ */
+public final class PlantillaCorreo {
+
+    private static final String APERTURA = "{{";
+    private static final String CIERRE = "}}";
+
+    private final String nombre;
+    // literales.length == variables.length + 1: literal, variable, literal, ..., literal
+    private final String[] literales;
+    private final String[] variables;
+    private final boolean escaparHtml;
+    private final int largoLiterales;
+
+    private PlantillaCorreo(String nombre, String[] literales, String[] variables, boolean escaparHtml) {
+        this.nombre = nombre;
+        this.literales = literales;
+        this.variables = variables;
+        this.escaparHtml = escaparHtml;
+        int largo = 0;
+        for (String literal : literales) {
+            largo += literal.length();
+        }
+        this.largoLiterales = largo;
+    }
+
+    /**
+     * Divide la fuente en segmentos.
+     * @throws IllegalArgumentException si un marcador no se cierra o no tiene nombre
+     */
+    public static PlantillaCorreo compilar(String nombre, String fuente, boolean escaparHtml) {
+        List<String> literales = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int desde = 0;
+        int apertura;
+        while ((apertura = fuente.indexOf(APERTURA, desde)) >= 0) {
+            int cierre = fuente.indexOf(CIERRE, apertura + APERTURA.length());
+            if (cierre < 0) {
+                throw new IllegalArgumentException("Marcador sin cerrar en la plantilla " + nombre
+                        + " (posicion " + apertura + ")");
+            }
+            String variable = fuente.substring(apertura + APERTURA.length(), cierre).trim();
+            if (variable.isEmpty()) {
+                throw new IllegalArgumentException("Marcador vacio en la plantilla " + nombre
+                        + " (posicion " + apertura + ")");
+            }
+            literales.add(fuente.substring(desde, apertura));
+            variables.add(variable);
+            desde = cierre + CIERRE.length();
+        }
+        literales.add(fuente.substring(desde));
+        return new PlantillaCorreo(nombre, literales.toArray(String[]::new), variables.toArray(String[]::new),
+                escaparHtml);
+    }
+
+    /**
+     * Agrega la plantilla renderizada al final de {@code destino}
+     * @throws IllegalArgumentException si falta el valor de alguna variable
+     */
+    public void renderizar(Map<String, ?> valores, StringBuilder destino) {
+        destino.ensureCapacity(destino.length() + largoEstimado());
+        for (int i = 0; i < variables.length; i++) {
+            destino.append(literales[i]);
+            Object valor = valores.get(variables[i]);
+            if (valor == null) {
+                throw new IllegalArgumentException("Falta la variable '" + variables[i]
+                        + "' de la plantilla " + nombre);
+            }
+            if (escaparHtml) {
+                escaparHtml(valor.toString(), destino);
+            } else {
+                destino.append(valor);
+            }
+        }
+        destino.append(literales[variables.length]);
+    }
+
+    public String renderizar(Map<String, ?> valores) {
+        StringBuilder destino = new StringBuilder(largoEstimado());
+        renderizar(valores, destino);
+        return destino.toString();
+    }
+
+    /**
+     * Variables que usa la plantilla, sin repetir
+     */
+    public Set<String> variables() {
+        return new LinkedHashSet<>(List.of(variables));
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    // Literales mas un margen por variable para no redimensionar el buffer en el caso comun
+    int largoEstimado() {
+        return largoLiterales + variables.length * 64;
+    }
+
+    /**
+     * Escapa los caracteres especiales de HTML (contenido y atributos entre comillas).
+     * Los tramos sin caracteres especiales se copian de una vez.
+     */
+    static void escaparHtml(String valor, StringBuilder destino) {
+        int inicioTramo = 0;
+        for (int i = 0; i < valor.length(); i++) {
+            String entidad = switch (valor.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (entidad != null) {
+                destino.append(valor, inicioTramo, i).append(entidad);
+                inicioTramo = i + 1;
+            }
+        }
+        destino.append(valor, inicioTramo, valor.length());
+    }
+}
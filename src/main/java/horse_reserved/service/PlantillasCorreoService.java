@@ -0,0 +1,135 @@
+package horse_reserved.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Plantillas de correo precompiladas al arrancar.
+ *
+ * Cada correo tiene un archivo {@code plantillas/correo/<nombre>.<idioma>.html} para el cuerpo y
+ * {@code <nombre>.<idioma>.asunto} para el asunto. Se elige el idioma exacto del locale
+ * (por ejemplo es-CO), luego solo el idioma (es) y por ultimo {@code app.mail.idioma-defecto}.
+ * Los buffers de renderizado se reutilizan desde un pool acotado en lugar de un ThreadLocal,
+ * que no sirve de nada con hilos virtuales.
+ */
+@Slf4j
+@Service
+public class PlantillasCorreoService {
+
+    private static final String UBICACION = "classpath*:plantillas/correo/*.*";
+    private static final int BUFFERS = 16;
+    private static final int MAX_CAPACIDAD_BUFFER = 64 * 1024;
+
+    /**
+     * Asunto y cuerpo HTML listos para enviar
+     */
+    public record CorreoRenderizado(String asunto, String html) {}
+
+    private record Plantillas(PlantillaCorreo asunto, PlantillaCorreo html) {}
+
+    private final String idiomaDefecto;
+    // nombre -> idioma -> plantillas
+    private final Map<String, Map<String, Plantillas>> plantillas;
+    private final BlockingQueue<StringBuilder> buffers = new ArrayBlockingQueue<>(BUFFERS);
+
+    public PlantillasCorreoService(@Value("${app.mail.idioma-defecto:es}") String idiomaDefecto) {
+        this.idiomaDefecto = idiomaDefecto;
+        this.plantillas = cargar();
+        plantillas.forEach((nombre, idiomas) -> {
+            if (!idiomas.containsKey(idiomaDefecto)) {
+                throw new IllegalStateException("La plantilla " + nombre + " no tiene version en el idioma por defecto ("
+                        + idiomaDefecto + ")");
+            }
+        });
+        log.info("Plantillas de correo compiladas: {}", plantillas.keySet());
+    }
+
+    /**
+     * Renderiza asunto y cuerpo de una plantilla
+     * @throws IllegalArgumentException si la plantilla no existe o falta alguna variable
+     */
+    public CorreoRenderizado renderizar(String nombre, Locale locale, Map<String, ?> variables) {
+        Plantillas plantilla = buscar(nombre, locale);
+        StringBuilder buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = new StringBuilder(plantilla.html().largoEstimado());
+        }
+        try {
+            plantilla.html().renderizar(variables, buffer);
+            String html = buffer.toString();
+            buffer.setLength(0);
+            plantilla.asunto().renderizar(variables, buffer);
+            return new CorreoRenderizado(buffer.toString().strip(), html);
+        } finally {
+            buffer.setLength(0);
+            if (buffer.capacity() <= MAX_CAPACIDAD_BUFFER) {
+                buffers.offer(buffer);
+            }
+        }
+    }
+
+    private Plantillas buscar(String nombre, Locale locale) {
+        Map<String, Plantillas> idiomas = plantillas.get(nombre);
+        if (idiomas == null) {
+            throw new IllegalArgumentException("No existe la plantilla de correo " + nombre);
+        }
+        if (locale != null) {
+            Plantillas exacta = idiomas.get(locale.toLanguageTag());
+            if (exacta != null) {
+                return exacta;
+            }
+            Plantillas idioma = idiomas.get(locale.getLanguage());
+            if (idioma != null) {
+                return idioma;
+            }
+        }
+        return idiomas.get(idiomaDefecto);
+    }
+
+    private static Map<String, Map<String, Plantillas>> cargar() {
+        Map<String, Map<String, PlantillaCorreo>> asuntos = new HashMap<>();
+        Map<String, Map<String, PlantillaCorreo>> cuerpos = new HashMap<>();
+        try {
+            for (Resource recurso : new PathMatchingResourcePatternResolver().getResources(UBICACION)) {
+                String archivo = recurso.getFilename();
+                String[] partes = archivo == null ? new String[0] : archivo.split("\\.");
+                if (partes.length != 3) {
+                    throw new IllegalStateException("Nombre de plantilla invalido (se espera <nombre>.<idioma>.<tipo>): "
+                            + archivo);
+                }
+                String fuente = recurso.getContentAsString(StandardCharsets.UTF_8);
+                switch (partes[2]) {
+                    case "html" -> cuerpos.computeIfAbsent(partes[0], n -> new HashMap<>())
+                            .put(partes[1], PlantillaCorreo.compilar(archivo, fuente, true));
+                    case "asunto" -> asuntos.computeIfAbsent(partes[0], n -> new HashMap<>())
+                            .put(partes[1], PlantillaCorreo.compilar(archivo, fuente, false));
+                    default -> throw new IllegalStateException("Tipo de plantilla desconocido: " + archivo);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron leer las plantillas de correo", e);
+        }
+
+        Map<String, Map<String, Plantillas>> resultado = new HashMap<>();
+        cuerpos.forEach((nombre, idiomas) -> idiomas.forEach((idioma, html) -> {
+            PlantillaCorreo asunto = asuntos.getOrDefault(nombre, Map.of()).get(idioma);
+            if (asunto == null) {
+                throw new IllegalStateException("Falta el asunto de la plantilla " + nombre + "." + idioma);
+            }
+            resultado.computeIfAbsent(nombre, n -> new HashMap<>()).put(idioma, new Plantillas(asunto, html));
+        }));
+        return Map.copyOf(resultado);
+    }
+}
@@ -1,46 +1,125 @@
 package horse_reserved.service;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import horse_reserved.exception.RecaptchaVerificationException;
+import horse_reserved.exception.ServicioSaturadoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verificacion reCAPTCHA de login, registro y recuperacion de contraseña.
+ *
+ * Delega en el {@link VerificadorRecaptcha} configurado y lo protege con un
+ * {@link InterruptorCircuito}: si el proveedor falla repetidamente deja de consultarse durante
+ * {@code recaptcha.circuito.espera-apertura}. Mientras no hay respuesta se aplica
+ * {@code recaptcha.politica-degradada}: {@code rechazar} responde 503 con Retry-After y
+ * {@code permitir} deja pasar la solicitud (el rate limiting sigue aplicando).
+ */
+@Slf4j
 @Service
-public class RecaptchaService {
+public class RecaptchaService implements MeterBinder {
+
+    public enum PoliticaDegradada { RECHAZAR, PERMITIR }
 
-    private static final String VERIFY_URL = "https://www.google.com/recaptcha/api/siteverify";
+    private final VerificadorRecaptcha verificador;
+    private final InterruptorCircuito circuito;
+    private final PoliticaDegradada politica;
 
-    @Value("${recaptcha.secret-key}")
-    private String secretKey;
+    private volatile Timer tiempoValido;
+    private volatile Timer tiempoInvalido;
+    private volatile Timer tiempoError;
+    private volatile Counter degradadasPermitidas;
+    private volatile Counter degradadasRechazadas;
+
+    @Autowired
+    public RecaptchaService(VerificadorRecaptcha verificador,
+                            @Value("${recaptcha.politica-degradada:rechazar}") String politica,
+                            @Value("${recaptcha.circuito.umbral-fallos:5}") int umbralFallos,
+                            @Value("${recaptcha.circuito.espera-apertura:30s}") Duration esperaApertura) {
+        this(verificador, PoliticaDegradada.valueOf(politica.trim().toUpperCase(Locale.ROOT)),
+                new InterruptorCircuito(umbralFallos, esperaApertura));
+    }
 
-    private final RestClient restClient = RestClient.create();
+    RecaptchaService(VerificadorRecaptcha verificador, PoliticaDegradada politica, InterruptorCircuito circuito) {
+        this.verificador = verificador;
+        this.politica = politica;
+        this.circuito = circuito;
+    }
 
     /**
-     * Verifica el token reCAPTCHA v2 con la API de Google.
+     * Verifica el token reCAPTCHA v2.
      * Lanza RecaptchaVerificationException si la verificación falla.
+     * @throws ServicioSaturadoException si el proveedor no responde y la politica es rechazar
      */
     public void verify(String token) {
         if (token == null || token.isBlank()) {
             throw new RecaptchaVerificationException("El token de reCAPTCHA es obligatorio");
         }
+        if (!circuito.permite()) {
+            degradado("circuito abierto");
+            return;
+        }
 
-        RecaptchaResponse response = restClient.post()
-                .uri(VERIFY_URL)
-                .header("Content-Type", "application/x-www-form-urlencoded")
-                .body("secret=" + secretKey + "&response=" + token)
-                .retrieve()
-                .body(RecaptchaResponse.class);
+        long inicio = System.nanoTime();
+        boolean valido;
+        try {
+            valido = verificador.verificar(token);
+        } catch (RuntimeException e) {
+            circuito.registrarFallo();
+            registrar(tiempoError, inicio);
+            log.warn("Fallo al verificar reCAPTCHA ({}): {}", circuito.estado(), e.getMessage());
+            degradado("error del proveedor");
+            return;
+        }
+        circuito.registrarExito();
+        registrar(valido ? tiempoValido : tiempoInvalido, inicio);
 
-        if (response == null || !response.success()) {
+        if (!valido) {
             throw new RecaptchaVerificationException("Verificación reCAPTCHA fallida. Por favor, inténtalo de nuevo.");
         }
     }
 
-    private record RecaptchaResponse(
-            boolean success,
-            @JsonProperty("challenge_ts") String challengeTs,
-            String hostname,
-            @JsonProperty("error-codes") String[] errorCodes
-    ) {}
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        tiempoValido = Timer.builder("recaptcha.verificacion").tag("resultado", "valido").register(registry);
+        tiempoInvalido = Timer.builder("recaptcha.verificacion").tag("resultado", "invalido").register(registry);
+        tiempoError = Timer.builder("recaptcha.verificacion").tag("resultado", "error").register(registry);
+        degradadasPermitidas = Counter.builder("recaptcha.degradado").tag("decision", "permitida").register(registry);
+        degradadasRechazadas = Counter.builder("recaptcha.degradado").tag("decision", "rechazada").register(registry);
+        Gauge.builder("recaptcha.circuito.abierto", circuito, c -> c.estado() == InterruptorCircuito.Estado.CERRADO ? 0 : 1)
+                .description("1 si el circuito hacia el proveedor reCAPTCHA esta abierto o en prueba")
+                .register(registry);
+    }
+
+    private void degradado(String motivo) {
+        if (politica == PoliticaDegradada.PERMITIR) {
+            if (degradadasPermitidas != null) {
+                degradadasPermitidas.increment();
+            }
+            log.warn("reCAPTCHA no disponible ({}), se permite la solicitud sin verificar", motivo);
+            return;
+        }
+        if (degradadasRechazadas != null) {
+            degradadasRechazadas.increment();
+        }
+        throw new ServicioSaturadoException(
+                "La verificación reCAPTCHA no está disponible, intenta nuevamente en unos segundos",
+                circuito.estado() == InterruptorCircuito.Estado.CERRADO ? 1 : circuito.segundosParaReintentar());
+    }
+
+    private static void registrar(Timer timer, long inicio) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
 }
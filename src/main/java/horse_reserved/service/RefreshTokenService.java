@@ -0,0 +1,147 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.InvalidCredentialsException;
+import horse_reserved.exception.UserInactiveException;
+import horse_reserved.model.RefreshToken;
+import horse_reserved.model.Usuario;
+import horse_reserved.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Emision y rotacion de tokens de refresco.
+ *
+ * El cliente recibe un valor aleatorio de 256 bits y la base de datos solo guarda su SHA-256,
+ * asi que una copia de la tabla no permite renovar sesiones. Cada refresco marca el token como
+ * usado y emite otro en la misma familia; si un token ya usado vuelve a presentarse, alguien mas
+ * tiene una copia y se revoca la familia completa. Renovar no verifica la contraseña, por lo que
+ * evita el costo de BCrypt de un login.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int BYTES_TOKEN = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long refreshExpiration;
+
+    /**
+     * Resultado de rotar un token: el usuario dueño y el nuevo token en claro
+     */
+    public record Rotacion(Usuario usuario, String token) {}
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${jwt.refresh-expiration}") long refreshExpiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpiration = refreshExpiration;
+    }
+
+    /**
+     * Emite el primer token de una familia nueva (login, registro u OAuth2)
+     * @return El token en claro, que solo se entrega al cliente
+     */
+    @Transactional
+    public String emitir(Usuario usuario) {
+        return emitir(usuario, UUID.randomUUID());
+    }
+
+    /**
+     * Cambia un token valido por uno nuevo de la misma familia.
+     * La revocacion por reutilizacion se confirma aunque la solicitud falle.
+     * @throws InvalidCredentialsException si el token no existe, expiro, fue revocado o ya se uso
+     */
+    @Transactional(noRollbackFor = {InvalidCredentialsException.class, UserInactiveException.class})
+    public Rotacion rotar(String token) {
+        RefreshToken actual = refreshTokenRepository.findByTokenHashForUpdate(hash(token))
+                .orElseThrow(() -> new InvalidCredentialsException("Token de refresco inválido"));
+
+        if (actual.isConsumido()) {
+            if (actual.getUsedAt() != null) {
+                int revocados = refreshTokenRepository.revocarFamilia(actual.getFamilia());
+                log.warn("Reutilizacion de token de refresco para usuario id={}, familia revocada ({} tokens)",
+                        actual.getUsuario().getId(), revocados);
+            }
+            throw new InvalidCredentialsException("Token de refresco inválido");
+        }
+        if (actual.isExpired()) {
+            throw new InvalidCredentialsException("El token de refresco expiró, inicia sesión nuevamente");
+        }
+
+        Usuario usuario = actual.getUsuario();
+        if (!usuario.getIsActive()) {
+            refreshTokenRepository.revocarFamilia(actual.getFamilia());
+            throw new UserInactiveException("El usuario está inactivo. Contacte al administrador.");
+        }
+
+        actual.setUsedAt(Instant.now());
+        return new Rotacion(usuario, emitir(usuario, actual.getFamilia()));
+    }
+
+    /**
+     * Cierra la sesion del token: revoca su familia. Un token desconocido se ignora.
+     */
+    @Transactional
+    public void revocar(String token) {
+        refreshTokenRepository.findByTokenHashForUpdate(hash(token))
+                .ifPresent(t -> refreshTokenRepository.revocarFamilia(t.getFamilia()));
+    }
+
+    /**
+     * Revoca todas las sesiones de un usuario; se usa al cambiar o restablecer la contraseña
+     */
+    @Transactional
+    public void revocarTodos(Long usuarioId) {
+        refreshTokenRepository.revocarPorUsuario(usuarioId);
+    }
+
+    /**
+     * Duracion de los tokens de refresco en milisegundos
+     */
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    @Transactional
+    public void eliminarExpirados() {
+        int eliminados = refreshTokenRepository.eliminarExpirados(Instant.now());
+        log.info("Tokens de refresco expirados eliminados: {}", eliminados);
+    }
+
+    private String emitir(Usuario usuario, UUID familia) {
+        byte[] bytes = new byte[BYTES_TOKEN];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .usuario(usuario)
+                .tokenHash(hash(token))
+                .familia(familia)
+                .expiresAt(Instant.now().plusMillis(refreshExpiration))
+                .build());
+        return token;
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
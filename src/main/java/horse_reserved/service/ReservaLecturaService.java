@@ -0,0 +1,53 @@
+package horse_reserved.service;
+
+import horse_reserved.dto.response.ParticipanteResponse;
+import horse_reserved.dto.response.ReservaResponse;
+import horse_reserved.repository.ParticipanteFila;
+import horse_reserved.repository.ParticipanteRepository;
+import horse_reserved.repository.ReservaCabecera;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Modelo de lectura de reservas. Arma ReservaResponse desde proyecciones planas:
+ * la cabecera de cada reserva (una fila por reserva) y sus participantes consultados
+ * con IN por lotes, sin hidratar entidades ni multiplicar filas por participante.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReservaLecturaService {
+
+    // Mantiene cada IN muy por debajo del limite de parametros de PostgreSQL
+    private static final int LOTE_PARTICIPANTES = 1_000;
+
+    private final ParticipanteRepository participanteRepository;
+    private final ReservaMapper reservaMapper;
+
+    /**
+     * Respuestas en el mismo orden de las cabeceras recibidas
+     */
+    public List<ReservaResponse> ensamblar(List<ReservaCabecera> cabeceras) {
+        if (cabeceras.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<ParticipanteResponse>> participantes = new HashMap<>(cabeceras.size() * 2);
+        for (int i = 0; i < cabeceras.size(); i += LOTE_PARTICIPANTES) {
+            List<Long> ids = cabeceras.subList(i, Math.min(i + LOTE_PARTICIPANTES, cabeceras.size())).stream()
+                    .map(ReservaCabecera::id)
+                    .toList();
+            for (ParticipanteFila fila : participanteRepository.findFilasByReservaIds(ids)) {
+                participantes.computeIfAbsent(fila.reservaId(), k -> new ArrayList<>())
+                        .add(reservaMapper.toParticipanteResponse(fila));
+            }
+        }
+
+        List<ReservaResponse> respuestas = new ArrayList<>(cabeceras.size());
+        for (ReservaCabecera cabecera : cabeceras) {
+            respuestas.add(reservaMapper.toResponse(cabecera, participantes.getOrDefault(cabecera.id(), List.of())));
+        }
+        return respuestas;
+    }
+}
@@ -4,6 +4,8 @@ import horse_reserved.dto.response.ParticipanteResponse;
 import horse_reserved.dto.response.ReservaResponse;
 import horse_reserved.model.Participante;
 import horse_reserved.model.Reserva;
+import horse_reserved.repository.ParticipanteFila;
+import horse_reserved.repository.ReservaCabecera;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -40,6 +42,44 @@ public class ReservaMapper {
                 .build();
     }
 
+    /**
+     * Arma la respuesta desde la proyeccion de la reserva y sus participantes ya mapeados
+     */
+    public ReservaResponse toResponse(ReservaCabecera r, List<ParticipanteResponse> participantes) {
+        return ReservaResponse.builder()
+                .id(r.id())
+                .estado(r.estado())
+                .cantPersonas(r.cantPersonas())
+                .salidaId(r.salidaId())
+                .rutaId(r.rutaId())
+                .fechaProgramada(r.fechaProgramada())
+                .tiempoInicio(r.tiempoInicio())
+                .tiempoFin(r.tiempoFin())
+                .salidaEstado(r.salidaEstado())
+                .rutaNombre(r.rutaNombre())
+                .rutaPrecio(r.rutaPrecio())
+                .precioUnitario(r.precioUnitario())
+                .precioTotal(r.precioTotal())
+                .clienteId(r.clienteId())
+                .clienteEmail(r.clienteEmail())
+                .operadorId(r.operadorId())
+                .participantes(participantes)
+                .build();
+    }
+
+    public ParticipanteResponse toParticipanteResponse(ParticipanteFila p) {
+        return ParticipanteResponse.builder()
+                .id(p.id())
+                .primerNombre(p.primerNombre())
+                .primerApellido(p.primerApellido())
+                .tipoDocumento(p.tipoDocumento().name())
+                .documento(p.documento())
+                .edad(p.edad())
+                .cmAltura(p.cmAltura())
+                .kgPeso(p.kgPeso())
+                .build();
+    }
+
     private ParticipanteResponse toParticipanteResponse(Participante p) {
         return ParticipanteResponse.builder()
                 .id(p.getId())
@@ -1,13 +1,17 @@
 package horse_reserved.service;
 
 import horse_reserved.dto.request.CreateReservaRequest;
+import horse_reserved.dto.request.FiltroReservasRequest;
 import horse_reserved.dto.request.ParticipanteRequest;
 import horse_reserved.dto.request.UpdateReservaRequest;
+import horse_reserved.dto.response.PaginaResponse;
 import horse_reserved.dto.response.ReservaResponse;
 import horse_reserved.exception.*;
 import horse_reserved.model.*;
 import horse_reserved.repository.*;
+import horse_reserved.security.UsuarioAutenticado;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -16,7 +20,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -32,6 +38,14 @@ public class ReservaService {
     private final GuiaRepository guiaRepository;
     private final UsuarioRepository usuarioRepository;
     private final ReservaMapper reservaMapper;
+    private final DisponibilidadRecursosService disponibilidadRecursos;
+    private final BloqueoSalidasService bloqueoSalidas;
+    private final CupoSalidasService cupoSalidas;
+    private final ReservaLecturaService reservaLectura;
+    private final MetricasReservas metricas;
+
+    private static final int LIMITE_PAGINA_DEFECTO = 20;
+    private static final int LIMITE_PAGINA_MAXIMO = 100;
 
     /**
      * Metodo para realizar una reserva nueva
@@ -42,9 +56,13 @@ public class ReservaService {
      */
     @Transactional
     public ReservaResponse crearReserva(CreateReservaRequest request) {
+        return metricas.medirCreacion(() -> crear(request));
+    }
+
+    private ReservaResponse crear(CreateReservaRequest request) {
         validarRequestCrear(request);
 
-        Usuario autenticado = usuarioAutenticado();
+        UsuarioAutenticado autenticado = metricas.medir(MetricasReservas.ETAPA_AUTENTICACION, this::usuarioAutenticado);
 
         Usuario cliente;
         Usuario operador;
@@ -58,22 +76,23 @@ public class ReservaService {
             } else {
                 cliente = null; // reserva de invitado
             }
-            operador = autenticado;
+            operador = usuarioRepository.getReferenceById(autenticado.id());
         } else {
-            cliente = autenticado;
+            cliente = usuarioRepository.getReferenceById(autenticado.id());
             operador = null;
         }
 
-        Salida salida = salidaRepository
-                .findProgramadaByRutaAndFechaAndHora(request.getRutaId(), request.getFecha(), request.getHoraInicio())
-                .orElseGet(() -> crearNuevaSalida(
-                        request.getRutaId(), request.getFecha(), request.getHoraInicio(), request.getCantPersonas()));
+        // Serializa las reservas de la misma salida: validacion de cupo, creacion y guardado
+        metricas.medir(MetricasReservas.ETAPA_BLOQUEO, () ->
+                bloqueoSalidas.bloquearSalida(request.getRutaId(), request.getFecha(), request.getHoraInicio()));
 
-        validarCupoDisponible(salida, request.getCantPersonas());
+        Salida salida = metricas.medir(MetricasReservas.ETAPA_BUSQUEDA_SALIDA, () -> salidaRepository
+                .findProgramadaByRutaAndFechaAndHora(request.getRutaId(), request.getFecha(), request.getHoraInicio()))
+                .orElseGet(() -> metricas.medir(MetricasReservas.ETAPA_CREACION_SALIDA, () -> crearNuevaSalida(
+                        request.getRutaId(), request.getFecha(), request.getHoraInicio(), request.getCantPersonas())));
 
-        long totalPersonas = reservaRepository.sumPersonasReservadasActivasBySalida(salida.getId())
-                + request.getCantPersonas();
-        asignarGuiasSalida(salida, totalPersonas);
+        metricas.medir(MetricasReservas.ETAPA_CUPO, () -> cupoSalidas.ocupar(salida, request.getCantPersonas()));
+        metricas.medir(MetricasReservas.ETAPA_GUIAS, () -> asignarGuiasSalida(salida, salida.getCupoOcupado()));
 
         BigDecimal precioUnitario = salida.getRuta().getPrecio();
         BigDecimal precioTotal = precioUnitario.multiply(BigDecimal.valueOf(request.getCantPersonas()));
@@ -89,34 +108,24 @@ public class ReservaService {
                 .build();
 
         for (ParticipanteRequest pReq : request.getParticipantes()) {
-            Participante p = Participante.builder()
-                    .primerNombre(pReq.getPrimerNombre().trim())
-                    .primerApellido(pReq.getPrimerApellido().trim())
-                    .tipoDocumento(TipoDocumento.fromString(pReq.getTipoDocumento()))
-                    .documento(pReq.getDocumento().trim())
-                    .edad(pReq.getEdad())
-                    .cmAltura(pReq.getCmAltura())
-                    .kgPeso(pReq.getKgPeso())
-                    .build();
-
-            reserva.agregarParticipante(p);
+            reserva.agregarParticipante(nuevoParticipante(pReq));
         }
 
-        Reserva saved = reservaRepository.save(reserva);
+        Reserva saved = metricas.medir(MetricasReservas.ETAPA_GUARDADO, () -> reservaRepository.save(reserva));
         return reservaMapper.toResponse(saved);
     }
 
     /**
-     * Metodo para obtener todas las reservas del usuario
+     * Metodo para obtener una pagina de las reservas del usuario
+     * @param filtro
      * @return
      */
     @Transactional(readOnly = true)
-    public List<ReservaResponse> listarMisReservas() {
-        Usuario actual = usuarioAutenticado();
-        List<Reserva> reservas = esOperador(actual)
-                ? reservaRepository.findByOperadorIdOrderByIdDesc(actual.getId())
-                : reservaRepository.findByClienteIdOrderByIdDesc(actual.getId());
-        return reservas.stream().map(reservaMapper::toResponse).toList();
+    public PaginaResponse<ReservaResponse> listarMisReservas(FiltroReservasRequest filtro) {
+        UsuarioAutenticado actual = usuarioAutenticado();
+        return esOperador(actual)
+                ? buscarPagina(filtro, null, actual.id())
+                : buscarPagina(filtro, actual.id(), null);
     }
 
     /**
@@ -129,7 +138,7 @@ public class ReservaService {
             throw new BusinessRuleException("cantPersonas debe coincidir con el número de participantes");
         }
 
-        Usuario actual = usuarioAutenticado();
+        UsuarioAutenticado actual = usuarioAutenticado();
 
         Reserva reserva = reservaRepository.findDetailedById(reservaId)
                 .orElseThrow(() -> new ResourceNotFoundException("Reserva no encontrada: " + reservaId));
@@ -149,45 +158,30 @@ public class ReservaService {
                 || !salidaActual.getFechaProgramada().equals(request.getFecha())
                 || !salidaActual.getTiempoInicio().equals(request.getHoraInicio());
 
+        bloqueoSalidas.bloquearSalida(request.getRutaId(), request.getFecha(), request.getHoraInicio());
+
         Salida nuevaSalida;
         if (salidaCambia) {
             nuevaSalida = salidaRepository
                     .findProgramadaByRutaAndFechaAndHora(request.getRutaId(), request.getFecha(), request.getHoraInicio())
                     .orElseGet(() -> crearNuevaSalida(
                             request.getRutaId(), request.getFecha(), request.getHoraInicio(), request.getCantPersonas()));
-            validarCupoDisponible(nuevaSalida, request.getCantPersonas());
-            long total = reservaRepository.sumPersonasReservadasActivasBySalida(nuevaSalida.getId())
-                    + request.getCantPersonas();
-            asignarGuiasSalida(nuevaSalida, total);
+            cupoSalidas.ocupar(nuevaSalida, request.getCantPersonas());
+            cupoSalidas.liberar(salidaActual, reserva.getCantPersonas());
+            asignarGuiasSalida(nuevaSalida, nuevaSalida.getCupoOcupado());
         } else {
             nuevaSalida = salidaActual;
-            // Desconta la reserva actual para no doble-contarla en la validación de cupo
-            long ocupadosNetos = reservaRepository.sumPersonasReservadasActivasBySalida(nuevaSalida.getId())
-                    - reserva.getCantPersonas();
-            int maximo = nuevaSalida.getCaballos().size();
-            if (maximo == 0) {
-                throw new BusinessRuleException("La salida no tiene caballos asignados");
-            }
-            if (ocupadosNetos + request.getCantPersonas() > maximo) {
-                throw new BusinessRuleException(
-                        "Cupo insuficiente. Disponibles: " + (maximo - ocupadosNetos) + ", solicitados: " + request.getCantPersonas());
+            // Solo se ocupa o libera la diferencia respecto a la reserva actual
+            int diferencia = request.getCantPersonas() - reserva.getCantPersonas();
+            if (diferencia > 0) {
+                cupoSalidas.ocupar(nuevaSalida, diferencia);
+            } else if (diferencia < 0) {
+                cupoSalidas.liberar(nuevaSalida, -diferencia);
             }
-            asignarGuiasSalida(nuevaSalida, ocupadosNetos + request.getCantPersonas());
+            asignarGuiasSalida(nuevaSalida, nuevaSalida.getCupoOcupado());
         }
 
-        reserva.getParticipantes().clear();
-        for (ParticipanteRequest pReq : request.getParticipantes()) {
-            Participante p = Participante.builder()
-                    .primerNombre(pReq.getPrimerNombre().trim())
-                    .primerApellido(pReq.getPrimerApellido().trim())
-                    .tipoDocumento(TipoDocumento.fromString(pReq.getTipoDocumento()))
-                    .documento(pReq.getDocumento().trim())
-                    .edad(pReq.getEdad())
-                    .cmAltura(pReq.getCmAltura())
-                    .kgPeso(pReq.getKgPeso())
-                    .build();
-            reserva.agregarParticipante(p);
-        }
+        sincronizarParticipantes(reserva, request.getParticipantes());
 
         reserva.setSalida(nuevaSalida);
         reserva.setCantPersonas(request.getCantPersonas());
@@ -199,11 +193,38 @@ public class ReservaService {
     }
 
     @Transactional(readOnly = true)
-    public List<ReservaResponse> listarTodas() {
-        return reservaRepository.findAllOrderByIdDesc()
-                .stream()
-                .map(reservaMapper::toResponse)
-                .toList();
+    public PaginaResponse<ReservaResponse> listarTodas(FiltroReservasRequest filtro) {
+        return buscarPagina(filtro, null, null);
+    }
+
+    /**
+     * Pagina por cursor sobre el id descendente. Se pide un elemento extra para saber
+     * si hay una pagina siguiente sin ejecutar una consulta de conteo.
+     */
+    private PaginaResponse<ReservaResponse> buscarPagina(FiltroReservasRequest filtro, Long clienteId, Long operadorId) {
+        int limite = filtro.getLimite() == null
+                ? LIMITE_PAGINA_DEFECTO
+                : Math.clamp(filtro.getLimite(), 1, LIMITE_PAGINA_MAXIMO);
+        if (filtro.getDesde() != null && filtro.getHasta() != null && filtro.getHasta().isBefore(filtro.getDesde())) {
+            throw new BusinessRuleException("La fecha 'hasta' debe ser posterior o igual a 'desde'");
+        }
+        String estado = filtro.getEstado() == null || filtro.getEstado().isBlank()
+                ? null
+                : filtro.getEstado().trim().toLowerCase();
+
+        List<ReservaCabecera> reservas = reservaRepository.buscarPagina(
+                filtro.getCursor() != null ? filtro.getCursor() : Long.MAX_VALUE,
+                clienteId, operadorId, estado, filtro.getRutaId(), filtro.getDesde(), filtro.getHasta(),
+                PageRequest.of(0, limite + 1));
+
+        boolean hayMas = reservas.size() > limite;
+        List<ReservaCabecera> pagina = hayMas ? reservas.subList(0, limite) : reservas;
+
+        return PaginaResponse.<ReservaResponse>builder()
+                .elementos(reservaLectura.ensamblar(pagina))
+                .siguienteCursor(hayMas ? pagina.getLast().id() : null)
+                .limite(limite)
+                .build();
     }
 
     /**
@@ -213,7 +234,7 @@ public class ReservaService {
      */
     @Transactional(readOnly = true)
     public ReservaResponse obtenerPorId(Long reservaId) {
-        Usuario actual = usuarioAutenticado();
+        UsuarioAutenticado actual = usuarioAutenticado();
 
         Reserva reserva = reservaRepository.findDetailedById(reservaId)
                 .orElseThrow(() -> new ResourceNotFoundException("Reserva no encontrada: " + reservaId));
@@ -232,7 +253,7 @@ public class ReservaService {
      */
     @Transactional
     public ReservaResponse cancelarReserva(Long reservaId) {
-        Usuario actual = usuarioAutenticado();
+        UsuarioAutenticado actual = usuarioAutenticado();
 
         Reserva reserva = reservaRepository.findDetailedById(reservaId)
                 .orElseThrow(() -> new ResourceNotFoundException("Reserva no encontrada: " + reservaId));
@@ -249,10 +270,25 @@ public class ReservaService {
             throw new BusinessRuleException("No puedes cancelar una reserva completada");
         }
 
+        Salida salida = reserva.getSalida();
+        bloqueoSalidas.bloquearSalida(salida.getRuta().getId(), salida.getFechaProgramada(), salida.getTiempoInicio());
+        if (cupoSalidas.liberar(salida, reserva.getCantPersonas()) == 0) {
+            cancelarSalidaVacia(salida);
+        }
         reserva.setEstado("cancelado");
         return reservaMapper.toResponse(reservaRepository.save(reserva));
     }
 
+    /**
+     * Cancela una salida que se quedo sin reservas activas y devuelve sus caballos y guias a la agenda.
+     * Debe llamarse con el bloqueo de la salida; una reserva posterior en la misma franja crea otra salida.
+     */
+    private void cancelarSalidaVacia(Salida salida) {
+        bloqueoSalidas.bloquearAgenda(salida.getFechaProgramada());
+        salida.setEstado("cancelado");
+        disponibilidadRecursos.liberarSalida(salida);
+    }
+
     // ===================== VALIDACIONES =====================
 
     /**
@@ -277,11 +313,16 @@ public class ReservaService {
                 .orElseThrow(() -> new ResourceNotFoundException("Ruta no encontrada: " + rutaId));
 
         LocalTime horaFin = horaInicio.plusMinutes(ruta.getDuracionMinutos());
+        bloqueoSalidas.bloquearAgenda(fecha);
 
-        List<Caballo> caballos = caballoRepository.findDisponibles(fecha, horaInicio, horaFin);
-        if (caballos.isEmpty()) {
-            throw new BusinessRuleException("No hay caballos disponibles para esa fecha y hora");
+        List<Long> libres = metricas.medir(MetricasReservas.ETAPA_DISPONIBILIDAD,
+                () -> disponibilidadRecursos.caballosLibres(fecha, horaInicio, horaFin));
+        if (libres.isEmpty()) {
+            throw new ReservaRechazadaException(ReservaRechazadaException.Motivo.SIN_CABALLOS,
+                    "No hay caballos disponibles para esa fecha y hora");
         }
+        List<Caballo> caballos = caballoRepository.findAllById(
+                libres.subList(0, Math.min(cantPersonas, libres.size())));
 
         Salida nueva = Salida.builder()
                 .ruta(ruta)
@@ -291,10 +332,13 @@ public class ReservaService {
                 .estado("programado")
                 .build();
 
-        caballos.stream().limit(cantPersonas).forEach(nueva::agregarCaballo);
+        caballos.forEach(nueva::agregarCaballo);
+        nueva.setCupoMaximo(caballos.size());
         asignarGuiasSalida(nueva, (long) cantPersonas);
 
-        return salidaRepository.save(nueva);
+        Salida guardada = salidaRepository.save(nueva);
+        disponibilidadRecursos.registrarSalida(guardada);
+        return guardada;
     }
 
     /**
@@ -310,52 +354,90 @@ public class ReservaService {
 
         if (guidesToAdd <= 0) return;
 
-        List<Guia> disponibles = guiaRepository.findDisponibles(
-                salida.getFechaProgramada(), salida.getTiempoInicio(), salida.getTiempoFin());
+        bloqueoSalidas.bloquearAgenda(salida.getFechaProgramada());
+
+        List<Long> disponibles = metricas.medir(MetricasReservas.ETAPA_DISPONIBILIDAD, () -> disponibilidadRecursos.guiasLibres(
+                salida.getFechaProgramada(), salida.getTiempoInicio(), salida.getTiempoFin()));
 
         if (disponibles.size() < guidesToAdd && esSalidaInminente(salida.getFechaProgramada())) {
-            throw new BusinessRuleException(
+            throw new ReservaRechazadaException(ReservaRechazadaException.Motivo.SIN_GUIAS,
                     "No hay guías disponibles para cubrir esta salida en la fecha indicada");
         }
 
-        disponibles.stream().limit(guidesToAdd).forEach(salida::agregarGuia);
+        List<Guia> nuevos = guiaRepository.findAllById(
+                disponibles.subList(0, Math.min(guidesToAdd, disponibles.size())));
+        nuevos.forEach(salida::agregarGuia);
+
+        // Las salidas nuevas se registran completas al guardarse
+        if (salida.getId() != null && !nuevos.isEmpty()) {
+            disponibilidadRecursos.registrarGuias(salida, nuevos);
+        }
     }
 
-    private boolean esSalidaInminente(LocalDate fecha) {
-        return !fecha.isAfter(LocalDate.now().plusDays(1));
+    private Participante nuevoParticipante(ParticipanteRequest pReq) {
+        return Participante.builder()
+                .primerNombre(pReq.getPrimerNombre().trim())
+                .primerApellido(pReq.getPrimerApellido().trim())
+                .tipoDocumento(TipoDocumento.fromString(pReq.getTipoDocumento()))
+                .documento(pReq.getDocumento().trim())
+                .edad(pReq.getEdad())
+                .cmAltura(pReq.getCmAltura())
+                .kgPeso(pReq.getKgPeso())
+                .build();
     }
 
     /**
-     * Validacion para determinar si hay suficientes cupos en la salida para realizar
-     * una reserva. El cupo maximo es el numero de caballos asignados a la salida.
-     * @param salida
-     * @param nuevosCupos
+     * Ajusta los participantes de la reserva a los solicitados, identificandolos por documento.
+     * Los que siguen se actualizan en su lugar, los nuevos se insertan y los ausentes se eliminan,
+     * en vez de borrar e insertar todos (Hibernate inserta antes de borrar, lo que ademas chocaria
+     * con la restriccion unica de documento por reserva).
      */
-    private void validarCupoDisponible(Salida salida, int nuevosCupos) {
-        long ocupados = reservaRepository.sumPersonasReservadasActivasBySalida(salida.getId());
-        int maximo = salida.getCaballos().size();
-
-        if (maximo == 0) {
-            throw new BusinessRuleException("La salida no tiene caballos asignados");
+    private void sincronizarParticipantes(Reserva reserva, List<ParticipanteRequest> solicitados) {
+        Map<String, Participante> actuales = new HashMap<>();
+        for (Participante p : reserva.getParticipantes()) {
+            actuales.put(p.getTipoDocumento() + ":" + p.getDocumento(), p);
         }
 
-        if (ocupados + nuevosCupos > maximo) {
-            throw new BusinessRuleException(
-                    "Cupo insuficiente. Disponibles: " + (maximo - ocupados) + ", solicitados: " + nuevosCupos
-            );
+        for (ParticipanteRequest pReq : solicitados) {
+            Participante nuevo = nuevoParticipante(pReq);
+            Participante existente = actuales.remove(nuevo.getTipoDocumento() + ":" + nuevo.getDocumento());
+            if (existente == null) {
+                reserva.agregarParticipante(nuevo);
+                continue;
+            }
+            existente.setPrimerNombre(nuevo.getPrimerNombre());
+            existente.setPrimerApellido(nuevo.getPrimerApellido());
+            existente.setEdad(nuevo.getEdad());
+            existente.setCmAltura(nuevo.getCmAltura());
+            existente.setKgPeso(nuevo.getKgPeso());
         }
+
+        actuales.values().forEach(reserva::eliminarParticipante);
+    }
+
+    private boolean esSalidaInminente(LocalDate fecha) {
+        return !fecha.isAfter(LocalDate.now().plusDays(1));
     }
 
     /**
-     * Metodo para obtener el usuario actual
+     * Metodo para obtener el usuario actual.
+     * Usa el principal construido desde el JWT; solo consulta la base de datos si la
+     * autenticacion no lo trae (por ejemplo, una autenticacion armada solo con el email).
      * @return
      */
-    private Usuario usuarioAutenticado() {
+    private UsuarioAutenticado usuarioAutenticado() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || auth.getName() == null) {
             throw new InvalidCredentialsException("Usuario no autenticado");
         }
+        if (auth.getPrincipal() instanceof UsuarioAutenticado principal) {
+            return principal;
+        }
+        if (auth.getPrincipal() instanceof Usuario usuario) {
+            return UsuarioAutenticado.desde(usuario);
+        }
         return usuarioRepository.findByEmail(auth.getName())
+                .map(UsuarioAutenticado::desde)
                 .orElseThrow(() -> new InvalidCredentialsException("Usuario autenticado no encontrado"));
     }
 
@@ -365,10 +447,10 @@ public class ReservaService {
      * @param reserva
      * @return
      */
-    private boolean puedeVerReserva(Usuario actual, Reserva reserva) {
+    private boolean puedeVerReserva(UsuarioAutenticado actual, Reserva reserva) {
         if (esAdmin(actual) || esOperador(actual)) return true;
         if (reserva.getCliente() == null) return false;
-        return reserva.getCliente().getId().equals(actual.getId());
+        return reserva.getCliente().getId().equals(actual.id());
     }
 
     /**
@@ -377,17 +459,17 @@ public class ReservaService {
      * @param reserva
      * @return
      */
-    private boolean puedeGestionarReserva(Usuario actual, Reserva reserva) {
+    private boolean puedeGestionarReserva(UsuarioAutenticado actual, Reserva reserva) {
         if (esOperador(actual)) return true;
         if (reserva.getCliente() == null) return false;
-        return reserva.getCliente().getId().equals(actual.getId());
+        return reserva.getCliente().getId().equals(actual.id());
     }
 
-    private boolean esAdmin(Usuario u) {
-        return u.getRole() == Rol.ADMINISTRADOR;
+    private boolean esAdmin(UsuarioAutenticado u) {
+        return u.rol() == Rol.ADMINISTRADOR;
     }
 
-    private boolean esOperador(Usuario u) {
-        return u.getRole() == Rol.OPERADOR;
+    private boolean esOperador(UsuarioAutenticado u) {
+        return u.rol() == Rol.OPERADOR;
     }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package horse_reserved.service;
+
+import horse_reserved.repository.UsuarioRepository;
+import horse_reserved.repository.UsuarioRepository.EstadoCredencial;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tabla en memoria de credenciales revocadas, para validar tokens sin consultar la base de datos.
+ *
+ * Solo contiene usuarios inactivos y usuarios que cambiaron su contraseña dentro de la ventana
+ * de vigencia de los tokens: cualquier token anterior a esa ventana ya expiro por si mismo.
+ * Los cambios hechos en esta instancia se registran de inmediato; los de otras instancias se
+ * ven al siguiente refresco desde {@code usuarios}.
+ */
+@Slf4j
+@Service
+public class RevocacionTokensService {
+
+    private final UsuarioRepository usuarioRepository;
+    private final long vigenciaTokensMs;
+
+    private record Credencial(long passwordCambiadaMs, boolean activo, long registradaMs) {}
+
+    private final Map<Long, Credencial> credenciales = new ConcurrentHashMap<>();
+    private volatile boolean cargada;
+
+    public RevocacionTokensService(UsuarioRepository usuarioRepository,
+                                   @Value("${jwt.expiration}") long vigenciaTokensMs) {
+        this.usuarioRepository = usuarioRepository;
+        this.vigenciaTokensMs = vigenciaTokensMs;
+    }
+
+    /**
+     * Indica si la tabla ya se cargo. Mientras no lo este, los tokens se validan contra la base de datos.
+     */
+    public boolean estaCargada() {
+        return cargada;
+    }
+
+    /**
+     * Un token sigue vigente si el usuario esta activo y el token se emitio con su contraseña actual.
+     * @param usuarioId          Id del usuario del token
+     * @param passwordCambiadaMs Instante del ultimo cambio de contraseña al emitir el token
+     */
+    public boolean esVigente(Long usuarioId, long passwordCambiadaMs) {
+        Credencial credencial = credenciales.get(usuarioId);
+        return credencial == null
+                || (credencial.activo() && credencial.passwordCambiadaMs() <= passwordCambiadaMs);
+    }
+
+    /**
+     * Registra un cambio de contraseña hecho en esta instancia
+     */
+    public void registrarCambioPassword(Long usuarioId, Instant cambiadaEn) {
+        long ahora = System.currentTimeMillis();
+        credenciales.merge(usuarioId, new Credencial(cambiadaEn.toEpochMilli(), true, ahora),
+                (anterior, nueva) -> new Credencial(
+                        Math.max(anterior.passwordCambiadaMs(), nueva.passwordCambiadaMs()), anterior.activo(), ahora));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        refrescar();
+        log.info("Tabla de revocacion de tokens cargada: {} usuarios", credenciales.size());
+    }
+
+    /**
+     * Recarga la tabla desde {@code usuarios}. Se descartan las entradas que ya no son revocables
+     * (reactivadas o fuera de la ventana), salvo las registradas localmente durante la consulta.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.revocacion-refresco-ms:30000}",
+            initialDelayString = "${app.auth.revocacion-refresco-ms:30000}")
+    public void refrescar() {
+        long inicio = System.currentTimeMillis();
+        List<EstadoCredencial> revocables =
+                usuarioRepository.findCredencialesRevocables(Instant.ofEpochMilli(inicio - vigenciaTokensMs));
+
+        Set<Long> vigentes = new HashSet<>();
+        for (EstadoCredencial estado : revocables) {
+            vigentes.add(estado.getId());
+            Credencial leida = new Credencial(estado.getPasswordChangedAt().toEpochMilli(),
+                    Boolean.TRUE.equals(estado.getActivo()), inicio);
+            credenciales.merge(estado.getId(), leida, (anterior, nueva) -> anterior.registradaMs() >= inicio
+                    ? new Credencial(Math.max(anterior.passwordCambiadaMs(), nueva.passwordCambiadaMs()),
+                            anterior.activo() && nueva.activo(), anterior.registradaMs())
+                    : nueva);
+        }
+        credenciales.entrySet().removeIf(e -> !vigentes.contains(e.getKey()) && e.getValue().registradaMs() < inicio);
+        cargada = true;
+    }
+}
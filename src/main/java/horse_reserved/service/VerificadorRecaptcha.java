@@ -0,0 +1,15 @@
+package horse_reserved.service;
+
+/**
+ * Verifica un token reCAPTCHA contra un proveedor. La implementacion se elige con
+ * {@code recaptcha.modo}: {@code google} (por defecto) o {@code stub} para pruebas y cargas sin red.
+ */
+public interface VerificadorRecaptcha {
+
+    /**
+     * @return true si el proveedor acepta el token, false si lo rechaza
+     * @throws RuntimeException si no se obtuvo respuesta (timeout, error de red o 5xx);
+     *         cuenta como fallo para el circuito de {@link RecaptchaService}
+     */
+    boolean verificar(String token);
+}
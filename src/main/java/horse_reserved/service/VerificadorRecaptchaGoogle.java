@@ -0,0 +1,64 @@
+package horse_reserved.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Verificacion con la API siteverify de Google.
+ *
+ * Usa un unico HttpClient del JDK, que mantiene abiertas y reutiliza las conexiones, con
+ * timeout de conexion y de lectura: una solicitud nunca espera mas que la suma de ambos.
+ */
+@Component
+@ConditionalOnProperty(name = "recaptcha.modo", havingValue = "google", matchIfMissing = true)
+public class VerificadorRecaptchaGoogle implements VerificadorRecaptcha {
+
+    private final RestClient restClient;
+    private final String url;
+    private final String secretoCodificado;
+
+    public VerificadorRecaptchaGoogle(@Value("${recaptcha.secret-key}") String secretKey,
+                                      @Value("${recaptcha.url:https://www.google.com/recaptcha/api/siteverify}") String url,
+                                      @Value("${recaptcha.timeout-conexion:2s}") Duration timeoutConexion,
+                                      @Value("${recaptcha.timeout-lectura:3s}") Duration timeoutLectura) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeoutConexion)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(timeoutLectura);
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+        this.url = url;
+        this.secretoCodificado = URLEncoder.encode(secretKey, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean verificar(String token) {
+        RecaptchaResponse response = restClient.post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body("secret=" + secretoCodificado + "&response=" + URLEncoder.encode(token, StandardCharsets.UTF_8))
+                .retrieve()
+                .body(RecaptchaResponse.class);
+        if (response == null) {
+            throw new IllegalStateException("Respuesta vacia de reCAPTCHA");
+        }
+        return response.success();
+    }
+
+    private record RecaptchaResponse(
+            boolean success,
+            @JsonProperty("challenge_ts") String challengeTs,
+            String hostname,
+            @JsonProperty("error-codes") String[] errorCodes
+    ) {}
+}
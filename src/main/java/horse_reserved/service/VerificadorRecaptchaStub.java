@@ -0,0 +1,41 @@
+package horse_reserved.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Verificador local para pruebas y pruebas de carga: no usa la red.
+ * Acepta cualquier token salvo {@value #TOKEN_INVALIDO}, que se rechaza, y {@value #TOKEN_ERROR},
+ * que simula un fallo del proveedor. {@code recaptcha.stub.latencia-ms} simula la latencia de Google.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "recaptcha.modo", havingValue = "stub")
+public class VerificadorRecaptchaStub implements VerificadorRecaptcha {
+
+    public static final String TOKEN_INVALIDO = "recaptcha-invalido";
+    public static final String TOKEN_ERROR = "recaptcha-error";
+
+    private final long latenciaNanos;
+
+    public VerificadorRecaptchaStub(@Value("${recaptcha.stub.latencia-ms:0}") long latenciaMs) {
+        this.latenciaNanos = TimeUnit.MILLISECONDS.toNanos(latenciaMs);
+        log.warn("reCAPTCHA en modo stub: los tokens no se verifican con Google");
+    }
+
+    @Override
+    public boolean verificar(String token) {
+        if (latenciaNanos > 0) {
+            LockSupport.parkNanos(latenciaNanos);
+        }
+        if (TOKEN_ERROR.equals(token)) {
+            throw new IllegalStateException("Fallo simulado del proveedor reCAPTCHA");
+        }
+        return !TOKEN_INVALIDO.equals(token);
+    }
+}
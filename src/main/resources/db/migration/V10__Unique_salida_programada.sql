@@ -0,0 +1,6 @@
+-- Solo puede existir una salida programada por ruta, fecha y hora de inicio.
+-- Es la ultima barrera contra salidas duplicadas creadas por reservas concurrentes;
+-- la aplicacion serializa la creacion con bloqueos asesores antes de llegar aqui.
+CREATE UNIQUE INDEX uq_salida_programada
+    ON salidas (ruta_id, fecha_programada, tiempo_inicio)
+    WHERE estado = 'programado';
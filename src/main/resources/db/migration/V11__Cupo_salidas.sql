@@ -0,0 +1,16 @@
+-- Contadores de cupo por salida, mantenidos por la aplicacion al crear, actualizar y cancelar reservas.
+-- cupo_maximo es el numero de caballos asignados; cupo_ocupado la suma de personas en reservas no canceladas.
+ALTER TABLE salidas
+    ADD COLUMN cupo_ocupado INT NOT NULL DEFAULT 0 CHECK (cupo_ocupado >= 0),
+    ADD COLUMN cupo_maximo  INT NOT NULL DEFAULT 0 CHECK (cupo_maximo >= 0);
+
+UPDATE salidas s
+SET cupo_ocupado = (SELECT coalesce(sum(r.num_people), 0)
+                    FROM reservaciones r
+                    WHERE r.salida_id = s.id AND r.estado <> 'cancelado'),
+    cupo_maximo  = (SELECT count(*)
+                    FROM salida_caballos sc
+                    WHERE sc.salida_id = s.id);
+
+COMMENT ON COLUMN salidas.cupo_ocupado IS 'Personas en reservas no canceladas. Se actualiza de forma atómica con cada reserva.';
+COMMENT ON COLUMN salidas.cupo_maximo  IS 'Cupo máximo de la salida: número de caballos asignados.';
@@ -0,0 +1,7 @@
+-- Indices para los listados de reservas paginados por cursor (id descendente)
+-- y para sus filtros por ruta y fecha de la salida.
+CREATE INDEX idx_reservaciones_cliente_id  ON reservaciones (client_id, id DESC);
+CREATE INDEX idx_reservaciones_operador_id ON reservaciones (operator_id, id DESC);
+CREATE INDEX idx_reservaciones_salida      ON reservaciones (salida_id);
+CREATE INDEX idx_salidas_ruta_fecha        ON salidas (ruta_id, fecha_programada);
+CREATE INDEX idx_salidas_fecha             ON salidas (fecha_programada);
@@ -0,0 +1,20 @@
+-- Secuencias con incremento 50 para salidas, reservaciones y participantes.
+-- Hibernate reserva un bloque de 50 ids por cada llamada (optimizador pooled), lo que le permite
+-- agrupar los INSERT en lotes JDBC; con IDENTITY tenia que insertar fila por fila para conocer el id.
+-- Las columnas usan la nueva secuencia como valor por defecto, asi que los INSERT manuales siguen funcionando
+-- y nunca chocan con los bloques de Hibernate (cada valor de la secuencia es el tope de un bloque distinto).
+
+CREATE SEQUENCE salidas_seq INCREMENT BY 50 OWNED BY salidas.id;
+SELECT setval('salidas_seq', (SELECT coalesce(max(id), 0) FROM salidas) + 50, false);
+ALTER TABLE salidas ALTER COLUMN id SET DEFAULT nextval('salidas_seq');
+DROP SEQUENCE IF EXISTS salidas_id_seq;
+
+CREATE SEQUENCE reservaciones_seq INCREMENT BY 50 OWNED BY reservaciones.id;
+SELECT setval('reservaciones_seq', (SELECT coalesce(max(id), 0) FROM reservaciones) + 50, false);
+ALTER TABLE reservaciones ALTER COLUMN id SET DEFAULT nextval('reservaciones_seq');
+DROP SEQUENCE IF EXISTS reservaciones_id_seq;
+
+CREATE SEQUENCE participantes_seq INCREMENT BY 50 OWNED BY participantes.id;
+SELECT setval('participantes_seq', (SELECT coalesce(max(id), 0) FROM participantes) + 50, false);
+ALTER TABLE participantes ALTER COLUMN id SET DEFAULT nextval('participantes_seq');
+DROP SEQUENCE IF EXISTS participantes_id_seq;
@@ -0,0 +1,13 @@
+-- Estado compartido de rate limiting entre instancias (app.rate-limit.backend=postgres).
+-- Cada fila es un token bucket con recarga continua; se actualiza con un unico
+-- INSERT ... ON CONFLICT DO UPDATE, por lo que el consumo es atomico.
+CREATE TABLE rate_limit_buckets (
+    regla       VARCHAR(200)     NOT NULL,
+    clave       VARCHAR(100)     NOT NULL,
+    tokens      DOUBLE PRECISION NOT NULL,
+    permitido   BOOLEAN          NOT NULL,
+    actualizado TIMESTAMPTZ      NOT NULL,
+    PRIMARY KEY (regla, clave)
+);
+
+CREATE INDEX idx_rate_limit_buckets_actualizado ON rate_limit_buckets (actualizado);
@@ -0,0 +1,5 @@
+-- Las reglas de rate limiting pueden tener varios limites (p. ej. por minuto y por hora):
+-- cada limite de una regla es un bucket independiente para la misma clave.
+ALTER TABLE rate_limit_buckets ADD COLUMN limite SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE rate_limit_buckets DROP CONSTRAINT rate_limit_buckets_pkey;
+ALTER TABLE rate_limit_buckets ADD PRIMARY KEY (regla, limite, clave);
@@ -0,0 +1,23 @@
+-- Tokens de refresco: permiten renovar el JWT de acceso sin volver a verificar la contraseña.
+-- Solo se guarda el SHA-256 del token. Cada uso rota el token dentro de la misma familia;
+-- reutilizar un token ya rotado revoca la familia completa.
+
+CREATE TABLE refresh_tokens (
+    id          BIGSERIAL   PRIMARY KEY,
+    usuario_id  BIGINT      NOT NULL REFERENCES usuarios (id) ON DELETE CASCADE,
+    token_hash  CHAR(64)    NOT NULL UNIQUE,
+    familia     UUID        NOT NULL,
+    expires_at  TIMESTAMPTZ NOT NULL,
+    created_at  TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    used_at     TIMESTAMPTZ,
+    revoked     BOOLEAN     NOT NULL DEFAULT FALSE
+);
+
+COMMENT ON TABLE  refresh_tokens            IS 'Tokens de refresco rotativos, guardados como hash.';
+COMMENT ON COLUMN refresh_tokens.token_hash IS 'SHA-256 en hexadecimal del token entregado al cliente.';
+COMMENT ON COLUMN refresh_tokens.familia    IS 'Cadena de rotaciones que nace en un login.';
+COMMENT ON COLUMN refresh_tokens.used_at    IS 'Momento en que el token se cambio por uno nuevo.';
+
+CREATE INDEX idx_refresh_tokens_familia    ON refresh_tokens (familia);
+CREATE INDEX idx_refresh_tokens_usuario_id ON refresh_tokens (usuario_id);
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
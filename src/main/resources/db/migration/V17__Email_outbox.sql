@@ -0,0 +1,26 @@
+-- Bandeja de salida de correos: el correo se inserta en la misma transaccion que el cambio
+-- de negocio y un despachador programado lo envia despues. Un fallo de SMTP no pierde el
+-- correo ni bloquea la solicitud; se reintenta con espera exponencial.
+
+CREATE TABLE email_outbox (
+    id               BIGSERIAL    PRIMARY KEY,
+    destinatario     VARCHAR(255) NOT NULL,
+    asunto           VARCHAR(255) NOT NULL,
+    cuerpo_html      TEXT         NOT NULL,
+    estado           VARCHAR(20)  NOT NULL DEFAULT 'pendiente',
+    intentos         INTEGER      NOT NULL DEFAULT 0,
+    proximo_intento  TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    bloqueado_hasta  TIMESTAMPTZ,
+    ultimo_error     TEXT,
+    created_at       TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    enviado_at       TIMESTAMPTZ,
+    CONSTRAINT chk_email_outbox_estado CHECK (estado IN ('pendiente', 'enviado', 'fallido'))
+);
+
+COMMENT ON TABLE  email_outbox                 IS 'Correos pendientes de envio y su historial reciente.';
+COMMENT ON COLUMN email_outbox.proximo_intento IS 'No se intenta enviar antes de este momento (espera entre reintentos).';
+COMMENT ON COLUMN email_outbox.bloqueado_hasta IS 'Arriendo del despachador que lo reclamo; vencido, otro despachador puede tomarlo.';
+
+-- Solo las filas pendientes participan en la busqueda del despachador
+CREATE INDEX idx_email_outbox_pendientes ON email_outbox (proximo_intento) WHERE estado = 'pendiente';
+CREATE INDEX idx_email_outbox_enviado_at ON email_outbox (enviado_at) WHERE estado = 'enviado';
@@ -0,0 +1,33 @@
+-- Bloqueo y version de la agenda de caballos y guias de cada fecha.
+-- Las reservas que asignan o liberan recursos toman el bloqueo de la fila de su fecha e incrementan
+-- la version en la misma sentencia. Una instancia cuya agenda en memoria tiene la version anterior
+-- sabe que nadie mas cambio ese dia y no necesita consultar la base de datos; si la version salto,
+-- recarga solo ese dia. Quien cambie salidas por fuera de la aplicacion debe borrar la fila de la fecha.
+CREATE TABLE agenda_versiones (
+    fecha   DATE   PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+-- Version de los caballos y guias activos. La incrementan los triggers de abajo con cualquier cambio,
+-- venga de la aplicacion o de fuera, y la agenda recarga los ids activos cuando la ve cambiar.
+CREATE TABLE recursos_version (
+    id      BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    version BIGINT  NOT NULL
+);
+
+INSERT INTO recursos_version (id, version) VALUES (TRUE, 0);
+
+CREATE FUNCTION incrementar_version_recursos() RETURNS trigger AS $$
+BEGIN
+    UPDATE recursos_version SET version = version + 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER caballos_version_recursos
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON caballos
+    FOR EACH STATEMENT EXECUTE FUNCTION incrementar_version_recursos();
+
+CREATE TRIGGER guias_version_recursos
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON guias
+    FOR EACH STATEMENT EXECUTE FUNCTION incrementar_version_recursos();
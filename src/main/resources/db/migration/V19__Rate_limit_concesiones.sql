@@ -0,0 +1,3 @@
+-- Cada consulta al bucket puede conceder varios tokens a la instancia que la hace, que los gasta
+-- en memoria sin volver a la base de datos. concedidos guarda cuantos entrego la ultima consulta.
+ALTER TABLE rate_limit_buckets ADD COLUMN concedidos INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,255 @@
+package horse_reserved;
+
+import horse_reserved.model.Rol;
+import horse_reserved.model.Usuario;
+import horse_reserved.service.JwtService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fija el numero exacto de sentencias SQL de cada endpoint: un N+1 nuevo o una asociacion que
+ * empieza a cargarse de forma perezosa hace fallar la prueba con el endpoint y la diferencia.
+ * Las sentencias se leen de {@code http.server.requests.consultas}, la misma metrica que se
+ * publica en produccion. Corre en {@code ./gradlew test} contra la base de datos local, como
+ * ReservaDeCabalgatasApplicationTests; los datos se confirman para que los vea el servidor y se
+ * borran al terminar.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "app.rate-limit.habilitado=false"
+})
+class ConsultasPorEndpointTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2099, 5, 1);
+    private static final LocalTime HORA = LocalTime.of(8, 0);
+    private static final String EMAIL_CLIENTE = "consultas-endpoint@test.com";
+    private static final String EMAIL_ADMIN = "consultas-endpoint-admin@test.com";
+    private static final String NOMBRE = "Prueba consultas";
+    private static final int CABALLOS = 20;
+    private static final int RESERVAS = 3;
+    private static final int HISTORIAL = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private Environment environment;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private DatosPrueba datos;
+    private Long rutaId;
+    private Long reservaId;
+    private String tokenCliente;
+    private String tokenAdmin;
+
+    @BeforeEach
+    void sembrarDatos() {
+        datos = new DatosPrueba(jdbcTemplate);
+        Long clienteId = datos.usuario(EMAIL_CLIENTE, "1", "CLIENTE");
+        Long adminId = datos.usuario(EMAIL_ADMIN, "2", "ADMINISTRADOR");
+        rutaId = datos.ruta(NOMBRE);
+        Long salidaId = jdbcTemplate.queryForObject("""
+                INSERT INTO salidas (ruta_id, fecha_programada, tiempo_inicio, tiempo_fin, estado,
+                                     cupo_maximo, cupo_ocupado)
+                VALUES (?, ?, ?, ?, 'programado', ?, ?) RETURNING id
+                """, Long.class, rutaId, FECHA, HORA, HORA.plusMinutes(60), CABALLOS, RESERVAS * 2);
+        datos.caballos(NOMBRE, CABALLOS);
+        jdbcTemplate.update("""
+                INSERT INTO salida_caballos (salida_id, horse_id)
+                SELECT ?, id FROM caballos WHERE nombre = ?
+                """, salidaId, NOMBRE);
+        // Un guia ya asignado a la salida y otro libre para las salidas nuevas
+        datos.guias(NOMBRE, 2);
+        jdbcTemplate.update("""
+                INSERT INTO salida_guias (salida_id, guia_id)
+                SELECT ?, min(id) FROM guias WHERE nombre = ?
+                """, salidaId, NOMBRE);
+        jdbcTemplate.update("""
+                INSERT INTO reservaciones (salida_id, client_id, num_people, estado, precio_unitario, total)
+                SELECT ?, ?, 2, 'reservado', 1000, 2000 FROM generate_series(1, ?)
+                """, salidaId, clienteId, RESERVAS);
+        jdbcTemplate.update("""
+                INSERT INTO participantes (reservacion_id, primer_nombre, primer_apellido, tipo_documento,
+                                           documento, edad, altura_cm, peso_kg)
+                SELECT r.id, 'Jinete', 'Prueba', 'CEDULA', r.id || '-' || p, 30, 170, 70
+                FROM reservaciones r CROSS JOIN generate_series(1, 2) p
+                WHERE r.salida_id = ?
+                """, salidaId);
+        reservaId = jdbcTemplate.queryForObject(
+                "SELECT max(id) FROM reservaciones WHERE salida_id = ?", Long.class, salidaId);
+
+        // La salida se inserto por fuera de la aplicacion: sin version del dia, la agenda lo relee al bloquearlo
+        olvidarAgenda();
+
+        tokenCliente = token(clienteId, EMAIL_CLIENTE, Rol.CLIENTE);
+        tokenAdmin = token(adminId, EMAIL_ADMIN, Rol.ADMINISTRADOR);
+    }
+
+    @AfterEach
+    void limpiarDatos() {
+        datos.borrar(rutaId, NOMBRE, EMAIL_CLIENTE, EMAIL_ADMIN);
+        olvidarAgenda();
+    }
+
+    private void olvidarAgenda() {
+        datos.olvidarAgenda(FECHA, FECHA.plusDays(2));
+    }
+
+    @Test
+    void lecturas_usanUnNumeroFijoDeSentencias() throws Exception {
+        // Pagina de cabeceras + participantes de la pagina en una sola consulta
+        assertThat(sentencias("GET", "/api/reservaciones/mias", get("/api/reservaciones/mias", tokenCliente), 200))
+                .isEqualTo(2);
+        assertThat(sentencias("GET", "/api/reservaciones", get("/api/reservaciones", tokenAdmin), 200))
+                .isEqualTo(2);
+        // Reserva con salida, ruta, cliente y participantes por @EntityGraph
+        assertThat(sentencias("GET", "/api/reservaciones/{id}",
+                get("/api/reservaciones/" + reservaId, tokenCliente), 200))
+                .isEqualTo(1);
+        assertThat(sentencias("GET", "/api/auth/me", get("/api/auth/me", tokenCliente), 200))
+                .isEqualTo(1);
+        assertThat(sentencias("GET", "/api/rutas/public", get("/api/rutas/public", null), 200))
+                .isEqualTo(1);
+        assertThat(sentencias("GET", "/api/rutas/public/{id}", get("/api/rutas/public/" + rutaId, null), 200))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void cancelar_usaCuatroSentencias() throws Exception {
+        HttpRequest cancelar = autenticada("/api/reservaciones/" + reservaId + "/cancelar", tokenCliente)
+                .method("PATCH", HttpRequest.BodyPublishers.noBody())
+                .build();
+
+        // Reserva con su grafo, bloqueo asesor de la salida, liberacion del cupo y actualizacion del estado.
+        // La salida conserva otras reservas, asi que no se cancela ni toca la agenda.
+        assertThat(sentencias("PATCH", "/api/reservaciones/{id}/cancelar", cancelar, 200)).isEqualTo(4);
+    }
+
+    @Test
+    void crearEnSalidaExistente_usaSieteSentencias() throws Exception {
+        // Bloqueo asesor, salida con caballos, cupo, guias de la salida, cliente para la respuesta,
+        // reserva y lote de participantes. El minimo descarta la recarga de un bloque de la secuencia.
+        long minimo = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            minimo = Math.min(minimo, sentencias("POST", "/api/reservaciones", crear(FECHA, HORA, 100 + i * 10), 201));
+        }
+
+        assertThat(minimo).isEqualTo(7);
+    }
+
+    @Test
+    void crearSalidaNueva_noDependeDelHistorialDeLosCaballos() throws Exception {
+        long sinHistorial = Math.min(
+                sentencias("POST", "/api/reservaciones", crear(FECHA.plusDays(1), HORA, 100), 201),
+                sentencias("POST", "/api/reservaciones", crear(FECHA.plusDays(1), HORA.plusHours(2), 200), 201));
+
+        // Cada caballo y guia activo queda con HISTORIAL salidas completadas
+        jdbcTemplate.update("""
+                INSERT INTO salidas (ruta_id, fecha_programada, tiempo_inicio, tiempo_fin, estado, cupo_maximo)
+                SELECT ?, DATE '2000-01-01' + g, '08:00', '09:00', 'completado', 0
+                FROM generate_series(0, ? - 1) g
+                """, rutaId, HISTORIAL);
+        jdbcTemplate.update("""
+                INSERT INTO salida_caballos (salida_id, horse_id)
+                SELECT s.id, c.id FROM salidas s CROSS JOIN caballos c
+                WHERE s.ruta_id = ? AND s.estado = 'completado' AND c.is_active
+                """, rutaId);
+        jdbcTemplate.update("""
+                INSERT INTO salida_guias (salida_id, guia_id)
+                SELECT s.id, g.id FROM salidas s CROSS JOIN guias g
+                WHERE s.ruta_id = ? AND s.estado = 'completado' AND g.is_active
+                """, rutaId);
+
+        long conHistorial = Math.min(
+                sentencias("POST", "/api/reservaciones", crear(FECHA.plusDays(2), HORA, 300), 201),
+                sentencias("POST", "/api/reservaciones", crear(FECHA.plusDays(2), HORA.plusHours(2), 400), 201));
+
+        assertThat(conHistorial).as("sentencias con %d salidas por caballo", HISTORIAL).isEqualTo(sinHistorial);
+    }
+
+    /**
+     * Envia la solicitud y devuelve las sentencias que registro el filtro para ese endpoint
+     */
+    private long sentencias(String metodo, String uri, HttpRequest request, int statusEsperado) throws Exception {
+        long solicitudesPrevias = solicitudes(metodo, uri);
+        double sentenciasPrevias = total(metodo, uri);
+
+        HttpResponse<String> respuesta = http.send(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(respuesta.statusCode()).as(respuesta.body()).isEqualTo(statusEsperado);
+
+        // El filtro registra en su finally, que puede correr despues de que el cliente recibe la respuesta
+        for (int i = 0; i < 200 && solicitudes(metodo, uri) == solicitudesPrevias; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(solicitudes(metodo, uri)).isEqualTo(solicitudesPrevias + 1);
+        return Math.round(total(metodo, uri) - sentenciasPrevias);
+    }
+
+    private long solicitudes(String metodo, String uri) {
+        return resumenes(metodo, uri).stream().mapToLong(DistributionSummary::count).sum();
+    }
+
+    private double total(String metodo, String uri) {
+        return resumenes(metodo, uri).stream().mapToDouble(DistributionSummary::totalAmount).sum();
+    }
+
+    private Collection<DistributionSummary> resumenes(String metodo, String uri) {
+        return registry.find("http.server.requests.consultas").tag("method", metodo).tag("uri", uri).summaries();
+    }
+
+    private HttpRequest get(String ruta, String token) {
+        return autenticada(ruta, token).GET().build();
+    }
+
+    private HttpRequest crear(LocalDate fecha, LocalTime hora, int documentoBase) {
+        String participantes = IntStream.range(0, 2)
+                .mapToObj(i -> """
+                        {"primerNombre":"Jinete","primerApellido":"Grupo","tipoDocumento":"CEDULA",\
+                        "documento":"%d","edad":30,"cmAltura":170,"kgPeso":70.00}""".formatted(documentoBase + i))
+                .collect(Collectors.joining(","));
+        String cuerpo = """
+                {"rutaId":%d,"fecha":"%s","horaInicio":"%s","cantPersonas":2,"participantes":[%s]}"""
+                .formatted(rutaId, fecha, hora, participantes);
+        return autenticada("/api/reservaciones", tokenCliente)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build();
+    }
+
+    private HttpRequest.Builder autenticada(String ruta, String token) {
+        int puerto = environment.getRequiredProperty("local.server.port", Integer.class);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta));
+        return token != null ? builder.header("Authorization", "Bearer " + token) : builder;
+    }
+
+    private String token(Long id, String email, Rol rol) {
+        Usuario usuario = Usuario.builder().id(id).email(email).role(rol).build();
+        return jwtService.generateToken(usuario);
+    }
+}
@@ -0,0 +1,91 @@
+package horse_reserved;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Siembra con JDBC los datos comunes de las pruebas contra la base de datos local: usuarios sin
+ * contraseña local, rutas, caballos y guias. Los caballos y guias llevan como nombre un marcador
+ * para poder borrarlos al terminar sin tocar otros datos.
+ */
+public final class DatosPrueba {
+
+    private final JdbcTemplate jdbc;
+
+    public DatosPrueba(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Usuario con cedula y sin contraseña local (como los registrados con Google)
+     * @return id del usuario
+     */
+    public Long usuario(String email, String documento, String rol) {
+        return jdbc.queryForObject("""
+                INSERT INTO usuarios (primer_nombre, primer_apellido, tipo_documento, documento, email,
+                                      password_hash, role, is_active)
+                VALUES ('Prueba', 'Datos', 'CEDULA', ?, ?, '', ?, TRUE) RETURNING id
+                """, Long.class, documento, email, rol);
+    }
+
+    /**
+     * Ruta activa de dificultad FACIL, 60 minutos
+     * @return id de la ruta
+     */
+    public Long ruta(String nombre) {
+        return jdbc.queryForObject("""
+                INSERT INTO rutas (nombre, descripcion, dificultad, duracion_minutos, is_active, precio)
+                VALUES (?, 'Ruta de prueba', 'FACIL', 60, TRUE, 1000) RETURNING id
+                """, Long.class, nombre);
+    }
+
+    /**
+     * Caballos activos con el nombre indicado
+     * @return ids de los caballos en orden de creacion
+     */
+    public List<Long> caballos(String nombre, int cantidad) {
+        return jdbc.queryForList("""
+                INSERT INTO caballos (nombre, raza, is_active)
+                SELECT ?, 'Criollo', TRUE FROM generate_series(1, ?) RETURNING id
+                """, Long.class, nombre, cantidad);
+    }
+
+    /**
+     * Guias activos con el nombre indicado
+     * @return ids de los guias en orden de creacion
+     */
+    public List<Long> guias(String nombre, int cantidad) {
+        return jdbc.queryForList("""
+                INSERT INTO guias (nombre, telefono, email, is_active)
+                SELECT ?, '3000000000', 'guia@test.com', TRUE FROM generate_series(1, ?) RETURNING id
+                """, Long.class, nombre, cantidad);
+    }
+
+    /**
+     * Borra la version de la agenda de los dias indicados. Hace falta tras insertar salidas por fuera
+     * de la aplicacion: sin version, la agenda en memoria vuelve a leer el dia al bloquearlo.
+     */
+    public void olvidarAgenda(LocalDate desde, LocalDate hasta) {
+        jdbc.update("DELETE FROM agenda_versiones WHERE fecha BETWEEN ? AND ?", desde, hasta);
+    }
+
+    /**
+     * Borra la ruta con sus salidas y reservas, los caballos y guias con el nombre indicado y los usuarios
+     */
+    public void borrar(Long rutaId, String nombreRecursos, String... emails) {
+        jdbc.update("""
+                DELETE FROM participantes WHERE reservacion_id IN
+                    (SELECT r.id FROM reservaciones r JOIN salidas s ON s.id = r.salida_id WHERE s.ruta_id = ?)
+                """, rutaId);
+        jdbc.update("DELETE FROM reservaciones WHERE salida_id IN (SELECT id FROM salidas WHERE ruta_id = ?)", rutaId);
+        jdbc.update("DELETE FROM salidas WHERE ruta_id = ?", rutaId);
+        jdbc.update("DELETE FROM rutas WHERE id = ?", rutaId);
+        jdbc.update("DELETE FROM caballos WHERE nombre = ?", nombreRecursos);
+        jdbc.update("DELETE FROM guias WHERE nombre = ?", nombreRecursos);
+        for (String email : emails) {
+            jdbc.update("DELETE FROM usuarios WHERE email = ?", email);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package horse_reserved;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara hilos de plataforma y virtuales bajo dependencias lentas: reCAPTCHA en modo stub con
+ * latencia y un servidor SMTP que acepta conexiones pero nunca responde, mientras el despachador
+ * intenta vaciar la bandeja de salida. Se carga POST /api/auth/forgot-password y se reporta
+ * rendimiento y p99 de cada modo; la comparacion depende de la maquina y no se verifica.
+ * Se ejecuta con {@code ./gradlew test -Pbenchmarks} contra la base de datos local.
+ */
+@Tag("benchmark")
+class HilosVirtualesBenchmarkTest {
+
+    private static final int CLIENTES = 400;
+    private static final int SOLICITUDES_POR_CLIENTE = 10;
+    private static final int CALENTAMIENTO = 200;
+    private static final int LATENCIA_RECAPTCHA_MS = 300;
+    private static final int CORREOS_PENDIENTES = 200;
+
+    record Medicion(String modo, int exitosas, int rechazadas, double porSegundo, long p50Ms, long p99Ms) {}
+
+    @Test
+    void hilosVirtuales_frenteAHilosDePlataforma() throws Exception {
+        List<Socket> conexionesSmtp = new ArrayList<>();
+        try (ServerSocket smtpLento = new ServerSocket(0)) {
+            Thread aceptador = Thread.ofVirtual().start(() -> aceptarSinResponder(smtpLento, conexionesSmtp));
+
+            Medicion plataforma = medir(false, smtpLento.getLocalPort());
+            Medicion virtuales = medir(true, smtpLento.getLocalPort());
+
+            for (Medicion m : List.of(plataforma, virtuales)) {
+                System.out.printf("%-10s %5d ok %4d 503 %8.1f sol/s  p50 %5d ms  p99 %5d ms%n",
+                        m.modo(), m.exitosas(), m.rechazadas(), m.porSegundo(), m.p50Ms(), m.p99Ms());
+            }
+            aceptador.interrupt();
+
+            assertThat(virtuales.exitosas() + virtuales.rechazadas()).isEqualTo(CLIENTES * SOLICITUDES_POR_CLIENTE);
+        } finally {
+            for (Socket conexion : conexionesSmtp) {
+                conexion.close();
+            }
+        }
+    }
+
+    private static Medicion medir(boolean virtual, int puertoSmtp) throws Exception {
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(ReservaDeCabalgatasApplication.class)
+                .properties(
+                        "server.port=0",
+                        "management.server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "spring.jpa.show-sql=false",
+                        "recaptcha.modo=stub",
+                        "recaptcha.stub.latencia-ms=" + LATENCIA_RECAPTCHA_MS,
+                        "app.rate-limit.habilitado=false",
+                        "spring.mail.host=localhost",
+                        "spring.mail.port=" + puertoSmtp,
+                        "spring.mail.username=",
+                        "spring.mail.password=",
+                        "spring.mail.properties.mail.smtp.auth=false",
+                        "spring.mail.properties.mail.smtp.starttls.enable=false",
+                        "spring.mail.properties.mail.smtp.starttls.required=false",
+                        "app.mail.from=noreply@benchmark.test",
+                        "app.mail.outbox.intervalo-ms=100")
+                .run();
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        try {
+            jdbc.batchUpdate("INSERT INTO email_outbox (destinatario, asunto, cuerpo_html) VALUES (?, 'Carga', '<p>Carga</p>')",
+                    IntStream.range(0, CORREOS_PENDIENTES)
+                            .mapToObj(i -> new Object[]{"correo-" + i + "@benchmark.test"})
+                            .toList());
+            int puerto = contexto.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            return cargar(virtual ? "virtuales" : "plataforma", puerto);
+        } finally {
+            jdbc.update("DELETE FROM email_outbox WHERE destinatario LIKE '%@benchmark.test'");
+            contexto.close();
+        }
+    }
+
+    private static Medicion cargar(String modo, int puerto) throws Exception {
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI uri = URI.create("http://localhost:" + puerto + "/api/auth/forgot-password");
+
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CALENTAMIENTO; i++) {
+                int n = i;
+                hilos.submit(() -> enviar(cliente, uri, "calentamiento-" + n));
+            }
+        }
+
+        long[] latencias = new long[CLIENTES * SOLICITUDES_POR_CLIENTE];
+        AtomicInteger indice = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        AtomicLong exitosas = new AtomicLong();
+        long inicio = System.nanoTime();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTES; c++) {
+                int clienteId = c;
+                hilos.submit(() -> {
+                    for (int s = 0; s < SOLICITUDES_POR_CLIENTE; s++) {
+                        long t0 = System.nanoTime();
+                        int status = enviar(cliente, uri, "cliente-" + clienteId + "-" + s);
+                        latencias[indice.getAndIncrement()] = System.nanoTime() - t0;
+                        if (status == 200) {
+                            exitosas.incrementAndGet();
+                        } else if (status == 503) {
+                            rechazadas.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        Arrays.sort(latencias);
+        return new Medicion(modo, (int) exitosas.get(), rechazadas.get(), latencias.length / segundos,
+                latencias[latencias.length / 2] / 1_000_000, latencias[(int) (latencias.length * 0.99)] / 1_000_000);
+    }
+
+    private static int enviar(HttpClient cliente, URI uri, String usuario) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"" + usuario + "@benchmark.test\",\"recaptchaToken\":\"carga\"}"))
+                .build();
+        try {
+            return cliente.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    // Servidor SMTP que nunca saluda: cada envio espera hasta el timeout de JavaMail
+    private static void aceptarSinResponder(ServerSocket servidor, List<Socket> conexiones) {
+        while (!servidor.isClosed()) {
+            try {
+                Socket conexion = servidor.accept();
+                synchronized (conexiones) {
+                    conexiones.add(conexion);
+                }
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package horse_reserved;
+
+import horse_reserved.repository.CaballoRepository;
+import horse_reserved.repository.GuiaRepository;
+import horse_reserved.repository.ParticipanteRepository;
+import horse_reserved.repository.ReservaRepository;
+import horse_reserved.repository.SalidaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Revisa con EXPLAIN los planes de las consultas de los repositorios que corren en cada solicitud
+ * y falla si alguna recorre completa una tabla grande. Se llama de verdad a cada metodo del
+ * repositorio: un proxy sobre el DataSource registra las sentencias que prepara Hibernate y los
+ * parametros que enlaza. Ese mismo SQL se prepara con PREPARE y se explica con EXPLAIN EXECUTE y
+ * esos mismos valores, forzando el plan generico (plan_cache_mode = force_generic_plan): es el plan
+ * que PostgreSQL termina reutilizando para una sentencia preparada del pool, y a diferencia del plan
+ * para valores concretos no puede aprovechar los parametros para descartar condiciones.
+ * Se ejecuta con {@code ./gradlew test -Pbenchmarks} sobre una base cargada con
+ * {@code ./gradlew :loadtest:generarDatos}; con menos de 100.000 reservas se omite, porque en
+ * tablas pequeñas el recorrido secuencial es el plan correcto.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@Tag("benchmark")
+class PlanesConsultaBenchmarkTest {
+
+    private static final long RESERVAS_MINIMAS = 100_000;
+    private static final Set<String> TABLAS_GRANDES = Set.of(
+            "usuarios", "salidas", "salida_caballos", "salida_guias", "reservaciones", "participantes");
+    private static final Pattern RECORRIDO_SECUENCIAL = Pattern.compile("Seq Scan on (\\w+)");
+
+    // Sentencias preparadas en el hilo actual mientras hay una captura en curso
+    private static final ThreadLocal<List<Sentencia>> CAPTURA = new ThreadLocal<>();
+
+    private record Enlace(Method metodo, Object[] argumentos) {}
+
+    private record Sentencia(String sql, List<Enlace> enlaces) {}
+
+    @TestConfiguration
+    static class CapturaSentencias {
+
+        @Bean
+        static BeanPostProcessor capturarSentencias() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    return bean instanceof DataSource dataSource ? envolver(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private ParticipanteRepository participanteRepository;
+
+    @Autowired
+    private SalidaRepository salidaRepository;
+
+    @Autowired
+    private CaballoRepository caballoRepository;
+
+    @Autowired
+    private GuiaRepository guiaRepository;
+
+    private Long clienteId;
+    private List<Long> reservaIds;
+    private Long rutaId;
+    private LocalDate fecha;
+    private LocalTime inicio;
+    private LocalTime fin;
+
+    @BeforeEach
+    void tomarParametros() {
+        Long reservas = jdbcTemplate.queryForObject(
+                "SELECT reltuples::bigint FROM pg_class WHERE relname = 'reservaciones'", Long.class);
+        assumeTrue(reservas != null && reservas >= RESERVAS_MINIMAS,
+                "Se necesitan al menos " + RESERVAS_MINIMAS + " reservas; cargar con ./gradlew :loadtest:generarDatos");
+
+        reservaIds = jdbcTemplate.queryForList("SELECT id FROM reservaciones ORDER BY id DESC LIMIT 20", Long.class);
+        clienteId = jdbcTemplate.queryForObject(
+                "SELECT client_id FROM reservaciones WHERE id = ?", Long.class, reservaIds.getFirst());
+        Map<String, Object> salida = jdbcTemplate.queryForMap("""
+                SELECT ruta_id, fecha_programada, tiempo_inicio, tiempo_fin FROM salidas
+                WHERE estado = 'programado' AND fecha_programada >= current_date
+                ORDER BY fecha_programada, tiempo_inicio
+                LIMIT 1
+                """);
+        rutaId = ((Number) salida.get("ruta_id")).longValue();
+        fecha = ((Date) salida.get("fecha_programada")).toLocalDate();
+        inicio = ((Time) salida.get("tiempo_inicio")).toLocalTime();
+        fin = ((Time) salida.get("tiempo_fin")).toLocalTime();
+    }
+
+    @Test
+    void misReservas() {
+        sinRecorridosSecuenciales("buscarPagina por cliente", () -> reservaRepository.buscarPagina(
+                Long.MAX_VALUE, clienteId, null, null, null, null, null, PageRequest.of(0, 21)));
+    }
+
+    @Test
+    void listadoAdministrador() {
+        sinRecorridosSecuenciales("buscarPagina sin filtros", () -> reservaRepository.buscarPagina(
+                Long.MAX_VALUE, null, null, null, null, null, null, PageRequest.of(0, 21)));
+    }
+
+    @Test
+    void listadoPorRutaYFecha() {
+        sinRecorridosSecuenciales("buscarPagina por ruta y fecha", () -> reservaRepository.buscarPagina(
+                Long.MAX_VALUE, null, null, null, rutaId, fecha, fecha.plusDays(30), PageRequest.of(0, 21)));
+    }
+
+    @Test
+    void participantesDeLaPagina() {
+        sinRecorridosSecuenciales("findFilasByReservaIds",
+                () -> participanteRepository.findFilasByReservaIds(reservaIds));
+    }
+
+    @Test
+    void detalleDeReserva() {
+        sinRecorridosSecuenciales("findDetailedById",
+                () -> reservaRepository.findDetailedById(reservaIds.getFirst()));
+    }
+
+    @Test
+    void salidaProgramada() {
+        sinRecorridosSecuenciales("findProgramadaByRutaAndFechaAndHora",
+                () -> salidaRepository.findProgramadaByRutaAndFechaAndHora(rutaId, fecha, inicio));
+    }
+
+    @Test
+    void cuposDeLaSemana() {
+        sinRecorridosSecuenciales("findCuposProgramadosByRutaEntre",
+                () -> salidaRepository.findCuposProgramadosByRutaEntre(rutaId, fecha, fecha.plusDays(6)));
+    }
+
+    @Test
+    void caballosDelDia() {
+        sinRecorridosSecuenciales("findAsignacionesCaballosEntre",
+                () -> salidaRepository.findAsignacionesCaballosEntre(fecha, fecha));
+    }
+
+    @Test
+    void guiasDelDia() {
+        sinRecorridosSecuenciales("findAsignacionesGuiasEntre",
+                () -> salidaRepository.findAsignacionesGuiasEntre(fecha, fecha));
+    }
+
+    @Test
+    void caballosDisponibles() {
+        sinRecorridosSecuenciales("CaballoRepository.findDisponibles",
+                () -> caballoRepository.findDisponibles(fecha, inicio, fin));
+    }
+
+    @Test
+    void guiasDisponibles() {
+        sinRecorridosSecuenciales("GuiaRepository.findDisponibles",
+                () -> guiaRepository.findDisponibles(fecha, inicio, fin));
+    }
+
+    private void sinRecorridosSecuenciales(String consulta, Runnable llamada) {
+        List<Sentencia> sentencias = new ArrayList<>();
+        CAPTURA.set(sentencias);
+        try {
+            llamada.run();
+        } finally {
+            CAPTURA.remove();
+        }
+
+        List<Sentencia> consultas = sentencias.stream()
+                .filter(s -> s.sql().stripLeading().toLowerCase(Locale.ROOT).startsWith("select"))
+                .toList();
+        assertThat(consultas).as("Sentencias de %s", consulta).isNotEmpty();
+
+        for (Sentencia sentencia : consultas) {
+            List<String> plan = explicar(sentencia);
+
+            List<String> recorridos = plan.stream()
+                    .map(RECORRIDO_SECUENCIAL::matcher)
+                    .filter(Matcher::find)
+                    .map(m -> m.group(1))
+                    .filter(TABLAS_GRANDES::contains)
+                    .toList();
+
+            assertThat(recorridos)
+                    .as("Recorrido secuencial en %s:%n%s%n%s", consulta, sentencia.sql(), String.join("\n", plan))
+                    .isEmpty();
+        }
+    }
+
+    /**
+     * Explica el plan generico de la sentencia capturada, ejecutandola con los mismos valores enlazados.
+     * Los valores se escriben como literales en EXECUTE: PostgreSQL los convierte al tipo de cada parametro.
+     */
+    private List<String> explicar(Sentencia sentencia) {
+        return jdbcTemplate.execute((ConnectionCallback<List<String>>) conexion -> {
+            try (Statement st = conexion.createStatement()) {
+                st.execute("SET plan_cache_mode = force_generic_plan");
+                st.execute("PREPARE plan_revisado AS " + numerarParametros(sentencia.sql()));
+                try {
+                    String explain = sentencia.enlaces().isEmpty()
+                            ? "EXPLAIN EXECUTE plan_revisado"
+                            : "EXPLAIN EXECUTE plan_revisado(" + literales(sentencia.enlaces()) + ")";
+                    List<String> plan = new ArrayList<>();
+                    try (ResultSet rs = st.executeQuery(explain)) {
+                        while (rs.next()) {
+                            plan.add(rs.getString(1));
+                        }
+                    }
+                    return plan;
+                } finally {
+                    st.execute("DEALLOCATE plan_revisado");
+                    st.execute("RESET plan_cache_mode");
+                }
+            }
+        });
+    }
+
+    /**
+     * Valores enlazados en orden de parametro como literales SQL; si un parametro se enlazo dos veces vale el ultimo
+     */
+    private static String literales(List<Enlace> enlaces) {
+        Map<Integer, String> porIndice = new TreeMap<>();
+        for (Enlace enlace : enlaces) {
+            Object valor = enlace.metodo().getName().equals("setNull") ? null : enlace.argumentos()[1];
+            // Los arreglos de Java (por ejemplo las listas de ids de un IN) se escriben como literal de arreglo
+            String texto = valor instanceof Object[] arreglo
+                    ? Arrays.stream(arreglo).map(String::valueOf).collect(Collectors.joining(",", "{", "}"))
+                    : String.valueOf(valor);
+            porIndice.put((Integer) enlace.argumentos()[0], valor == null ? "NULL" : "'" + texto.replace("'", "''") + "'");
+        }
+        return String.join(", ", porIndice.values());
+    }
+
+    /**
+     * Cambia los marcadores JDBC por los parametros numerados de PREPARE ($1, $2...), sin tocar los literales
+     */
+    private static String numerarParametros(String sql) {
+        StringBuilder numerada = new StringBuilder(sql.length() + 16);
+        boolean enLiteral = false;
+        int parametro = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '\'') {
+                enLiteral = !enLiteral;
+            }
+            if (c == '?' && !enLiteral) {
+                numerada.append('$').append(++parametro);
+            } else {
+                numerada.append(c);
+            }
+        }
+        return numerada.toString();
+    }
+
+    private static DataSource envolver(DataSource dataSource) {
+        return interceptar(DataSource.class, dataSource, (metodo, args, resultado) ->
+                resultado instanceof Connection conexion ? envolver(conexion) : resultado);
+    }
+
+    private static Connection envolver(Connection conexion) {
+        return interceptar(Connection.class, conexion, (metodo, args, resultado) -> {
+            List<Sentencia> captura = CAPTURA.get();
+            if (captura == null || !(resultado instanceof PreparedStatement ps)
+                    || !metodo.getName().equals("prepareStatement")) {
+                return resultado;
+            }
+            Sentencia sentencia = new Sentencia((String) args[0], new ArrayList<>());
+            captura.add(sentencia);
+            // Los setters de parametros reciben el indice y el valor; setFetchSize y similares, un solo argumento
+            return interceptar(PreparedStatement.class, ps, (m, a, r) -> {
+                if (m.getName().startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer) {
+                    sentencia.enlaces().add(new Enlace(m, a.clone()));
+                }
+                return r;
+            });
+        });
+    }
+
+    private interface Interceptor {
+        Object despues(Method metodo, Object[] args, Object resultado);
+    }
+
+    private static <T> T interceptar(Class<T> tipo, T destino, Interceptor interceptor) {
+        ClassLoader cargador = PlanesConsultaBenchmarkTest.class.getClassLoader();
+        return tipo.cast(Proxy.newProxyInstance(cargador, new Class<?>[]{tipo}, (proxy, metodo, args) -> {
+            if (metodo.getName().equals("equals") && args != null && args.length == 1) {
+                return proxy == args[0];
+            }
+            try {
+                return interceptor.despues(metodo, args, metodo.invoke(destino, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+}
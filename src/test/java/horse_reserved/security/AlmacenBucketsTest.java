@@ -0,0 +1,74 @@
+package horse_reserved.security;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlmacenBucketsTest {
+
+    private static final Supplier<Bucket> FABRICA = () -> Bucket.builder()
+            .addLimit(Bandwidth.builder().capacity(5).refillIntervally(5, Duration.ofMinutes(1)).build())
+            .build();
+
+    @Test
+    void millonDeClavesDistintas_noSuperaLaCapacidad() {
+        AlmacenBuckets almacen = new AlmacenBuckets(FABRICA, 10_000, Duration.ofMinutes(10));
+
+        for (int i = 0; i < 1_000_000; i++) {
+            almacen.obtener("10." + (i >>> 16) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF));
+        }
+
+        // Cada clave que no cabe desaloja otra: lo retenido queda acotado por la capacidad
+        assertThat(almacen.tamano()).isLessThanOrEqualTo(10_000);
+        assertThat(almacen.desalojosPorCapacidad()).isEqualTo(1_000_000L - almacen.tamano());
+    }
+
+    @Test
+    void claveExistente_devuelveElMismoBucketSinReservarMemoria() {
+        AlmacenBuckets almacen = new AlmacenBuckets(FABRICA, 1_000, Duration.ofMinutes(10));
+        String clave = "192.168.0.1";
+        Bucket bucket = almacen.obtener(clave);
+        for (int i = 0; i < 10_000; i++) {
+            almacen.obtener(clave);
+        }
+
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().threadId();
+        long antes = hilos.getThreadAllocatedBytes(hilo);
+        int distintos = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (almacen.obtener(clave) != bucket) {
+                distintos++;
+            }
+        }
+        long reservados = hilos.getThreadAllocatedBytes(hilo) - antes;
+
+        assertThat(distintos).isZero();
+        assertThat(reservados).isLessThan(100_000);
+    }
+
+    @Test
+    void bucketInactivo_seDescartaYSeRecreaLleno() {
+        AtomicLong reloj = new AtomicLong();
+        AlmacenBuckets almacen = new AlmacenBuckets(FABRICA, 1_000, Duration.ofSeconds(60), reloj::get);
+
+        Bucket agotado = almacen.obtener("10.0.0.1");
+        agotado.tryConsume(5);
+        reloj.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertThat(almacen.obtener("10.0.0.1")).isSameAs(agotado);
+
+        reloj.addAndGet(Duration.ofSeconds(61).toNanos());
+        almacen.purgarInactivos();
+
+        assertThat(almacen.tamano()).isZero();
+        assertThat(almacen.desalojosPorInactividad()).isEqualTo(1);
+        assertThat(almacen.obtener("10.0.0.1").getAvailableTokens()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,107 @@
+package horse_reserved.security;
+
+import horse_reserved.model.Rol;
+import horse_reserved.model.Usuario;
+import horse_reserved.repository.UsuarioRepository;
+import horse_reserved.service.JwtService;
+import horse_reserved.service.RevocacionTokensService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRETO = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtService jwtService;
+    private UserDetailsService userDetailsService;
+    private UsuarioRepository usuarioRepository;
+    private RevocacionTokensService revocacion;
+    private JwtAuthenticationFilter filter;
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRETO, 60_000L);
+        userDetailsService = mock(UserDetailsService.class);
+        usuarioRepository = mock(UsuarioRepository.class);
+        when(usuarioRepository.findCredencialesRevocables(any())).thenReturn(List.of());
+        revocacion = new RevocacionTokensService(usuarioRepository, 60_000L);
+        revocacion.refrescar();
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, revocacion);
+
+        usuario = Usuario.builder().id(7L).email("operador@test.com").role(Rol.OPERADOR)
+                .passwordChangedAt(Instant.ofEpochMilli(1_000)).isActive(true).build();
+    }
+
+    @AfterEach
+    void limpiarContexto() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenConClaims_autenticaSinConsultarLaBaseDeDatos() throws Exception {
+        Authentication auth = filtrar(jwtService.generateToken(usuario));
+
+        assertThat(auth.getPrincipal()).isEqualTo(new UsuarioAutenticado(7L, "operador@test.com", Rol.OPERADOR));
+        assertThat(auth.getName()).isEqualTo("operador@test.com");
+        assertThat(auth.getAuthorities()).extracting(Object::toString).containsExactly("OPERADOR");
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void cambioDePassword_revocaLosTokensAnteriores() throws Exception {
+        String anterior = jwtService.generateToken(usuario);
+        usuario.setPasswordChangedAt(Instant.ofEpochMilli(5_000));
+        revocacion.registrarCambioPassword(7L, usuario.getPasswordChangedAt());
+
+        assertThat(filtrar(anterior)).isNull();
+        SecurityContextHolder.clearContext();
+        assertThat(filtrar(jwtService.generateToken(usuario))).isNotNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void usuarioDesactivado_seRevocaAlRefrescarLaTabla() throws Exception {
+        String token = jwtService.generateToken(usuario);
+        UsuarioRepository.EstadoCredencial inactivo = mock(UsuarioRepository.EstadoCredencial.class);
+        when(inactivo.getId()).thenReturn(7L);
+        when(inactivo.getPasswordChangedAt()).thenReturn(usuario.getPasswordChangedAt());
+        when(inactivo.getActivo()).thenReturn(false);
+        when(usuarioRepository.findCredencialesRevocables(any())).thenReturn(List.of(inactivo));
+
+        revocacion.refrescar();
+
+        assertThat(filtrar(token)).isNull();
+    }
+
+    @Test
+    void tokenSinClaims_seValidaContraLaBaseDeDatos() throws Exception {
+        when(userDetailsService.loadUserByUsername("operador@test.com")).thenReturn(usuario);
+
+        Authentication auth = filtrar(jwtService.generateToken(Usuario.builder().email("operador@test.com").build()));
+
+        assertThat(auth.getPrincipal()).isSameAs(usuario);
+        verify(userDetailsService).loadUserByUsername("operador@test.com");
+    }
+
+    private Authentication filtrar(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reservaciones/mias");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,47 @@
+package horse_reserved.security;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LimiteConcurrenciaFilterTest {
+
+    private LimiteConcurrenciaFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        // Un pool de una conexion y una solicitud por conexion: un solo permiso, sin espera
+        filter = new LimiteConcurrenciaFilter(1, 1, 0);
+    }
+
+    @Test
+    void solicitudSincrona_devuelveElPermisoAlTerminar() throws Exception {
+        assertThat(ejecutar((req, res) -> {}).getStatus()).isEqualTo(200);
+        assertThat(ejecutar((req, res) -> {}).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void solicitudAsincrona_conservaElPermisoHastaCompletarLaRespuesta() throws Exception {
+        MockHttpServletRequest exportacion = new MockHttpServletRequest("GET", "/api/reservaciones/exportar");
+        exportacion.setAsyncSupported(true);
+        filter.doFilter(exportacion, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        MockHttpServletResponse rechazada = ejecutar((req, res) -> {});
+        assertThat(rechazada.getStatus()).isEqualTo(503);
+        assertThat(rechazada.getHeader("Retry-After")).isEqualTo("1");
+
+        exportacion.getAsyncContext().complete();
+
+        assertThat(ejecutar((req, res) -> {}).getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse ejecutar(FilterChain cadena) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/rutas/public"), response, cadena);
+        return response;
+    }
+}
@@ -0,0 +1,77 @@
+package horse_reserved.security;
+
+import horse_reserved.exception.ServicioSaturadoException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordEncoderAcotadoTest {
+
+    private PasswordEncoderAcotado encoder;
+
+    @AfterEach
+    void cerrar() {
+        encoder.destroy();
+    }
+
+    @Test
+    void encodeYMatches_usanBCryptConElCostoConfigurado() {
+        encoder = new PasswordEncoderAcotado(4, 1, 4, 5_000, 2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        String hash = encoder.encode("secreta123");
+
+        assertThat(hash).startsWith("$2a$04$");
+        assertThat(encoder.matches("secreta123", hash)).isTrue();
+        assertThat(encoder.matches("otra", hash)).isFalse();
+        assertThat(encoder.matches("secreta123", null)).isFalse();
+        assertThat(registry.get("hashing.duracion").tag("operacion", "matches").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void hashDeMenorCosto_seMarcaParaRecalcular() {
+        encoder = new PasswordEncoderAcotado(5, 1, 4, 5_000, 2);
+
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secreta123"))).isTrue();
+        assertThat(encoder.upgradeEncoding(encoder.encode("secreta123"))).isFalse();
+    }
+
+    @Test
+    void colaLlena_rechazaDeInmediatoConRetryAfter() {
+        // Un hilo y una tarea en cola: con costo 14 cada hash tarda lo suficiente para saturar
+        encoder = new PasswordEncoderAcotado(14, 1, 1, 30_000, 3);
+        List<CompletableFuture<String>> enCurso = new ArrayList<>();
+        enCurso.add(CompletableFuture.supplyAsync(() -> encoder.encode("a")));
+        enCurso.add(CompletableFuture.supplyAsync(() -> encoder.encode("b")));
+        while (encoder.enCola() < 1) {
+            Thread.onSpinWait();
+        }
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> encoder.encode("c"))
+                .isInstanceOf(ServicioSaturadoException.class)
+                .extracting(e -> ((ServicioSaturadoException) e).getReintentarEnSegundos())
+                .isEqualTo(3L);
+        assertThat(System.nanoTime() - inicio).isLessThan(100_000_000L);
+        assertThat(encoder.rechazos()).isEqualTo(1);
+        // Con trabajo pendiente no se piden recalculos de costo
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("x"))).isFalse();
+        enCurso.forEach(f -> f.cancel(true));
+    }
+
+    @Test
+    void esperaAgotada_respondeSaturado() {
+        encoder = new PasswordEncoderAcotado(14, 1, 4, 1, 2);
+
+        assertThatThrownBy(() -> encoder.encode("lenta")).isInstanceOf(ServicioSaturadoException.class);
+    }
+}
@@ -0,0 +1,66 @@
+package horse_reserved.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dos backends PostgreSQL independientes (como dos instancias de la aplicacion) comparten el
+ * mismo limite: entre ambos nunca se permiten mas solicitudes que la capacidad del bucket.
+ * Se ejecuta con {@code ./gradlew test -Pbenchmarks} contra la base de datos local.
+ */
+@SpringBootTest
+@Tag("benchmark")
+class RateLimitClusterBenchmarkTest {
+
+    private static final String REGLA = "/benchmark/rate-limit-cluster";
+    private static final LimiteTasa LIMITE = new LimiteTasa(20, 20, Duration.ofHours(1));
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM rate_limit_buckets WHERE regla = ?", REGLA);
+    }
+
+    @Test
+    void dosInstancias_compartenElLimite() throws Exception {
+        RateLimitPostgres nodoA = new RateLimitPostgres(dataSource, false, 1, 10);
+        RateLimitPostgres nodoB = new RateLimitPostgres(dataSource, false, 1, 10);
+
+        List<Future<Boolean>> intentos = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 200; i++) {
+                RateLimitPostgres nodo = i % 2 == 0 ? nodoA : nodoB;
+                intentos.add(hilos.submit(() -> nodo.consumir(REGLA, "10.0.0.1", List.of(LIMITE)).permitido()));
+            }
+        }
+
+        long permitidos = 0;
+        for (Future<Boolean> intento : intentos) {
+            if (intento.get()) {
+                permitidos++;
+            }
+        }
+        System.out.printf("Permitidos entre dos instancias: %d de 200 (capacidad %d)%n", permitidos, LIMITE.capacidad());
+
+        assertThat(permitidos).isEqualTo(LIMITE.capacidad());
+    }
+}
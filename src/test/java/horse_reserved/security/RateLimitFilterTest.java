@@ -170,6 +170,14 @@ class RateLimitFilterTest {
                 .contains("\"message\"");
     }
 
+    @Test
+    void login_rutaCodificadaCuentaComoLaMismaRuta() throws Exception {
+        exhaust("/api/auth/login", 5);
+
+        assertThat(doRequest("/api/auth/%6Cogin").getStatus()).isEqualTo(429);
+        assertThat(doRequest("/api/auth/login;jsessionid=1").getStatus()).isEqualTo(429);
+    }
+
     // =========================================================
     // Aislamiento por IP
     // =========================================================
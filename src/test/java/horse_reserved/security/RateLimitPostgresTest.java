@@ -0,0 +1,80 @@
+package horse_reserved.security;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RateLimitPostgresTest {
+
+    private static final List<LimiteTasa> LIMITES = List.of(new LimiteTasa(5, 5, Duration.ofMinutes(1)));
+
+    @Test
+    void falloAbierto_permiteLaSolicitudSiLaBaseDeDatosNoResponde() throws Exception {
+        RateLimitPostgres backend = new RateLimitPostgres(dataSourceCaido(), true, 1, 10);
+
+        assertThat(backend.consumir("login", "10.0.0.1", LIMITES).permitido()).isTrue();
+    }
+
+    @Test
+    void falloCerrado_rechazaLaSolicitudConLaVentanaComoEspera() throws Exception {
+        RateLimitPostgres backend = new RateLimitPostgres(dataSourceCaido(), false, 1, 10);
+
+        RateLimitBackend.Resultado resultado = backend.consumir("login", "10.0.0.1", LIMITES);
+
+        assertThat(resultado.permitido()).isFalse();
+        assertThat(resultado.esperaSegundos()).isEqualTo(60);
+    }
+
+    @Test
+    void tokensConcedidos_seGastanSinVolverALaBaseDeDatos() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection conexion = mock(Connection.class);
+        PreparedStatement sentencia = mock(PreparedStatement.class);
+        ResultSet fila = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(conexion);
+        when(conexion.prepareStatement(anyString())).thenReturn(sentencia);
+        when(sentencia.executeQuery()).thenReturn(fila);
+        when(fila.next()).thenReturn(true, false, true, false);
+        when(fila.getInt("concedidos")).thenReturn(5, 0);
+        when(fila.getDouble("tokens")).thenReturn(45.0, 0.5);
+        // Capacidad 50: cada consulta concede a lo sumo 5 tokens
+        List<LimiteTasa> limites = List.of(new LimiteTasa(50, 50, Duration.ofMinutes(1)));
+        RateLimitPostgres backend = new RateLimitPostgres(dataSource, false, 1, 10);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(backend.consumir("api", "10.0.0.1", limites).permitido()).isTrue();
+        }
+        verify(sentencia, times(1)).executeQuery();
+
+        assertThat(backend.consumir("api", "10.0.0.1", limites).permitido()).isFalse();
+        verify(sentencia, times(2)).executeQuery();
+    }
+
+    @Test
+    void claveAlmacenada_acortaLasClavesQueNoCabenEnLaColumna() {
+        String larga = "10.0.0.1, ".repeat(50);
+
+        String almacenada = RateLimitPostgres.claveAlmacenada(larga);
+
+        assertThat(almacenada).hasSizeLessThanOrEqualTo(100);
+        assertThat(RateLimitPostgres.claveAlmacenada(larga)).isEqualTo(almacenada);
+        assertThat(RateLimitPostgres.claveAlmacenada(larga + "x")).isNotEqualTo(almacenada);
+        assertThat(RateLimitPostgres.claveAlmacenada("10.0.0.1")).isEqualTo("10.0.0.1");
+    }
+
+    private static DataSource dataSourceCaido() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+        return dataSource;
+    }
+}
@@ -0,0 +1,113 @@
+package horse_reserved.security;
+
+import horse_reserved.config.RateLimitProperties;
+import horse_reserved.config.RateLimitProperties.Limite;
+import horse_reserved.config.RateLimitProperties.Regla;
+import horse_reserved.config.RateLimitProperties.TipoClave;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReglasRateLimitTest {
+
+    @AfterEach
+    void limpiarContexto() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void patronConVariable_aplicaSoloAlMetodoConfigurado() {
+        ReglasRateLimit reglas = ReglasRateLimit.compilar(propiedades(
+                regla("modificar-reserva", "/api/reservaciones/{id}/**", List.of("patch"), TipoClave.USUARIO,
+                        new Limite(10, 10, Duration.ofMinutes(1)))));
+
+        assertThat(reglas.buscar("PATCH", "/api/reservaciones/15")).isNotNull();
+        assertThat(reglas.buscar("PATCH", "/api/reservaciones/15/cancelar")).isNotNull();
+        assertThat(reglas.buscar("GET", "/api/reservaciones/15")).isNull();
+        assertThat(reglas.buscar("PATCH", "/api/rutas/15")).isNull();
+    }
+
+    @Test
+    void reglasDeshabilitadas_noLimitanNinguna() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setHabilitado(false);
+
+        assertThat(ReglasRateLimit.compilar(properties).buscar("POST", "/api/auth/login")).isNull();
+    }
+
+    @Test
+    void variosLimites_rechazaAlAgotarElMasEstricto() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(new RateLimitLocal(), propiedades(
+                regla("crear-reserva", "/api/reservaciones", List.of("POST"), TipoClave.USUARIO,
+                        new Limite(5, 5, Duration.ofMinutes(1)), new Limite(3, 3, Duration.ofHours(1)))));
+
+        assertThat(reservar(filter, "ana@test.com")).isEqualTo(200);
+        assertThat(reservar(filter, "ana@test.com")).isEqualTo(200);
+        assertThat(reservar(filter, "ana@test.com")).isEqualTo(200);
+        MockHttpServletResponse rechazada = new MockHttpServletResponse();
+        filter.doFilter(solicitudReserva("ana@test.com"), rechazada, new MockFilterChain());
+
+        assertThat(rechazada.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rechazada.getHeader("Retry-After"))).isGreaterThan(60);
+        // La clave es el usuario, no la IP: otro usuario desde la misma IP no se ve afectado
+        assertThat(reservar(filter, "luis@test.com")).isEqualTo(200);
+    }
+
+    @Test
+    void archivoExterno_reemplazaLasReglas(@TempDir Path directorio) throws Exception {
+        Path archivo = directorio.resolve("rate-limit.properties");
+        Files.writeString(archivo, """
+                app.rate-limit.reglas[0].nombre=salidas
+                app.rate-limit.reglas[0].patron=/api/salidas/**
+                app.rate-limit.reglas[0].clave=usuario
+                app.rate-limit.reglas[0].limites[0].capacidad=2
+                app.rate-limit.reglas[0].limites[0].recarga=2
+                app.rate-limit.reglas[0].limites[0].ventana=30s
+                """);
+
+        ReglasRateLimit reglas = ReglasRateLimit.compilar(RecargaReglasRateLimit.leer(archivo));
+
+        ReglasRateLimit.Regla regla = reglas.buscar("GET", "/api/salidas/3");
+        assertThat(regla.tipoClave()).isEqualTo(TipoClave.USUARIO);
+        assertThat(regla.limites()).containsExactly(new LimiteTasa(2, 2, Duration.ofSeconds(30)));
+        assertThat(reglas.buscar("POST", "/api/auth/login")).isNull();
+    }
+
+    private static int reservar(RateLimitFilter filter, String email) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(solicitudReserva(email), response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest solicitudReserva(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                email, null, List.of(new SimpleGrantedAuthority("CLIENTE"))));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/reservaciones");
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+
+    private static Regla regla(String nombre, String patron, List<String> metodos, TipoClave clave, Limite... limites) {
+        return new Regla(nombre, patron, new ArrayList<>(metodos), clave, new ArrayList<>(List.of(limites)));
+    }
+
+    private static RateLimitProperties propiedades(Regla... reglas) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setReglas(new ArrayList<>(List.of(reglas)));
+        return properties;
+    }
+}
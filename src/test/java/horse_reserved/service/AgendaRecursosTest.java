@@ -0,0 +1,109 @@
+package horse_reserved.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgendaRecursosTest {
+
+    private static final LocalDate HOY = LocalDate.of(2026, 3, 7);
+
+    private AgendaRecursos agenda;
+
+    @BeforeEach
+    void setUp() {
+        agenda = new AgendaRecursos();
+        // Salida 1: 08:00-09:30 con caballos 1,2 y guia 10
+        agenda.registrar(1L, HOY, LocalTime.of(8, 0), LocalTime.of(9, 30), List.of(1L, 2L), List.of(10L));
+    }
+
+    // =========================================================
+    // Solapamiento de intervalos
+    // =========================================================
+
+    @Test
+    void intervaloQueSeSolapa_devuelveRecursosOcupados() {
+        assertThat(agenda.caballosOcupados(HOY, LocalTime.of(9, 0), LocalTime.of(10, 0)))
+                .containsExactlyInAnyOrder(1L, 2L);
+        assertThat(agenda.guiasOcupados(HOY, LocalTime.of(7, 0), LocalTime.of(8, 30)))
+                .containsExactly(10L);
+    }
+
+    @Test
+    void intervalosContiguos_noSeSolapan() {
+        assertThat(agenda.caballosOcupados(HOY, LocalTime.of(9, 30), LocalTime.of(11, 0))).isEmpty();
+        assertThat(agenda.caballosOcupados(HOY, LocalTime.of(6, 30), LocalTime.of(8, 0))).isEmpty();
+    }
+
+    @Test
+    void salidaLargaQueEmpiezaAntes_seDetecta() {
+        agenda.registrar(2L, HOY, LocalTime.of(5, 0), LocalTime.of(12, 0), List.of(3L), List.of());
+
+        assertThat(agenda.caballosOcupados(HOY, LocalTime.of(11, 0), LocalTime.of(11, 30)))
+                .containsExactly(3L);
+    }
+
+    @Test
+    void otraFecha_noTieneRecursosOcupados() {
+        assertThat(agenda.caballosOcupados(HOY.plusDays(1), LocalTime.of(8, 0), LocalTime.of(9, 30))).isEmpty();
+    }
+
+    // =========================================================
+    // Actualizaciones
+    // =========================================================
+
+    @Test
+    void liberar_dejaLosRecursosLibres() {
+        assertThat(agenda.liberar(1L, HOY)).isTrue();
+        assertThat(agenda.caballosOcupados(HOY, LocalTime.of(8, 0), LocalTime.of(9, 30))).isEmpty();
+        assertThat(agenda.liberar(1L, HOY)).isFalse();
+    }
+
+    @Test
+    void agregarYQuitarGuias() {
+        agenda.agregarGuias(1L, HOY, List.of(11L));
+        assertThat(agenda.guiasOcupados(HOY, LocalTime.of(8, 0), LocalTime.of(9, 0)))
+                .containsExactlyInAnyOrder(10L, 11L);
+
+        agenda.quitarGuias(1L, HOY, List.of(11L));
+        assertThat(agenda.guiasOcupados(HOY, LocalTime.of(8, 0), LocalTime.of(9, 0)))
+                .containsExactly(10L);
+    }
+
+    // =========================================================
+    // Reconciliacion
+    // =========================================================
+
+    @Test
+    void reconciliar_corrigeContraLaReferencia() {
+        AgendaRecursos referencia = new AgendaRecursos();
+        referencia.registrar(1L, HOY, LocalTime.of(8, 0), LocalTime.of(9, 30), List.of(1L, 2L, 4L), List.of(10L));
+        referencia.registrar(3L, HOY, LocalTime.of(14, 0), LocalTime.of(15, 30), List.of(5L), List.of(12L));
+        agenda.registrar(9L, HOY, LocalTime.of(16, 0), LocalTime.of(17, 0), List.of(6L), List.of());
+
+        AgendaRecursos.Diferencias diferencias = agenda.reconciliarDia(referencia, HOY, id -> false);
+
+        assertThat(diferencias.faltantes()).isEqualTo(1);
+        assertThat(diferencias.sobrantes()).isEqualTo(1);
+        assertThat(diferencias.distintas()).isEqualTo(1);
+        assertThat(agenda.caballosOcupados(HOY, LocalTime.of(8, 0), LocalTime.of(17, 0)))
+                .containsExactlyInAnyOrder(1L, 2L, 4L, 5L);
+    }
+
+    @Test
+    void reconciliar_respetaSalidasConCambiosLocales() {
+        agenda.registrar(9L, HOY, LocalTime.of(16, 0), LocalTime.of(17, 0), List.of(6L), List.of());
+        AgendaRecursos referencia = new AgendaRecursos();
+        referencia.registrar(1L, HOY, LocalTime.of(8, 0), LocalTime.of(9, 30), List.of(1L, 2L), List.of(10L));
+
+        AgendaRecursos.Diferencias diferencias = agenda.reconciliarDia(referencia, HOY, id -> id == 9L);
+
+        assertThat(diferencias.total()).isZero();
+        assertThat(agenda.caballosOcupados(HOY, LocalTime.of(16, 0), LocalTime.of(17, 0))).containsExactly(6L);
+    }
+}
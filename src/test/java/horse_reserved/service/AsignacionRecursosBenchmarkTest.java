@@ -0,0 +1,172 @@
+package horse_reserved.service;
+
+import horse_reserved.DatosPrueba;
+import horse_reserved.model.Caballo;
+import horse_reserved.model.Guia;
+import horse_reserved.model.Ruta;
+import horse_reserved.model.Salida;
+import horse_reserved.repository.CaballoRepository;
+import horse_reserved.repository.GuiaRepository;
+import horse_reserved.repository.RutaRepository;
+import horse_reserved.repository.SalidaRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica que asignar caballos y guias a una salida nueva cuesta lo mismo sin importar cuantas
+ * salidas anteriores tengan: mismas sentencias y latencia plana con 0, 1.000 y 10.000 salidas
+ * en el historial de cada recurso. Se ejecuta con {@code ./gradlew test -Pbenchmarks} contra la
+ * base de datos local; los datos se insertan dentro de la transaccion de la prueba y se revierten.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+@Tag("benchmark")
+class AsignacionRecursosBenchmarkTest {
+
+    private static final int[] HISTORIALES = {0, 1_000, 10_000};
+    private static final int CABALLOS = 12;
+    private static final int GUIAS = 2;
+    private static final int REPETICIONES = 30;
+    private static final long TOLERANCIA_NANOS = 5_000_000;
+    private static final LocalDate FECHA = LocalDate.of(2099, 6, 1);
+    private static final LocalDate INICIO_HISTORIAL = LocalDate.of(2000, 1, 1);
+    private static final String NOMBRE = "Benchmark asignacion";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CaballoRepository caballoRepository;
+
+    @Autowired
+    private GuiaRepository guiaRepository;
+
+    @Autowired
+    private RutaRepository rutaRepository;
+
+    @Autowired
+    private SalidaRepository salidaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long rutaId;
+    private List<Long> caballoIds;
+    private List<Long> guiaIds;
+    private int historial;
+    private int dia;
+
+    @BeforeEach
+    void sembrarDatos() {
+        DatosPrueba datos = new DatosPrueba(jdbcTemplate);
+        rutaId = datos.ruta(NOMBRE);
+        caballoIds = datos.caballos(NOMBRE, CABALLOS);
+        guiaIds = datos.guias(NOMBRE, GUIAS);
+    }
+
+    @Test
+    void asignarRecursos_noDependeDelHistorial() {
+        long[] medianas = new long[HISTORIALES.length];
+        long[] sentencias = new long[HISTORIALES.length];
+
+        for (int i = 0; i < HISTORIALES.length; i++) {
+            ampliarHistorial(HISTORIALES[i]);
+            // Calentamiento: planes de consulta y bloques de ids de la secuencia
+            asignar();
+
+            Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            long[] tiempos = new long[REPETICIONES];
+            long minimoSentencias = Long.MAX_VALUE;
+            for (int r = 0; r < REPETICIONES; r++) {
+                estadisticas.clear();
+                tiempos[r] = asignar();
+                minimoSentencias = Math.min(minimoSentencias, estadisticas.getPrepareStatementCount());
+            }
+            Arrays.sort(tiempos);
+            medianas[i] = tiempos[REPETICIONES / 2];
+            sentencias[i] = minimoSentencias;
+
+            System.out.printf("Historial de %5d salidas por recurso: mediana %6d us, %d sentencias%n",
+                    HISTORIALES[i], medianas[i] / 1_000, sentencias[i]);
+        }
+
+        assertThat(sentencias).containsOnly(sentencias[0]);
+        assertThat(medianas[medianas.length - 1]).isLessThan(medianas[0] * 2 + TOLERANCIA_NANOS);
+    }
+
+    /**
+     * Crea una salida con todos los caballos y guias de la prueba como lo hace ReservaService
+     * y devuelve el tiempo en nanosegundos, incluyendo el flush de las filas de asignacion
+     */
+    private long asignar() {
+        entityManager.flush();
+        entityManager.clear();
+
+        long inicio = System.nanoTime();
+        Ruta ruta = rutaRepository.getReferenceById(rutaId);
+        List<Caballo> caballos = caballoRepository.findAllById(caballoIds);
+        List<Guia> guias = guiaRepository.findAllById(guiaIds);
+
+        Salida salida = Salida.builder()
+                .ruta(ruta)
+                .fechaProgramada(FECHA.plusDays(dia++))
+                .tiempoInicio(LocalTime.of(8, 0))
+                .tiempoFin(LocalTime.of(9, 0))
+                .estado("programado")
+                .cupoMaximo(caballos.size())
+                .build();
+        caballos.forEach(salida::agregarCaballo);
+        guias.forEach(salida::agregarGuia);
+        salidaRepository.save(salida);
+        entityManager.flush();
+        return System.nanoTime() - inicio;
+    }
+
+    /**
+     * Agrega salidas completadas con todos los caballos y guias hasta llegar al historial pedido
+     */
+    private void ampliarHistorial(int objetivo) {
+        if (objetivo <= historial) {
+            return;
+        }
+        jdbcTemplate.update("""
+                INSERT INTO salidas (ruta_id, fecha_programada, tiempo_inicio, tiempo_fin, estado, cupo_maximo)
+                SELECT ?, ? + g, '08:00', '09:00', 'completado', ?
+                FROM generate_series(?, ? - 1) g
+                """, rutaId, INICIO_HISTORIAL, CABALLOS, historial, objetivo);
+        jdbcTemplate.update("""
+                INSERT INTO salida_caballos (salida_id, horse_id)
+                SELECT s.id, c.id FROM salidas s CROSS JOIN caballos c
+                WHERE s.ruta_id = ? AND s.estado = 'completado' AND s.fecha_programada >= ? + ?
+                  AND c.nombre = ?
+                """, rutaId, INICIO_HISTORIAL, historial, NOMBRE);
+        jdbcTemplate.update("""
+                INSERT INTO salida_guias (salida_id, guia_id)
+                SELECT s.id, g.id FROM salidas s CROSS JOIN guias g
+                WHERE s.ruta_id = ? AND s.estado = 'completado' AND s.fecha_programada >= ? + ?
+                  AND g.nombre = ?
+                """, rutaId, INICIO_HISTORIAL, historial, NOMBRE);
+        jdbcTemplate.execute("ANALYZE salidas, salida_caballos, salida_guias");
+        historial = objetivo;
+    }
+}
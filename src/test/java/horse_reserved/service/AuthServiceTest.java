@@ -0,0 +1,148 @@
+package horse_reserved.service;
+
+import horse_reserved.dto.request.ChangePasswordRequest;
+import horse_reserved.dto.request.LoginRequest;
+import horse_reserved.dto.request.RegisterRequest;
+import horse_reserved.dto.response.AuthResponse;
+import horse_reserved.exception.InvalidCredentialsException;
+import horse_reserved.exception.ServicioSaturadoException;
+import horse_reserved.model.Rol;
+import horse_reserved.model.Usuario;
+import horse_reserved.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AuthServiceTest {
+
+    private static final String EMAIL = "cliente@test.com";
+
+    private UsuarioRepository usuarioRepository;
+    private PasswordEncoder passwordEncoder;
+    private AuthenticationManager authenticationManager;
+    private RefreshTokenService refreshTokenService;
+    private PlatformTransactionManager transactionManager;
+    private AuthService service;
+
+    @BeforeEach
+    void setUp() {
+        usuarioRepository = mock(UsuarioRepository.class);
+        passwordEncoder = mock(PasswordEncoder.class);
+        authenticationManager = mock(AuthenticationManager.class);
+        refreshTokenService = mock(RefreshTokenService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+
+        service = new AuthService(usuarioRepository, passwordEncoder, mock(JwtService.class),
+                authenticationManager, mock(RevocacionTokensService.class), refreshTokenService,
+                new TransactionTemplate(transactionManager));
+    }
+
+    @AfterEach
+    void limpiar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void login_verificaLaContrasenaAntesDeAbrirLaTransaccion() {
+        Usuario usuario = Usuario.builder().id(1L).email(EMAIL).role(Rol.CLIENTE).isActive(true).build();
+        when(usuarioRepository.findByEmail(EMAIL)).thenReturn(Optional.of(usuario));
+        when(refreshTokenService.emitir(usuario)).thenReturn("refresh");
+
+        AuthResponse respuesta = service.login(login());
+
+        assertThat(respuesta.getRefreshToken()).isEqualTo("refresh");
+        InOrder orden = inOrder(authenticationManager, transactionManager, usuarioRepository);
+        orden.verify(authenticationManager).authenticate(any());
+        orden.verify(transactionManager).getTransaction(any());
+        orden.verify(usuarioRepository).findByEmail(EMAIL);
+    }
+
+    @Test
+    void login_hashingSaturadoConEmailInexistente_respondeSaturado() {
+        ServicioSaturadoException saturado = new ServicioSaturadoException("Ocupado", 2);
+        when(authenticationManager.authenticate(any()))
+                .thenThrow(new InternalAuthenticationServiceException(saturado.getMessage(), saturado));
+
+        assertThatThrownBy(() -> service.login(login())).isSameAs(saturado);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void login_credencialesIncorrectas_noAbreTransaccion() {
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        assertThatThrownBy(() -> service.login(login())).isInstanceOf(InvalidCredentialsException.class);
+        verifyNoInteractions(transactionManager, usuarioRepository);
+    }
+
+    @Test
+    void register_cifraLaContrasenaAntesDeAbrirLaTransaccion() {
+        when(passwordEncoder.encode("secreta123")).thenReturn("hash");
+        when(usuarioRepository.save(any())).thenAnswer(invocacion -> invocacion.getArgument(0));
+
+        service.register(RegisterRequest.builder()
+                .primerNombre("Ana").primerApellido("Gomez").tipoDocumento("cedula").documento("123")
+                .email(EMAIL).password("secreta123").telefono("3000000000").habeasDataConsent(true)
+                .build());
+
+        InOrder orden = inOrder(passwordEncoder, transactionManager, usuarioRepository);
+        orden.verify(passwordEncoder).encode("secreta123");
+        orden.verify(transactionManager).getTransaction(any());
+        orden.verify(usuarioRepository).save(argThat(u -> "hash".equals(u.getPasswordHash())));
+    }
+
+    @Test
+    void changePassword_verificaYCifraAntesDeAbrirLaTransaccion() {
+        autenticar();
+        Usuario usuario = Usuario.builder().id(1L).email(EMAIL).passwordHash("hash-actual").build();
+        when(usuarioRepository.findByEmail(EMAIL)).thenReturn(Optional.of(usuario));
+        when(passwordEncoder.matches("actual123", "hash-actual")).thenReturn(true);
+        when(passwordEncoder.encode("nueva1234")).thenReturn("hash-nuevo");
+
+        service.changePassword(new ChangePasswordRequest("actual123", "nueva1234", "nueva1234"));
+
+        InOrder orden = inOrder(passwordEncoder, transactionManager, usuarioRepository);
+        orden.verify(passwordEncoder).encode("nueva1234");
+        orden.verify(transactionManager).getTransaction(any());
+        orden.verify(usuarioRepository).save(usuario);
+        assertThat(usuario.getPasswordHash()).isEqualTo("hash-nuevo");
+    }
+
+    @Test
+    void changePassword_contrasenaCambiadaMientrasSeCifraba_rechaza() {
+        autenticar();
+        when(usuarioRepository.findByEmail(EMAIL)).thenReturn(
+                Optional.of(Usuario.builder().id(1L).email(EMAIL).passwordHash("hash-actual").build()),
+                Optional.of(Usuario.builder().id(1L).email(EMAIL).passwordHash("hash-otro").build()));
+        when(passwordEncoder.matches("actual123", "hash-actual")).thenReturn(true);
+        when(passwordEncoder.encode("nueva1234")).thenReturn("hash-nuevo");
+
+        assertThatThrownBy(() -> service.changePassword(new ChangePasswordRequest("actual123", "nueva1234", "nueva1234")))
+                .isInstanceOf(InvalidCredentialsException.class);
+        verify(usuarioRepository, never()).save(any());
+    }
+
+    private static void autenticar() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(EMAIL, null));
+    }
+
+    private static LoginRequest login() {
+        return LoginRequest.builder().email(EMAIL).password("secreta123").build();
+    }
+}
@@ -0,0 +1,62 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.ReservaRechazadaException;
+import horse_reserved.repository.SalidaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BloqueoSalidasServiceTest {
+
+    private static final LocalDate FECHA = LocalDate.now().plusDays(10);
+
+    private SalidaRepository salidaRepository;
+    private BloqueoSalidasService service;
+
+    @BeforeEach
+    void setUp() {
+        salidaRepository = mock(SalidaRepository.class);
+        service = new BloqueoSalidasService(salidaRepository, 250);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void limpiar() {
+        // Termina la transaccion simulada: libera los candados y el recurso de agendas bloqueadas
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void bloquearSalida_lockTimeoutDePostgres_rechazaComoCongestionada() {
+        when(salidaRepository.bloquearAsesor(anyInt(), anyInt(), eq("250ms")))
+                .thenThrow(new PessimisticLockingFailureException("lock timeout"));
+
+        assertThatThrownBy(() -> service.bloquearSalida(1L, FECHA, LocalTime.of(8, 0)))
+                .isInstanceOfSatisfying(ReservaRechazadaException.class, e ->
+                        assertThat(e.getMotivo()).isEqualTo(ReservaRechazadaException.Motivo.SALIDA_CONGESTIONADA));
+    }
+
+    @Test
+    void bloquearAgenda_lockTimeoutDePostgres_rechazaComoCongestionada() {
+        when(salidaRepository.bloquearAgenda(FECHA, "250ms"))
+                .thenThrow(new PessimisticLockingFailureException("lock timeout"));
+
+        assertThatThrownBy(() -> service.bloquearAgenda(FECHA))
+                .isInstanceOfSatisfying(ReservaRechazadaException.class, e ->
+                        assertThat(e.getMotivo()).isEqualTo(ReservaRechazadaException.Motivo.SALIDA_CONGESTIONADA));
+    }
+}
@@ -0,0 +1,73 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.BusinessRuleException;
+import horse_reserved.model.Salida;
+import horse_reserved.repository.SalidaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class CupoSalidasServiceTest {
+
+    private SalidaRepository salidaRepository;
+    private CupoSalidasService service;
+    private Salida salida;
+
+    @BeforeEach
+    void setUp() {
+        salidaRepository = mock(SalidaRepository.class);
+        service = new CupoSalidasService(salidaRepository, mock(TransactionTemplate.class));
+        salida = Salida.builder().id(7L).cupoMaximo(8).cupoOcupado(5).build();
+    }
+
+    @Test
+    void ocupar_conCupo_actualizaElContador() {
+        when(salidaRepository.ocuparCupo(7L, 3)).thenReturn(1);
+
+        service.ocupar(salida, 3);
+
+        assertThat(salida.getCupoOcupado()).isEqualTo(8);
+    }
+
+    @Test
+    void ocupar_sinCupo_lanzaExcepcionConDisponibles() {
+        when(salidaRepository.ocuparCupo(7L, 4)).thenReturn(0);
+
+        assertThatThrownBy(() -> service.ocupar(salida, 4))
+                .isInstanceOf(BusinessRuleException.class)
+                .hasMessageContaining("Disponibles: 3");
+        assertThat(salida.getCupoOcupado()).isEqualTo(5);
+    }
+
+    @Test
+    void ocupar_salidaSinCaballos_noConsultaLaBaseDeDatos() {
+        salida.setCupoMaximo(0);
+
+        assertThatThrownBy(() -> service.ocupar(salida, 1))
+                .isInstanceOf(BusinessRuleException.class)
+                .hasMessageContaining("no tiene caballos");
+        verify(salidaRepository, never()).ocuparCupo(anyLong(), anyInt());
+    }
+
+    @Test
+    void liberar_tomaElCupoRestanteDeLaBaseDeDatos() {
+        when(salidaRepository.liberarCupo(7L, 2)).thenReturn(1);
+
+        assertThat(service.liberar(salida, 2)).isEqualTo(1);
+        assertThat(salida.getCupoOcupado()).isEqualTo(1);
+    }
+
+    @Test
+    void liberar_nuncaDejaElContadorNegativo() {
+        service.liberar(salida, 9);
+
+        verify(salidaRepository).liberarCupo(7L, 9);
+        assertThat(salida.getCupoOcupado()).isZero();
+    }
+}
@@ -0,0 +1,91 @@
+package horse_reserved.service;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import horse_reserved.model.EmailOutbox;
+import horse_reserved.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mide el rendimiento y el retraso de la bandeja de salida contra un servidor SMTP local
+ * (GreenMail). Se ejecuta con {@code ./gradlew test -Pbenchmarks} contra la base de datos local.
+ */
+@SpringBootTest
+@Tag("benchmark")
+class DespachadorCorreosBenchmarkTest {
+
+    private static final int CORREOS = 1_000;
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", () -> ServerSetupTest.SMTP.getPort());
+        registry.add("spring.mail.properties.mail.smtp.auth", () -> "false");
+        registry.add("spring.mail.properties.mail.smtp.starttls.enable", () -> "false");
+        registry.add("spring.mail.properties.mail.smtp.starttls.required", () -> "false");
+        registry.add("app.mail.from", () -> "noreply@horse-reserved.test");
+    }
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private DespachadorCorreos despachador;
+
+    private final List<Long> creados = new ArrayList<>();
+
+    @AfterEach
+    void limpiar() {
+        outboxRepository.deleteAllById(creados);
+    }
+
+    @Test
+    void vaciarBandeja_midiendoRendimientoYRetraso() {
+        List<EmailOutbox> correos = new ArrayList<>();
+        for (int i = 0; i < CORREOS; i++) {
+            correos.add(EmailOutbox.builder()
+                    .destinatario("cliente" + i + "@horse-reserved.test")
+                    .asunto("Correo de prueba " + i)
+                    .cuerpoHtml("<p>Hola " + i + "</p>")
+                    .build());
+        }
+        outboxRepository.saveAll(correos).forEach(c -> creados.add(c.getId()));
+        Instant encolados = Instant.now();
+
+        long inicio = System.nanoTime();
+        despachador.despachar();
+        smtp.waitForIncomingEmail(Duration.ofSeconds(30).toMillis(), CORREOS);
+        long nanos = System.nanoTime() - inicio;
+
+        Duration retrasoMaximo = outboxRepository.findAllById(creados).stream()
+                .filter(c -> c.getEnviadoAt() != null)
+                .map(c -> Duration.between(encolados, c.getEnviadoAt()))
+                .max(Duration::compareTo)
+                .orElseThrow();
+        System.out.printf("Bandeja de salida: %d correos en %d ms (%.0f correos/s), retraso maximo %d ms%n",
+                CORREOS, nanos / 1_000_000, CORREOS / (nanos / 1e9), retrasoMaximo.toMillis());
+
+        assertThat(smtp.getReceivedMessages()).hasSize(CORREOS);
+        assertThat(outboxRepository.findAllById(creados))
+                .allMatch(c -> EmailOutbox.ENVIADO.equals(c.getEstado()));
+    }
+}
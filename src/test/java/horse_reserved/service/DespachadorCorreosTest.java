@@ -0,0 +1,118 @@
+package horse_reserved.service;
+
+import horse_reserved.model.EmailOutbox;
+import horse_reserved.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DespachadorCorreosTest {
+
+    private EmailOutboxRepository repository;
+    private JavaMailSender mailSender;
+    private DespachadorCorreos despachador;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(EmailOutboxRepository.class);
+        mailSender = mock(JavaMailSender.class);
+        when(mailSender.createMimeMessage()).thenAnswer(inv -> new MimeMessage(Session.getInstance(new Properties())));
+        despachador = new DespachadorCorreos(repository, mailSender,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), "noreply@test.com",
+                10, Duration.ofMinutes(5), 3, Duration.ofSeconds(30), Duration.ofMinutes(5));
+    }
+
+    @Test
+    void lote_seEnviaEnUnaSolaLlamadaYSeMarcaEnviado() {
+        when(repository.reclamarPendientes(any(), eq(10))).thenReturn(List.of(correo(1L, 0), correo(2L, 0)));
+
+        assertThat(despachador.despacharLote()).isEqualTo(2);
+
+        ArgumentCaptor<MimeMessage[]> mensajes = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, times(1)).send(mensajes.capture());
+        assertThat(mensajes.getValue()).hasSize(2);
+        verify(repository).marcarEnviados(argThat((Collection<Long> ids) -> ids.containsAll(List.of(1L, 2L))), any());
+        verify(repository, never()).registrarFallo(any(), any(), any(), any());
+    }
+
+    @Test
+    void mensajeRechazado_seReprogramaConEsperaYLosDemasSeMarcanEnviados() {
+        when(repository.reclamarPendientes(any(), eq(10))).thenReturn(List.of(correo(1L, 0), correo(2L, 0)));
+        doAnswer(inv -> {
+            MimeMessage rechazado = inv.getArgument(1);
+            throw new MailSendException(Map.of(rechazado, new IllegalStateException("550 buzon inexistente")));
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        Instant antes = Instant.now();
+        despachador.despacharLote();
+
+        verify(repository).marcarEnviados(eq(List.of(1L)), any());
+        ArgumentCaptor<Instant> proximo = ArgumentCaptor.forClass(Instant.class);
+        verify(repository).registrarFallo(eq(2L), eq(EmailOutbox.PENDIENTE), proximo.capture(), eq("550 buzon inexistente"));
+        assertThat(proximo.getValue()).isAfterOrEqualTo(antes.plusSeconds(30));
+    }
+
+    @Test
+    void ultimoIntentoFallido_descartaElCorreo() {
+        when(repository.reclamarPendientes(any(), eq(10))).thenReturn(List.of(correo(1L, 2)));
+        doThrow(new MailSendException("Conexion rechazada")).when(mailSender).send(any(MimeMessage[].class));
+
+        despachador.despacharLote();
+
+        verify(repository).registrarFallo(eq(1L), eq(EmailOutbox.FALLIDO), any(), eq("Conexion rechazada"));
+        verify(repository, never()).marcarEnviados(any(), any());
+    }
+
+    @Test
+    void pendientes_seCuentanAlTerminarElCicloYNoAlLeerLaMetrica() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        despachador.bindTo(registry);
+        when(repository.reclamarPendientes(any(), eq(10))).thenReturn(List.of(correo(1L, 0)), List.of());
+        when(repository.countByEstado(EmailOutbox.PENDIENTE)).thenReturn(0L);
+
+        despachador.despachar();
+        for (int i = 0; i < 5; i++) {
+            assertThat(registry.get("correo.outbox.pendientes").gauge().value()).isZero();
+        }
+        verify(repository, times(1)).countByEstado(EmailOutbox.PENDIENTE);
+
+        // Bandeja vacia y nada reclamado: el conteo no se repite
+        despachador.despachar();
+        verify(repository, times(1)).countByEstado(EmailOutbox.PENDIENTE);
+    }
+
+    @Test
+    void espera_creceExponencialmenteHastaElMaximo() {
+        assertThat(despachador.espera(1)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(despachador.espera(3)).isEqualTo(Duration.ofMinutes(2));
+        assertThat(despachador.espera(50)).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    private static EmailOutbox correo(Long id, int intentos) {
+        return EmailOutbox.builder()
+                .id(id)
+                .destinatario("cliente" + id + "@test.com")
+                .asunto("Asunto")
+                .cuerpoHtml("<p>Hola</p>")
+                .intentos(intentos)
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package horse_reserved.service;
+
+import horse_reserved.model.Caballo;
+import horse_reserved.repository.CaballoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara la busqueda de caballos libres con la agenda en memoria contra la consulta JPQL
+ * con anti-join, sobre un dia con 10.000 salidas. Se ejecuta con {@code ./gradlew test -Pbenchmarks}
+ * contra la base de datos local; los datos se insertan dentro de la transaccion de la prueba y se revierten.
+ * La transaccion tiene el bloqueo de agenda del dia, asi que tras cargar el dia una vez
+ * ninguna busqueda en memoria consulta la base de datos.
+ */
+@SpringBootTest
+@Transactional
+@Tag("benchmark")
+class DisponibilidadRecursosBenchmarkTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2099, 1, 15);
+    private static final int RUTAS = 20;
+    private static final int SALIDAS = 10_000;
+    private static final int CABALLOS = 400;
+    private static final int GUIAS = 80;
+    private static final int CONSULTAS = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CaballoRepository caballoRepository;
+
+    @Autowired
+    private DisponibilidadRecursosService disponibilidad;
+
+    @Autowired
+    private BloqueoSalidasService bloqueoSalidas;
+
+    @BeforeEach
+    void sembrarDatos() {
+        jdbcTemplate.update("""
+                INSERT INTO rutas (nombre, descripcion, dificultad, duracion_minutos, is_active, precio)
+                SELECT 'Benchmark ' || g, 'Ruta de benchmark', 'FACIL', 90, TRUE, 1000
+                FROM generate_series(1, ?) g
+                """, RUTAS);
+        jdbcTemplate.update("""
+                INSERT INTO caballos (nombre, raza, is_active)
+                SELECT 'Benchmark ' || g, 'Criollo', TRUE FROM generate_series(1, ?) g
+                """, CABALLOS);
+        jdbcTemplate.update("""
+                INSERT INTO guias (nombre, telefono, email, is_active)
+                SELECT 'Benchmark ' || g, '3000000000', 'guia' || g || '@benchmark.test', TRUE
+                FROM generate_series(1, ?) g
+                """, GUIAS);
+
+        // Cada ruta tiene una salida por minuto entre las 06:00 y las 14:20 (ruta + hora no se repiten)
+        jdbcTemplate.update("""
+                INSERT INTO salidas (ruta_id, fecha_programada, tiempo_inicio, tiempo_fin, estado)
+                SELECT r.ids[1 + g % ?],
+                       ?,
+                       TIME '06:00' + (g / ?) * INTERVAL '1 minute',
+                       TIME '07:30' + (g / ?) * INTERVAL '1 minute',
+                       'programado'
+                FROM generate_series(0, ? - 1) g,
+                     (SELECT array_agg(id ORDER BY id) AS ids FROM rutas WHERE nombre LIKE 'Benchmark %') r
+                """, RUTAS, FECHA, RUTAS, RUTAS, SALIDAS);
+        jdbcTemplate.update("""
+                INSERT INTO salida_caballos (salida_id, horse_id)
+                SELECT s.id, c.ids[1 + (s.id * 2 + j) % array_length(c.ids, 1)]
+                FROM salidas s
+                CROSS JOIN generate_series(0, 1) j,
+                     (SELECT array_agg(id ORDER BY id) AS ids FROM caballos WHERE nombre LIKE 'Benchmark %') c
+                WHERE s.fecha_programada = ?
+                """, FECHA);
+        jdbcTemplate.update("""
+                INSERT INTO salida_guias (salida_id, guia_id)
+                SELECT s.id, gu.ids[1 + s.id % array_length(gu.ids, 1)]
+                FROM salidas s,
+                     (SELECT array_agg(id ORDER BY id) AS ids FROM guias WHERE nombre LIKE 'Benchmark %') gu
+                WHERE s.fecha_programada = ?
+                """, FECHA);
+
+        // Con el bloqueo de agenda la busqueda usa la agenda en memoria; la primera carga el dia
+        bloqueoSalidas.bloquearAgenda(FECHA);
+    }
+
+    @Test
+    void agendaEnMemoria_vsConsultaJpql() {
+        // Ambos caminos deben coincidir
+        for (int i = 0; i < 10; i++) {
+            LocalTime inicio = hora(i * 37);
+            LocalTime fin = inicio.plusMinutes(90);
+            var jpql = new HashSet<>(caballoRepository.findDisponibles(FECHA, inicio, fin).stream()
+                    .map(Caballo::getId).toList());
+            var memoria = new HashSet<>(disponibilidad.caballosLibres(FECHA, inicio, fin));
+            assertThat(memoria).isEqualTo(jpql);
+        }
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < CONSULTAS; i++) {
+            LocalTime inicio = hora(i);
+            caballoRepository.findDisponibles(FECHA, inicio, inicio.plusMinutes(90));
+        }
+        long jpqlNanos = System.nanoTime() - t0;
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < CONSULTAS; i++) {
+            LocalTime inicio = hora(i);
+            disponibilidad.caballosLibres(FECHA, inicio, inicio.plusMinutes(90));
+        }
+        long memoriaNanos = System.nanoTime() - t0;
+
+        System.out.printf("Disponibilidad de caballos (%d salidas/dia, %d consultas):%n", SALIDAS, CONSULTAS);
+        System.out.printf("  JPQL anti-join : %8.3f ms/consulta%n", jpqlNanos / 1e6 / CONSULTAS);
+        System.out.printf("  Agenda memoria : %8.3f ms/consulta%n", memoriaNanos / 1e6 / CONSULTAS);
+
+        assertThat(memoriaNanos).isLessThan(jpqlNanos);
+    }
+
+    private static LocalTime hora(int i) {
+        return LocalTime.of(6, 0).plusMinutes((i * 7L) % 600);
+    }
+}
@@ -0,0 +1,160 @@
+package horse_reserved.service;
+
+import horse_reserved.model.Caballo;
+import horse_reserved.model.Salida;
+import horse_reserved.repository.CaballoRepository;
+import horse_reserved.repository.GuiaRepository;
+import horse_reserved.repository.SalidaRepository;
+import horse_reserved.repository.SalidaRepository.AsignacionRecurso;
+import horse_reserved.repository.SalidaRepository.VersionAgenda;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DisponibilidadRecursosServiceTest {
+
+    private static final LocalDate FECHA = LocalDate.now().plusDays(10);
+    private static final LocalTime INICIO = LocalTime.of(8, 0);
+    private static final LocalTime FIN = LocalTime.of(9, 0);
+
+    private SalidaRepository salidaRepository;
+    private CaballoRepository caballoRepository;
+    private GuiaRepository guiaRepository;
+    private BloqueoSalidasService bloqueoSalidas;
+    private DisponibilidadRecursosService service;
+
+    private record Version(Long getAgenda, Long getRecursos) implements VersionAgenda {}
+
+    private record Asignacion(Long getSalidaId, LocalDate getFecha, LocalTime getInicio, LocalTime getFin,
+                              Long getRecursoId) implements AsignacionRecurso {}
+
+    @BeforeEach
+    void setUp() {
+        salidaRepository = mock(SalidaRepository.class);
+        caballoRepository = mock(CaballoRepository.class);
+        guiaRepository = mock(GuiaRepository.class);
+        bloqueoSalidas = mock(BloqueoSalidasService.class);
+        when(caballoRepository.findIdsActivos()).thenReturn(List.of(1L, 2L, 3L));
+        when(guiaRepository.findIdsActivos()).thenReturn(List.of(10L, 11L));
+
+        service = new DisponibilidadRecursosService(salidaRepository, caballoRepository, guiaRepository, bloqueoSalidas);
+    }
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void caballosLibres_sinBloqueoDeAgenda_consultaLaBaseDeDatos() {
+        Caballo caballo = Caballo.builder().id(2L).build();
+        when(caballoRepository.findDisponibles(FECHA, INICIO, FIN)).thenReturn(List.of(caballo));
+
+        assertThat(service.caballosLibres(FECHA, INICIO, FIN)).containsExactly(2L);
+        verifyNoInteractions(salidaRepository);
+    }
+
+    @Test
+    void versionConsecutiva_usaLaAgendaSinConsultarLaBaseDeDatos() {
+        assertThat(enTransaccion(1, 1, () -> service.caballosLibres(FECHA, INICIO, FIN))).containsExactly(1L, 2L, 3L);
+        clearInvocations(salidaRepository, caballoRepository, guiaRepository);
+
+        assertThat(enTransaccion(2, 1, () -> service.guiasLibres(FECHA, INICIO, FIN))).containsExactly(10L, 11L);
+        verifyNoInteractions(salidaRepository, caballoRepository, guiaRepository);
+    }
+
+    @Test
+    void saltoDeVersion_recargaElDiaConLasSalidasDeOtraInstancia() {
+        enTransaccion(1, 1, () -> service.caballosLibres(FECHA, INICIO, FIN));
+        when(salidaRepository.findAsignacionesCaballosEntre(FECHA, FECHA))
+                .thenReturn(List.of(new Asignacion(50L, FECHA, INICIO, FIN, 1L)));
+        when(salidaRepository.findAsignacionesGuiasEntre(FECHA, FECHA))
+                .thenReturn(List.of(new Asignacion(50L, FECHA, INICIO, FIN, 10L)));
+
+        // La version 2 la confirmo otra instancia
+        assertThat(enTransaccion(3, 1, () -> service.caballosLibres(FECHA, INICIO, FIN))).containsExactly(2L, 3L);
+        assertThat(enTransaccion(4, 1, () -> service.guiasLibres(FECHA, INICIO, FIN))).containsExactly(11L);
+        verify(salidaRepository, times(2)).findAsignacionesCaballosEntre(FECHA, FECHA);
+    }
+
+    @Test
+    void cambioDeRecursos_recargaLosActivos() {
+        enTransaccion(1, 1, () -> service.caballosLibres(FECHA, INICIO, FIN));
+        when(caballoRepository.findIdsActivos()).thenReturn(List.of(1L, 2L, 3L, 4L));
+
+        assertThat(enTransaccion(2, 2, () -> service.caballosLibres(FECHA, INICIO, FIN))).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void registrarSalida_revertida_noOcupaLosCaballos() {
+        Salida salida = salida(70L, 1L);
+
+        enTransaccion(1, 1, TransactionSynchronization.STATUS_ROLLED_BACK, () -> {
+            service.registrarSalida(salida);
+            return null;
+        });
+
+        // Tras una reversion la version del dia no avanzo y el dia se vuelve a leer
+        assertThat(enTransaccion(1, 1, () -> service.caballosLibres(FECHA, INICIO, FIN))).containsExactly(1L, 2L, 3L);
+        verify(salidaRepository, times(2)).findAsignacionesCaballosEntre(FECHA, FECHA);
+    }
+
+    @Test
+    void liberarSalida_devuelveLosCaballosAlConfirmar() {
+        Salida salida = salida(70L, 1L);
+        enTransaccion(1, 1, () -> {
+            service.registrarSalida(salida);
+            return null;
+        });
+        assertThat(enTransaccion(2, 1, () -> service.caballosLibres(FECHA, INICIO, FIN))).containsExactly(2L, 3L);
+
+        enTransaccion(3, 1, () -> {
+            service.liberarSalida(salida);
+            assertThat(service.caballosLibres(FECHA, INICIO, FIN)).containsExactly(2L, 3L);
+            return null;
+        });
+
+        assertThat(enTransaccion(4, 1, () -> service.caballosLibres(FECHA, INICIO, FIN))).containsExactly(1L, 2L, 3L);
+    }
+
+    private <T> T enTransaccion(long versionAgenda, long versionRecursos, Supplier<T> accion) {
+        return enTransaccion(versionAgenda, versionRecursos, TransactionSynchronization.STATUS_COMMITTED, accion);
+    }
+
+    /**
+     * Simula una transaccion con el bloqueo de agenda de FECHA y la termina con el estado indicado
+     */
+    private <T> T enTransaccion(long versionAgenda, long versionRecursos, int estado, Supplier<T> accion) {
+        when(bloqueoSalidas.versionAgenda(any())).thenReturn(new Version(versionAgenda, versionRecursos));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            T resultado = accion.get();
+            List<TransactionSynchronization> sincronizaciones =
+                    new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+            sincronizaciones.forEach(s -> s.afterCompletion(estado));
+            return resultado;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Salida salida(Long id, Long caballoId) {
+        Salida salida = Salida.builder().id(id).fechaProgramada(FECHA).tiempoInicio(INICIO).tiempoFin(FIN).build();
+        salida.agregarCaballo(Caballo.builder().id(caballoId).build());
+        return salida;
+    }
+}
@@ -0,0 +1,101 @@
+package horse_reserved.service;
+
+import horse_reserved.dto.response.DisponibilidadRutaResponse;
+import horse_reserved.dto.response.FranjaDisponibleResponse;
+import horse_reserved.exception.BusinessRuleException;
+import horse_reserved.model.Ruta;
+import horse_reserved.repository.CaballoRepository;
+import horse_reserved.repository.RutaRepository;
+import horse_reserved.repository.SalidaRepository;
+import horse_reserved.repository.SalidaRepository.AsignacionRecurso;
+import horse_reserved.repository.SalidaRepository.CupoSalida;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.*;
+
+class DisponibilidadRutaServiceTest {
+
+    private static final LocalDate DIA = LocalDate.now().plusDays(10);
+
+    private RutaRepository rutaRepository;
+    private SalidaRepository salidaRepository;
+    private CaballoRepository caballoRepository;
+    private DisponibilidadRutaService service;
+
+    record Cupo(Long getSalidaId, LocalDate getFecha, LocalTime getInicio, LocalTime getFin,
+                Integer getCupoOcupado, Integer getCupoMaximo) implements CupoSalida {}
+
+    record Asignacion(Long getSalidaId, LocalDate getFecha, LocalTime getInicio, LocalTime getFin,
+                      Long getRecursoId) implements AsignacionRecurso {}
+
+    @BeforeEach
+    void setUp() {
+        rutaRepository = mock(RutaRepository.class);
+        salidaRepository = mock(SalidaRepository.class);
+        caballoRepository = mock(CaballoRepository.class);
+        service = new DisponibilidadRutaService(rutaRepository, salidaRepository, caballoRepository,
+                List.of("08:00", "14:00"), 30_000, 160);
+
+        Ruta ruta = Ruta.builder().id(1L).duracionMinutos(90).activa(true).build();
+        when(rutaRepository.findById(1L)).thenReturn(Optional.of(ruta));
+        when(caballoRepository.findIdsActivos()).thenReturn(List.of(1L, 2L, 3L, 4L, 5L));
+
+        // Salida de la ruta a las 10:00 con 4 caballos y 3 personas
+        when(salidaRepository.findCuposProgramadosByRutaEntre(1L, DIA, DIA)).thenReturn(List.of(
+                new Cupo(50L, DIA, LocalTime.of(10, 0), LocalTime.of(11, 30), 3, 4)));
+        // Salida de otra ruta 13:00-15:00 que ocupa los caballos 1 y 2
+        when(salidaRepository.findAsignacionesCaballosEntre(DIA, DIA)).thenReturn(List.of(
+                new Asignacion(60L, DIA, LocalTime.of(13, 0), LocalTime.of(15, 0), 1L),
+                new Asignacion(60L, DIA, LocalTime.of(13, 0), LocalTime.of(15, 0), 2L)));
+    }
+
+    @Test
+    void calendario_usaContadoresYCaballosLibres() {
+        DisponibilidadRutaResponse respuesta = service.consultar(1L, DIA, DIA);
+
+        assertThat(respuesta.getFranjas())
+                .extracting(FranjaDisponibleResponse::getHoraInicio, FranjaDisponibleResponse::getCuposDisponibles,
+                        FranjaDisponibleResponse::getSalidaId)
+                .containsExactly(
+                        tuple(LocalTime.of(8, 0), 5, null),
+                        tuple(LocalTime.of(10, 0), 1, 50L),
+                        tuple(LocalTime.of(14, 0), 3, null));
+    }
+
+    @Test
+    void segundaConsulta_seSirveDesdeCache() {
+        service.consultar(1L, DIA, DIA);
+        service.consultar(1L, DIA, DIA);
+
+        verify(salidaRepository, times(1)).findAsignacionesCaballosEntre(DIA, DIA);
+    }
+
+    @Test
+    void cacheLlena_conservaLasConsultasFrecuentes() {
+        service.consultar(1L, DIA, DIA);
+
+        // Muchas mas consultas distintas que la capacidad, intercaladas con la frecuente
+        for (int i = 1; i <= 500; i++) {
+            LocalDate otroDia = DIA.plusDays(i);
+            service.consultar(1L, otroDia, otroDia);
+            service.consultar(1L, DIA, DIA);
+        }
+
+        verify(salidaRepository, times(1)).findAsignacionesCaballosEntre(DIA, DIA);
+    }
+
+    @Test
+    void rangoMayorAlMaximo_lanzaExcepcion() {
+        assertThatThrownBy(() -> service.consultar(1L, DIA, DIA.plusDays(DisponibilidadRutaService.MAX_DIAS)))
+                .isInstanceOf(BusinessRuleException.class);
+    }
+}
@@ -0,0 +1,73 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.BusinessRuleException;
+import horse_reserved.repository.ReservaCabecera;
+import horse_reserved.repository.ReservaRepository;
+import horse_reserved.service.ExportacionReservasService.Formato;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ExportacionReservasServiceTest {
+
+    private ReservaRepository reservaRepository;
+    private ExportacionReservasService service;
+
+    @BeforeEach
+    void setUp() {
+        reservaRepository = mock(ReservaRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        service = new ExportacionReservasService(reservaRepository, transactionManager, 3_600_000);
+
+        when(reservaRepository.streamCabeceras(null, null, null)).thenAnswer(inv -> Stream.of(
+                new ReservaCabecera(1L, "reservado", 2, new BigDecimal("1000.00"), new BigDecimal("2000.00"),
+                        10L, LocalDate.of(2026, 3, 7), LocalTime.of(8, 0), LocalTime.of(9, 30), "programado",
+                        3L, "Valle, \"Cocora\"", new BigDecimal("1000.00"), 5L, "ana@test.com", null)));
+    }
+
+    @Test
+    void ndjson_escribeUnObjetoPorLinea() throws Exception {
+        String salida = exportar(Formato.NDJSON);
+
+        assertThat(salida).isEqualTo("{\"id\":1,\"estado\":\"reservado\",\"cantPersonas\":2,"
+                + "\"precioUnitario\":1000.00,\"precioTotal\":2000.00,\"salidaId\":10,"
+                + "\"fechaProgramada\":\"2026-03-07\",\"tiempoInicio\":\"08:00\",\"tiempoFin\":\"09:30\","
+                + "\"salidaEstado\":\"programado\",\"rutaId\":3,\"rutaNombre\":\"Valle, \\\"Cocora\\\"\","
+                + "\"clienteId\":5,\"clienteEmail\":\"ana@test.com\",\"operadorId\":null}\n");
+    }
+
+    @Test
+    void csv_escribeEncabezadoYEscapaComillas() throws Exception {
+        String[] lineas = exportar(Formato.CSV).split("\r\n");
+
+        assertThat(lineas).hasSize(2);
+        assertThat(lineas[0]).startsWith("id,estado,cantPersonas");
+        assertThat(lineas[1]).isEqualTo("1,reservado,2,1000.00,2000.00,10,2026-03-07,08:00,09:30,programado,"
+                + "3,\"Valle, \"\"Cocora\"\"\",5,ana@test.com,");
+    }
+
+    @Test
+    void formatoDesconocido_lanzaExcepcion() {
+        assertThatThrownBy(() -> Formato.fromString("xml")).isInstanceOf(BusinessRuleException.class);
+    }
+
+    private String exportar(Formato formato) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportar(formato, null, null, null, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
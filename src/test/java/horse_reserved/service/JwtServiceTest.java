@@ -0,0 +1,54 @@
+package horse_reserved.service;
+
+import horse_reserved.model.Usuario;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+
+    private static final String SECRETO = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtService jwtService;
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRETO, 60_000L);
+        usuario = Usuario.builder().email("cliente@test.com").passwordChangedAt(Instant.EPOCH).build();
+    }
+
+    @Test
+    void verificar_devuelveLosClaimsDelToken() {
+        String token = jwtService.generateToken(usuario, Map.of("role", "CLIENTE"));
+
+        JwtService.TokenVerificado verificado = jwtService.verificar(token);
+
+        assertThat(verificado.subject()).isEqualTo("cliente@test.com");
+        assertThat(verificado.claim("role", String.class)).isEqualTo("CLIENTE");
+        assertThat(verificado.expiraEn()).isAfter(verificado.emitidoEn());
+        assertThat(jwtService.isTokenValid(verificado, usuario)).isTrue();
+    }
+
+    @Test
+    void verificar_rechazaTokenAlterado() {
+        String token = jwtService.generateToken(usuario);
+        String alterado = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> jwtService.verificar(alterado)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void tokenEmitidoAntesDelCambioDeContrasena_noEsValido() {
+        JwtService.TokenVerificado verificado = jwtService.verificar(jwtService.generateToken(usuario));
+        usuario.setPasswordChangedAt(Instant.now().plusSeconds(5));
+
+        assertThat(jwtService.isTokenValid(verificado, usuario)).isFalse();
+    }
+}
@@ -0,0 +1,59 @@
+package horse_reserved.service;
+
+import horse_reserved.config.ConsultasPorSolicitudFilter;
+import horse_reserved.config.ContadorConsultas;
+import horse_reserved.exception.ReservaRechazadaException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricasReservasTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MetricasReservas metricas = new MetricasReservas(registry);
+
+    @Test
+    void rechazo_seCuentaPorMotivoYSeEtiquetaEnElTimer() {
+        assertThatThrownBy(() -> metricas.medirCreacion(() -> {
+            throw new ReservaRechazadaException(ReservaRechazadaException.Motivo.CUPO_INSUFICIENTE, "Cupo insuficiente");
+        })).isInstanceOf(ReservaRechazadaException.class);
+        metricas.medirCreacion(() -> "ok");
+
+        assertThat(registry.get("reservas.rechazos").tag("motivo", "cupo_insuficiente").counter().count()).isEqualTo(1);
+        assertThat(registry.get("reservas.crear").tag("resultado", "rechazo").tag("motivo", "cupo_insuficiente")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("reservas.crear").tag("resultado", "exito").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void etapa_seMideAunqueFalle() {
+        metricas.medir(MetricasReservas.ETAPA_CUPO, () -> { });
+        assertThatThrownBy(() -> metricas.medir(MetricasReservas.ETAPA_CUPO, () -> {
+            throw new IllegalStateException("fallo");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("reservas.crear.etapa").tag("etapa", "cupo").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void consultasPorSolicitud_seRegistranConElPatronDeLaRuta() throws Exception {
+        ConsultasPorSolicitudFilter filter = new ConsultasPorSolicitudFilter(registry);
+        ContadorConsultas inspector = new ContadorConsultas();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reservaciones/7");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/reservaciones/{id}");
+            inspector.inspect("select 1");
+            inspector.inspect("select 2");
+            inspector.inspect("select 3");
+        });
+
+        assertThat(registry.get("http.server.requests.consultas").tag("uri", "/api/reservaciones/{id}")
+                .summary().totalAmount()).isEqualTo(3);
+    }
+}
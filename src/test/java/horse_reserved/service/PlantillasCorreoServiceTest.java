@@ -0,0 +1,57 @@
+package horse_reserved.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PlantillasCorreoServiceTest {
+
+    private final PlantillasCorreoService service = new PlantillasCorreoService("es");
+
+    @Test
+    void compilar_separaLiteralesYVariables() {
+        PlantillaCorreo plantilla = PlantillaCorreo.compilar("prueba", "Hola {{ nombre }}, visita {{enlace}}.", true);
+
+        assertThat(plantilla.variables()).containsExactly("nombre", "enlace");
+        assertThat(plantilla.renderizar(Map.of("nombre", "Ana", "enlace", "https://x.co/?a=1&b=2")))
+                .isEqualTo("Hola Ana, visita https://x.co/?a=1&amp;b=2.");
+    }
+
+    @Test
+    void valores_seEscapanSoloEnHtml() {
+        Map<String, String> valores = Map.of("nombre", "<script>\"x\" & 'y'</script>");
+
+        assertThat(PlantillaCorreo.compilar("html", "<p>{{nombre}}</p>", true).renderizar(valores))
+                .isEqualTo("<p>&lt;script&gt;&quot;x&quot; &amp; &#39;y&#39;&lt;/script&gt;</p>");
+        assertThat(PlantillaCorreo.compilar("asunto", "Hola {{nombre}}", false).renderizar(valores))
+                .isEqualTo("Hola <script>\"x\" & 'y'</script>");
+    }
+
+    @Test
+    void marcadorSinCerrarOVariableFaltante_fallan() {
+        assertThatThrownBy(() -> PlantillaCorreo.compilar("rota", "Hola {{nombre", true))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.renderizar("restablecer-password", Locale.ROOT, Map.of("nombre", "Ana")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("enlace");
+    }
+
+    @Test
+    void idioma_usaElLocaleDisponibleOElPorDefecto() {
+        Map<String, String> valores = Map.of("nombre", "Ana", "enlace", "http://localhost:4200/auth/reset-password?token=t");
+
+        PlantillasCorreoService.CorreoRenderizado ingles = service.renderizar("restablecer-password", Locale.US, valores);
+        PlantillasCorreoService.CorreoRenderizado colombia = service.renderizar("restablecer-password",
+                Locale.forLanguageTag("es-CO"), valores);
+        PlantillasCorreoService.CorreoRenderizado aleman = service.renderizar("restablecer-password", Locale.GERMAN, valores);
+
+        assertThat(ingles.asunto()).isEqualTo("Reset your password - Horse Reserved");
+        assertThat(ingles.html()).contains("Hello, Ana").contains("href=\"http://localhost:4200/auth/reset-password?token=t\"");
+        assertThat(colombia.asunto()).isEqualTo("Restablecer contraseña - Horse Reserved");
+        assertThat(aleman.html()).contains("Hola, Ana").doesNotContain("{{");
+    }
+}
@@ -0,0 +1,91 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.RecaptchaVerificationException;
+import horse_reserved.exception.ServicioSaturadoException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecaptchaServiceTest {
+
+    private final AtomicLong reloj = new AtomicLong();
+    private final InterruptorCircuito circuito = new InterruptorCircuito(3, Duration.ofSeconds(30), reloj::get);
+    private final AtomicInteger llamadas = new AtomicInteger();
+    private volatile boolean proveedorCaido = true;
+
+    private final VerificadorRecaptcha proveedor = token -> {
+        llamadas.incrementAndGet();
+        if (proveedorCaido) {
+            throw new IllegalStateException("timeout");
+        }
+        return !token.equals("malo");
+    };
+
+    @Test
+    void tokenRechazadoPorElProveedor_esError400() {
+        proveedorCaido = false;
+        RecaptchaService service = new RecaptchaService(proveedor, RecaptchaService.PoliticaDegradada.RECHAZAR, circuito);
+
+        assertThatCode(() -> service.verify("bueno")).doesNotThrowAnyException();
+        assertThatThrownBy(() -> service.verify("malo")).isInstanceOf(RecaptchaVerificationException.class);
+        assertThat(circuito.estado()).isEqualTo(InterruptorCircuito.Estado.CERRADO);
+    }
+
+    @Test
+    void fallosConsecutivos_abrenElCircuitoYDejanDeConsultarAlProveedor() {
+        RecaptchaService service = new RecaptchaService(proveedor, RecaptchaService.PoliticaDegradada.RECHAZAR, circuito);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> service.verify("token")).isInstanceOf(ServicioSaturadoException.class);
+        }
+        assertThat(circuito.estado()).isEqualTo(InterruptorCircuito.Estado.ABIERTO);
+
+        reloj.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertThatThrownBy(() -> service.verify("token"))
+                .isInstanceOf(ServicioSaturadoException.class)
+                .extracting(e -> ((ServicioSaturadoException) e).getReintentarEnSegundos())
+                .isEqualTo(20L);
+        assertThat(llamadas).hasValue(3);
+    }
+
+    @Test
+    void llamadaDePrueba_cierraElCircuitoSiElProveedorResponde() {
+        RecaptchaService service = new RecaptchaService(proveedor, RecaptchaService.PoliticaDegradada.RECHAZAR, circuito);
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> service.verify("token")).isInstanceOf(ServicioSaturadoException.class);
+        }
+
+        reloj.addAndGet(Duration.ofSeconds(31).toNanos());
+        proveedorCaido = false;
+        service.verify("token");
+
+        assertThat(circuito.estado()).isEqualTo(InterruptorCircuito.Estado.CERRADO);
+        assertThat(llamadas).hasValue(4);
+    }
+
+    @Test
+    void politicaPermitir_dejaPasarMientrasElProveedorNoResponde() {
+        RecaptchaService service = new RecaptchaService(proveedor, RecaptchaService.PoliticaDegradada.PERMITIR, circuito);
+
+        for (int i = 0; i < 10; i++) {
+            assertThatCode(() -> service.verify("token")).doesNotThrowAnyException();
+        }
+        assertThat(llamadas).hasValue(3);
+    }
+
+    @Test
+    void stub_aceptaTokensSalvoLosReservados() {
+        VerificadorRecaptchaStub stub = new VerificadorRecaptchaStub(0);
+
+        assertThat(stub.verificar("cualquiera")).isTrue();
+        assertThat(stub.verificar(VerificadorRecaptchaStub.TOKEN_INVALIDO)).isFalse();
+        assertThatThrownBy(() -> stub.verificar(VerificadorRecaptchaStub.TOKEN_ERROR))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,90 @@
+package horse_reserved.service;
+
+import horse_reserved.exception.InvalidCredentialsException;
+import horse_reserved.model.RefreshToken;
+import horse_reserved.model.Usuario;
+import horse_reserved.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenServiceTest {
+
+    private RefreshTokenRepository repository;
+    private RefreshTokenService service;
+    private Usuario usuario;
+
+    // Tabla simulada: hash -> token guardado
+    private final Map<String, RefreshToken> guardados = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RefreshTokenRepository.class);
+        when(repository.save(any())).thenAnswer(inv -> {
+            RefreshToken token = inv.getArgument(0);
+            guardados.put(token.getTokenHash(), token);
+            return token;
+        });
+        when(repository.findByTokenHashForUpdate(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(guardados.get(inv.<String>getArgument(0))));
+        service = new RefreshTokenService(repository, 60_000L);
+        usuario = Usuario.builder().id(1L).email("cliente@test.com").isActive(true).build();
+    }
+
+    @Test
+    void emitir_guardaSoloElHash() {
+        String token = service.emitir(usuario);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(repository).save(captor.capture());
+        assertThat(captor.getValue().getTokenHash()).hasSize(64).isNotEqualTo(token)
+                .isEqualTo(RefreshTokenService.hash(token));
+        assertThat(captor.getValue().getExpiresAt()).isAfter(Instant.now());
+    }
+
+    @Test
+    void rotar_entregaOtroTokenDeLaMismaFamiliaYConsumeElAnterior() {
+        String inicial = service.emitir(usuario);
+        UUID familia = guardados.get(RefreshTokenService.hash(inicial)).getFamilia();
+
+        RefreshTokenService.Rotacion rotacion = service.rotar(inicial);
+
+        assertThat(rotacion.usuario()).isSameAs(usuario);
+        assertThat(rotacion.token()).isNotEqualTo(inicial);
+        assertThat(guardados.get(RefreshTokenService.hash(inicial)).getUsedAt()).isNotNull();
+        assertThat(guardados.get(RefreshTokenService.hash(rotacion.token())).getFamilia()).isEqualTo(familia);
+    }
+
+    @Test
+    void reutilizarUnTokenRotado_revocaLaFamilia() {
+        String inicial = service.emitir(usuario);
+        UUID familia = guardados.get(RefreshTokenService.hash(inicial)).getFamilia();
+        service.rotar(inicial);
+
+        assertThatThrownBy(() -> service.rotar(inicial)).isInstanceOf(InvalidCredentialsException.class);
+        verify(repository).revocarFamilia(familia);
+    }
+
+    @Test
+    void tokenDesconocidoOExpirado_esRechazado() {
+        assertThatThrownBy(() -> service.rotar("desconocido")).isInstanceOf(InvalidCredentialsException.class);
+
+        String token = service.emitir(usuario);
+        guardados.get(RefreshTokenService.hash(token)).setExpiresAt(Instant.now().minusSeconds(1));
+
+        assertThatThrownBy(() -> service.rotar(token)).isInstanceOf(InvalidCredentialsException.class);
+        verify(repository, never()).revocarFamilia(any());
+    }
+}
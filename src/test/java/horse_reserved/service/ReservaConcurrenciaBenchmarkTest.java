@@ -0,0 +1,191 @@
+package horse_reserved.service;
+
+import horse_reserved.DatosPrueba;
+import horse_reserved.dto.request.CreateReservaRequest;
+import horse_reserved.dto.request.ParticipanteRequest;
+import horse_reserved.exception.BusinessRuleException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prueba de estres de reservas concurrentes sobre la misma salida.
+ * Se ejecuta con {@code ./gradlew test -Pbenchmarks} contra la base de datos local;
+ * los datos se crean con un marcador unico y se eliminan al terminar.
+ */
+@SpringBootTest(properties = "app.reservas.bloqueo-timeout-ms=60000")
+@Tag("benchmark")
+class ReservaConcurrenciaBenchmarkTest {
+
+    private static final int SOLICITUDES = 300;
+    private static final int HILOS = 64;
+    private static final int CABALLOS = 12;
+    private static final LocalDate FECHA = LocalDate.of(2099, 2, 10);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    private DatosPrueba datos;
+    private String marcador;
+    private String email;
+    private Long rutaId;
+
+    @BeforeEach
+    void sembrarDatos() {
+        marcador = "estres-" + UUID.randomUUID();
+        email = marcador + "@test.com";
+
+        datos = new DatosPrueba(jdbcTemplate);
+        datos.usuario(email, "1", "CLIENTE");
+        rutaId = datos.ruta(marcador);
+        datos.caballos(marcador, CABALLOS);
+        datos.guias(marcador, 2);
+    }
+
+    @AfterEach
+    void limpiarDatos() {
+        datos.borrar(rutaId, marcador, email);
+        datos.olvidarAgenda(FECHA, FECHA);
+    }
+
+    @Test
+    void salidaExistente_noSeSobrevende() throws Exception {
+        LocalTime hora = LocalTime.of(9, 0);
+        Long salidaId = jdbcTemplate.queryForObject("""
+                INSERT INTO salidas (ruta_id, fecha_programada, tiempo_inicio, tiempo_fin, estado, cupo_maximo)
+                VALUES (?, ?, ?, ?, 'programado', ?) RETURNING id
+                """, Long.class, rutaId, FECHA, hora, hora.plusMinutes(60), CABALLOS);
+        jdbcTemplate.update("INSERT INTO salida_caballos (salida_id, horse_id) SELECT ?, id FROM caballos WHERE nombre = ?",
+                salidaId, marcador);
+        // La salida se inserto por fuera de la aplicacion
+        datos.olvidarAgenda(FECHA, FECHA);
+
+        Resultado resultado = ejecutarConcurrentes(hora);
+
+        Long reservados = jdbcTemplate.queryForObject(
+                "SELECT coalesce(sum(num_people), 0) FROM reservaciones WHERE salida_id = ? AND estado <> 'cancelado'",
+                Long.class, salidaId);
+        Integer cupoOcupado = jdbcTemplate.queryForObject(
+                "SELECT cupo_ocupado FROM salidas WHERE id = ?", Integer.class, salidaId);
+        resultado.imprimir("Salida existente con " + CABALLOS + " caballos");
+
+        assertThat(resultado.errores.get()).as("primer error: %s", resultado.primerError.get()).isZero();
+        assertThat(resultado.exitosas.get()).isEqualTo(CABALLOS);
+        assertThat(reservados).isEqualTo(CABALLOS);
+        assertThat(cupoOcupado).isEqualTo(CABALLOS);
+    }
+
+    @Test
+    void salidaNueva_seCreaUnaSolaVez() throws Exception {
+        LocalTime hora = LocalTime.of(14, 0);
+
+        Resultado resultado = ejecutarConcurrentes(hora);
+
+        Integer salidas = jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM salidas
+                WHERE ruta_id = ? AND fecha_programada = ? AND tiempo_inicio = ? AND estado = 'programado'
+                """, Integer.class, rutaId, FECHA, hora);
+        Long sobrevendidas = jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM salidas s
+                WHERE s.ruta_id = ?
+                  AND (SELECT coalesce(sum(r.num_people), 0) FROM reservaciones r
+                       WHERE r.salida_id = s.id AND r.estado <> 'cancelado')
+                    > (SELECT count(*) FROM salida_caballos sc WHERE sc.salida_id = s.id)
+                """, Long.class, rutaId);
+        resultado.imprimir("Salida nueva creada por solicitudes concurrentes");
+
+        assertThat(resultado.errores.get()).as("primer error: %s", resultado.primerError.get()).isZero();
+        assertThat(salidas).isEqualTo(1);
+        assertThat(sobrevendidas).isZero();
+    }
+
+    private Resultado ejecutarConcurrentes(LocalTime hora) throws InterruptedException {
+        Resultado resultado = new Resultado();
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        CountDownLatch terminadas = new CountDownLatch(SOLICITUDES);
+
+        for (int i = 0; i < SOLICITUDES; i++) {
+            executor.submit(() -> {
+                try {
+                    salida.await();
+                    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                            email, null, List.of(new SimpleGrantedAuthority("CLIENTE"))));
+                    reservaService.crearReserva(solicitud(hora));
+                    resultado.exitosas.incrementAndGet();
+                } catch (BusinessRuleException e) {
+                    resultado.rechazadas.incrementAndGet();
+                } catch (Exception e) {
+                    resultado.errores.incrementAndGet();
+                    resultado.primerError.compareAndSet(null, e);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    terminadas.countDown();
+                }
+                return null;
+            });
+        }
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        assertThat(terminadas.await(5, TimeUnit.MINUTES)).as("las solicitudes terminan a tiempo").isTrue();
+        resultado.nanos = System.nanoTime() - inicio;
+        executor.shutdownNow();
+        return resultado;
+    }
+
+    private CreateReservaRequest solicitud(LocalTime hora) {
+        ParticipanteRequest participante = ParticipanteRequest.builder()
+                .primerNombre("Jinete")
+                .primerApellido("Concurrente")
+                .tipoDocumento("CEDULA")
+                .documento(UUID.randomUUID().toString().substring(0, 12))
+                .edad((short) 30)
+                .cmAltura((short) 170)
+                .kgPeso(new BigDecimal("70.00"))
+                .build();
+        return CreateReservaRequest.builder()
+                .rutaId(rutaId)
+                .fecha(FECHA)
+                .horaInicio(hora)
+                .cantPersonas(1)
+                .participantes(List.of(participante))
+                .build();
+    }
+
+    private static final class Resultado {
+        final AtomicInteger exitosas = new AtomicInteger();
+        final AtomicInteger rechazadas = new AtomicInteger();
+        final AtomicInteger errores = new AtomicInteger();
+        final AtomicReference<Exception> primerError = new AtomicReference<>();
+        long nanos;
+
+        void imprimir(String escenario) {
+            double segundos = nanos / 1e9;
+            System.out.printf("%s: %d solicitudes, %d hilos%n", escenario, SOLICITUDES, HILOS);
+            System.out.printf("  exitosas=%d rechazadas=%d errores=%d%n", exitosas.get(), rechazadas.get(), errores.get());
+            System.out.printf("  %.2f s, %.1f solicitudes/s%n", segundos, SOLICITUDES / segundos);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package horse_reserved.service;
+
+import horse_reserved.DatosPrueba;
+import horse_reserved.dto.response.ReservaResponse;
+import horse_reserved.model.Reserva;
+import horse_reserved.repository.ReservaRepository;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara el armado de ReservaResponse con entidades hidratadas por @EntityGraph (incluyendo
+ * participantes) contra el modelo de lectura por proyecciones, para 1.000 y 100.000 reservas
+ * con dos participantes cada una. Se ejecuta con {@code ./gradlew test -Pbenchmarks} contra la
+ * base de datos local; los datos se insertan dentro de la transaccion de la prueba y se revierten.
+ */
+@SpringBootTest
+@Transactional
+@Tag("benchmark")
+class ReservaLecturaBenchmarkTest {
+
+    private static final int RESERVAS = 100_000;
+    private static final LocalDate FECHA = LocalDate.of(2099, 3, 1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private ReservaLecturaService reservaLectura;
+
+    @Autowired
+    private ReservaMapper reservaMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void sembrarDatos() {
+        DatosPrueba datos = new DatosPrueba(jdbcTemplate);
+        Long rutaId = datos.ruta("Benchmark lectura");
+        Long salidaId = jdbcTemplate.queryForObject("""
+                INSERT INTO salidas (ruta_id, fecha_programada, tiempo_inicio, tiempo_fin, estado)
+                VALUES (?, ?, '08:00', '09:00', 'completado') RETURNING id
+                """, Long.class, rutaId, FECHA);
+        Long clienteId = datos.usuario("benchmark-lectura@test.com", "1", "CLIENTE");
+        jdbcTemplate.update("""
+                INSERT INTO reservaciones (salida_id, client_id, num_people, estado, precio_unitario, total)
+                SELECT ?, ?, 2, 'completado', 1000, 2000 FROM generate_series(1, ?)
+                """, salidaId, clienteId, RESERVAS);
+        jdbcTemplate.update("""
+                INSERT INTO participantes (reservacion_id, primer_nombre, primer_apellido, tipo_documento,
+                                           documento, edad, altura_cm, peso_kg)
+                SELECT r.id, 'Jinete', 'Benchmark', 'CEDULA', r.id || '-' || p, 30, 170, 70
+                FROM reservaciones r CROSS JOIN generate_series(1, 2) p
+                WHERE r.salida_id = ?
+                """, salidaId);
+    }
+
+    @Test
+    void proyecciones_vsEntityGraph() {
+        for (int cantidad : new int[]{1_000, RESERVAS}) {
+            Long umbral = jdbcTemplate.queryForObject(
+                    "SELECT min(id) - 1 FROM (SELECT id FROM reservaciones ORDER BY id DESC LIMIT ?) ultimas",
+                    Long.class, cantidad);
+
+            Supplier<List<ReservaResponse>> entidades = () -> {
+                List<ReservaResponse> r = cargarConEntityGraph(umbral).stream().map(reservaMapper::toResponse).toList();
+                entityManager.clear();
+                return r;
+            };
+            Supplier<List<ReservaResponse>> proyecciones = () -> reservaLectura.ensamblar(
+                    reservaRepository.buscarPagina(Long.MAX_VALUE, null, null, null, null, null, null,
+                            PageRequest.of(0, cantidad)));
+
+            // Calentamiento y verificacion de que ambos caminos producen lo mismo
+            List<ReservaResponse> a = entidades.get();
+            List<ReservaResponse> b = proyecciones.get();
+            assertThat(b).hasSize(cantidad);
+            assertThat(b).extracting(ReservaResponse::getId).isEqualTo(a.stream().map(ReservaResponse::getId).toList());
+            assertThat(b.getFirst().getParticipantes()).hasSize(2);
+
+            long entidadesNanos = medir(entidades);
+            long proyeccionesNanos = medir(proyecciones);
+
+            System.out.printf("Listado de %,d reservas con 2 participantes:%n", cantidad);
+            System.out.printf("  EntityGraph + mapper : %10.1f ms%n", entidadesNanos / 1e6);
+            System.out.printf("  Proyecciones + IN    : %10.1f ms%n", proyeccionesNanos / 1e6);
+        }
+    }
+
+    private List<Reserva> cargarConEntityGraph(Long umbral) {
+        EntityGraph<Reserva> grafo = entityManager.createEntityGraph(Reserva.class);
+        grafo.addAttributeNodes("cliente", "operador", "participantes");
+        grafo.addSubgraph("salida").addAttributeNodes("ruta");
+        return entityManager.createQuery("select r from Reserva r where r.id > :umbral order by r.id desc", Reserva.class)
+                .setParameter("umbral", umbral)
+                .setHint("jakarta.persistence.fetchgraph", grafo)
+                .getResultList();
+    }
+
+    private static long medir(Supplier<?> operacion) {
+        long inicio = System.nanoTime();
+        operacion.get();
+        return System.nanoTime() - inicio;
+    }
+}
@@ -0,0 +1,137 @@
+package horse_reserved.service;
+
+import horse_reserved.DatosPrueba;
+import horse_reserved.dto.request.CreateReservaRequest;
+import horse_reserved.dto.request.ParticipanteRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica que el numero de sentencias de una reserva no crece con el tamano del grupo:
+ * los participantes se insertan en un lote JDBC y sus ids salen del bloque de la secuencia.
+ * Se ejecuta con {@code ./gradlew test -Pbenchmarks} contra la base de datos local;
+ * los datos se insertan dentro de la transaccion de la prueba y se revierten.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+@Tag("benchmark")
+class ReservaSentenciasBenchmarkTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2099, 4, 1);
+    private static final LocalTime HORA = LocalTime.of(8, 0);
+    private static final String EMAIL = "benchmark-sentencias@test.com";
+    private static final String NOMBRE = "Benchmark sentencias";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long rutaId;
+
+    @BeforeEach
+    void sembrarDatos() {
+        DatosPrueba datos = new DatosPrueba(jdbcTemplate);
+        datos.usuario(EMAIL, "1", "CLIENTE");
+        rutaId = datos.ruta(NOMBRE);
+        Long salidaId = jdbcTemplate.queryForObject("""
+                INSERT INTO salidas (ruta_id, fecha_programada, tiempo_inicio, tiempo_fin, estado, cupo_maximo)
+                VALUES (?, ?, ?, ?, 'programado', 20) RETURNING id
+                """, Long.class, rutaId, FECHA, HORA, HORA.plusMinutes(60));
+        datos.caballos(NOMBRE, 20);
+        jdbcTemplate.update("""
+                INSERT INTO salida_caballos (salida_id, horse_id)
+                SELECT ?, id FROM caballos WHERE nombre = ?
+                """, salidaId, NOMBRE);
+        // Dos guias desde el inicio para que ningun tamano de grupo asigne guias extra
+        datos.guias(NOMBRE, 2);
+        jdbcTemplate.update("""
+                INSERT INTO salida_guias (salida_id, guia_id)
+                SELECT ?, id FROM guias WHERE nombre = ?
+                """, salidaId, NOMBRE);
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                EMAIL, null, List.of(new SimpleGrantedAuthority("CLIENTE"))));
+    }
+
+    @AfterEach
+    void limpiarContexto() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void reservaDeDoce_usaLasMismasSentenciasQueReservaDeUno() {
+        // Calentamiento: llena los bloques de ids de las secuencias
+        contarSentencias(1, 0);
+
+        long individual = contarSentencias(1, 100);
+        long grupal = contarSentencias(12, 200);
+
+        System.out.printf("Sentencias por reserva: 1 persona = %d, 12 personas = %d%n", individual, grupal);
+
+        assertThat(grupal).isLessThanOrEqualTo(individual);
+        assertThat(grupal).isLessThan(12);
+    }
+
+    private long contarSentencias(int personas, int documentoBase) {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas.clear();
+
+        reservaService.crearReserva(solicitud(personas, documentoBase));
+        entityManager.flush();
+
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    private CreateReservaRequest solicitud(int personas, int documentoBase) {
+        List<ParticipanteRequest> participantes = IntStream.range(0, personas)
+                .mapToObj(i -> ParticipanteRequest.builder()
+                        .primerNombre("Jinete")
+                        .primerApellido("Grupo")
+                        .tipoDocumento("CEDULA")
+                        .documento(String.valueOf(documentoBase + i))
+                        .edad((short) 30)
+                        .cmAltura((short) 170)
+                        .kgPeso(new BigDecimal("70.00"))
+                        .build())
+                .toList();
+        return CreateReservaRequest.builder()
+                .rutaId(rutaId)
+                .fecha(FECHA)
+                .horaInicio(HORA)
+                .cantPersonas(personas)
+                .participantes(participantes)
+                .build();
+    }
+}
@@ -0,0 +1,148 @@
+package horse_reserved.service;
+
+import horse_reserved.dto.request.FiltroReservasRequest;
+import horse_reserved.dto.response.PaginaResponse;
+import horse_reserved.dto.response.ReservaResponse;
+import horse_reserved.model.*;
+import horse_reserved.repository.*;
+import horse_reserved.security.UsuarioAutenticado;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class ReservaServiceTest {
+
+    private ReservaRepository reservaRepository;
+    private DisponibilidadRecursosService disponibilidadRecursos;
+    private BloqueoSalidasService bloqueoSalidas;
+    private CupoSalidasService cupoSalidas;
+    private ReservaService service;
+
+    @BeforeEach
+    void setUp() {
+        reservaRepository = mock(ReservaRepository.class);
+        ReservaLecturaService lectura = mock(ReservaLecturaService.class);
+        when(lectura.ensamblar(any())).thenAnswer(inv -> inv.<List<ReservaCabecera>>getArgument(0).stream()
+                .map(c -> ReservaResponse.builder().id(c.id()).build())
+                .toList());
+
+        disponibilidadRecursos = mock(DisponibilidadRecursosService.class);
+        bloqueoSalidas = mock(BloqueoSalidasService.class);
+        cupoSalidas = mock(CupoSalidasService.class);
+
+        service = new ReservaService(reservaRepository, mock(SalidaRepository.class), mock(RutaRepository.class),
+                mock(CaballoRepository.class), mock(GuiaRepository.class), mock(UsuarioRepository.class),
+                mock(ReservaMapper.class), disponibilidadRecursos, bloqueoSalidas, cupoSalidas, lectura,
+                new MetricasReservas(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void limpiarContexto() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // =========================================================
+    // Cancelacion
+    // =========================================================
+
+    @Test
+    void cancelarUltimaReserva_cancelaLaSalidaYLiberaSusRecursos() {
+        Reserva reserva = reservaDeCliente(7L);
+        when(cupoSalidas.liberar(reserva.getSalida(), 2)).thenReturn(0);
+
+        service.cancelarReserva(reserva.getId());
+
+        assertThat(reserva.getEstado()).isEqualTo("cancelado");
+        assertThat(reserva.getSalida().getEstado()).isEqualTo("cancelado");
+        var orden = inOrder(bloqueoSalidas, cupoSalidas, disponibilidadRecursos);
+        orden.verify(bloqueoSalidas).bloquearSalida(3L, reserva.getSalida().getFechaProgramada(), LocalTime.of(8, 0));
+        orden.verify(cupoSalidas).liberar(reserva.getSalida(), 2);
+        orden.verify(bloqueoSalidas).bloquearAgenda(reserva.getSalida().getFechaProgramada());
+        orden.verify(disponibilidadRecursos).liberarSalida(reserva.getSalida());
+    }
+
+    @Test
+    void cancelarConOtrasReservas_mantieneLaSalida() {
+        Reserva reserva = reservaDeCliente(7L);
+        when(cupoSalidas.liberar(reserva.getSalida(), 2)).thenReturn(4);
+
+        service.cancelarReserva(reserva.getId());
+
+        assertThat(reserva.getSalida().getEstado()).isEqualTo("programado");
+        verify(bloqueoSalidas, never()).bloquearAgenda(any());
+        verifyNoInteractions(disponibilidadRecursos);
+    }
+
+    // =========================================================
+    // Paginacion por cursor
+    // =========================================================
+
+    @Test
+    void paginaCompleta_devuelveCursorDelUltimoElemento() {
+        when(reservaRepository.buscarPagina(eq(Long.MAX_VALUE), isNull(), isNull(), isNull(), isNull(), isNull(),
+                isNull(), eq(PageRequest.of(0, 4)))).thenReturn(reservas(100, 97));
+
+        PaginaResponse<ReservaResponse> pagina = service.listarTodas(FiltroReservasRequest.builder().limite(3).build());
+
+        assertThat(pagina.getElementos()).extracting(ReservaResponse::getId).containsExactly(100L, 99L, 98L);
+        assertThat(pagina.getSiguienteCursor()).isEqualTo(98L);
+    }
+
+    @Test
+    void ultimaPagina_noTieneCursor() {
+        when(reservaRepository.buscarPagina(eq(98L), isNull(), isNull(), eq("cancelado"), isNull(), isNull(),
+                isNull(), eq(PageRequest.of(0, 4)))).thenReturn(reservas(97, 96));
+
+        PaginaResponse<ReservaResponse> pagina = service.listarTodas(
+                FiltroReservasRequest.builder().cursor(98L).limite(3).estado(" Cancelado ").build());
+
+        assertThat(pagina.getElementos()).hasSize(2);
+        assertThat(pagina.getSiguienteCursor()).isNull();
+    }
+
+    @Test
+    void limiteFueraDeRango_seAcota() {
+        service.listarTodas(FiltroReservasRequest.builder().limite(10_000).build());
+
+        verify(reservaRepository).buscarPagina(any(), any(), any(), any(), any(), any(), any(),
+                eq(PageRequest.of(0, 101)));
+    }
+
+    private Reserva reservaDeCliente(Long clienteId) {
+        Usuario cliente = Usuario.builder().id(clienteId).email("cliente@test.com").role(Rol.CLIENTE).build();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                UsuarioAutenticado.desde(cliente), null, List.of()));
+
+        Salida salida = Salida.builder().id(5L).ruta(Ruta.builder().id(3L).build())
+                .fechaProgramada(LocalDate.now().plusDays(3)).tiempoInicio(LocalTime.of(8, 0))
+                .tiempoFin(LocalTime.of(9, 0)).estado("programado").build();
+        Reserva reserva = Reserva.builder().id(40L).salida(salida).cliente(cliente)
+                .cantPersonas(2).estado("reservado").build();
+        when(reservaRepository.findDetailedById(40L)).thenReturn(Optional.of(reserva));
+        when(reservaRepository.save(reserva)).thenReturn(reserva);
+        return reserva;
+    }
+
+    private static List<ReservaCabecera> reservas(long desde, long hasta) {
+        return LongStream.iterate(desde, id -> id >= hasta, id -> id - 1)
+                .mapToObj(id -> new ReservaCabecera(id, "reservado", 1, null, null, null, null, null, null,
+                        null, null, null, null, null, null, null))
+                .toList();
+    }
+}